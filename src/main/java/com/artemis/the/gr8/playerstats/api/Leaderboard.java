@@ -0,0 +1,95 @@
+package com.artemis.the.gr8.playerstats.api;
+
+import java.util.LinkedHashMap;
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable snapshot of the results of a top-statistic, sorted from the
+ * highest to the lowest value (players with the same value are sorted by name).
+ * Positions start at 1. A Leaderboard is cached by PlayerStats, so getting
+ * a page from it doesn't calculate or sort anything again.
+ *
+ * <p>Players that are included in statistic calculations but have a value
+ * of 0 are not always part of a Leaderboard.
+ *
+ * <p>To go through all players (or all players that match a filter), use
+ * a {@link LeaderboardCursor}, which reads directly from the sorted arrays.
+ */
+public interface Leaderboard {
+
+    /**
+     * @return the alias of the ApprovedStat these results are for
+     */
+    @NotNull String getAlias();
+
+    /**
+     * @return the time (in unix-millis) at which these results were calculated
+     */
+    long getCalculatedAt();
+
+    /**
+     * @return the number of players in this Leaderboard
+     */
+    int size();
+
+    /**
+     * @param position the position (starting at 1)
+     * @return the name of the player on this position
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    @NotNull String getName(int position);
+
+    /**
+     * @param position the position (starting at 1)
+     * @return the UUID of the player on this position, or null
+     * if this player is no longer known to PlayerStats
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    @Nullable UUID getUUID(int position);
+
+    /**
+     * @param position the position (starting at 1)
+     * @return the value of the player on this position
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    int getValue(int position);
+
+    /**
+     * Gets the rank of the player on this position. Players with the same
+     * value share the same rank, so this can be lower than the position.
+     *
+     * @param position the position (starting at 1)
+     * @return the rank of the player on this position
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    int getRank(int position);
+
+    /**
+     * @param pageSize the number of players on one page
+     * @return the number of pages (at least 1)
+     */
+    int getPageCount(int pageSize);
+
+    /**
+     * @param page the page (starting at 1)
+     * @param pageSize the number of players on one page
+     * @return the names and values of the players on this page, in order
+     * (which is empty if there is no such page)
+     */
+    @NotNull LinkedHashMap<String, Integer> getPage(int page, int pageSize);
+
+    /**
+     * @return a new LeaderboardCursor that starts before the first player
+     */
+    @NotNull LeaderboardCursor cursor();
+
+    /**
+     * @param filter decides which players the cursor stops at
+     * @return a new LeaderboardCursor that starts before the first player,
+     * and skips all players that don't pass the filter
+     */
+    @NotNull LeaderboardCursor cursor(@NotNull LeaderboardCursor.Filter filter);
+}
@@ -0,0 +1,84 @@
+package com.artemis.the.gr8.playerstats.api;
+
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Walks over the players of a {@link Leaderboard} from the highest to the
+ * lowest value, one player at a time, without creating a Map or an object
+ * for every player. The cursor starts before the first player, so
+ * {@link #next()} has to be called before the first player can be read:
+ * <pre>{@code
+ * LeaderboardCursor cursor = leaderboard.cursor();
+ * while (cursor.next() && cursor.getRank() <= 100) {
+ *     doSomething(cursor.getName(), cursor.getValue());
+ * }
+ * }</pre>
+ * To stop early, simply stop calling {@link #next()}.
+ * A LeaderboardCursor is not thread-safe.
+ */
+public interface LeaderboardCursor {
+
+    /**
+     * Moves the cursor to the next player (that passes the filter,
+     * if this cursor has one).
+     *
+     * @return true if the cursor is on a player now, false if there
+     * are no more players
+     */
+    boolean next();
+
+    /**
+     * @return the position of the current player in the
+     * Leaderboard (starting at 1)
+     * @throws IllegalStateException if the cursor is not on a player
+     */
+    int getPosition();
+
+    /**
+     * @return the UUID of the current player, or null if this player
+     * is no longer known to PlayerStats
+     * @throws IllegalStateException if the cursor is not on a player
+     */
+    @Nullable UUID getUUID();
+
+    /**
+     * @return the name of the current player
+     * @throws IllegalStateException if the cursor is not on a player
+     */
+    @NotNull String getName();
+
+    /**
+     * @return the value of the current player
+     * @throws IllegalStateException if the cursor is not on a player
+     */
+    int getValue();
+
+    /**
+     * Gets the rank of the current player. Players with the same value share
+     * the same rank, and filtered-out players still count for the rank.
+     *
+     * @return the rank of the current player
+     * @throws IllegalStateException if the cursor is not on a player
+     */
+    int getRank();
+
+    /**
+     * Decides which players a LeaderboardCursor stops at.
+     */
+    @FunctionalInterface
+    interface Filter {
+
+        /**
+         * @param uuid the UUID of the player (or null if this
+         *             player is no longer known to PlayerStats)
+         * @param name the name of the player
+         * @param value the value of the player
+         * @param rank the rank of the player
+         * @return true if the cursor should stop at this player
+         */
+        boolean test(@Nullable UUID uuid, @NotNull String name, int value, int rank);
+    }
+}
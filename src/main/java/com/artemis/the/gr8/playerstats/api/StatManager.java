@@ -64,6 +64,10 @@ public interface StatManager {
      * PlayerStats' settings). This RequestGenerator will make sure
      * all default settings for a top-statistic-lookup are configured.
      *
+     * <p>The result of this request holds an entry for every player.
+     * To only go through the results, {@link #getLeaderboardCursor(String)}
+     * is a lot lighter.
+     *
      * @return the RequestGenerator*/
     RequestGenerator<LinkedHashMap<String, Integer>> createTotalTopStatRequest();
 
@@ -77,4 +81,41 @@ public interface StatManager {
      * @see StatResult
      */
     StatResult<LinkedHashMap<String, Integer>> executeTopRequest(StatRequest<LinkedHashMap<String, Integer>> request);
+
+    /**
+     * Gets the sorted results of an approved stat for all included players,
+     * as an immutable Leaderboard. Results that were calculated in the last
+     * top-list-cache-seconds are reused, otherwise they are calculated first,
+     * which can take some time. Don't call this from the main Thread!
+     *
+     * @param alias the alias of the approved stat (as used in /top)
+     * @return the Leaderboard for this stat
+     * @throws IllegalArgumentException if there is no approved stat with this alias
+     * @see Leaderboard
+     */
+    Leaderboard getLeaderboard(String alias) throws IllegalArgumentException;
+
+    /**
+     * Gets a LeaderboardCursor that goes through the sorted results of an
+     * approved stat one player at a time, without creating a Map with all
+     * players. This is the same as {@code getLeaderboard(alias).cursor()},
+     * so the same caching applies. Don't call this from the main Thread!
+     *
+     * @param alias the alias of the approved stat (as used in /top)
+     * @return a LeaderboardCursor for this stat
+     * @throws IllegalArgumentException if there is no approved stat with this alias
+     * @see LeaderboardCursor
+     */
+    LeaderboardCursor getLeaderboardCursor(String alias) throws IllegalArgumentException;
+
+    /**
+     * Same as {@link #getLeaderboardCursor(String)}, but the cursor
+     * skips all players that don't pass the filter.
+     *
+     * @param alias the alias of the approved stat (as used in /top)
+     * @param filter decides which players the cursor stops at
+     * @return a LeaderboardCursor for this stat
+     * @throws IllegalArgumentException if there is no approved stat with this alias
+     */
+    LeaderboardCursor getLeaderboardCursor(String alias, LeaderboardCursor.Filter filter) throws IllegalArgumentException;
 }
\ No newline at end of file
@@ -45,6 +45,14 @@ public abstract class StatRequest<T> {
     protected void configureForTop(int topListSize) {
         this.settings.target = Target.TOP;
         this.settings.topListSize = topListSize;
+        this.settings.page = 1;
+    }
+
+    protected void configurePage(int page) {
+        if (page < 1) {
+            throw new IllegalArgumentException("Page must be at least 1");
+        }
+        this.settings.page = page;
     }
 
     protected void configureUntyped(@NotNull Statistic statistic) {
@@ -91,11 +99,11 @@ public abstract class StatRequest<T> {
             case UNTYPED ->
                 true; // Untyped always matches
             case BLOCK ->
-                component.material() != null;
+                component.material() != null || component.isAggregate();
             case ITEM ->
-                component.material() != null;
+                component.material() != null || component.isAggregate();
             case ENTITY ->
-                component.entityType() != null;
+                component.entityType() != null || component.isAggregate();
         };
     }
 
@@ -106,6 +114,7 @@ public abstract class StatRequest<T> {
         private String playerName;
         private Target target;
         private int topListSize;
+        private int page;
 
         // Fields below are deprecated/redundant if approvedStat is set
         // Keep for now if StatCommand still uses them directly, but should refactor
@@ -175,6 +184,14 @@ public abstract class StatRequest<T> {
             return this.topListSize;
         }
 
+        /**
+         * @return the page of the top-list to show (starting at 1),
+         * where every page contains {@link #getTopListSize()} players
+         */
+        public int getPage() {
+            return Math.max(this.page, 1);
+        }
+
         /**
          * @deprecated Use {@link #getApprovedStat()} and access its components.
          */
@@ -5,6 +5,8 @@ import net.kyori.adventure.text.TextComponent;
 import org.bukkit.Statistic;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+
 /**
  * Formats messages meant for usage outside PlayerStats.
  * <p> For more information about the default formatting
@@ -27,6 +29,20 @@ public interface StatTextFormatter {
      */
     String textComponentToString(TextComponent component);
 
+    /**
+     * Turns a TextComponent into its String representation (in the same way as
+     * {@link #textComponentToString(TextComponent)}), and writes it to the given
+     * Appendable instead of returning it. This is useful if you are combining
+     * many results into one larger text, such as a file or a StringBuilder.
+     *
+     * @param component the Component to turn into String
+     * @param output the Appendable to write the String representation to
+     * @throws IOException if the Appendable throws one
+     */
+    default void appendTextComponent(TextComponent component, Appendable output) throws IOException {
+        output.append(textComponentToString(component));
+    }
+
     /**
      * Gets the default prefix PlayerStats uses.
      * @return [PlayerStats]
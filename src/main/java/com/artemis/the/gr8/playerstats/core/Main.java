@@ -2,6 +2,7 @@ package com.artemis.the.gr8.playerstats.core;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.bstats.bukkit.Metrics;
 import org.bukkit.Bukkit;
@@ -24,16 +25,28 @@ import com.artemis.the.gr8.playerstats.core.commands.TabCompleter;
 import com.artemis.the.gr8.playerstats.core.commands.TopCommand;
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
 import com.artemis.the.gr8.playerstats.core.listeners.JoinListener;
+import com.artemis.the.gr8.playerstats.core.listeners.PlayerSetListener;
 import com.artemis.the.gr8.playerstats.core.listeners.SilkTouchListener;
+import com.artemis.the.gr8.playerstats.core.listeners.StatIndexListener;
 import com.artemis.the.gr8.playerstats.core.msg.OutputManager;
 import com.artemis.the.gr8.playerstats.core.msg.msgutils.LanguageKeyHandler;
 import com.artemis.the.gr8.playerstats.core.msg.msgutils.NumberFormatter;
+import com.artemis.the.gr8.playerstats.core.multithreading.BackgroundThrottle;
+import com.artemis.the.gr8.playerstats.core.multithreading.OnlineStatSampler;
 import com.artemis.the.gr8.playerstats.core.multithreading.ThreadManager;
+import com.artemis.the.gr8.playerstats.core.placeholder.PlayerStatsExpansion;
 import com.artemis.the.gr8.playerstats.core.sharing.ShareManager;
+import com.artemis.the.gr8.playerstats.core.statistic.LeaderboardWarmer;
 import com.artemis.the.gr8.playerstats.core.statistic.StatRequestManager;
+import com.artemis.the.gr8.playerstats.core.statistic.filter.PlayerRegistry;
+import com.artemis.the.gr8.playerstats.core.statistic.history.StatHistory;
+import com.artemis.the.gr8.playerstats.core.statistic.season.SeasonManager;
+import com.artemis.the.gr8.playerstats.core.statistic.index.StatIndex;
 import com.artemis.the.gr8.playerstats.core.utils.Closable;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
 import com.artemis.the.gr8.playerstats.core.utils.OfflinePlayerHandler;
 import com.artemis.the.gr8.playerstats.core.utils.Reloadable;
+import com.artemis.the.gr8.playerstats.core.utils.YamlFileHandler;
 
 import me.clip.placeholderapi.PlaceholderAPIPlugin;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
@@ -60,11 +73,14 @@ public final class Main extends JavaPlugin implements PlayerStats {
 
         initializeMainClassesInOrder();
         registerCommands();
+        registerPlaceholderExpansion();
         setupMetrics();
 
         //register the listener
         Bukkit.getPluginManager().registerEvents(new JoinListener(threadManager), this);
         Bukkit.getPluginManager().registerEvents(new SilkTouchListener(), this);
+        Bukkit.getPluginManager().registerEvents(new StatIndexListener(), this);
+        Bukkit.getPluginManager().registerEvents(new PlayerSetListener(), this);
 
         //finish up
         this.getLogger().info("Enabled PlayerStats!");
@@ -73,6 +89,8 @@ public final class Main extends JavaPlugin implements PlayerStats {
     @Override
     public void onDisable() {
         closables.forEach(Closable::close);
+        YamlFileHandler.shutdownIO();
+        MyLogger.flush();
         this.getLogger().info("Disabled PlayerStats!");
     }
 
@@ -80,6 +98,33 @@ public final class Main extends JavaPlugin implements PlayerStats {
         //config is not registered as reloadable to ensure it can be reloaded before everything else
         config.reload();
         reloadables.forEach(Reloadable::reload);
+        publishGeneration();
+    }
+
+    /**
+     * Builds a new {@link RuntimeGeneration} from the currently loaded
+     * approved stats, included players and MessageBuilders, and
+     * publishes it for all requests that start after this. The included
+     * players are copied, so later changes to the exclude-list only show
+     * up in the next generation.
+     */
+    public static synchronized void publishGeneration() {
+        RuntimeGeneration.publish(new RuntimeGeneration(
+                ConfigHandler.getInstance().getApprovedStats(),
+                ConfigHandler.getInstance().getComponentTable(),
+                Map.copyOf(OfflinePlayerHandler.getInstance().getIncludedPlayers()),
+                OutputManager.getInstance().getLoadedMessageBuilder(false),
+                OutputManager.getInstance().getLoadedMessageBuilder(true)));
+    }
+
+    /**
+     * Publishes a new {@link RuntimeGeneration} if PlayerStats has
+     * already published one (and is therefore done loading).
+     */
+    public static synchronized void refreshGeneration() {
+        if (RuntimeGeneration.currentOrNull() != null) {
+            publishGeneration();
+        }
     }
 
     public static void registerReloadable(Reloadable reloadable) {
@@ -119,14 +164,23 @@ public final class Main extends JavaPlugin implements PlayerStats {
         pluginInstance = this;
         playerStatsAPI = this;
         config = ConfigHandler.getInstance();
+        //before the classes that start reading player files in the background
+        BackgroundThrottle.getInstance();
 
         LanguageKeyHandler.getInstance();
+        PlayerRegistry.getInstance();
         OfflinePlayerHandler.getInstance();
+        StatIndex.getInstance();
         OutputManager.getInstance();
         ShareManager.getInstance();
 
         statManager = new StatRequestManager();
         threadManager = new ThreadManager(this);
+        publishGeneration();
+        OnlineStatSampler.getInstance();
+        LeaderboardWarmer.getInstance();
+        StatHistory.getInstance();
+        SeasonManager.getInstance();
     }
 
     /**
@@ -169,6 +223,17 @@ public final class Main extends JavaPlugin implements PlayerStats {
         }
     }
 
+    /**
+     * Registers the built-in PlaceholderAPI expansion, if PlaceholderAPI is installed.
+     */
+    private void registerPlaceholderExpansion() {
+        if (Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) {
+            if (!new PlayerStatsExpansion().register()) {
+                MyLogger.logWarning("Could not register the PlayerStats placeholders, is another expansion called 'playerstats' installed?");
+            }
+        }
+    }
+
     /**
      * Setup bstats
      */
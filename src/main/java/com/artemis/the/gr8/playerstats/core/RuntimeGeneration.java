@@ -0,0 +1,130 @@
+package com.artemis.the.gr8.playerstats.core;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.config.CompiledSettings;
+import com.artemis.the.gr8.playerstats.core.config.ComponentTable;
+import com.artemis.the.gr8.playerstats.core.msg.MessageBuilder;
+
+/**
+ * Everything a running request reads that can change with a reload: the
+ * approved stats (and the {@link ComponentTable} with their components),
+ * the included players, the formatting settings and the MessageBuilders
+ * that use them. A generation
+ * never changes after it is created. A reload builds a new generation and
+ * publishes it in one go, so requests that are still running can finish
+ * on the generation they started with, while new requests pick up the
+ * new one. Reloading therefore never has to wait for running requests.
+ */
+public final class RuntimeGeneration {
+
+    private static final AtomicReference<RuntimeGeneration> current = new AtomicReference<>();
+    private static final AtomicInteger lastNumber = new AtomicInteger(0);
+
+    private final int number;
+    private final Map<String, ApprovedStat> approvedStats;
+    private final ComponentTable componentTable;
+    private final Map<String, UUID> includedPlayers;
+    private final CompiledSettings settings;
+    private final MessageBuilder messageBuilder;
+    private final MessageBuilder consoleMessageBuilder;
+
+    /**
+     * @param approvedStats an unmodifiable map of the approved stats by alias
+     * @param includedPlayers an immutable copy of the included players
+     * @param messageBuilder a MessageBuilder whose settings are
+     *                       the settings of this generation
+     */
+    RuntimeGeneration(@NotNull Map<String, ApprovedStat> approvedStats,
+                      @NotNull ComponentTable componentTable,
+                      @NotNull Map<String, UUID> includedPlayers,
+                      @NotNull MessageBuilder messageBuilder,
+                      @NotNull MessageBuilder consoleMessageBuilder) {
+        this.number = lastNumber.incrementAndGet();
+        this.approvedStats = approvedStats;
+        this.componentTable = componentTable;
+        this.includedPlayers = includedPlayers;
+        this.settings = messageBuilder.getSettings();
+        this.messageBuilder = messageBuilder;
+        this.consoleMessageBuilder = consoleMessageBuilder;
+    }
+
+    /**
+     * @return the generation that new requests should use
+     * @throws IllegalStateException if PlayerStats is not loaded yet
+     */
+    public static @NotNull RuntimeGeneration current() throws IllegalStateException {
+        RuntimeGeneration generation = current.get();
+        if (generation == null) {
+            throw new IllegalStateException("PlayerStats is not loaded!");
+        }
+        return generation;
+    }
+
+    /**
+     * @return the current generation, or null if none has been published yet
+     */
+    public static @Nullable RuntimeGeneration currentOrNull() {
+        return current.get();
+    }
+
+    static void publish(@NotNull RuntimeGeneration generation) {
+        current.set(generation);
+    }
+
+    /**
+     * @return the number of this generation (every reload gets a higher number)
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * @param alias the alias (case-insensitive) to look up
+     * @return the ApprovedStat for this alias in this generation, or null
+     */
+    public @Nullable ApprovedStat getApprovedStat(@NotNull String alias) {
+        return approvedStats.get(alias.toLowerCase());
+    }
+
+    public @NotNull Set<String> getApprovedAliases() {
+        return approvedStats.keySet();
+    }
+
+    /**
+     * @return the distinct components of the approved stats in this generation
+     */
+    public @NotNull ComponentTable getComponentTable() {
+        return componentTable;
+    }
+
+    /**
+     * @return the names and UUIDs of the players that are included
+     * in statistic calculations
+     */
+    public @NotNull Map<String, UUID> getIncludedPlayers() {
+        return includedPlayers;
+    }
+
+    /**
+     * @return the settings that the MessageBuilders of this generation
+     * format their messages with
+     */
+    public @NotNull CompiledSettings getSettings() {
+        return settings;
+    }
+
+    public @NotNull MessageBuilder getMessageBuilder(@NotNull CommandSender sender) {
+        return sender instanceof ConsoleCommandSender ? consoleMessageBuilder : messageBuilder;
+    }
+}
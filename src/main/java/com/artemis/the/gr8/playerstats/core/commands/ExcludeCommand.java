@@ -9,6 +9,8 @@ import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public final class ExcludeCommand implements CommandExecutor {
 
@@ -35,18 +37,19 @@ public final class ExcludeCommand implements CommandExecutor {
             }
         }
         else {
+            List<String> playerNames = Arrays.asList(args).subList(1, args.length);
             switch (args[0]) {
                 case "add" -> {
-                    if (offlinePlayerHandler.addPlayerToExcludeList(args[1])) {
-                        outputManager.sendFeedbackMsgPlayerExcluded(sender, args[1]);
-                    } else {
+                    List<String> excluded = offlinePlayerHandler.addPlayersToExcludeList(playerNames);
+                    excluded.forEach(playerName -> outputManager.sendFeedbackMsgPlayerExcluded(sender, playerName));
+                    if (excluded.size() < playerNames.size()) {
                         outputManager.sendFeedbackMsg(sender, StandardMessage.EXCLUDE_FAILED);
                     }
                 }
                 case "remove" -> {
-                    if (offlinePlayerHandler.removePlayerFromExcludeList(args[1])) {
-                        outputManager.sendFeedbackMsgPlayerIncluded(sender, args[1]);
-                    } else {
+                    List<String> included = offlinePlayerHandler.removePlayersFromExcludeList(playerNames);
+                    included.forEach(playerName -> outputManager.sendFeedbackMsgPlayerIncluded(sender, playerName));
+                    if (included.size() < playerNames.size()) {
                         outputManager.sendFeedbackMsg(sender, StandardMessage.INCLUDE_FAILED);
                     }
                 }
@@ -4,6 +4,11 @@ import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
 import com.artemis.the.gr8.playerstats.core.enums.StandardMessage;
 import com.artemis.the.gr8.playerstats.core.msg.OutputManager;
+import com.artemis.the.gr8.playerstats.core.multithreading.BackgroundThrottle;
+import com.artemis.the.gr8.playerstats.core.multithreading.RequestProfile;
+import com.artemis.the.gr8.playerstats.core.multithreading.ThreadManager;
+import com.artemis.the.gr8.playerstats.core.statistic.season.Season;
+import com.artemis.the.gr8.playerstats.core.statistic.season.SeasonManager;
 import com.artemis.the.gr8.playerstats.core.utils.EnumHandler;
 import org.bukkit.Material;
 import org.bukkit.Statistic;
@@ -15,15 +20,29 @@ import org.bukkit.entity.EntityType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import static net.kyori.adventure.text.Component.text;
+
 public final class StatAdminCommand implements CommandExecutor, TabCompleter {
 
     private static final String ADMIN_PERMISSION = "playerstats.admin";
+    private static final int DEFAULT_PROFILE_COUNT = 10;
+    private static final int SLOWEST_PROFILE_COUNT = 3;
+    private static final DateTimeFormatter SEASON_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
     private static OutputManager outputManager;
     private static ConfigHandler config;
     private static EnumHandler enumHandler;
@@ -56,6 +75,12 @@ public final class StatAdminCommand implements CommandExecutor, TabCompleter {
                 handleRemoveApproved(sender, subArgs);
             case "listapproved" ->
                 handleListApproved(sender);
+            case "profile" ->
+                handleProfile(sender, subArgs);
+            case "status" ->
+                handleStatus(sender);
+            case "season" ->
+                handleSeason(sender, subArgs);
             default ->
                 sendHelp(sender);
         }
@@ -68,6 +93,9 @@ public final class StatAdminCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage("/statadmin addapproved <alias> <display_name> <statistic> [sub_statistic]");
         sender.sendMessage("/statadmin removeapproved <alias>");
         sender.sendMessage("/statadmin listapproved");
+        sender.sendMessage("/statadmin profile [count]");
+        sender.sendMessage("/statadmin status");
+        sender.sendMessage("/statadmin season [start <name>]");
     }
 
     private void handleAddApproved(CommandSender sender, String[] args) {
@@ -227,6 +255,135 @@ public final class StatAdminCommand implements CommandExecutor, TabCompleter {
         }
     }
 
+    private void handleProfile(CommandSender sender, String[] args) {
+        int count = DEFAULT_PROFILE_COUNT;
+        if (args.length > 0) {
+            try {
+                count = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                count = -1;
+            }
+            if (count < 1) {
+                sender.sendMessage("Usage: /statadmin profile [count]");
+                return;
+            }
+        }
+
+        List<RequestProfile> profiles = ThreadManager.getRecentRequestProfiles();
+        if (profiles.isEmpty()) {
+            sender.sendMessage("No requests have been profiled yet.");
+            return;
+        }
+        profiles = profiles.subList(0, Math.min(count, profiles.size()));
+
+        //highlight the slowest requests of the ones that are shown
+        Set<RequestProfile> slowest = new HashSet<>();
+        if (profiles.size() > SLOWEST_PROFILE_COUNT) {
+            profiles.stream()
+                    .sorted(Comparator.comparingLong(RequestProfile::getTotalNanos).reversed())
+                    .limit(SLOWEST_PROFILE_COUNT)
+                    .forEach(slowest::add);
+            outputManager.sendToCommandSender(sender, text("Last " + profiles.size() + " requests (newest first, the " +
+                    SLOWEST_PROFILE_COUNT + " slowest in ")
+                    .append(text("red", NamedTextColor.RED))
+                    .append(text("):")));
+        } else {
+            sender.sendMessage("Last " + profiles.size() + " requests (newest first):");
+        }
+
+        long now = System.currentTimeMillis();
+        for (RequestProfile profile : profiles) {
+            NamedTextColor color = slowest.contains(profile) ? NamedTextColor.RED : NamedTextColor.GRAY;
+            outputManager.sendToCommandSender(sender, text("- " + TimeUnit.MILLISECONDS.toSeconds(now - profile.getFinishedAt()) + "s ago, " +
+                    profile.getTarget().name().toLowerCase() + " " + profile.getStatName() + ": " +
+                    formatNanos(profile.getTotalNanos()) + " (queued " + formatNanos(profile.getPhaseNanos(RequestProfile.Phase.QUEUED)) +
+                    ", calculate " + formatNanos(profile.getPhaseNanos(RequestProfile.Phase.CALCULATE)) +
+                    ", format & send " + formatNanos(profile.getPhaseNanos(RequestProfile.Phase.FORMAT_AND_SEND)) + ")" +
+                    " | cpu " + (profile.getCpuNanos() >= 0 ? formatNanos(profile.getCpuNanos()) : "n/a") +
+                    " | alloc " + (profile.getAllocatedBytes() >= 0 ? formatBytes(profile.getAllocatedBytes()) : "n/a"), color));
+        }
+    }
+
+    private void handleStatus(CommandSender sender) {
+        BackgroundThrottle throttle = BackgroundThrottle.getInstance();
+        double mspt = throttle.getLastMspt();
+        int budget = throttle.getMsptBudget();
+
+        sender.sendMessage("PlayerStats Status:");
+        sender.sendMessage("- Running stat calculations: " + ThreadManager.getActiveActionCount());
+        if (budget <= 0) {
+            sender.sendMessage("- Background work: not throttled (background-work-mspt-budget is 0)");
+            return;
+        }
+        sender.sendMessage("- Server MSPT: " + (mspt >= 0 ? String.format("%.1fms", mspt) : "unknown") + " (budget " + budget + "ms)");
+        int level = throttle.getLevel();
+        if (level == 0) {
+            outputManager.sendToCommandSender(sender, text("- Background work: ")
+                    .append(text("full speed", NamedTextColor.GREEN))
+                    .append(text(" (" + throttle.getAllowedParallelism() + " threads)")));
+        } else {
+            outputManager.sendToCommandSender(sender, text("- Background work: ")
+                    .append(text("throttled", NamedTextColor.RED))
+                    .append(text(" (level " + level + "/" + throttle.getMaxLevel() + ": " + throttle.getAllowedParallelism() +
+                            " of " + throttle.getMaxParallelism() + " threads, " + throttle.getPauseMillis() + "ms pause per chunk)")));
+        }
+    }
+
+    private void handleSeason(CommandSender sender, String[] args) {
+        SeasonManager seasonManager = SeasonManager.getInstance();
+        if (args.length == 0) {
+            Season season = seasonManager.getCurrentSeason();
+            if (season == null) {
+                sender.sendMessage("No season has been started yet. Use /statadmin season start <name> to start one.");
+            } else {
+                sender.sendMessage("Current season: " + season.getName() + " (started " +
+                        SEASON_DATE_FORMAT.format(Instant.ofEpochMilli(season.getStartedAt())) + ", " +
+                        season.getPlayerCount() + " players)");
+            }
+            return;
+        }
+        if (args.length != 2 || !args[0].equalsIgnoreCase("start")) {
+            sender.sendMessage("Usage: /statadmin season [start <name>]");
+            return;
+        }
+
+        String name = args[1];
+        if (!SeasonManager.isValidName(name)) {
+            outputManager.sendToCommandSender(sender,
+                    text("A season name can only contain letters, numbers, - and _ (up to 32 characters).", NamedTextColor.RED));
+            return;
+        } else if (seasonManager.exists(name)) {
+            outputManager.sendToCommandSender(sender, text("A season named '" + name + "' has already been started.", NamedTextColor.RED));
+            return;
+        }
+        boolean started = seasonManager.startSeason(name, season -> {
+            if (season != null) {
+                outputManager.sendToCommandSender(sender, text("Season '" + name + "' has started with the values of " +
+                        season.getPlayerCount() + " players as its baseline.", NamedTextColor.GREEN));
+            } else {
+                outputManager.sendToCommandSender(sender,
+                        text("Could not start season '" + name + "'. Please check the console.", NamedTextColor.RED));
+            }
+        });
+        if (started) {
+            sender.sendMessage("Starting season '" + name + "'...");
+        } else {
+            outputManager.sendToCommandSender(sender,
+                    text("Another season is still being started, please try again later.", NamedTextColor.RED));
+        }
+    }
+
+    private static String formatNanos(long nanos) {
+        return String.format("%.1fms", nanos / 1_000_000.0);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
     @Override
     public @Nullable
     List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
@@ -238,11 +395,13 @@ public final class StatAdminCommand implements CommandExecutor, TabCompleter {
         String currentArg = args[args.length - 1].toLowerCase();
 
         if (args.length == 1) { // Subcommand
-            completions.addAll(List.of("addapproved", "removeapproved", "listapproved"));
+            completions.addAll(List.of("addapproved", "removeapproved", "listapproved", "profile", "status", "season"));
         } else if (args.length > 1) {
             String subCommand = args[0].toLowerCase();
             if (subCommand.equals("removeapproved") && args.length == 2) { // Alias to remove
                 completions.addAll(config.getApprovedAliases());
+            } else if (subCommand.equals("season") && args.length == 2) {
+                completions.add("start");
             } // Tab complete for addapproved: <alias> <"Display Name"> <StatisticName> [SubStatName]
             else if (subCommand.equals("addapproved")) {
                 if (args.length == 4) { // StatisticName
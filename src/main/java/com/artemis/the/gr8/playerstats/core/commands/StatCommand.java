@@ -34,6 +34,7 @@ import com.artemis.the.gr8.playerstats.core.utils.OfflinePlayerHandler;
 
 public final class StatCommand implements CommandExecutor {
 
+    public static final String DISTRIBUTION_ARG = "distribution";
     private static final Pattern pattern = Pattern.compile("top|server|me|player");
 
     private static OutputManager outputManager;
@@ -139,12 +140,14 @@ public final class StatCommand implements CommandExecutor {
         private String subStatName;
         private Target target;
         private String playerName;
+        private boolean includeDistribution;
         private StatRequest<?> request;
 
         private ArgProcessor(CommandSender sender, String[] args) {
             this.sender = sender;
             this.argsToProcess = args;
 
+            extractDistribution();
             extractStatistic();
             extractSubStatistic();
             extractTarget();
@@ -162,7 +165,7 @@ public final class StatCommand implements CommandExecutor {
                 case PLAYER ->
                     new PlayerStatRequest(sender, playerName);
                 case SERVER ->
-                    new ServerStatRequest(sender);
+                    new ServerStatRequest(sender).distribution(includeDistribution);
                 case TOP ->
                     new TopStatRequest(sender, config.getTopListMaxSize());
             };
@@ -231,6 +234,23 @@ public final class StatCommand implements CommandExecutor {
             }
         }
 
+        /**
+         * The distribution-arg is only accepted right after the server-target,
+         * so it can still be a player name everywhere else.
+         */
+        private void extractDistribution() {
+            for (int i = 1; i < argsToProcess.length; i++) {
+                if (argsToProcess[i].equalsIgnoreCase(DISTRIBUTION_ARG)
+                        && argsToProcess[i - 1].equalsIgnoreCase("server")) {
+                    includeDistribution = true;
+                    ArrayList<String> currentArgs = new ArrayList<>(Arrays.asList(argsToProcess));
+                    currentArgs.remove(i);
+                    argsToProcess = currentArgs.toArray(String[]::new);
+                    return;
+                }
+            }
+        }
+
         private void extractStatistic() {
             String statName = null;
             for (String arg : argsToProcess) {
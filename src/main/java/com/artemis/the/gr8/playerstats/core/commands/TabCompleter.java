@@ -1,6 +1,7 @@
 package com.artemis.the.gr8.playerstats.core.commands;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -13,6 +14,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.statistic.filter.PlayerRegistry;
+import com.artemis.the.gr8.playerstats.core.statistic.history.TimeWindow;
 import com.artemis.the.gr8.playerstats.core.utils.EnumHandler;
 import com.artemis.the.gr8.playerstats.core.utils.OfflinePlayerHandler;
 
@@ -53,8 +56,17 @@ public final class TabCompleter implements org.bukkit.command.TabCompleter {
             // Suggest approved stat aliases for the first argument
             Set<String> approvedAliases = ConfigHandler.getInstance().getApprovedAliases();
             return getDynamicTabSuggestions(new ArrayList<>(approvedAliases), args[0]);
+        } else if (args.length == 2) {
+            List<String> windows = new ArrayList<>();
+            Arrays.stream(TimeWindow.values()).map(TimeWindow::getName).forEach(windows::add);
+            windows.add(TopCommand.SEASON_ARG);
+            windows.addAll(PlayerRegistry.getInstance().getSuggestedSetNames());
+            return getDynamicTabSuggestions(windows, args[1]);
+        } else if (args.length == 3
+                && (TimeWindow.fromName(args[1]) != null || args[1].equalsIgnoreCase(TopCommand.SEASON_ARG))) {
+            return getDynamicTabSuggestions(PlayerRegistry.getInstance().getSuggestedSetNames(), args[2]);
         }
-        // No suggestions for subsequent arguments for /top
+        // No suggestions for the page
         return null;
     }
 
@@ -104,6 +116,8 @@ public final class TabCompleter implements org.bukkit.command.TabCompleter {
                 } else {  //otherwise "player" is the target: suggest playerNames
                     tabSuggestions = offlinePlayerHandler.getIncludedOfflinePlayerNames();
                 }
+            } else if (previousArg.equalsIgnoreCase("server")) {
+                tabSuggestions = List.of(StatCommand.DISTRIBUTION_ARG);
             } //after a substatistic, suggest targets
             else if (enumHandler.isSubStatEntry(previousArg)) {
                 tabSuggestions = statCommandTargets;
@@ -16,12 +16,18 @@ import com.artemis.the.gr8.playerstats.core.multithreading.ThreadManager;
 import com.artemis.the.gr8.playerstats.core.statistic.RequestProcessor;
 import com.artemis.the.gr8.playerstats.core.statistic.StatRequestManager;
 import com.artemis.the.gr8.playerstats.core.statistic.TopStatRequest;
+import com.artemis.the.gr8.playerstats.core.statistic.filter.PlayerFilter;
+import com.artemis.the.gr8.playerstats.core.statistic.history.StatHistory;
+import com.artemis.the.gr8.playerstats.core.statistic.history.TimeWindow;
+import com.artemis.the.gr8.playerstats.core.statistic.season.SeasonManager;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 
 public final class TopCommand implements CommandExecutor {
 
+    public static final String SEASON_ARG = "season";
+
     private static OutputManager outputManager;
     private static ConfigHandler config;
 
@@ -37,7 +43,39 @@ public final class TopCommand implements CommandExecutor {
             return true;
         }
 
-        if (args.length != 1) {
+        if (args.length < 1 || args.length > 4) {
+            sendAvailableStats(player);
+            return true;
+        }
+
+        // /top <alias> [week|month|season] [filter] [page]
+        TimeWindow timeWindow = args.length >= 2 ? TimeWindow.fromName(args[1]) : null;
+        boolean seasonal = args.length >= 2 && args[1].equalsIgnoreCase(SEASON_ARG);
+        int pageArg = timeWindow != null || seasonal ? 2 : 1;
+        PlayerFilter filter = null;
+        if (args.length > pageArg && parsePage(args[pageArg]) == 0) {
+            filter = PlayerFilter.parse(args[pageArg]);
+            if (filter == null) {
+                outputManager.sendFeedbackMsg(sender, StandardMessage.UNKNOWN_PLAYER_SET);
+                return true;
+            }
+            pageArg++;
+        }
+        if (args.length > pageArg + 1) {
+            sendAvailableStats(player);
+            return true;
+        }
+        if (timeWindow != null && !StatHistory.getInstance().isEnabled()) {
+            outputManager.sendFeedbackMsg(sender, StandardMessage.NO_STAT_HISTORY);
+            return true;
+        }
+        if (seasonal && SeasonManager.getInstance().getCurrentSeason() == null) {
+            outputManager.sendFeedbackMsg(sender, StandardMessage.NO_ACTIVE_SEASON);
+            return true;
+        }
+
+        int page = args.length > pageArg ? parsePage(args[pageArg]) : 1;
+        if (page < 1) {
             sendAvailableStats(player);
             return true;
         }
@@ -54,6 +92,10 @@ public final class TopCommand implements CommandExecutor {
         // Create the StatRequest using ApprovedStat details
         TopStatRequest request = new TopStatRequest(sender, config.getTopListMaxSize()); // Get top N size from config
         request.approvedStat(approvedStat); // Set the approved stat directly
+        request.page(page);
+        request.timeWindow(timeWindow);
+        request.season(seasonal);
+        request.filter(filter);
 
         if (!request.isValid()) {
             // This might happen if the ApprovedStat loaded from config is somehow invalid despite parsing
@@ -73,6 +115,17 @@ public final class TopCommand implements CommandExecutor {
         return true;
     }
 
+    /**
+     * @return the page number, or 0 if this is not a valid page
+     */
+    private int parsePage(String arg) {
+        try {
+            return Math.max(Integer.parseInt(arg), 0);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     private void sendAvailableStats(Player player) {
         Set<String> aliases = config.getApprovedAliases();
         if (aliases.isEmpty()) {
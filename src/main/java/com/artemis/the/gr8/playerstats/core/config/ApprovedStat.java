@@ -1,8 +1,10 @@
 package com.artemis.the.gr8.playerstats.core.config;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import org.bukkit.Material;
 import org.bukkit.Statistic;
@@ -35,15 +37,58 @@ public final class ApprovedStat {
 
     /**
      * Internal record to hold the details of a single Bukkit statistic
-     * component.
+     * component. A BLOCK, ITEM or ENTITY component without a Material or
+     * EntityType is an aggregate: it stands for the total of all its
+     * sub-statistics, or only of the Materials in the materialFilter
+     * if there is one.
      */
     public record StatComponent(
             @NotNull Statistic statistic,
             @NotNull Statistic.Type type,
             @Nullable Material material,
-            @Nullable EntityType entityType
+            @Nullable EntityType entityType,
+            @Nullable Set<Material> materialFilter
             ) {
 
+        public StatComponent {
+            if (materialFilter != null) {
+                materialFilter = Collections.unmodifiableSet(materialFilter.isEmpty() ?
+                        EnumSet.noneOf(Material.class) : EnumSet.copyOf(materialFilter));
+            }
+        }
+
+        public StatComponent(@NotNull Statistic statistic, @NotNull Statistic.Type type,
+                             @Nullable Material material, @Nullable EntityType entityType) {
+            this(statistic, type, material, entityType, null);
+        }
+
+        /**
+         * Creates a component for the total of all sub-statistics of this
+         * (typed) Statistic.
+         *
+         * @param statistic a Statistic of Type BLOCK, ITEM or ENTITY
+         * @param materialFilter the Materials to include, or null to include
+         *                       everything (must be null for ENTITY statistics)
+         */
+        public static @NotNull StatComponent aggregate(@NotNull Statistic statistic, @Nullable Set<Material> materialFilter) {
+            Statistic.Type type = statistic.getType();
+            if (type == Statistic.Type.UNTYPED) {
+                throw new IllegalArgumentException("Statistic must be BLOCK, ITEM or ENTITY type for an aggregate");
+            }
+            if (type == Statistic.Type.ENTITY && materialFilter != null) {
+                throw new IllegalArgumentException("A material filter cannot be used for ENTITY type statistics");
+            }
+            return new StatComponent(statistic, type, null, null, materialFilter);
+        }
+
+        /**
+         * @return true if this component stands for the total of multiple
+         * sub-statistics, instead of a single Bukkit statistic
+         */
+        public boolean isAggregate() {
+            return type != Statistic.Type.UNTYPED && material == null && entityType == null;
+        }
+
         // Constructor for UNTYPED stats
         public StatComponent(@NotNull Statistic statistic) {
             this(statistic, Statistic.Type.UNTYPED, null, null);
@@ -0,0 +1,253 @@
+package com.artemis.the.gr8.playerstats.core.config;
+
+import java.util.EnumMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.api.enums.Target;
+import com.artemis.the.gr8.playerstats.api.enums.Unit;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+
+/**
+ * All config settings that are needed to format a message, read from the
+ * {@link ConfigHandler} once and converted to the types they are used as:
+ * colors are parsed into TextColors, styles into TextDecorations and units
+ * into {@link Unit}s. A new CompiledSettings is created every time the config
+ * is (re)loaded and is swapped in as a whole. It never changes after that, so
+ * the MessageBuilder and ComponentFactory can read its fields for every message
+ * instead of going through the FileConfiguration with a String path.
+ */
+public final class CompiledSettings {
+
+    /**
+     * A parsed color and style setting.
+     *
+     * @param color the color, or null if it could not be parsed
+     * @param isHexColor whether the color was given as a hex-code
+     *                   (which not every console can display)
+     * @param style the style, or null for "none"
+     */
+    public record Decoration(@Nullable TextColor color, boolean isHexColor, @Nullable TextDecoration style) {
+    }
+
+    private final boolean useHoverText;
+    private final boolean useTranslatableComponents;
+    private final boolean useDots;
+    private final boolean playerNameIsBold;
+    private final int topListMaxSize;
+    private final int statShareWaitingTime;
+    private final String topStatsTitle;
+    private final String serverTitle;
+    private final String serverName;
+    private final float hoverColorMultiplier;
+
+    private final EnumMap<Target, Boolean> useEnters;
+    private final EnumMap<Target, Boolean> useEntersForShared;
+
+    //index 0 is for plain text, index 1 for hover-text
+    private final Unit[] distanceUnit;
+    private final Unit[] damageUnit;
+    private final Unit[] biggestTimeUnit;
+    private final Unit[] smallestTimeUnit;
+    private final boolean[] autoDetectTimeUnit;
+    private final int[] extraTimeUnits;
+
+    private final EnumMap<Target, Decoration> playerName;
+    private final EnumMap<Target, Decoration> statName;
+    private final EnumMap<Target, Decoration> subStatName;
+    private final EnumMap<Target, Decoration> statNumber;
+    private final EnumMap<Target, Decoration> title;
+    private final Decoration titleNumber;
+    private final Decoration serverNameDecoration;
+    private final Decoration rankNumber;
+    private final Decoration dots;
+    private final Decoration sharedByText;
+    private final Decoration sharerName;
+
+    CompiledSettings(@NotNull ConfigHandler config) {
+        useHoverText = config.useHoverText();
+        useTranslatableComponents = config.useTranslatableComponents();
+        useDots = config.useDots();
+        playerNameIsBold = config.playerNameIsBold();
+        topListMaxSize = config.getTopListMaxSize();
+        statShareWaitingTime = config.getStatShareWaitingTime();
+        topStatsTitle = config.getTopStatsTitle();
+        serverTitle = config.getServerTitle();
+        serverName = config.getServerName();
+        hoverColorMultiplier = (float) ((100 - config.getHoverTextAmountLighter()) / 100.0);
+
+        useEnters = new EnumMap<>(Target.class);
+        useEntersForShared = new EnumMap<>(Target.class);
+        playerName = new EnumMap<>(Target.class);
+        statName = new EnumMap<>(Target.class);
+        subStatName = new EnumMap<>(Target.class);
+        statNumber = new EnumMap<>(Target.class);
+        title = new EnumMap<>(Target.class);
+        for (Target target : Target.values()) {
+            useEnters.put(target, config.useEnters(target, false));
+            useEntersForShared.put(target, config.useEnters(target, true));
+            playerName.put(target, decoration(config.getPlayerNameDecoration(target, false), config.getPlayerNameDecoration(target, true)));
+            statName.put(target, decoration(config.getStatNameDecoration(target, false), config.getStatNameDecoration(target, true)));
+            subStatName.put(target, decoration(config.getSubStatNameDecoration(target, false), config.getSubStatNameDecoration(target, true)));
+            statNumber.put(target, decoration(config.getStatNumberDecoration(target, false), config.getStatNumberDecoration(target, true)));
+            title.put(target, decoration(config.getTitleDecoration(target, false), config.getTitleDecoration(target, true)));
+        }
+        titleNumber = decoration(config.getTitleNumberDecoration(false), config.getTitleNumberDecoration(true));
+        serverNameDecoration = decoration(config.getServerNameDecoration(false), config.getServerNameDecoration(true));
+        rankNumber = decoration(config.getRankNumberDecoration(false), config.getRankNumberDecoration(true));
+        dots = decoration(config.getDotsDecoration(false), config.getDotsDecoration(true));
+        sharedByText = decoration(config.getSharedByTextDecoration(false), config.getSharedByTextDecoration(true));
+        sharerName = decoration(config.getSharerNameDecoration(false), config.getSharerNameDecoration(true));
+
+        distanceUnit = new Unit[]{Unit.fromString(config.getDistanceUnit(false)), Unit.fromString(config.getDistanceUnit(true))};
+        damageUnit = new Unit[]{Unit.fromString(config.getDamageUnit(false)), Unit.fromString(config.getDamageUnit(true))};
+        biggestTimeUnit = new Unit[]{Unit.fromString(config.getTimeUnit(false)), Unit.fromString(config.getTimeUnit(true))};
+        smallestTimeUnit = new Unit[]{Unit.fromString(config.getTimeUnit(false, true)), Unit.fromString(config.getTimeUnit(true, true))};
+        autoDetectTimeUnit = new boolean[]{config.autoDetectTimeUnit(false), config.autoDetectTimeUnit(true)};
+        extraTimeUnits = new int[]{config.getNumberOfExtraTimeUnits(false), config.getNumberOfExtraTimeUnits(true)};
+    }
+
+    private static @NotNull Decoration decoration(@Nullable String colorString, @Nullable String styleString) {
+        TextColor color = null;
+        boolean isHexColor = false;
+        if (colorString != null) {
+            if (colorString.contains("#")) {
+                color = TextColor.fromHexString(colorString);
+                isHexColor = true;
+            } else {
+                color = NamedTextColor.NAMES.value(colorString);
+            }
+            if (color == null) {
+                MyLogger.logWarning("Could not parse the color '" + colorString + "' in your config!");
+            }
+        }
+
+        TextDecoration style = null;
+        if (styleString != null && !styleString.equalsIgnoreCase("none")) {
+            style = styleString.equalsIgnoreCase("magic") ?
+                    TextDecoration.OBFUSCATED : TextDecoration.NAMES.value(styleString);
+        }
+        return new Decoration(color, isHexColor, style);
+    }
+
+    private static int index(boolean isUnitForHoverText) {
+        return isUnitForHoverText ? 1 : 0;
+    }
+
+    public boolean useHoverText() {
+        return useHoverText;
+    }
+
+    public boolean useTranslatableComponents() {
+        return useTranslatableComponents;
+    }
+
+    public boolean useDots() {
+        return useDots;
+    }
+
+    public boolean playerNameIsBold() {
+        return playerNameIsBold;
+    }
+
+    public int getTopListMaxSize() {
+        return topListMaxSize;
+    }
+
+    public int getStatShareWaitingTime() {
+        return statShareWaitingTime;
+    }
+
+    public String getTopStatsTitle() {
+        return topStatsTitle;
+    }
+
+    public String getServerTitle() {
+        return serverTitle;
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * @return the factor to multiply the saturation of a
+     * color with to get the color for hover-text
+     */
+    public float getHoverColorMultiplier() {
+        return hoverColorMultiplier;
+    }
+
+    public boolean useEnters(@NotNull Target target, boolean getSharedSetting) {
+        return (getSharedSetting ? useEntersForShared : useEnters).get(target);
+    }
+
+    public @NotNull Unit getDistanceUnit(boolean isUnitForHoverText) {
+        return distanceUnit[index(isUnitForHoverText)];
+    }
+
+    public @NotNull Unit getDamageUnit(boolean isUnitForHoverText) {
+        return damageUnit[index(isUnitForHoverText)];
+    }
+
+    public @NotNull Unit getTimeUnit(boolean isUnitForHoverText, boolean smallUnit) {
+        return (smallUnit ? smallestTimeUnit : biggestTimeUnit)[index(isUnitForHoverText)];
+    }
+
+    public boolean autoDetectTimeUnit(boolean isUnitForHoverText) {
+        return autoDetectTimeUnit[index(isUnitForHoverText)];
+    }
+
+    public int getNumberOfExtraTimeUnits(boolean isUnitForHoverText) {
+        return extraTimeUnits[index(isUnitForHoverText)];
+    }
+
+    public @NotNull Decoration getPlayerNameDecoration(@NotNull Target target) {
+        return playerName.get(target);
+    }
+
+    public @NotNull Decoration getStatNameDecoration(@NotNull Target target) {
+        return statName.get(target);
+    }
+
+    public @NotNull Decoration getSubStatNameDecoration(@NotNull Target target) {
+        return subStatName.get(target);
+    }
+
+    public @NotNull Decoration getStatNumberDecoration(@NotNull Target target) {
+        return statNumber.get(target);
+    }
+
+    public @NotNull Decoration getTitleDecoration(@NotNull Target target) {
+        return title.get(target);
+    }
+
+    public @NotNull Decoration getTitleNumberDecoration() {
+        return titleNumber;
+    }
+
+    public @NotNull Decoration getServerNameDecoration() {
+        return serverNameDecoration;
+    }
+
+    public @NotNull Decoration getRankNumberDecoration() {
+        return rankNumber;
+    }
+
+    public @NotNull Decoration getDotsDecoration() {
+        return dots;
+    }
+
+    public @NotNull Decoration getSharedByTextDecoration() {
+        return sharedByText;
+    }
+
+    public @NotNull Decoration getSharerNameDecoration() {
+        return sharerName;
+    }
+}
@@ -0,0 +1,155 @@
+package com.artemis.the.gr8.playerstats.core.config;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * All distinct {@link ApprovedStat.StatComponent}s that are used by the approved
+ * stats, each with a dense id (0 up to {@link #size()}). Approved stats that share
+ * a component (for example two DERIVED stats that both need PLAYER_KILLS, or two
+ * compound stats that both count MINE_BLOCK for the same block) point to the same
+ * id. A calculation can therefore fetch the value of every component it needs
+ * once per player into an {@code int[]} vector, and get the value of every BUKKIT
+ * stat by adding up the vector at the ids of its components.
+ *
+ * <p>A ComponentTable is created together with the approved stats
+ * it belongs to, and never changes after that.
+ */
+public final class ComponentTable {
+
+    private static final int MAX_RECURSION_DEPTH = 10;
+    private static final int[] NO_IDS = new int[0];
+
+    private final ApprovedStat.StatComponent[] components;
+    private final Map<ApprovedStat.StatComponent, Integer> ids;
+    private final Map<String, int[]> componentIdsByAlias;
+
+    private ComponentTable(ApprovedStat.StatComponent[] components, Map<ApprovedStat.StatComponent, Integer> ids,
+                           Map<String, int[]> componentIdsByAlias) {
+        this.components = components;
+        this.ids = ids;
+        this.componentIdsByAlias = componentIdsByAlias;
+    }
+
+    /**
+     * @param approvedStats all approved stats
+     * @return a ComponentTable with the components of all BUKKIT stats among these
+     */
+    static @NotNull ComponentTable of(@NotNull Collection<ApprovedStat> approvedStats) {
+        List<ApprovedStat.StatComponent> components = new ArrayList<>();
+        Map<ApprovedStat.StatComponent, Integer> ids = new HashMap<>();
+        Map<String, int[]> componentIdsByAlias = new HashMap<>();
+
+        for (ApprovedStat approvedStat : approvedStats) {
+            if (approvedStat.getStatType() != StatType.BUKKIT) {
+                continue;
+            }
+            List<ApprovedStat.StatComponent> statComponents = approvedStat.getBukkitComponents();
+            int[] componentIds = new int[statComponents.size()];
+            for (int i = 0; i < componentIds.length; i++) {
+                componentIds[i] = ids.computeIfAbsent(statComponents.get(i), component -> {
+                    components.add(component);
+                    return components.size() - 1;
+                });
+            }
+            componentIdsByAlias.put(approvedStat.alias(), componentIds);
+        }
+        return new ComponentTable(components.toArray(new ApprovedStat.StatComponent[0]), ids, componentIdsByAlias);
+    }
+
+    /**
+     * @return the number of distinct components
+     */
+    public int size() {
+        return components.length;
+    }
+
+    /**
+     * @param id the id of a component
+     * @return the component with this id
+     */
+    public @NotNull ApprovedStat.StatComponent get(int id) {
+        return components[id];
+    }
+
+    /**
+     * @param component a StatComponent
+     * @return the id of this component, or -1 if no approved stat uses it
+     */
+    public int getId(@NotNull ApprovedStat.StatComponent component) {
+        Integer id = ids.get(component);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @param bukkitStat a BUKKIT ApprovedStat
+     * @return the ids of the components of this stat
+     * (or an empty array if this stat is not in the table)
+     */
+    public int @NotNull [] getComponentIds(@NotNull ApprovedStat bukkitStat) {
+        return componentIdsByAlias.getOrDefault(bukkitStat.alias(), NO_IDS);
+    }
+
+    /**
+     * @param bukkitStat a BUKKIT ApprovedStat
+     * @param values the value of each component for one player, by id
+     * @return the value of this stat for that player
+     */
+    public int sum(@NotNull ApprovedStat bukkitStat, int @NotNull [] values) {
+        int total = 0;
+        for (int id : getComponentIds(bukkitStat)) {
+            total += values[id];
+        }
+        return total;
+    }
+
+    /**
+     * Gets the ids of all components that are needed to calculate this stat,
+     * including the components of the stats a DERIVED stat is made of.
+     *
+     * @param approvedStat the stat to calculate
+     * @param approvedStats looks up an ApprovedStat by its alias
+     * @return the ids, in ascending order, or null if one of the stats is not
+     * in this table, or if the components of a DERIVED stat are nested too deep
+     */
+    public int @Nullable [] getRequiredIds(@NotNull ApprovedStat approvedStat,
+                                          @NotNull Function<String, ApprovedStat> approvedStats) {
+        BitSet required = new BitSet(components.length);
+        if (!collectRequiredIds(approvedStat, approvedStats, required, 0)) {
+            return null;
+        }
+        return required.stream().toArray();
+    }
+
+    private boolean collectRequiredIds(@NotNull ApprovedStat stat, @NotNull Function<String, ApprovedStat> approvedStats,
+                                       @NotNull BitSet required, int depth) {
+        if (depth > MAX_RECURSION_DEPTH) {
+            return false;
+        }
+        if (stat.getStatType() == StatType.BUKKIT) {
+            int[] componentIds = componentIdsByAlias.get(stat.alias());
+            if (componentIds == null) {
+                return false;
+            }
+            for (int id : componentIds) {
+                required.set(id);
+            }
+            return true;
+        }
+        for (DerivedStatComponent derivedComponent : stat.getDerivedComponents()) {
+            ApprovedStat componentStat = approvedStats.apply(derivedComponent.alias());
+            if (componentStat == null || !collectRequiredIds(componentStat, approvedStats, required, depth + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
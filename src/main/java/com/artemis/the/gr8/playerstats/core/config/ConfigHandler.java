@@ -2,7 +2,10 @@ package com.artemis.the.gr8.playerstats.core.config;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -17,6 +20,7 @@ import org.jetbrains.annotations.Nullable;
 
 import com.artemis.the.gr8.playerstats.api.enums.Target;
 import com.artemis.the.gr8.playerstats.api.enums.Unit;
+import com.artemis.the.gr8.playerstats.core.Main;
 import com.artemis.the.gr8.playerstats.core.utils.EnumHandler;
 import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
 import com.artemis.the.gr8.playerstats.core.utils.YamlFileHandler;
@@ -28,21 +32,22 @@ public final class ConfigHandler extends YamlFileHandler {
 
     private static volatile ConfigHandler instance;
     private final int configVersion;
-    private FileConfiguration config;
     private final EnumHandler enumHandler;
 
     // Thread-safe map for the approved stats cache
     private Map<String, ApprovedStat> approvedStatsCache;
+    private volatile ComponentTable componentTable;
+    private volatile CompiledSettings settings;
 
     private ConfigHandler() {
         super("config.yml");
-        config = super.getFileConfiguration();
         this.enumHandler = EnumHandler.getInstance();
 
         configVersion = 8;
         checkAndUpdateConfigVersion();
         loadApprovedStats();
         MyLogger.setDebugLevel(getDebugLevel());
+        settings = new CompiledSettings(this);
     }
 
     public static ConfigHandler getInstance() {
@@ -62,9 +67,21 @@ public final class ConfigHandler extends YamlFileHandler {
     @Override
     public void reload() {
         super.reload();
-        config = super.getFileConfiguration();
         loadApprovedStats();
         MyLogger.setDebugLevel(getDebugLevel());
+        settings = new CompiledSettings(this);
+    }
+
+    /**
+     * Gets the settings that are needed to format messages, as they were
+     * when the config was last (re)loaded. This is much cheaper than the
+     * getters in this class, which look up their value in the config file
+     * every time.
+     *
+     * @return the CompiledSettings
+     */
+    public @NotNull CompiledSettings getSettings() {
+        return settings;
     }
 
     /**
@@ -79,6 +96,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * <br>PlayerStats 1.6 and up: "config-version" is 6.
      */
     private void checkAndUpdateConfigVersion() {
+        FileConfiguration config = super.getFileConfiguration();
         if (!config.contains("config-version") || config.getInt("config-version") != configVersion) {
             DefaultValueGetter defaultValueGetter = new DefaultValueGetter(config);
             Map<String, Object> defaultValues = defaultValueGetter.getValuesToAdjust();
@@ -111,7 +129,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the DebugLevel (default: 1)
      */
     public int getDebugLevel() {
-        return config.getInt("debug-level", 1);
+        return super.getFileConfiguration().getInt("debug-level", 1);
     }
 
     /**
@@ -120,7 +138,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting (default: true)
      */
     public boolean limitStatRequests() {
-        return config.getBoolean("only-allow-one-lookup-at-a-time-per-player", true);
+        return super.getFileConfiguration().getBoolean("only-allow-one-lookup-at-a-time-per-player", true);
     }
 
     /**
@@ -129,7 +147,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting (default: true)
      */
     public boolean allowStatSharing() {
-        return config.getBoolean("enable-stat-sharing", true);
+        return super.getFileConfiguration().getBoolean("enable-stat-sharing", true);
     }
 
     /**
@@ -139,7 +157,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the number (default: 0)
      */
     public int getStatShareWaitingTime() {
-        return config.getInt("waiting-time-before-sharing-again", 0);
+        return super.getFileConfiguration().getInt("waiting-time-before-sharing-again", 0);
     }
 
     /**
@@ -148,7 +166,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting (default: true)
      */
     public boolean whitelistOnly() {
-        return config.getBoolean("include-whitelist-only", false);
+        return super.getFileConfiguration().getBoolean("include-whitelist-only", false);
     }
 
     /**
@@ -157,7 +175,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting for exclude-banned-players (default: false)
      */
     public boolean excludeBanned() {
-        return config.getBoolean("exclude-banned-players", false);
+        return super.getFileConfiguration().getBoolean("exclude-banned-players", false);
     }
 
     /**
@@ -166,7 +184,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the number (default: 0 - which signals not to use this limit)
      */
     public int getLastPlayedLimit() {
-        return config.getInt("number-of-days-since-last-joined", 0);
+        return super.getFileConfiguration().getInt("number-of-days-since-last-joined", 0);
     }
 
     /**
@@ -175,7 +193,27 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting (default: true)
      */
     public boolean allowPlayerLookupsForExcludedPlayers() {
-        return config.getBoolean("allow-player-lookups-for-excluded-players", true);
+        return super.getFileConfiguration().getBoolean("allow-player-lookups-for-excluded-players", true);
+    }
+
+    /**
+     * The player-sets that top lists can be limited to, with the permission
+     * that players need to be part of each set.
+     *
+     * @return the name of each player-set (in lower case) with its permission
+     */
+    public @NotNull Map<String, String> getPlayerSetPermissions() {
+        Map<String, String> permissions = new LinkedHashMap<>();
+        ConfigurationSection section = super.getFileConfiguration().getConfigurationSection("player-sets");
+        if (section != null) {
+            for (String setName : section.getKeys(false)) {
+                String permission = section.getString(setName);
+                if (permission != null && !permission.isBlank()) {
+                    permissions.put(setName.toLowerCase(Locale.ENGLISH), permission);
+                }
+            }
+        }
+        return permissions;
     }
 
     /**
@@ -185,7 +223,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @implNote Currently supported: statistic, block, item and entity names.
      */
     public boolean useTranslatableComponents() {
-        return config.getBoolean("translate-to-client-language", true);
+        return super.getFileConfiguration().getBoolean("translate-to-client-language", true);
     }
 
     /**
@@ -194,7 +232,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting (default: true)
      */
     public boolean useHoverText() {
-        return config.getBoolean("enable-hover-text", true);
+        return super.getFileConfiguration().getBoolean("enable-hover-text", true);
     }
 
     /**
@@ -203,7 +241,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting (default: true)
      */
     public boolean useFestiveFormatting() {
-        return config.getBoolean("enable-festive-formatting", true);
+        return super.getFileConfiguration().getBoolean("enable-festive-formatting", true);
     }
 
     /**
@@ -213,7 +251,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting (default: false)
      */
     public boolean useRainbowMode() {
-        return config.getBoolean("rainbow-mode", false);
+        return super.getFileConfiguration().getBoolean("rainbow-mode", false);
     }
 
     /**
@@ -224,7 +262,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * false for everything else)
      */
     public boolean useEnters(Target selection, boolean getSharedSetting) {
-        ConfigurationSection section = config.getConfigurationSection("use-enters");
+        ConfigurationSection section = super.getFileConfiguration().getConfigurationSection("use-enters");
         boolean def = selection == Target.TOP && !getSharedSetting;
         if (section != null) {
             String path = switch (selection) {
@@ -249,7 +287,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting (default: true)
      */
     public boolean useDots() {
-        return config.getBoolean("use-dots", true);
+        return super.getFileConfiguration().getBoolean("use-dots", true);
     }
 
     /**
@@ -258,7 +296,68 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the config setting (default: 10)
      */
     public int getTopListMaxSize() {
-        return config.getInt("top-list-max-size", 10);
+        return super.getFileConfiguration().getInt("top-list-max-size", 10);
+    }
+
+    /**
+     * The number of seconds the results of a top-statistic are remembered,
+     * so that other players (and other pages) can be shown without
+     * calculating everything again.
+     *
+     * @return the config setting (default: 60)
+     */
+    public int getTopListCacheSeconds() {
+        return super.getFileConfiguration().getInt("top-list-cache-seconds", 60);
+    }
+
+    /**
+     * The number of most-requested top-statistics that are calculated again
+     * in the background just before their remembered results expire.
+     *
+     * @return the config setting (default: 3)
+     */
+    public int getWarmedLeaderboardCount() {
+        return super.getFileConfiguration().getInt("warm-popular-top-lists", 3);
+    }
+
+    /**
+     * The number of milliseconds per minute that can be spent on calculating
+     * popular top-statistics again in the background.
+     *
+     * @return the config setting (default: 5000)
+     */
+    public int getLeaderboardWarmingBudgetMillis() {
+        return super.getFileConfiguration().getInt("top-list-warming-budget-millis", 5000);
+    }
+
+    /**
+     * The number of days a daily snapshot of all approved stats is kept,
+     * for top lists of the last week or month.
+     *
+     * @return the config setting (default: 35)
+     */
+    public int getStatHistoryRetentionDays() {
+        return super.getFileConfiguration().getInt("stat-history-retention-days", 35);
+    }
+
+    /**
+     * The number of microseconds per tick that can be spent on reading the
+     * statistics of online players, to keep remembered top-statistics up-to-date.
+     *
+     * @return the config setting (default: 500)
+     */
+    public int getOnlineSamplingBudgetMicros() {
+        return super.getFileConfiguration().getInt("online-player-sampling-budget-micros", 500);
+    }
+
+    /**
+     * The average tick time (in milliseconds) above which background work,
+     * such as calculating statistics, slows down to give the server room.
+     *
+     * @return the config setting (default: 45)
+     */
+    public int getMsptBudget() {
+        return super.getFileConfiguration().getInt("background-work-mspt-budget", 45);
     }
 
     /**
@@ -268,7 +367,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * "Top")
      */
     public String getTopStatsTitle() {
-        return config.getString("top-list-title", "Top");
+        return super.getFileConfiguration().getString("top-list-title", "Top");
     }
 
     /**
@@ -277,7 +376,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the title (default: "Total on")
      */
     public String getServerTitle() {
-        return config.getString("total-server-stat-title", "Total on");
+        return super.getFileConfiguration().getString("total-server-stat-title", "Total on");
     }
 
     /**
@@ -286,7 +385,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return the title (default: "this server")
      */
     public String getServerName() {
-        return config.getString("your-server-name", "this server");
+        return super.getFileConfiguration().getString("your-server-name", "this server");
     }
 
     /**
@@ -325,7 +424,7 @@ public final class ConfigHandler extends YamlFileHandler {
             path = path + "-for-hover-text";
         }
         boolean defaultValue = !isUnitForHoverText;
-        return config.getBoolean(path, defaultValue);
+        return super.getFileConfiguration().getBoolean(path, defaultValue);
     }
 
     /**
@@ -342,7 +441,7 @@ public final class ConfigHandler extends YamlFileHandler {
             path = path + "-for-hover-text";
         }
         int defaultValue = isUnitForHoverText ? 0 : 1;
-        return config.getInt(path, defaultValue);
+        return super.getFileConfiguration().getInt(path, defaultValue);
     }
 
     /**
@@ -381,7 +480,7 @@ public final class ConfigHandler extends YamlFileHandler {
      * @return an {@code int} that represents a percentage (default: 20)
      */
     public int getHoverTextAmountLighter() {
-        return config.getInt("hover-text-amount-lighter", 20);
+        return super.getFileConfiguration().getInt("hover-text-amount-lighter", 20);
     }
 
     /**
@@ -589,7 +688,7 @@ public final class ConfigHandler extends YamlFileHandler {
         if (isHoverText && defaultHoverValue != null) {
             def = defaultHoverValue;
         }
-        return config.getString(path, def);
+        return super.getFileConfiguration().getString(path, def);
     }
 
     /**
@@ -619,17 +718,17 @@ public final class ConfigHandler extends YamlFileHandler {
     private @Nullable
     ConfigurationSection getRelevantSection(Target selection) {
         if (selection == null) {  //rather than rework the whole Target enum, I have added shared-stats as the null-option for now
-            return config.getConfigurationSection("shared-stats");
+            return super.getFileConfiguration().getConfigurationSection("shared-stats");
         }
         switch (selection) {
             case TOP -> {
-                return config.getConfigurationSection("top-list");
+                return super.getFileConfiguration().getConfigurationSection("top-list");
             }
             case PLAYER -> {
-                return config.getConfigurationSection("individual-statistics");
+                return super.getFileConfiguration().getConfigurationSection("individual-statistics");
             }
             case SERVER -> {
-                return config.getConfigurationSection("total-server");
+                return super.getFileConfiguration().getConfigurationSection("total-server");
             }
             default -> {
                 return null;
@@ -679,7 +778,7 @@ public final class ConfigHandler extends YamlFileHandler {
      */
     private void loadApprovedStats() {
         Map<String, ApprovedStat> loadedStats = new ConcurrentHashMap<>();
-        ConfigurationSection section = config.getConfigurationSection("approved-stats");
+        ConfigurationSection section = super.getFileConfiguration().getConfigurationSection("approved-stats");
 
         if (section == null) {
             MyLogger.logWarning("Config section 'approved-stats' is missing. Cannot load approved stats.");
@@ -690,14 +789,14 @@ public final class ConfigHandler extends YamlFileHandler {
                 addDefaultApprovedStats(defaults);
                 super.addValues(defaults); // Save defaults back to file
                 reload(); // Reload the file to parse the newly added defaults
-                section = config.getConfigurationSection("approved-stats"); // Try getting section again
+                section = super.getFileConfiguration().getConfigurationSection("approved-stats"); // Try getting section again
                 if (section == null) {
                     MyLogger.logWarning("Failed to add or find 'approved-stats' section even after adding defaults.");
-                    this.approvedStatsCache = Collections.unmodifiableMap(loadedStats); // Assign empty map
+                    setApprovedStats(loadedStats); // Assign empty map
                     return;
                 }
             } else {
-                this.approvedStatsCache = Collections.unmodifiableMap(loadedStats); // Assign empty map
+                setApprovedStats(loadedStats); // Assign empty map
                 return;
             }
         }
@@ -806,7 +905,7 @@ public final class ConfigHandler extends YamlFileHandler {
                         // Parse the whole section as if it were a single component definition
                         ApprovedStat.StatComponent component = parseBukkitStatComponent(alias, statSection.getValues(false));
                         if (component != null) {
-                            ApprovedStat simpleBukkitStat = new ApprovedStat(alias, displayName, component.statistic(), component.type(), component.material(), component.entityType()); // Use simple BUKKIT constructor
+                            ApprovedStat simpleBukkitStat = new ApprovedStat(alias, displayName, List.of(component)); // Keeps the material filter of aggregate components
                             loadedStats.put(alias, simpleBukkitStat);
                             MyLogger.logLowLevelMsg("Loaded simple BUKKIT approved stat: " + alias);
                         } else {
@@ -824,10 +923,19 @@ public final class ConfigHandler extends YamlFileHandler {
             }
         }
 
-        this.approvedStatsCache = Collections.unmodifiableMap(loadedStats);
+        setApprovedStats(loadedStats);
         MyLogger.logMediumLevelMsg("Finished loading approved stats. Found " + loadedStats.size() + " valid entries.");
     }
 
+    /**
+     * Replaces the approved stats cache, and interns the components of all
+     * approved stats into a new {@link ComponentTable}.
+     */
+    private void setApprovedStats(@NotNull Map<String, ApprovedStat> loadedStats) {
+        componentTable = ComponentTable.of(loadedStats.values());
+        approvedStatsCache = Collections.unmodifiableMap(loadedStats);
+    }
+
     /**
      * Parses a Map (from config section or component list item for BUKKIT type)
      * into an ApprovedStat.StatComponent. Logs warnings and returns null if
@@ -840,7 +948,8 @@ public final class ConfigHandler extends YamlFileHandler {
         // For compound BUKKIT components, 'type' might be missing (inferred from statistic).
         // We prioritize explicit 'type' if present, otherwise infer.
         String explicitTypeName = map.get("type") instanceof String s ? s.toUpperCase() : null;
-        String subStatName = map.get("sub-statistic") instanceof String s ? s : null;
+        Object subStatValue = map.get("sub-statistic");
+        String subStatName = subStatValue instanceof String s ? s : null;
 
         if (statName == null) {
             MyLogger.logWarning("Skipping invalid Bukkit stat component for alias '" + contextAlias + "': Missing 'statistic'.");
@@ -876,11 +985,17 @@ public final class ConfigHandler extends YamlFileHandler {
         EntityType entityType = null;
 
         if (declaredType != Statistic.Type.UNTYPED) {
-            if (subStatName == null) {
-                // For simple stats, null sub-stat implies total count for this type.
-                // For components within a list, null sub-stat is generally an error unless the type allows it (e.g., maybe MOB_KILLS total).
-                // Let ApprovedStat constructor handle validation based on context later.
-                MyLogger.logLowLevelMsg("Bukkit stat component for '" + contextAlias + "' is of type " + declaredType + " but no 'sub-statistic' is specified. Assuming total count for this type if applicable.");
+            if (subStatValue == null) {
+                // No sub-stat means the total of all blocks, items or entities for this statistic
+                MyLogger.logLowLevelMsg("Bukkit stat component for '" + contextAlias + "' is of type " + declaredType + " but no 'sub-statistic' is specified. Using the total for this type.");
+                return ApprovedStat.StatComponent.aggregate(statistic, null);
+            } else if (subStatValue instanceof List<?> || isMaterialFilter(subStatName)) {
+                // A list, pattern (*_ore) or tag (#minecraft:logs) means the total of all matching blocks or items
+                Set<Material> materialFilter = parseMaterialFilter(contextAlias, statistic, declaredType, subStatValue);
+                return materialFilter != null ? ApprovedStat.StatComponent.aggregate(statistic, materialFilter) : null;
+            } else if (subStatName == null) {
+                MyLogger.logWarning("Skipping invalid Bukkit stat component for alias '" + contextAlias + "': 'sub-statistic' must be a name, pattern, tag or a list of these.");
+                return null;
             } else {
                 switch (declaredType) {
                     case BLOCK:
@@ -916,11 +1031,11 @@ public final class ConfigHandler extends YamlFileHandler {
         try {
             return switch (declaredType) {
                 case BLOCK ->
-                    new ApprovedStat.StatComponent(statistic, material != null ? material : Material.AIR); // Pass AIR if null for validation consistency? Or handle null in constructor. Let's pass material, constructor handles null.
+                    new ApprovedStat.StatComponent(statistic, material);
                 case ITEM ->
-                    new ApprovedStat.StatComponent(statistic, material != null ? material : Material.AIR, true); // Pass AIR if null? Need marker. Pass material, constructor handles null.
+                    new ApprovedStat.StatComponent(statistic, material, true);
                 case ENTITY ->
-                    new ApprovedStat.StatComponent(statistic, entityType != null ? entityType : EntityType.UNKNOWN); // Pass UNKNOWN? Pass entityType, constructor handles null.
+                    new ApprovedStat.StatComponent(statistic, entityType);
                 case UNTYPED ->
                     new ApprovedStat.StatComponent(statistic);
             };
@@ -939,6 +1054,36 @@ public final class ConfigHandler extends YamlFileHandler {
         }
     }
 
+    private boolean isMaterialFilter(@Nullable String subStatName) {
+        return subStatName != null && (subStatName.contains("*") || subStatName.startsWith("#"));
+    }
+
+    /**
+     * Turns a sub-statistic that consists of one or more names, patterns
+     * or tags into the set of all matching blocks or items. Logs warnings
+     * and returns null if parsing fails.
+     */
+    private @Nullable
+    Set<Material> parseMaterialFilter(@NotNull String contextAlias, @NotNull Statistic statistic, @NotNull Statistic.Type type, @NotNull Object subStatValue) {
+        if (type == Statistic.Type.ENTITY) {
+            MyLogger.logWarning("Skipping invalid Bukkit stat component for alias '" + contextAlias + "': Patterns, tags and lists can only be used for blocks and items, not for statistic '" + statistic + "'.");
+            return null;
+        }
+
+        List<?> filters = subStatValue instanceof List<?> list ? list : List.of(subStatValue);
+        EnumSet<Material> materials = EnumSet.noneOf(Material.class);
+        for (Object filter : filters) {
+            EnumSet<Material> matches = filter instanceof String s ? enumHandler.getMaterialsMatching(s, type) : EnumSet.noneOf(Material.class);
+            if (matches.isEmpty()) {
+                MyLogger.logWarning("Skipping invalid Bukkit stat component for alias '" + contextAlias + "': No " + enumHandler.getSubStatTypeName(type) + " matches '" + filter + "' for statistic '" + statistic + "'.");
+                return null;
+            }
+            materials.addAll(matches);
+        }
+        MyLogger.logLowLevelMsg("Bukkit stat component for '" + contextAlias + "' adds up " + materials.size() + " " + enumHandler.getSubStatTypeName(type) + "s.");
+        return materials;
+    }
+
     /**
      * Gets the ApprovedStat configuration for a given alias.
      *
@@ -955,6 +1100,23 @@ public final class ConfigHandler extends YamlFileHandler {
         return approvedStatsCache.get(alias.toLowerCase());
     }
 
+    /**
+     * @return An unmodifiable Map of all valid approved statistics by alias.
+     */
+    public @NotNull
+    Map<String, ApprovedStat> getApprovedStats() {
+        return approvedStatsCache != null ? approvedStatsCache : Collections.emptyMap();
+    }
+
+    /**
+     * @return the ComponentTable with the distinct components
+     * of all approved stats
+     */
+    public @NotNull
+    ComponentTable getComponentTable() {
+        return componentTable != null ? componentTable : ComponentTable.of(Collections.emptyList());
+    }
+
     /**
      * Gets a set of all valid approved statistic aliases loaded from the
      * config.
@@ -972,7 +1134,7 @@ public final class ConfigHandler extends YamlFileHandler {
 
     /**
      * Adds or updates an approved statistic in the configuration file and
-     * refreshes the cache.
+     * refreshes the cache. The file is written in the background.
      *
      * NOTE: This method currently only supports adding/updating *simple*
      * (non-compound) stats. Compound stats must be added/edited directly in
@@ -982,26 +1144,29 @@ public final class ConfigHandler extends YamlFileHandler {
         String lowerAlias = alias.toLowerCase();
         String path = "approved-stats." + lowerAlias;
 
-        config.set(path + ".display-name", displayName);
-        config.set(path + ".statistic", statistic.name());
-        config.set(path + ".type", type.name());
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put(path + ".display-name", displayName);
+        values.put(path + ".statistic", statistic.name());
+        values.put(path + ".type", type.name());
 
         if (type != Statistic.Type.UNTYPED && subStat != null) {
             if (subStat instanceof Material mat) {
-                config.set(path + ".sub-statistic", mat.name());
+                values.put(path + ".sub-statistic", mat.name());
             } else if (subStat instanceof EntityType et) {
-                config.set(path + ".sub-statistic", et.name());
+                values.put(path + ".sub-statistic", et.name());
             } else {
-                config.set(path + ".sub-statistic", null); // Clear if invalid sub-stat provided for typed stat
+                values.put(path + ".sub-statistic", null); // Clear if invalid sub-stat provided for typed stat
             }
         } else {
-            config.set(path + ".sub-statistic", null); // Ensure null if untyped or no sub-stat intended
+            values.put(path + ".sub-statistic", null); // Ensure null if untyped or no sub-stat intended
         }
+        super.addValues(values);
 
-        // Reload the cache from the potentially updated file (might be slightly delayed)
+        // Refresh the cache from the updated config (the file itself is written in the background)
         loadApprovedStats();
-        MyLogger.logLowLevelMsg("Successfully updated config in memory for approved stat: " + lowerAlias + ". Config will be saved later.");
-        return true; // Assume success for setting in memory
+        Main.refreshGeneration();
+        MyLogger.logLowLevelMsg("Successfully updated approved stat: " + lowerAlias + ". Config will be saved shortly.");
+        return true;
     }
 
     /**
@@ -1012,17 +1177,18 @@ public final class ConfigHandler extends YamlFileHandler {
         String lowerAlias = alias.toLowerCase();
         String path = "approved-stats." + lowerAlias;
 
-        if (!config.contains(path)) {
+        if (!super.getFileConfiguration().contains(path)) {
             MyLogger.logWarning("Attempted to remove non-existent approved stat: " + lowerAlias);
             return false; // Indicate nothing was removed
         }
 
-        config.set(path, null); // Remove the section
+        super.addValues(Collections.singletonMap(path, null)); // Remove the section
 
-        // Reload the cache from the potentially updated file (might be slightly delayed)
+        // Refresh the cache from the updated config (the file itself is written in the background)
         loadApprovedStats();
-        MyLogger.logLowLevelMsg("Successfully removed config section in memory for approved stat: " + lowerAlias + ". Config will be saved later.");
-        return true; // Assume success for removing from memory
+        Main.refreshGeneration();
+        MyLogger.logLowLevelMsg("Successfully removed approved stat: " + lowerAlias + ". Config will be saved shortly.");
+        return true;
     }
 
     // --- End Approved Stats Methods ---
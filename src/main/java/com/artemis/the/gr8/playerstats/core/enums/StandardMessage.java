@@ -30,5 +30,8 @@ public enum StandardMessage {
     INTERNAL_ERROR, // "An internal error occurred. Please check the console."
     CALCULATING_MSG, // "Calculating statistic: " (used in TopCommand, needs appending)
     INVALID_SUBSTAT_NAME, // "'...' is not a valid item, block, or entity name!"
-    INVALID_COMMAND_SYNTAX // "Invalid command syntax!"
+    INVALID_COMMAND_SYNTAX, // "Invalid command syntax!"
+    NO_STAT_HISTORY, // "There is no statistic history for this period yet!"
+    NO_ACTIVE_SEASON, // "There is no season going on right now!"
+    UNKNOWN_PLAYER_SET // "There is no set of players with this name!"
 }
@@ -0,0 +1,14 @@
+package com.artemis.the.gr8.playerstats.core.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("playerstats.DerivedEvaluation")
+@Label("Derived Stat Evaluation")
+@Description("The evaluation of a DERIVED stat for one batch of players")
+public final class DerivedEvaluationEvent extends RequestEvent {
+
+    @Label("Player Count")
+    public int playerCount;
+}
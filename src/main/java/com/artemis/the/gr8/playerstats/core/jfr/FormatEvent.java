@@ -0,0 +1,11 @@
+package com.artemis.the.gr8.playerstats.core.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("playerstats.Format")
+@Label("Format Result")
+@Description("Turning a calculated result into a message")
+public final class FormatEvent extends RequestEvent {
+}
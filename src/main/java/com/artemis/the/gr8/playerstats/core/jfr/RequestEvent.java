@@ -0,0 +1,46 @@
+package com.artemis.the.gr8.playerstats.core.jfr;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.artemis.the.gr8.playerstats.api.StatRequest;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The base for all Java Flight Recorder events about a single StatRequest.
+ * When no recording is running, creating, timing and committing
+ * these events does nothing, so they can be used on every request.
+ * The fields should only be filled in after {@link #shouldCommit()}
+ * has returned true, to not even pay for that when nobody is recording:
+ * <pre>{@code
+ * StatScanEvent event = new StatScanEvent();
+ * event.begin();
+ * doTheWork();
+ * event.end();
+ * if (event.shouldCommit()) {
+ *     event.setRequest(settings);
+ *     event.commit();
+ * }
+ * }</pre>
+ */
+@Category("PlayerStats")
+public abstract class RequestEvent extends Event {
+
+    @Label("Stat Alias")
+    String alias;
+
+    @Label("Request Type")
+    String requestType;
+
+    /**
+     * Fills in the alias and type of this request.
+     */
+    public void setRequest(@NotNull StatRequest.Settings settings) {
+        ApprovedStat approvedStat = settings.getApprovedStat();
+        alias = approvedStat != null ? approvedStat.alias() : String.valueOf(settings.getStatistic());
+        requestType = settings.getTarget().name();
+    }
+}
@@ -0,0 +1,11 @@
+package com.artemis.the.gr8.playerstats.core.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("playerstats.RequestQueued")
+@Label("Request Queued")
+@Description("A StatRequest was handed to an async task")
+public final class RequestQueuedEvent extends RequestEvent {
+}
@@ -0,0 +1,11 @@
+package com.artemis.the.gr8.playerstats.core.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("playerstats.Send")
+@Label("Send Result")
+@Description("Sending a formatted result (or queueing it for the main thread)")
+public final class SendEvent extends RequestEvent {
+}
@@ -0,0 +1,20 @@
+package com.artemis.the.gr8.playerstats.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("playerstats.ShareStore")
+@Label("Store Shareable Result")
+@Category("PlayerStats")
+@Description("Storing a formatted result so it can be shared later")
+public final class ShareStoreEvent extends Event {
+
+    @Label("Player Name")
+    public String playerName;
+
+    @Label("Share Code")
+    public int shareCode;
+}
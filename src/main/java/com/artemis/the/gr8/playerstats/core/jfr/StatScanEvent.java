@@ -0,0 +1,21 @@
+package com.artemis.the.gr8.playerstats.core.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("playerstats.StatScan")
+@Label("Stat Scan")
+@Description("The calculation of a statistic for all included players")
+public final class StatScanEvent extends RequestEvent {
+
+    @Label("Player Count")
+    public int playerCount;
+
+    @Label("Component Count")
+    @Description("The number of distinct stat components that were needed (-1 if unknown)")
+    public int componentCount;
+
+    @Label("Used Stat Index")
+    public boolean indexed;
+}
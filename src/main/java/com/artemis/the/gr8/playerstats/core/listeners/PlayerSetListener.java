@@ -0,0 +1,55 @@
+package com.artemis.the.gr8.playerstats.core.listeners;
+
+import com.artemis.the.gr8.playerstats.core.statistic.filter.PlayerRegistry;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.ServerCommandEvent;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.Locale;
+
+/**
+ * Keeps the player sets in the {@link PlayerRegistry} up-to-date
+ * when players join or quit, or when the whitelist is changed.
+ */
+@ApiStatus.Internal
+public class PlayerSetListener implements Listener {
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent joinEvent) {
+        PlayerRegistry.getInstance().playerJoined(joinEvent.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent quitEvent) {
+        PlayerRegistry.getInstance().playerQuit(quitEvent.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent commandEvent) {
+        if (isWhitelistCommand(commandEvent.getMessage())) {
+            PlayerRegistry.getInstance().whitelistChanged();
+        }
+    }
+
+    //this includes commands from the console and through RCON
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onServerCommand(ServerCommandEvent commandEvent) {
+        if (isWhitelistCommand(commandEvent.getCommand())) {
+            PlayerRegistry.getInstance().whitelistChanged();
+        }
+    }
+
+    private boolean isWhitelistCommand(String command) {
+        String trimmed = command.trim();
+        if (trimmed.startsWith("/")) {
+            trimmed = trimmed.substring(1);
+        }
+        String label = trimmed.split(" ", 2)[0].toLowerCase(Locale.ROOT);
+        return label.equals("whitelist") || label.equals("minecraft:whitelist");
+    }
+}
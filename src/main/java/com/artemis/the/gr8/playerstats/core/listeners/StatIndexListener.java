@@ -0,0 +1,39 @@
+package com.artemis.the.gr8.playerstats.core.listeners;
+
+import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.statistic.index.StatIndex;
+import com.artemis.the.gr8.playerstats.core.utils.OfflinePlayerHandler;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.UUID;
+
+/**
+ * Keeps the {@link StatIndex} up-to-date: players that join are marked as live,
+ * and the stats-file of players that quit is read again once the server has
+ * saved it. Players that quit are also marked as seen in the player file index.
+ */
+@ApiStatus.Internal
+public class StatIndexListener implements Listener {
+
+    //the stats-file is written when the player quits, give the server some time to finish
+    private static final long REFRESH_DELAY_TICKS = 100L;
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent joinEvent) {
+        StatIndex.getInstance().markLive(joinEvent.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent quitEvent) {
+        UUID uuid = quitEvent.getPlayer().getUniqueId();
+        OfflinePlayerHandler.getInstance().markSeen(quitEvent.getPlayer());
+        Bukkit.getScheduler().runTaskLaterAsynchronously(Main.getPluginInstance(),
+                () -> StatIndex.getInstance().refreshPlayer(uuid), REFRESH_DELAY_TICKS);
+    }
+}
@@ -1,7 +1,9 @@
 package com.artemis.the.gr8.playerstats.core.msg;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Set;
 import java.util.function.BiFunction;
 
@@ -17,7 +19,7 @@ import com.artemis.the.gr8.playerstats.api.StatTextFormatter;
 import com.artemis.the.gr8.playerstats.api.enums.Target;
 import com.artemis.the.gr8.playerstats.api.enums.Unit;
 import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
-import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.config.CompiledSettings;
 import com.artemis.the.gr8.playerstats.core.msg.components.BukkitConsoleComponentFactory;
 import com.artemis.the.gr8.playerstats.core.msg.components.ComponentFactory;
 import com.artemis.the.gr8.playerstats.core.msg.components.ExampleMessage;
@@ -30,7 +32,7 @@ import com.artemis.the.gr8.playerstats.core.msg.msgutils.FontUtils;
 import com.artemis.the.gr8.playerstats.core.msg.msgutils.FormattingFunction;
 import com.artemis.the.gr8.playerstats.core.msg.msgutils.LanguageKeyHandler;
 import com.artemis.the.gr8.playerstats.core.msg.msgutils.NumberFormatter;
-import com.artemis.the.gr8.playerstats.core.msg.msgutils.StringUtils;
+import com.artemis.the.gr8.playerstats.core.statistic.StatDistribution;
 import com.artemis.the.gr8.playerstats.core.utils.EnumHandler;
 import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
 
@@ -53,7 +55,10 @@ import net.kyori.adventure.text.TextComponent;
  */
 public final class MessageBuilder implements StatTextFormatter {
 
-    private final ConfigHandler config;
+    private static final int HISTOGRAM_ROWS = 8;
+    private static final int HISTOGRAM_BAR_LENGTH = 20;
+
+    private final CompiledSettings settings;
     private final boolean useHoverText;
 
     private final ComponentFactory componentFactory;
@@ -62,19 +67,27 @@ public final class MessageBuilder implements StatTextFormatter {
     private final ComponentSerializer serializer;
 
     private MessageBuilder(ComponentFactory factory) {
-        config = ConfigHandler.getInstance();
         languageKeyHandler = LanguageKeyHandler.getInstance();
         componentFactory = factory;
+        //use the same settings as the factory, so the settings cannot change halfway through a message
+        settings = factory.getSettings();
 
         if (componentFactory.isConsoleFactory()) {
             useHoverText = false;
         } else {
-            useHoverText = config.useHoverText();
+            useHoverText = settings.useHoverText();
         }
         formatter = new NumberFormatter();
         serializer = new ComponentSerializer();
     }
 
+    /**
+     * @return the settings that messages from this builder are formatted with
+     */
+    public @NotNull CompiledSettings getSettings() {
+        return settings;
+    }
+
     /**
      * Expose ComponentFactory for TopCommandFormatter
      */
@@ -100,6 +113,11 @@ public final class MessageBuilder implements StatTextFormatter {
         return serializer.getTranslatableComponentSerializer().serialize(component);
     }
 
+    @Override
+    public void appendTextComponent(TextComponent component, Appendable output) throws IOException {
+        serializer.serialize(component, output);
+    }
+
     @Override
     public TextComponent getPluginPrefix() {
         return Component.empty();
@@ -203,7 +221,7 @@ public final class MessageBuilder implements StatTextFormatter {
 
     public @NotNull
     TextComponent stillOnShareCoolDown() {
-        int waitTime = config.getStatShareWaitingTime();
+        int waitTime = settings.getStatShareWaitingTime();
         String minutes = waitTime == 1 ? " minute" : " minutes";
 
         return componentFactory.message().content("You need to wait")
@@ -269,6 +287,21 @@ public final class MessageBuilder implements StatTextFormatter {
         return composePluginMessage("Available approved stats:"); // Command itself will list them
     }
 
+    public @NotNull
+    TextComponent noStatHistory() {
+        return composePluginMessage("There is no statistic history for this period yet, please try again later!");
+    }
+
+    public @NotNull
+    TextComponent noActiveSeason() {
+        return composePluginMessage("There is no season with this statistic going on right now!");
+    }
+
+    public @NotNull
+    TextComponent unknownPlayerSet() {
+        return composePluginMessage("There is no set of players with this name! Try online, whitelisted or active7d");
+    }
+
     public @NotNull
     TextComponent playerNotFound() {
         return composePluginMessage("Could not find a player with that name!");
@@ -301,7 +334,7 @@ public final class MessageBuilder implements StatTextFormatter {
     }
 
     public TextComponent helpMsg() {
-        int listSize = config.getTopListMaxSize();
+        int listSize = settings.getTopListMaxSize();
         if (useHoverText) {
             return HelpMessage.constructHoverMsg(componentFactory, listSize);
         } else {
@@ -469,6 +502,56 @@ public final class MessageBuilder implements StatTextFormatter {
         return getFormattingFunction(serverStat, Target.SERVER);
     }
 
+    /**
+     * @return a TextComponent with the following parts:
+     * <br>[Average:] [number] [Median:] [number]
+     * <br>[90th percentile:] [number] [99th percentile:] [number]
+     * <br> [number] [-] [number] [bar] [player-count]
+     * <br> [number] [-] [number] [bar] [player-count]
+     * <br> etc...
+     */
+    public @NotNull
+    TextComponent formattedServerStatDistribution(@NotNull StatDistribution distribution, @NotNull StatRequest.Settings request) {
+        Statistic statistic = request.getStatistic();
+        TextComponent.Builder distributionMsg = text()
+                .append(componentFactory.message().content("Average: "))
+                .append(getDistributionNumberComponent(Math.round(distribution.getMean()), statistic))
+                .append(componentFactory.message().content("  Median: "))
+                .append(getDistributionNumberComponent(distribution.getQuantile(0.5), statistic))
+                .append(newline())
+                .append(componentFactory.message().content("90th percentile: "))
+                .append(getDistributionNumberComponent(distribution.getQuantile(0.9), statistic))
+                .append(componentFactory.message().content("  99th percentile: "))
+                .append(getDistributionNumberComponent(distribution.getQuantile(0.99), statistic));
+
+        List<StatDistribution.HistogramRow> rows = distribution.getHistogram(HISTOGRAM_ROWS);
+        long largestRow = rows.stream().mapToLong(StatDistribution.HistogramRow::count).max().orElse(0);
+        for (StatDistribution.HistogramRow row : rows) {
+            int barLength = largestRow > 0 ? (int) Math.round((double) row.count() * HISTOGRAM_BAR_LENGTH / largestRow) : 0;
+            if (row.count() > 0) {
+                barLength = Math.max(barLength, 1);
+            }
+            distributionMsg.append(newline())
+                    .append(space())
+                    .append(getDistributionNumberComponent(row.from(), statistic));
+            if (row.to() != row.from()) {
+                distributionMsg.append(componentFactory.message().content(" - "))
+                        .append(getDistributionNumberComponent(row.to(), statistic));
+            }
+            distributionMsg.append(space())
+                    .append(componentFactory.messageAccent().content("|".repeat(barLength)))
+                    .append(componentFactory.message().content(" " + formatter.formatDefaultNumber(row.count())));
+        }
+        return distributionMsg.build();
+    }
+
+    private TextComponent getDistributionNumberComponent(long statNumber, @Nullable Statistic statistic) {
+        if (statistic == null) {
+            return getDefaultNumberComponent(statNumber, Target.SERVER);
+        }
+        return getStatNumberComponent(statNumber, Target.SERVER, statistic);
+    }
+
     /**
      * Returns a BiFunction for a top statistic. This BiFunction will return a
      * formattedComponent, the shape of which is determined by the 2 parameters
@@ -512,7 +595,7 @@ public final class MessageBuilder implements StatTextFormatter {
         TextComponent list = getTopStatListComponent(topStats, statistic);
 
         TextComponent.Builder totalMsg = text();
-        if (config.useEnters(Target.TOP, false) && !list.children().isEmpty()) {
+        if (settings.useEnters(Target.TOP, false) && !list.children().isEmpty()) {
             totalMsg.append(newline());
         }
         totalMsg.append(title); // Append title (no prefix here)
@@ -564,8 +647,8 @@ public final class MessageBuilder implements StatTextFormatter {
 
     private @NotNull
     TextComponent getServerStatComponent(TextComponent statNumber, Statistic statistic, @Nullable String subStatName, @Nullable Unit unit) {
-        String serverTitle = config.getServerTitle();
-        String serverName = config.getServerName();
+        String serverTitle = settings.getServerTitle();
+        String serverName = settings.getServerName();
         TextComponent statUnit = (unit == null)
                 ? getStatUnitComponent(statistic, Target.SERVER)
                 : getStatUnitComponent(unit, Target.SERVER);
@@ -595,7 +678,7 @@ public final class MessageBuilder implements StatTextFormatter {
                     .build();
         } else {
             return Component.text()
-                    .append(componentFactory.title(config.getTopStatsTitle(), Target.TOP))
+                    .append(componentFactory.title(settings.getTopStatsTitle(), Target.TOP))
                     .append(space())
                     .append(componentFactory.titleNumber(topListSize))
                     .append(space())
@@ -612,7 +695,7 @@ public final class MessageBuilder implements StatTextFormatter {
     TextComponent getTopStatListComponent(@NotNull LinkedHashMap<String, Integer> topStats, Statistic statistic) {
         TextComponent.Builder topList = Component.text();
         Set<String> playerNames = topStats.keySet();
-        boolean useDots = config.useDots();
+        boolean useDots = settings.useDots();
 
         int count = 0;
         for (String playerName : playerNames) {
@@ -656,7 +739,7 @@ public final class MessageBuilder implements StatTextFormatter {
                 .append(space())
                 .append(componentFactory.playerName(playerName + ":", Target.TOP));
 
-        if (config.useDots()) {
+        if (settings.useDots()) {
             int nrOfDots = getNumberOfDotsToAlign(positionInTopList + ". " + playerName);
             if (nrOfDots >= 1) {
                 topStatLineBuilder
@@ -685,12 +768,11 @@ public final class MessageBuilder implements StatTextFormatter {
             case ITEM ->
                 languageKeyHandler.getItemKey(enumHandler.getItemEnum(subStatName));
         };
-        // Use StringUtils for prettifying if language key is null (original logic)
         if (subStatKey == null && subStatName != null) {
-            subStatKey = StringUtils.prettify(subStatName);
+            subStatKey = languageKeyHandler.getFallbackDisplayName(subStatName);
         }
 
-        if (config.useTranslatableComponents()) {
+        if (settings.useTranslatableComponents()) {
             return componentFactory.statAndSubStatNameTranslatable(statKey, subStatKey, target);
         }
         // Convert keys to display names if not using translatable components
@@ -727,7 +809,7 @@ public final class MessageBuilder implements StatTextFormatter {
     }
 
     private TextComponent getDistanceNumberComponent(long statNumber, Target target) {
-        Unit statUnit = Unit.fromString(config.getDistanceUnit(false));
+        Unit statUnit = settings.getDistanceUnit(false);
         return getDistanceNumberComponent(statNumber, target, statUnit);
     }
 
@@ -737,9 +819,9 @@ public final class MessageBuilder implements StatTextFormatter {
             return componentFactory.distanceNumber(prettyNumber, target);
         }
 
-        Unit hoverUnit = Unit.fromString(config.getDistanceUnit(true));
+        Unit hoverUnit = settings.getDistanceUnit(true);
         String hoverNumber = formatter.formatDistanceNumber(statNumber, hoverUnit);
-        if (config.useTranslatableComponents()) {
+        if (settings.useTranslatableComponents()) {
             String unitKey = languageKeyHandler.getUnitKey(hoverUnit);
             if (unitKey != null) {
                 return componentFactory.distanceNumberWithTranslatableHoverText(prettyNumber, hoverNumber, unitKey, target);
@@ -749,7 +831,7 @@ public final class MessageBuilder implements StatTextFormatter {
     }
 
     private TextComponent getDamageNumberComponent(long statNumber, Target target) {
-        Unit statUnit = Unit.fromString(config.getDamageUnit(false));
+        Unit statUnit = settings.getDamageUnit(false);
         return getDamageNumberComponent(statNumber, target, statUnit);
     }
 
@@ -759,7 +841,7 @@ public final class MessageBuilder implements StatTextFormatter {
             return componentFactory.damageNumber(prettyNumber, target);
         }
 
-        Unit hoverUnit = Unit.fromString(config.getDamageUnit(true));
+        Unit hoverUnit = settings.getDamageUnit(true);
         String prettyHoverNumber = formatter.formatDamageNumber(statNumber, hoverUnit);
         if (hoverUnit == Unit.HEART) {
             return componentFactory.damageNumberWithHeartUnitInHoverText(prettyNumber, prettyHoverNumber, target);
@@ -801,9 +883,9 @@ public final class MessageBuilder implements StatTextFormatter {
     private TextComponent getStatUnitComponent(Statistic statistic, Target target) {
         Unit unit = switch (Unit.getTypeFromStatistic(statistic)) {
             case DAMAGE ->
-                Unit.fromString(config.getDamageUnit(false));
+                settings.getDamageUnit(false);
             case DISTANCE ->
-                Unit.fromString(config.getDistanceUnit(false));
+                settings.getDistanceUnit(false);
             default ->
                 Unit.NUMBER;
         };
@@ -826,7 +908,7 @@ public final class MessageBuilder implements StatTextFormatter {
      */
     private @NotNull
     TextComponent getDistanceUnitComponent(Unit unit, Target target) {
-        if (config.useTranslatableComponents()) {
+        if (settings.useTranslatableComponents()) {
             String unitKey = languageKeyHandler.getUnitKey(unit);
             if (unitKey != null) {
                 return Component.space()
@@ -864,8 +946,8 @@ public final class MessageBuilder implements StatTextFormatter {
 
     private @NotNull
     FormattingFunction getFormattingFunction(@NotNull TextComponent statResult, Target target) {
-        boolean useEnters = config.useEnters(target, false);
-        boolean useEntersForShared = config.useEnters(target, true);
+        boolean useEnters = settings.useEnters(target, false);
+        boolean useEntersForShared = settings.useEnters(target, true);
 
         BiFunction<Integer, CommandSender, TextComponent> biFunction = (shareCode, sender) -> {
             TextComponent.Builder statBuilder = text();
@@ -902,7 +984,7 @@ public final class MessageBuilder implements StatTextFormatter {
     private int getNumberOfDotsToAlign(String displayText) {
         if (componentFactory.isConsoleFactory()) {
             return FontUtils.getNumberOfDotsToAlignForConsole(displayText);
-        } else if (config.playerNameIsBold()) {
+        } else if (settings.playerNameIsBold()) {
             return FontUtils.getNumberOfDotsToAlignForBoldText(displayText);
         } else {
             return FontUtils.getNumberOfDotsToAlign(displayText);
@@ -923,22 +1005,22 @@ public final class MessageBuilder implements StatTextFormatter {
     private @NotNull
     ArrayList<Unit> getTimeUnitRange(long statNumber) {
         ArrayList<Unit> unitRange = new ArrayList<>();
-        if (!config.autoDetectTimeUnit(false)) {
-            unitRange.add(Unit.fromString(config.getTimeUnit(false)));
-            unitRange.add(Unit.fromString(config.getTimeUnit(false, true)));
+        if (!settings.autoDetectTimeUnit(false)) {
+            unitRange.add(settings.getTimeUnit(false, false));
+            unitRange.add(settings.getTimeUnit(false, true));
         } else {
             Unit bigUnit = Unit.getMostSuitableUnit(Unit.Type.TIME, statNumber);
             unitRange.add(bigUnit);
-            unitRange.add(bigUnit.getSmallerUnit(config.getNumberOfExtraTimeUnits(false)));
+            unitRange.add(bigUnit.getSmallerUnit(settings.getNumberOfExtraTimeUnits(false)));
         }
         if (useHoverText) {
-            if (!config.autoDetectTimeUnit(true)) {
-                unitRange.add(Unit.fromString(config.getTimeUnit(true)));
-                unitRange.add(Unit.fromString(config.getTimeUnit(true, true)));
+            if (!settings.autoDetectTimeUnit(true)) {
+                unitRange.add(settings.getTimeUnit(true, false));
+                unitRange.add(settings.getTimeUnit(true, true));
             } else {
                 Unit bigHoverUnit = Unit.getMostSuitableUnit(Unit.Type.TIME, statNumber);
                 unitRange.add(bigHoverUnit);
-                unitRange.add(bigHoverUnit.getSmallerUnit(config.getNumberOfExtraTimeUnits(true)));
+                unitRange.add(bigHoverUnit.getSmallerUnit(settings.getNumberOfExtraTimeUnits(true)));
             }
         }
         return unitRange;
@@ -4,17 +4,21 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.plugin.IllegalPluginAccessException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.artemis.the.gr8.playerstats.api.StatRequest;
 import com.artemis.the.gr8.playerstats.api.StatTextFormatter;
 import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.RuntimeGeneration;
 import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
 import com.artemis.the.gr8.playerstats.core.enums.StandardMessage;
@@ -30,7 +34,9 @@ import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.INVALID
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.MISSING_PERMISSION;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.MISSING_PLAYER_NAME;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.MISSING_STAT_NAME;
+import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.NO_ACTIVE_SEASON;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.NO_APPROVED_STATS;
+import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.NO_STAT_HISTORY;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.PLAYER_IS_EXCLUDED;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.PLAYER_NOT_FOUND;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.RELOADED_CONFIG;
@@ -40,6 +46,7 @@ import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.STAT_RE
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.STILL_ON_SHARE_COOLDOWN;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.STILL_RELOADING;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.UNKNOWN_ERROR;
+import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.UNKNOWN_PLAYER_SET;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.WAIT_A_MINUTE;
 import static com.artemis.the.gr8.playerstats.core.enums.StandardMessage.WAIT_A_MOMENT;
 import com.artemis.the.gr8.playerstats.core.msg.components.BirthdayComponentFactory;
@@ -50,10 +57,12 @@ import com.artemis.the.gr8.playerstats.core.msg.components.HalloweenComponentFac
 import com.artemis.the.gr8.playerstats.core.msg.components.PrideComponentFactory;
 import com.artemis.the.gr8.playerstats.core.msg.components.WinterComponentFactory;
 import com.artemis.the.gr8.playerstats.core.msg.msgutils.FormattingFunction;
+import com.artemis.the.gr8.playerstats.core.statistic.StatDistribution;
 import com.artemis.the.gr8.playerstats.core.utils.Closable;
 import com.artemis.the.gr8.playerstats.core.utils.Reloadable;
 
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
+import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
 
 /**
@@ -61,13 +70,16 @@ import net.kyori.adventure.text.TextComponent;
  * messages are sent. It gets its messages from a {@link MessageBuilder}
  * configured for either a Console or for Players (mainly to deal with the lack
  * of hover-text, and for Bukkit consoles to make up for the lack of
- * hex-colors).
+ * hex-colors). Messages can be sent from any thread: when called off the
+ * main thread, they are queued and handed over to the main thread in batches.
  */
 public final class OutputManager implements Reloadable, Closable {
 
     private static volatile OutputManager instance;
     private static BukkitAudiences adventure;
     private static EnumMap<StandardMessage, Function<MessageBuilder, TextComponent>> standardMessages;
+    private static final ConcurrentLinkedQueue<PendingMessage> pendingMessages = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean flushScheduled = new AtomicBoolean(false);
 
     private final ConfigHandler config;
     private MessageBuilder messageBuilder;
@@ -105,6 +117,7 @@ public final class OutputManager implements Reloadable, Closable {
 
     @Override
     public void close() {
+        flushPendingMessages();
         if (adventure != null) {
             adventure.close();
             adventure = null;
@@ -140,6 +153,16 @@ public final class OutputManager implements Reloadable, Closable {
                 .formattedServerStatFunction(serverStat, requestSettings);
     }
 
+    /**
+     * @return a TextComponent with the average, median, 90th and 99th
+     * percentile, and a histogram of the values of all players
+     */
+    public @NotNull
+    TextComponent formatServerStatDistribution(@NotNull StatRequest.Settings requestSettings, @NotNull StatDistribution distribution) {
+        return getMessageBuilder(requestSettings.getCommandSender())
+                .formattedServerStatDistribution(distribution, requestSettings);
+    }
+
     /**
      * @return a TextComponent with the following parts:
      * <br>[PlayerStats] [Top 10] [stat-name] [sub-stat-name]
@@ -165,7 +188,7 @@ public final class OutputManager implements Reloadable, Closable {
 
     public void sendFeedbackMsg(@NotNull CommandSender sender, StandardMessage message) {
         if (message != null) {
-            adventure.sender(sender).sendMessage(standardMessages.get(message)
+            send(sender, standardMessages.get(message)
                     .apply(getMessageBuilder(sender)));
         }
     }
@@ -201,21 +224,21 @@ public final class OutputManager implements Reloadable, Closable {
                 }
                 break;
         }
-        adventure.sender(sender).sendMessage(componentToSend);
+        send(sender, componentToSend);
     }
 
     public void sendFeedbackMsgPlayerExcluded(@NotNull CommandSender sender, String playerName) {
-        adventure.sender(sender).sendMessage(getMessageBuilder(sender)
+        send(sender, getMessageBuilder(sender)
                 .excludeSuccess(playerName));
     }
 
     public void sendFeedbackMsgPlayerIncluded(@NotNull CommandSender sender, String playerName) {
-        adventure.sender(sender).sendMessage(getMessageBuilder(sender)
+        send(sender, getMessageBuilder(sender)
                 .includeSuccess(playerName));
     }
 
     public void sendFeedbackMsgMissingSubStat(@NotNull CommandSender sender, String statType) {
-        adventure.sender(sender).sendMessage(getMessageBuilder(sender)
+        send(sender, getMessageBuilder(sender)
                 .missingSubStatName(statType));
     }
 
@@ -223,43 +246,97 @@ public final class OutputManager implements Reloadable, Closable {
         if (subStatName == null) {
             sendFeedbackMsgMissingSubStat(sender, statType);
         } else {
-            adventure.sender(sender).sendMessage(getMessageBuilder(sender)
+            send(sender, getMessageBuilder(sender)
                     .wrongSubStatType(statType, subStatName));
         }
     }
 
     // New method for more specific wrong sub-stat type feedback
     public void sendFeedbackMsgWrongSubStatType(@NotNull CommandSender sender, String expectedType, @NotNull String actualName, @NotNull String statName) {
-        adventure.sender(sender).sendMessage(getMessageBuilder(sender)
+        send(sender, getMessageBuilder(sender)
                 .wrongSubStatType(expectedType, actualName, statName));
     }
 
     public void sendExamples(@NotNull CommandSender sender) {
-        adventure.sender(sender).sendMessage(getMessageBuilder(sender)
+        send(sender, getMessageBuilder(sender)
                 .usageExamples());
     }
 
     public void sendHelp(@NotNull CommandSender sender) {
-        adventure.sender(sender).sendMessage(getMessageBuilder(sender)
+        send(sender, getMessageBuilder(sender)
                 .helpMsg());
     }
 
     public void sendExcludeInfo(@NotNull CommandSender sender) {
-        adventure.sender(sender).sendMessage(getMessageBuilder(sender)
+        send(sender, getMessageBuilder(sender)
                 .excludeInfoMsg());
     }
 
     public void sendExcludedList(@NotNull CommandSender sender, ArrayList<String> excludedPlayerNames) {
-        adventure.sender(sender).sendMessage(getMessageBuilder(sender)
+        send(sender, getMessageBuilder(sender)
                 .excludedList(excludedPlayerNames));
     }
 
     public void sendToAllPlayers(@NotNull TextComponent component) {
-        adventure.players().sendMessage(component);
+        if (Bukkit.isPrimaryThread()) {
+            adventure.players().sendMessage(component);
+        } else {
+            enqueue(new PendingMessage(null, component));
+        }
     }
 
     public void sendToCommandSender(@NotNull CommandSender sender, @NotNull TextComponent component) {
-        adventure.sender(sender).sendMessage(component);
+        send(sender, component);
+    }
+
+    /**
+     * Sends the component straight away when called from the main thread.
+     * Otherwise (stat calculations format their results on a worker thread)
+     * the message is queued, and all queued messages are sent together in
+     * a single task on the next tick.
+     */
+    private void send(@NotNull CommandSender sender, @NotNull Component component) {
+        if (Bukkit.isPrimaryThread()) {
+            adventure.sender(sender).sendMessage(component);
+        } else {
+            enqueue(new PendingMessage(sender, component));
+        }
+    }
+
+    private void enqueue(@NotNull PendingMessage message) {
+        pendingMessages.offer(message);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                Bukkit.getScheduler().runTask(Main.getPluginInstance(), this::flushPendingMessages);
+            } catch (IllegalPluginAccessException e) {
+                //the plugin is being disabled, close() takes care of the remaining messages
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void flushPendingMessages() {
+        flushScheduled.set(false);
+        if (adventure == null) {
+            pendingMessages.clear();
+            return;
+        }
+
+        PendingMessage message;
+        while ((message = pendingMessages.poll()) != null) {
+            if (message.sender() == null) {
+                adventure.players().sendMessage(message.component());
+            } else {
+                adventure.sender(message.sender()).sendMessage(message.component());
+            }
+        }
+    }
+
+    /**
+     * @param sender the recipient, or null if this message should
+     *               be broadcast to all players
+     */
+    private record PendingMessage(@Nullable CommandSender sender, @NotNull Component component) {
     }
 
     /**
@@ -272,10 +349,26 @@ public final class OutputManager implements Reloadable, Closable {
         return getMessageBuilder(sender);
     }
 
+    /**
+     * @return the MessageBuilder from the current {@link RuntimeGeneration},
+     * or the one from this class if no generation has been published yet
+     */
     private MessageBuilder getMessageBuilder(CommandSender sender) {
+        RuntimeGeneration generation = RuntimeGeneration.currentOrNull();
+        if (generation != null) {
+            return generation.getMessageBuilder(sender);
+        }
         return sender instanceof ConsoleCommandSender ? consoleMessageBuilder : messageBuilder;
     }
 
+    /**
+     * @return the MessageBuilder that was created by the last
+     * (re)load, for the next {@link RuntimeGeneration}
+     */
+    public @NotNull MessageBuilder getLoadedMessageBuilder(boolean forConsole) {
+        return forConsole ? consoleMessageBuilder : messageBuilder;
+    }
+
     private void getMessageBuilders() {
         messageBuilder = getClientMessageBuilder();
         consoleMessageBuilder = getConsoleMessageBuilder();
@@ -359,6 +452,9 @@ public final class OutputManager implements Reloadable, Closable {
 
         // Added for StatCommand feedback improvements
         standardMessages.put(INVALID_COMMAND_SYNTAX, MessageBuilder::invalidCommandSyntax);
+        standardMessages.put(NO_STAT_HISTORY, MessageBuilder::noStatHistory);
+        standardMessages.put(NO_ACTIVE_SEASON, MessageBuilder::noActiveSeason);
+        standardMessages.put(UNKNOWN_PLAYER_SET, MessageBuilder::unknownPlayerSet);
         // INVALID_SUBSTAT_NAME is now handled by the overloaded sendFeedbackMsg method
         // standardMessages.put(INVALID_SUBSTAT_NAME, (mb) -> mb.invalidSubStatName("...")); // Remove this placeholder
     }
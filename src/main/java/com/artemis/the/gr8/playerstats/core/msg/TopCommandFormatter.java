@@ -1,10 +1,12 @@
 package com.artemis.the.gr8.playerstats.core.msg;
 
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 
 import org.bukkit.Statistic;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.artemis.the.gr8.playerstats.api.enums.Target;
 import com.artemis.the.gr8.playerstats.api.enums.Unit;
@@ -13,6 +15,7 @@ import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
 import com.artemis.the.gr8.playerstats.core.config.StatType;
 import com.artemis.the.gr8.playerstats.core.msg.components.ComponentFactory;
 import com.artemis.the.gr8.playerstats.core.msg.msgutils.NumberFormatter;
+import com.artemis.the.gr8.playerstats.core.statistic.RankIndex;
 import com.artemis.the.gr8.playerstats.core.utils.EnumHandler;
 import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
 
@@ -32,31 +35,63 @@ public final class TopCommandFormatter {
     private final NumberFormatter numberFormatter;
     private final EnumHandler enumHandler; // Added
 
+    private final RankIndex rankIndex;
     private final LinkedHashMap<String, Integer> topStats;
-    private final int senderRank;
-    private final int senderStatValue;
     private final @NotNull
     ApprovedStat approvedStat;
     private final int topListSize;
+    private final int page;
+    private final int pageCount;
+    private final int firstRank;
     private final String senderName;
-
-    public TopCommandFormatter(@NotNull LinkedHashMap<String, Integer> topStats,
-            int senderRank, int senderStatValue,
+    private final boolean senderIsIncluded;
+    private final @Nullable String period;
+
+    /**
+     * @param rankIndex the RankIndex with the results for this ApprovedStat
+     * @param topListSize the number of players on each page
+     * @param page the page to show (starting at 1)
+     * @param senderIsIncluded whether the sender is a player that is included
+     * in statistic calculations (and should have a rank if they're not in the index)
+     */
+    public TopCommandFormatter(@NotNull RankIndex rankIndex,
             @NotNull ApprovedStat approvedStat,
             int topListSize,
+            int page,
             @NotNull String senderName,
+            boolean senderIsIncluded,
             @NotNull ComponentFactory componentFactory) {
+        this(rankIndex, approvedStat, topListSize, page, senderName, senderIsIncluded, componentFactory, null);
+    }
+
+    /**
+     * @param period the period the values in the RankIndex cover, to show in
+     *               the title (for example "since Oct 12"), or null for lifetime values
+     */
+    public TopCommandFormatter(@NotNull RankIndex rankIndex,
+            @NotNull ApprovedStat approvedStat,
+            int topListSize,
+            int page,
+            @NotNull String senderName,
+            boolean senderIsIncluded,
+            @NotNull ComponentFactory componentFactory,
+            @Nullable String period) {
         this.config = ConfigHandler.getInstance();
         this.componentFactory = componentFactory;
         this.numberFormatter = new NumberFormatter();
         this.enumHandler = EnumHandler.getInstance(); // Added
 
-        this.topStats = topStats;
-        this.senderRank = senderRank;
-        this.senderStatValue = senderStatValue;
+        this.rankIndex = rankIndex;
         this.approvedStat = approvedStat;
         this.topListSize = topListSize;
+        this.page = Math.max(page, 1);
+        this.pageCount = rankIndex.getLeaderboard().getPageCount(Math.max(topListSize, 1));
+
+        this.firstRank = (int) Math.min((long) (this.page - 1) * topListSize + 1, Integer.MAX_VALUE);
+        this.topStats = rankIndex.getRange(firstRank, (int) Math.min((long) firstRank + topListSize - 1, Integer.MAX_VALUE));
         this.senderName = senderName;
+        this.senderIsIncluded = senderIsIncluded;
+        this.period = period;
     }
 
     public TextComponent format() {
@@ -90,24 +125,33 @@ public final class TopCommandFormatter {
     }
 
     private TextComponent createTitleComponent() {
-        // Simplified title: "Top [Number]: [Stat Name]"
+        // Simplified title: "Top [Number]: [Stat Name]", or "Top [From]-[To]: [Stat Name]" after the first page
         TextComponent topLabel = text("Top ").color(NamedTextColor.GOLD);
-        TextComponent topNumber = componentFactory.titleNumber(topListSize).colorIfAbsent(NamedTextColor.GOLD);
         TextComponent statName = componentFactory.title(approvedStat.displayName(), Target.TOP).colorIfAbsent(NamedTextColor.GOLD);
 
-        return text().append(topLabel)
-                .append(topNumber)
-                .append(text(": ").color(NamedTextColor.GOLD))
-                .append(statName)
-                .build();
+        TextComponent.Builder title = text().append(topLabel);
+        if (page > 1 && !topStats.isEmpty()) {
+            title.append(componentFactory.titleNumber(firstRank).colorIfAbsent(NamedTextColor.GOLD))
+                    .append(text("-").color(NamedTextColor.GOLD))
+                    .append(componentFactory.titleNumber(firstRank + topStats.size() - 1).colorIfAbsent(NamedTextColor.GOLD));
+        } else {
+            title.append(componentFactory.titleNumber(topListSize).colorIfAbsent(NamedTextColor.GOLD));
+        }
+        title.append(text(": ").color(NamedTextColor.GOLD))
+                .append(statName);
+        if (period != null) {
+            title.append(text(" (" + period + ")").color(NamedTextColor.GRAY));
+        }
+        if (pageCount > 1 || page > 1) {
+            title.append(text(" (page " + page + "/" + Math.max(pageCount, 1) + ")").color(NamedTextColor.DARK_GRAY));
+        }
+        return title.build();
     }
 
     private TextComponent createListComponent() {
         TextComponent.Builder listBuilder = text();
-        int count = 0;
         for (Map.Entry<String, Integer> entry : topStats.entrySet()) {
-            count++;
-            TextComponent line = createSingleLine(count, entry.getKey(), entry.getValue());
+            TextComponent line = createSingleLine(rankIndex.getRank(entry.getValue()), entry.getKey(), entry.getValue());
             listBuilder.append(newline()).append(line);
         }
         return listBuilder.build();
@@ -117,12 +161,22 @@ public final class TopCommandFormatter {
     private TextComponent createFooterComponent() {
         TextComponent yourRankLabel = text("Your Rank: ").color(NamedTextColor.GRAY);
         TextComponent rankIndicator;
-        TextComponent yourValue = formatNumber(senderStatValue, approvedStat.statistic());
 
-        if (senderRank <= 0) { // Not ranked or error
+        // Included players that are missing from the index have a value of 0
+        Integer senderStatValue = rankIndex.getValue(senderName);
+        if (senderStatValue == null && senderIsIncluded) {
+            senderStatValue = 0;
+        }
+        TextComponent yourValue = formatNumber(senderStatValue != null ? senderStatValue : 0, approvedStat.statistic());
+
+        if (senderStatValue == null) { // Not ranked
             rankIndicator = text("N/A").color(NamedTextColor.DARK_GRAY);
         } else {
-            rankIndicator = text("#" + senderRank).color(NamedTextColor.GOLD);
+            int senderRank = rankIndex.getRank(senderStatValue);
+            String topPercentage = String.format(Locale.ENGLISH, "%.1f", rankIndex.getTopPercentage(senderRank));
+            rankIndicator = text().append(text("#" + senderRank).color(NamedTextColor.GOLD))
+                    .append(text(" (top " + topPercentage + "%)").color(NamedTextColor.DARK_GRAY))
+                    .build();
         }
 
         TextComponent senderNameComponent = componentFactory.playerName(senderName, Target.TOP).colorIfAbsent(NamedTextColor.WHITE);
@@ -88,8 +88,7 @@ public final class BukkitConsoleComponentFactory extends ComponentFactory {
     }
 
     @Override
-    protected TextColor getHexColor(String hexColor) {
-        TextColor hex = TextColor.fromHexString(hexColor);
-        return hex != null ? NamedTextColor.nearestTo(hex) : NamedTextColor.WHITE;
+    protected TextColor getHexColor(@NotNull TextColor hexColor) {
+        return NamedTextColor.nearestTo(hexColor);
     }
 }
\ No newline at end of file
@@ -1,12 +1,12 @@
 package com.artemis.the.gr8.playerstats.core.msg.components;
 
-import org.bukkit.Bukkit;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.artemis.the.gr8.playerstats.api.enums.Target;
 import com.artemis.the.gr8.playerstats.api.enums.Unit;
+import com.artemis.the.gr8.playerstats.core.config.CompiledSettings;
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
 import com.artemis.the.gr8.playerstats.core.enums.PluginColor;
 import com.artemis.the.gr8.playerstats.core.msg.MessageBuilder;
@@ -20,12 +20,10 @@ import net.kyori.adventure.text.TextComponent;
 import net.kyori.adventure.text.TranslatableComponent;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
-import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import net.kyori.adventure.util.HSVLike;
-import net.kyori.adventure.util.Index;
 
 /**
  * Creates Components with the desired formatting for the {@link MessageBuilder}
@@ -37,7 +35,9 @@ import net.kyori.adventure.util.Index;
  */
 public class ComponentFactory {
 
-    private static ConfigHandler config;
+    //the settings are taken once, so every message from this factory
+    //is formatted with the same settings, even if a reload happens
+    private final CompiledSettings settings;
 
     protected TextColor PREFIX;  //gold
     protected TextColor BRACKETS;  //gray
@@ -56,10 +56,17 @@ public class ComponentFactory {
     protected TextColor MSG_CLICKED;  //light_purple
 
     public ComponentFactory() {
-        config = ConfigHandler.getInstance();
+        settings = ConfigHandler.getInstance().getSettings();
         prepareColors();
     }
 
+    /**
+     * @return the settings this factory formats its Components with
+     */
+    public @NotNull CompiledSettings getSettings() {
+        return settings;
+    }
+
     protected void prepareColors() {
         PREFIX = PluginColor.GOLD.getColor();
         BRACKETS = PluginColor.GRAY.getColor();
@@ -133,47 +140,33 @@ public class ComponentFactory {
     }
 
     public TextComponent title(String content, Target target) {
-        return getComponent(content,
-                getColorFromString(config.getTitleDecoration(target, false)),
-                getStyleFromString(config.getTitleDecoration(target, true)));
+        return getComponent(content, settings.getTitleDecoration(target));
     }
 
     public TextComponent titleNumber(int number) {
-        return getComponent(number + "",
-                getColorFromString(config.getTitleNumberDecoration(false)),
-                getStyleFromString(config.getTitleNumberDecoration(true)));
+        return getComponent(number + "", settings.getTitleNumberDecoration());
     }
 
     public TextComponent rankNumber(int number) {
-        return getComponent(number + ".",
-                getColorFromString(config.getRankNumberDecoration(false)),
-                getStyleFromString(config.getRankNumberDecoration(true)));
+        return getComponent(number + ".", settings.getRankNumberDecoration());
     }
 
     public TextComponent dots(String dots) {
-        return getComponent(dots,
-                getColorFromString(config.getDotsDecoration(false)),
-                getStyleFromString(config.getDotsDecoration(true)));
+        return getComponent(dots, settings.getDotsDecoration());
     }
 
     public TextComponent serverName(String serverName) {
-        TextComponent colon = text(":").color(getColorFromString(config.getServerNameDecoration(false)));
-        return getComponent(serverName,
-                getColorFromString(config.getServerNameDecoration(false)),
-                getStyleFromString(config.getServerNameDecoration(true)))
+        TextComponent colon = text(":").color(getColor(settings.getServerNameDecoration()));
+        return getComponent(serverName, settings.getServerNameDecoration())
                 .append(colon);
     }
 
     public TextComponent playerName(String playerName, Target target) {
-        return getComponent(playerName,
-                getColorFromString(config.getPlayerNameDecoration(target, false)),
-                getStyleFromString(config.getPlayerNameDecoration(target, true)));
+        return getComponent(playerName, settings.getPlayerNameDecoration(target));
     }
 
     public TextComponent sharerName(String sharerName) {
-        return getComponent(sharerName,
-                getColorFromString(config.getSharerNameDecoration(false)),
-                getStyleFromString(config.getSharerNameDecoration(true)));
+        return getComponent(sharerName, settings.getSharerNameDecoration());
     }
 
     public TextComponent shareButton(int shareCode) {
@@ -188,9 +181,7 @@ public class ComponentFactory {
     public TextComponent sharedByMessage(Component playerName) {
         return surroundWithBrackets(
                 text().append(
-                        getComponent("Shared by",
-                                getColorFromString(config.getSharedByTextDecoration(false)),
-                                getStyleFromString(config.getSharedByTextDecoration(true))))
+                        getComponent("Shared by", settings.getSharedByTextDecoration()))
                         .append(space())
                         .append(playerName)
                         .build());
@@ -212,9 +203,7 @@ public class ComponentFactory {
      * removed and each word capitalized
      */
     public TextComponent statAndSubStatName(String prettyStatName, @Nullable String prettySubStatName, Target target) {
-        TextComponent.Builder totalStatNameBuilder = getComponentBuilder(prettyStatName,
-                getColorFromString(config.getStatNameDecoration(target, false)),
-                getStyleFromString(config.getStatNameDecoration(target, true)));
+        TextComponent.Builder totalStatNameBuilder = getComponentBuilder(prettyStatName, settings.getStatNameDecoration(target));
         TextComponent subStat = subStatName(prettySubStatName, target);
 
         if (!subStat.equals(Component.empty())) {
@@ -230,9 +219,7 @@ public class ComponentFactory {
      *
      */
     public TextComponent statAndSubStatNameTranslatable(String statKey, @Nullable String subStatKey, Target target) {
-        TextComponent.Builder totalStatNameBuilder = getComponentBuilder(null,
-                getColorFromString(config.getStatNameDecoration(target, false)),
-                getStyleFromString(config.getStatNameDecoration(target, true)));
+        TextComponent.Builder totalStatNameBuilder = getComponentBuilder(null, settings.getStatNameDecoration(target));
 
         TextComponent subStat = subStatNameTranslatable(subStatKey, target);
         if (LanguageKeyHandler.isNormalKeyForKillEntity(statKey)) {
@@ -251,9 +238,7 @@ public class ComponentFactory {
     }
 
     public TextComponent statNumber(String prettyNumber, Target target) {
-        return getComponent(prettyNumber,
-                getColorFromString(config.getStatNumberDecoration(target, false)),
-                getStyleFromString(config.getStatNumberDecoration(target, true)));
+        return getComponent(prettyNumber, settings.getStatNumberDecoration(target));
     }
 
     public TextComponent timeNumber(String prettyNumber, Target target) {
@@ -289,17 +274,13 @@ public class ComponentFactory {
     }
 
     public TextComponent statUnit(String unitName, Target target) {
-        TextComponent statUnit = getComponentBuilder(unitName,
-                getColorFromString(config.getSubStatNameDecoration(target, false)),
-                getStyleFromString(config.getSubStatNameDecoration(target, true)))
+        TextComponent statUnit = getComponentBuilder(unitName, settings.getSubStatNameDecoration(target))
                 .build();
         return surroundWithBrackets(statUnit);
     }
 
     public TextComponent statUnitTranslatable(String unitKey, Target target) {
-        TextComponent statUnit = getComponentBuilder(null,
-                getColorFromString(config.getSubStatNameDecoration(target, false)),
-                getStyleFromString(config.getSubStatNameDecoration(target, true)))
+        TextComponent statUnit = getComponentBuilder(null, settings.getSubStatNameDecoration(target))
                 .append(translatable()
                         .key(unitKey))
                 .build();
@@ -346,9 +327,7 @@ public class ComponentFactory {
         if (prettySubStatName == null) {
             return Component.empty();
         } else {
-            return getComponentBuilder(null,
-                    getColorFromString(config.getSubStatNameDecoration(target, false)),
-                    getStyleFromString(config.getSubStatNameDecoration(target, true)))
+            return getComponentBuilder(null, settings.getSubStatNameDecoration(target))
                     .append(text("("))
                     .append(text(prettySubStatName))
                     .append(text(")"))
@@ -362,9 +341,7 @@ public class ComponentFactory {
      */
     private TextComponent subStatNameTranslatable(@Nullable String subStatKey, Target target) {
         if (subStatKey != null) {
-            return getComponentBuilder(null,
-                    getColorFromString(config.getSubStatNameDecoration(target, false)),
-                    getStyleFromString(config.getSubStatNameDecoration(target, true)))
+            return getComponentBuilder(null, settings.getSubStatNameDecoration(target))
                     .append(text("("))
                     .append(translatable()
                             .key(subStatKey))
@@ -413,8 +390,8 @@ public class ComponentFactory {
             @Nullable String hoverUnitKey,
             @Nullable TextComponent heartComponent, Target target) {
 
-        TextColor baseColor = getColorFromString(config.getStatNumberDecoration(target, false));
-        TextDecoration style = getStyleFromString(config.getStatNumberDecoration(target, true));
+        TextColor baseColor = getColor(settings.getStatNumberDecoration(target));
+        TextDecoration style = settings.getStatNumberDecoration(target).style();
 
         TextComponent.Builder hoverText = getComponentBuilder(hoverNumber, getLighterColor(baseColor), style);
         if (heartComponent != null) {
@@ -438,6 +415,14 @@ public class ComponentFactory {
                 .append(text("]"));
     }
 
+    protected TextComponent getComponent(String content, @NotNull CompiledSettings.Decoration decoration) {
+        return getComponentBuilder(content, decoration).build();
+    }
+
+    protected TextComponent.Builder getComponentBuilder(@Nullable String content, @NotNull CompiledSettings.Decoration decoration) {
+        return getComponentBuilder(content, getColor(decoration), decoration.style());
+    }
+
     protected TextComponent getComponent(String content, @NotNull TextColor color, @Nullable TextDecoration style) {
         return getComponentBuilder(content, color, style).build();
     }
@@ -455,50 +440,33 @@ public class ComponentFactory {
         return builder;
     }
 
-    private TextColor getColorFromString(String configString) {
-        if (configString != null) {
-            try {
-                if (configString.contains("#")) {
-                    return getHexColor(configString);
-                } else {
-                    return getTextColorByName(configString);
-                }
-            } catch (IllegalArgumentException | NullPointerException exception) {
-                Bukkit.getLogger().warning(exception.toString());
-            }
+    /**
+     * @return the color of this Decoration, as it can be displayed by this factory
+     */
+    private @Nullable
+    TextColor getColor(@NotNull CompiledSettings.Decoration decoration) {
+        TextColor color = decoration.color();
+        if (color != null && decoration.isHexColor()) {
+            return getHexColor(color);
         }
-        return null;
-    }
-
-    protected TextColor getHexColor(String hexColor) {
-        return TextColor.fromHexString(hexColor);
+        return color;
     }
 
-    private TextColor getTextColorByName(String textColor) {
-        Index<String, NamedTextColor> names = NamedTextColor.NAMES;
-        return names.value(textColor);
+    /**
+     * @return the version of this hex-color that this factory can display
+     */
+    protected TextColor getHexColor(@NotNull TextColor hexColor) {
+        return hexColor;
     }
 
     private @NotNull
     TextColor getLighterColor(@NotNull TextColor color) {
-        float multiplier = (float) ((100 - config.getHoverTextAmountLighter()) / 100.0);
+        float multiplier = settings.getHoverColorMultiplier();
         HSVLike oldColor = HSVLike.fromRGB(color.red(), color.green(), color.blue());
         HSVLike newColor = HSVLike.hsvLike(oldColor.h(), oldColor.s() * multiplier, oldColor.v());
         return TextColor.color(newColor);
     }
 
-    private @Nullable
-    TextDecoration getStyleFromString(@NotNull String configString) {
-        if (configString.equalsIgnoreCase("none")) {
-            return null;
-        } else if (configString.equalsIgnoreCase("magic")) {
-            return TextDecoration.OBFUSCATED;
-        } else {
-            Index<String, TextDecoration> styles = TextDecoration.NAMES;
-            return styles.value(configString);
-        }
-    }
-
     /**
      * A simple separator component.
      */
@@ -68,7 +68,8 @@ public final class HelpMessage implements TextComponent {
                 .append(newline())
                 .append(factory.bulletPointIndented()).append(space())
                 .append(text("server:").color(factory.INFO_MSG_ACCENT_DARKEST)).append(space())
-                .append(text("everyone on the server combined").color(factory.BRACKETS))
+                .append(text("everyone on the server combined").color(factory.BRACKETS)).append(space())
+                .append(text("(add \"distribution\" for the average, percentiles and a histogram)").color(factory.BRACKETS))
                 .append(newline())
                 .append(factory.bulletPointIndented()).append(space())
                 .append(text("top:").color(factory.INFO_MSG_ACCENT_DARKEST)).append(space())
@@ -116,7 +117,9 @@ public final class HelpMessage implements TextComponent {
                 .append(text(" | ").color(factory.INFO_MSG_ACCENT_MEDIUM))
                 .append(text("server").color(factory.INFO_MSG_ACCENT_MEDIUM)
                         .hoverEvent(HoverEvent.showText(
-                                text("See the combined total for everyone on your server").color(factory.MSG_HOVER))))
+                                text("See the combined total for everyone on your server").color(factory.MSG_HOVER)
+                                        .append(newline())
+                                        .append(text("Add \"distribution\" to see the average, percentiles and a histogram").color(factory.MSG_HOVER)))))
                 .append(text(" | ").color(factory.INFO_MSG_ACCENT_MEDIUM))
                 .append(text("top").color(factory.INFO_MSG_ACCENT_MEDIUM)
                         .hoverEvent(HoverEvent.showText(
@@ -6,15 +6,23 @@ import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+
 /**
  * A small utility class for turning PlayerStats' custom Components into String.
  */
 public final class ComponentSerializer {
 
     private final LanguageKeyHandler languageKeyHandler;
+    private final LegacyComponentSerializer translatableComponentSerializer;
 
+    /**
+     * Builds the flattener and serializer once. A new ComponentSerializer
+     * is created whenever the MessageBuilders are recreated (on reload).
+     */
     public ComponentSerializer() {
         languageKeyHandler = LanguageKeyHandler.getInstance();
+        translatableComponentSerializer = buildTranslatableComponentSerializer();
     }
 
     /**
@@ -28,6 +36,22 @@ public final class ComponentSerializer {
      * @see LanguageKeyHandler
      */
     public @NotNull LegacyComponentSerializer getTranslatableComponentSerializer() {
+        return translatableComponentSerializer;
+    }
+
+    /**
+     * Serializes the component with the {@link #getTranslatableComponentSerializer()}
+     * and appends the result to the given Appendable.
+     *
+     * @param component the Component to serialize
+     * @param output the Appendable to write the result to
+     * @throws IOException if the Appendable throws one
+     */
+    public void serialize(@NotNull Component component, @NotNull Appendable output) throws IOException {
+        output.append(translatableComponentSerializer.serialize(component));
+    }
+
+    private @NotNull LegacyComponentSerializer buildTranslatableComponentSerializer() {
         LegacyComponentSerializer serializer = getTextComponentSerializer();
 
         ComponentFlattener flattener = ComponentFlattener.basic().toBuilder()
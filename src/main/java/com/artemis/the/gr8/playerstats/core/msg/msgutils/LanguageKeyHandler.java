@@ -1,7 +1,7 @@
 package com.artemis.the.gr8.playerstats.core.msg.msgutils;
 
 import com.artemis.the.gr8.playerstats.core.Main;
-import com.artemis.the.gr8.playerstats.core.utils.EnumHandler;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
 import com.artemis.the.gr8.playerstats.core.utils.YamlFileHandler;
 import com.artemis.the.gr8.playerstats.api.enums.Unit;
 import org.bukkit.Material;
@@ -12,8 +12,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,12 +28,17 @@ public final class LanguageKeyHandler extends YamlFileHandler {
 
     private static volatile LanguageKeyHandler instance;
     private static HashMap<Statistic, String> statisticKeys;
+    private static EnumMap<Material, String> blockKeys;
+    private static EnumMap<Material, String> itemKeys;
+    private static EnumMap<EntityType, String> entityKeys;
+    private static final ConcurrentHashMap<String, String> displayNames = new ConcurrentHashMap<>();
     private final Pattern subStatKey;
 
     private LanguageKeyHandler() {
         super("language.yml");
         statisticKeys = generateStatisticKeys();
         subStatKey = Pattern.compile("(item|entity|block)\\.minecraft\\.");
+        generateSubStatKeys();
         Main.registerReloadable(this);
     }
 
@@ -49,6 +56,13 @@ public final class LanguageKeyHandler extends YamlFileHandler {
         }
     }
 
+    @Override
+    public void reload() {
+        super.reload();
+        displayNames.clear();
+        generateSubStatKeys();
+    }
+
     @Contract(pure = true)
     public @NotNull String getKeyForBlockUnit() {
         return "soundCategory.block";
@@ -146,8 +160,26 @@ public final class LanguageKeyHandler extends YamlFileHandler {
         return "book.byAuthor";
     }
 
+    /**
+     * Turns a language key into a readable English name. The results
+     * are remembered until the next reload of the language file.
+     *
+     * @param key the language key to convert
+     * @return the display name, or the key itself if it can't be converted
+     */
     public String convertLanguageKeyToDisplayName(String key) {
         if (key == null) return null;
+        String displayName = displayNames.get(key);
+        if (displayName == null) {
+            displayName = lookUpDisplayName(key);
+            if (displayName != null) {
+                displayNames.put(key, displayName);
+            }
+        }
+        return displayName;
+    }
+
+    private String lookUpDisplayName(@NotNull String key) {
         if (isStatKey(key)) {
             return getStatKeyTranslationFromFile(key);
         }
@@ -204,16 +236,23 @@ public final class LanguageKeyHandler extends YamlFileHandler {
         }
     }
 
+    /**
+     * @param statistic the Statistic to get the id for
+     * @return the id Minecraft uses for this Statistic in its stats-files
+     * (such as "minecraft:play_time" or "minecraft:mined")
+     */
+    public @NotNull String getStatisticId(@NotNull Statistic statistic) {
+        return "minecraft:" + statisticKeys.get(statistic);
+    }
+
     /**
      * @param entity the EntityType to get the Key for
      * @return the official Key from the NameSpacedKey for this EntityType,
      * or return null if no enum constant can be retrieved or EntityType is UNKNOWN.
      */
     public @Nullable String getEntityKey(EntityType entity) {
-        if (entity == null || entity == EntityType.UNKNOWN) return null;
-        else {
-            return "entity.minecraft." + entity.getKey().getKey();
-        }
+        if (entity == null) return null;
+        return entityKeys.get(entity);
     }
 
     /**
@@ -223,12 +262,7 @@ public final class LanguageKeyHandler extends YamlFileHandler {
      */
     public @Nullable String getItemKey(Material item) {
         if (item == null) return null;
-        else if (item.isBlock()) {
-            return getBlockKey(item);
-        }
-        else {
-            return "item.minecraft." + item.getKey().getKey();
-        }
+        return itemKeys.get(item);
     }
 
     /**
@@ -238,14 +272,15 @@ public final class LanguageKeyHandler extends YamlFileHandler {
      */
     public @Nullable String getBlockKey(Material block) {
         if (block == null) return null;
-        else if (block.toString().toLowerCase(Locale.ENGLISH).contains("wall_banner")) {  //replace wall_banner with regular banner, since there is no key for wall banners
-            String blockName = block.toString().toLowerCase(Locale.ENGLISH).replace("wall_", "");
-            Material newBlock = EnumHandler.getInstance().getBlockEnum(blockName);
-            return (newBlock != null) ? "block.minecraft." + newBlock.getKey().getKey() : null;
-        }
-        else {
-            return "block.minecraft." + block.getKey().getKey();
-        }
+        return blockKeys.get(block);
+    }
+
+    /**
+     * @param subStatName the name of a sub-statistic that has no language key
+     * @return the prettified name, which is only built the first time
+     */
+    public @NotNull String getFallbackDisplayName(@NotNull String subStatName) {
+        return displayNames.computeIfAbsent(subStatName, StringUtils::prettify);
     }
 
     /**
@@ -260,6 +295,67 @@ public final class LanguageKeyHandler extends YamlFileHandler {
         }
     }
 
+    /**
+     * Fills the lookup tables for all block-, item- and entity-keys and their
+     * display names, so formatting a message never has to build a key or
+     * prettify a name on the fly. The display names are also put in the
+     * general key-to-display-name cache, together with the statistic names
+     * from the language file.
+     */
+    private void generateSubStatKeys() {
+        long time = System.currentTimeMillis();
+
+        EnumMap<Material, String> newBlockKeys = new EnumMap<>(Material.class);
+        EnumMap<Material, String> newItemKeys = new EnumMap<>(Material.class);
+        EnumMap<Material, String> newMaterialNames = new EnumMap<>(Material.class);
+        for (Material material : Material.values()) {
+            if (material.name().startsWith("LEGACY_")) {
+                continue;
+            }
+            String name = material.getKey().getKey();
+            if (name.contains("wall_banner")) {  //replace wall_banner with regular banner, since there is no key for wall banners
+                Material banner = Material.getMaterial(material.name().replace("WALL_", ""));
+                if (banner == null) {
+                    continue;
+                }
+                name = banner.getKey().getKey();
+            }
+            String blockKey = "block.minecraft." + name;
+            newBlockKeys.put(material, blockKey);
+            newItemKeys.put(material, material.isBlock() ? blockKey : "item.minecraft." + name);
+            newMaterialNames.put(material, StringUtils.prettify(name));
+        }
+
+        EnumMap<EntityType, String> newEntityKeys = new EnumMap<>(EntityType.class);
+        EnumMap<EntityType, String> newEntityNames = new EnumMap<>(EntityType.class);
+        for (EntityType entity : EntityType.values()) {
+            if (entity == EntityType.UNKNOWN) {
+                continue;
+            }
+            String name = entity.getKey().getKey();
+            newEntityKeys.put(entity, "entity.minecraft." + name);
+            newEntityNames.put(entity, StringUtils.prettify(name));
+        }
+
+        blockKeys = newBlockKeys;
+        itemKeys = newItemKeys;
+        entityKeys = newEntityKeys;
+
+        newBlockKeys.forEach((material, key) -> displayNames.put(key, newMaterialNames.get(material)));
+        newItemKeys.forEach((material, key) -> displayNames.put(key, newMaterialNames.get(material)));
+        newEntityKeys.forEach((entity, key) -> displayNames.put(key, newEntityNames.get(entity)));
+        statisticKeys.keySet().forEach(statistic -> {
+            String statKey = getStatKey(statistic);
+            String translation = super.getFileConfiguration().getString(statKey);
+            if (translation != null) {
+                displayNames.put(statKey, translation);
+            }
+        });
+
+        MyLogger.logLowLevelTask("Generated language key tables for " + blockKeys.size() +
+                " materials and " + entityKeys.size() + " entities", time);
+    }
+
     private @NotNull HashMap<Statistic, String> generateStatisticKeys() {
         //get the enum names for all statistics first
         HashMap<Statistic, String> statNames = new HashMap<>(Statistic.values().length);
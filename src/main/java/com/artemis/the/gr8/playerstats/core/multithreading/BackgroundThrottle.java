@@ -0,0 +1,328 @@
+package com.artemis.the.gr8.playerstats.core.multithreading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.utils.Closable;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+import com.artemis.the.gr8.playerstats.core.utils.Reloadable;
+
+/**
+ * Makes background work back off while the server is struggling to keep up.
+ * Once a second, the average tick time (MSPT) is compared to the budget from
+ * the config. Every check above the budget raises the throttle level by one,
+ * and every check comfortably below it lowers it by one again, so the work
+ * ramps down and up gradually. At a higher level, fewer chunks of work can
+ * run at the same time, and every chunk waits a bit longer before it starts.
+ * Work that runs on the main thread uses a smaller share of its budget instead.
+ * When the budget is 0, chunks skip the throttle altogether.
+ *
+ * <p>Work that is split up with {@link #forEachChunk} runs on a dedicated pool,
+ * with no more workers than the allowed parallelism, so the number of threads
+ * never grows because of the throttle. Threads that wait in {@link #beginChunk()}
+ * simply sleep, so a ForkJoinPool does not start extra threads to replace them.
+ */
+public final class BackgroundThrottle implements Reloadable, Closable {
+
+    private static final int MAX_LEVEL = 4;
+    private static final long CHECK_INTERVAL_TICKS = 20L;
+    private static final long PAUSE_PER_LEVEL_MILLIS = 5L;
+    //lower the level again once the MSPT is below this part of the budget
+    private static final double RECOVERY_FACTOR = 0.8;
+
+    private static volatile BackgroundThrottle instance;
+
+    private final int maxParallelism;
+    private BukkitTask task;
+    private volatile int msptBudget;
+    private volatile double lastMspt;
+    private volatile int level;
+    private int activeChunks;
+    private ExecutorService workers;
+
+    private BackgroundThrottle() {
+        maxParallelism = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        lastMspt = -1;
+        reload();
+        Main.registerReloadable(this);
+        Main.registerClosable(this);
+    }
+
+    public static BackgroundThrottle getInstance() {
+        BackgroundThrottle localVar = instance;
+        if (localVar != null) {
+            return localVar;
+        }
+
+        synchronized (BackgroundThrottle.class) {
+            if (instance == null) {
+                instance = new BackgroundThrottle();
+            }
+            return instance;
+        }
+    }
+
+    @Override
+    public void reload() {
+        msptBudget = ConfigHandler.getInstance().getMsptBudget();
+        if (msptBudget > 0 && task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(Main.getPluginInstance(), this::checkTickTime,
+                    CHECK_INTERVAL_TICKS, CHECK_INTERVAL_TICKS);
+        } else if (msptBudget <= 0) {
+            stopChecking();
+        }
+    }
+
+    @Override
+    public void close() {
+        stopChecking();
+        synchronized (this) {
+            if (workers != null) {
+                workers.shutdown();
+                workers = null;
+            }
+        }
+    }
+
+    private void stopChecking() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        setLevel(0);
+    }
+
+    /**
+     * Waits until this chunk of background work is allowed to start. When
+     * this returns true, it must be followed by a call to {@link #endChunk()}
+     * (in a finally-block). Must not be called from the main thread.
+     *
+     * <p>This is meant for the leaves of a ForkJoin task. The thread sleeps
+     * while it waits, instead of going through {@link ForkJoinPool#managedBlock},
+     * so the pool does not start a new thread for every chunk that is held back.
+     *
+     * @return false if throttling is turned off, in which
+     * case the chunk can start straight away
+     */
+    public boolean beginChunk() {
+        if (msptBudget <= 0) {
+            return false;
+        }
+        try {
+            pause();
+            synchronized (this) {
+                while (activeChunks >= getAllowedParallelism()) {
+                    wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            //let the chunk start anyway
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            activeChunks++;
+        }
+        return true;
+    }
+
+    public synchronized void endChunk() {
+        activeChunks--;
+        notifyAll();
+    }
+
+    /**
+     * Splits the range from 0 to size into chunks, and runs these on a
+     * dedicated pool (and the calling thread). No more workers are started
+     * than the allowed parallelism at that moment, and workers that are over
+     * the allowed parallelism after the level went up wait until it goes
+     * down again. Must not be called from the main thread.
+     *
+     * @param task the work for the part of the range from start
+     *             (inclusive) to end (exclusive)
+     */
+    public void forEachChunk(int size, int chunkSize, @NotNull ChunkTask task) {
+        int chunkCount = (size + chunkSize - 1) / chunkSize;
+        int workerCount = Math.min(chunkCount, msptBudget > 0 ? getAllowedParallelism() : maxParallelism);
+        if (workerCount <= 0) {
+            return;
+        }
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(workerCount - 1);
+        ExecutorService pool = getWorkers();
+        for (int i = 1; i < workerCount; i++) {
+            int worker = i;
+            futures.add(pool.submit(() -> runChunks(worker, nextChunk, chunkCount, size, chunkSize, task)));
+        }
+        try {
+            runChunks(0, nextChunk, chunkCount, size, chunkSize, task);
+        } finally {
+            //stop handing out chunks if the calling thread failed
+            nextChunk.set(chunkCount);
+            awaitWorkers(futures);
+        }
+    }
+
+    private void runChunks(int worker, @NotNull AtomicInteger nextChunk, int chunkCount,
+                           int size, int chunkSize, @NotNull ChunkTask task) {
+        int chunk;
+        while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+            if (msptBudget > 0) {
+                try {
+                    pause();
+                    synchronized (this) {
+                        //the first worker always continues, so the work keeps going
+                        while (worker >= getAllowedParallelism()) {
+                            wait();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            task.run(chunk * chunkSize, Math.min((chunk + 1) * chunkSize, size));
+        }
+    }
+
+    private static void awaitWorkers(@NotNull List<Future<?>> futures) {
+        boolean interrupted = false;
+        RuntimeException failure = null;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException runtimeException ?
+                                runtimeException : new RuntimeException(e.getCause());
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized @NotNull ExecutorService getWorkers() {
+        if (workers == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(maxParallelism, runnable -> {
+                Thread thread = new Thread(runnable, "PlayerStats-Background-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return workers;
+    }
+
+    private void pause() throws InterruptedException {
+        long pauseMillis = getPauseMillis();
+        if (pauseMillis > 0) {
+            Thread.sleep(pauseMillis);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ChunkTask {
+        void run(int start, int end);
+    }
+
+    /**
+     * @param budgetNanos the time this work may take per tick
+     *                    when the server is not struggling
+     * @return the time it may take per tick right now
+     * (0 at the highest throttle level)
+     */
+    public long getMainThreadBudget(long budgetNanos) {
+        int currentLevel = level;
+        return currentLevel >= MAX_LEVEL ? 0 : budgetNanos >> currentLevel;
+    }
+
+    /**
+     * @return the current throttle level (0 means not throttled)
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public int getMaxLevel() {
+        return MAX_LEVEL;
+    }
+
+    /**
+     * @return the number of chunks of background work that can run at the same time
+     */
+    public int getAllowedParallelism() {
+        return Math.max(1, maxParallelism >> level);
+    }
+
+    public int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    /**
+     * @return the time a chunk of background work waits before it starts, in milliseconds
+     */
+    public long getPauseMillis() {
+        return PAUSE_PER_LEVEL_MILLIS * level;
+    }
+
+    /**
+     * @return the MSPT budget from the config (0 if throttling is turned off)
+     */
+    public int getMsptBudget() {
+        return msptBudget;
+    }
+
+    /**
+     * @return the average MSPT at the last check, or -1 if it is not known
+     */
+    public double getLastMspt() {
+        return lastMspt;
+    }
+
+    private void checkTickTime() {
+        double mspt;
+        try {
+            mspt = Bukkit.getAverageTickTime();
+        } catch (NoSuchMethodError e) {
+            MyLogger.logWarning("This server does not provide its tick times, background work will not be throttled");
+            stopChecking();
+            return;
+        }
+        lastMspt = mspt;
+
+        int currentLevel = level;
+        if (mspt > msptBudget && currentLevel < MAX_LEVEL) {
+            setLevel(currentLevel + 1);
+            MyLogger.logMediumLevelMsg(() -> "MSPT is " + String.format("%.1f", mspt) + ", throttling background work to level " + level);
+        } else if (mspt < msptBudget * RECOVERY_FACTOR && currentLevel > 0) {
+            setLevel(currentLevel - 1);
+            MyLogger.logMediumLevelMsg(() -> "MSPT is " + String.format("%.1f", mspt) + ", throttling background work to level " + level);
+        }
+    }
+
+    private synchronized void setLevel(int newLevel) {
+        level = newLevel;
+        notifyAll();
+    }
+}
@@ -0,0 +1,128 @@
+package com.artemis.the.gr8.playerstats.core.multithreading;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import com.artemis.the.gr8.playerstats.core.RuntimeGeneration;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.config.ComponentTable;
+import com.artemis.the.gr8.playerstats.core.statistic.index.PostingList;
+import com.artemis.the.gr8.playerstats.core.statistic.index.StatIndex;
+import com.artemis.the.gr8.playerstats.core.utils.ActionLog;
+
+/**
+ * Calculates the value of every approved stat for every player in a single
+ * parallel pass, instead of one calculation per approved stat. Each player's
+ * components are read once into a vector (from the {@link StatIndex} where
+ * possible, and otherwise from their stats-file, or from the server for
+ * players that are online), after which every approved stat is evaluated from
+ * that vector.
+ *
+ * <p>Every player with a stats-file is scanned, not only the included ones,
+ * so a player that is missing from a scan did not exist yet when it was
+ * taken, and has earned everything they have since.
+ */
+public final class BaselineScan {
+
+    private static final int CHUNK_SIZE = 1000; //Number of players processed by one task
+    private static final Comparator<UUID> PLAYER_ORDER =
+            Comparator.comparingLong(UUID::getMostSignificantBits).thenComparingLong(UUID::getLeastSignificantBits);
+
+    private BaselineScan() {
+    }
+
+    /**
+     * @param aliases the aliases of the approved stats, sorted
+     * @param players the UUIDs of the included players and all other players
+     *                with a stats-file, sorted by their most and then least
+     *                significant bits (as signed longs)
+     * @param columns the value of each player for each alias, by the index of
+     *                the alias and then the index of the player
+     */
+    public record Result(String[] aliases, UUID[] players, int[][] columns) {
+    }
+
+    /**
+     * Scans the included players of this generation and every other player
+     * that has a stats-file. This can take some time, so it should not be
+     * called from the main thread.
+     */
+    public static @NotNull Result scan(@NotNull RuntimeGeneration generation) {
+        ComponentTable componentTable = generation.getComponentTable();
+        List<String> aliasList = new ArrayList<>();
+        BitSet required = new BitSet(componentTable.size());
+        for (String alias : generation.getApprovedAliases()) {
+            ApprovedStat approvedStat = generation.getApprovedStat(alias);
+            int[] ids = approvedStat != null ? componentTable.getRequiredIds(approvedStat, generation::getApprovedStat) : null;
+            if (ids != null) {
+                aliasList.add(alias);
+                for (int id : ids) {
+                    required.set(id);
+                }
+            }
+        }
+        aliasList.sort(null);
+        String[] aliases = aliasList.toArray(new String[0]);
+        int[] requiredComponentIds = required.stream().toArray();
+        StatIndex statIndex = StatIndex.getInstance();
+        Set<UUID> playerSet = new HashSet<>(statIndex.listPlayersWithStats());
+        playerSet.addAll(generation.getIncludedPlayers().values());
+        UUID[] players = playerSet.stream().sorted(PLAYER_ORDER).toArray(UUID[]::new);
+        int[][] columns = new int[aliases.length][players.length];
+
+        //use the index for the players whose values in it are up-to-date
+        PostingList[] postingLists = new PostingList[componentTable.size()];
+        if (statIndex.isReady()) {
+            for (int id : requiredComponentIds) {
+                postingLists[id] = statIndex.getPostingList(componentTable.get(id));
+            }
+        }
+
+        ActionLog actionLog = new ActionLog("Baseline scan of " + aliases.length + " stats", players.length);
+        try {
+            BackgroundThrottle.getInstance().forEachChunk(players.length, CHUNK_SIZE, (start, end) -> {
+                actionLog.threadUsed();
+                int[] componentValues = new int[componentTable.size()];
+                for (int p = start; p < end; p++) {
+                    readComponents(players[p], requiredComponentIds, postingLists, componentTable, statIndex, componentValues, actionLog);
+                    for (int a = 0; a < aliases.length; a++) {
+                        columns[a][p] = StatAction.calculateStatValue(generation, aliases[a], actionLog,
+                                bukkitStat -> componentTable.sum(bukkitStat, componentValues));
+                    }
+                }
+            });
+        } finally {
+            actionLog.finish();
+        }
+        return new Result(aliases, players, columns);
+    }
+
+    private static void readComponents(@NotNull UUID uuid, int @NotNull [] requiredComponentIds, PostingList @NotNull [] postingLists,
+                                       @NotNull ComponentTable componentTable, @NotNull StatIndex statIndex,
+                                       int @NotNull [] componentValues, @NotNull ActionLog actionLog) {
+        Player livePlayer = statIndex.getLivePlayer(uuid);
+        int ordinal = statIndex.isReady() && livePlayer == null ? statIndex.getOrdinal(uuid) : -1;
+        Map<String, Integer> stats = null;
+        for (int id : requiredComponentIds) {
+            if (ordinal >= 0 && postingLists[id] != null) {
+                componentValues[id] = postingLists[id].get(ordinal);
+            } else if (livePlayer != null) {
+                componentValues[id] = StatAction.getComponentValue(livePlayer, componentTable.get(id), actionLog);
+            } else {
+                if (stats == null) {
+                    stats = statIndex.readStats(uuid);
+                }
+                componentValues[id] = statIndex.getValue(stats, componentTable.get(id));
+            }
+        }
+    }
+}
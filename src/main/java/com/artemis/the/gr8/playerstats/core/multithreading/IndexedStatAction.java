@@ -0,0 +1,170 @@
+package com.artemis.the.gr8.playerstats.core.multithreading;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.api.StatRequest;
+import com.artemis.the.gr8.playerstats.core.RuntimeGeneration;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.config.ComponentTable;
+import com.artemis.the.gr8.playerstats.core.statistic.StatDistribution;
+import com.artemis.the.gr8.playerstats.core.statistic.index.PostingList;
+import com.artemis.the.gr8.playerstats.core.statistic.index.StatIndex;
+import com.artemis.the.gr8.playerstats.core.utils.ActionLog;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+
+/**
+ * Calculates a top-statistic with the {@link StatIndex} instead of asking
+ * Bukkit for the value of every single player. Only the players that appear
+ * in the PostingList of at least one of the involved StatComponents are
+ * evaluated, since all other players have a value of 0. Players that are
+ * live in the index are still calculated with a regular {@link StatAction}.
+ *
+ * <p>Like the StatAction, the result contains every included player,
+ * with a value of 0 for the players that were skipped.
+ */
+final class IndexedStatAction {
+
+    private static final int CHUNK_SIZE = 1000; //Number of candidates processed by one task
+
+    private final StatRequest.Settings requestSettings;
+    private final RuntimeGeneration generation;
+    private final ApprovedStat approvedStat;
+    private final int[] requiredComponentIds;
+    private final PostingList[] postingLists;
+
+    /**
+     * @param postingLists the PostingList of each required component,
+     *                     by its id in the {@link ComponentTable}
+     */
+    private IndexedStatAction(StatRequest.Settings requestSettings, RuntimeGeneration generation,
+                              ApprovedStat approvedStat, int[] requiredComponentIds, PostingList[] postingLists) {
+        this.requestSettings = requestSettings;
+        this.generation = generation;
+        this.approvedStat = approvedStat;
+        this.requiredComponentIds = requiredComponentIds;
+        this.postingLists = postingLists;
+    }
+
+    /**
+     * @param requestSettings the Settings of the request to calculate
+     * @param generation the generation to calculate the request with
+     * @return an IndexedStatAction for this request, or null if the
+     * request cannot be calculated with the index
+     */
+    static @Nullable IndexedStatAction create(@NotNull StatRequest.Settings requestSettings, @NotNull RuntimeGeneration generation) {
+        StatIndex statIndex = StatIndex.getInstance();
+        ApprovedStat approvedStat = requestSettings.getApprovedStat();
+        if (!statIndex.isReady() || approvedStat == null) {
+            return null;
+        }
+
+        ComponentTable componentTable = generation.getComponentTable();
+        int[] requiredComponentIds = componentTable.getRequiredIds(approvedStat, generation::getApprovedStat);
+        if (requiredComponentIds == null) {
+            return null;
+        }
+        PostingList[] postingLists = new PostingList[componentTable.size()];
+        for (int id : requiredComponentIds) {
+            PostingList list = statIndex.getPostingList(componentTable.get(id));
+            if (list == null) {
+                return null;
+            }
+            postingLists[id] = list;
+        }
+        return new IndexedStatAction(requestSettings, generation, approvedStat, requiredComponentIds, postingLists);
+    }
+
+    /**
+     * @param pool the pool to use for the players that are live in the index
+     * @param actionLog the ActionLog to count per-player problems in
+     * @param profiler the RequestProfiler to add the used CPU time and memory to
+     * @param distribution the StatDistribution to add the values of all
+     *                     included players to (including the players with a
+     *                     value of 0), or null if it is not needed
+     * @return the values for all included players
+     */
+    @NotNull ConcurrentHashMap<String, Integer> compute(@NotNull ForkJoinPool pool, @NotNull ActionLog actionLog,
+                                                        @NotNull RequestProfiler profiler, @Nullable StatDistribution distribution) {
+        long time = System.currentTimeMillis();
+        StatIndex statIndex = StatIndex.getInstance();
+
+        int indexSize = statIndex.size();
+        String[] namesByOrdinal = new String[indexSize];
+        List<OfflinePlayer> livePlayers = new ArrayList<>();
+        for (Map.Entry<String, UUID> entry : generation.getIncludedPlayers().entrySet()) {
+            UUID uuid = entry.getValue();
+            OfflinePlayer livePlayer = statIndex.getLivePlayer(uuid);
+            if (livePlayer != null) {
+                livePlayers.add(livePlayer);
+                continue;
+            }
+            int ordinal = statIndex.getOrdinal(uuid);
+            if (ordinal >= 0 && ordinal < indexSize) {
+                namesByOrdinal[ordinal] = entry.getKey();
+            }
+        }
+
+        ConcurrentHashMap<String, Integer> result = new ConcurrentHashMap<>();
+        BitSet candidates = new BitSet(indexSize);
+        for (int id : requiredComponentIds) {
+            postingLists[id].forEach((ordinal, value) -> {
+                if (ordinal < indexSize && namesByOrdinal[ordinal] != null) {
+                    candidates.set(ordinal);
+                }
+            });
+        }
+
+        ComponentTable componentTable = generation.getComponentTable();
+        int[] ordinals = candidates.stream().toArray();
+        BackgroundThrottle.getInstance().forEachChunk(ordinals.length, CHUNK_SIZE, (start, end) -> {
+            long[] workStart = profiler.startWork();
+            StatDistribution chunkDistribution = distribution != null ? new StatDistribution() : null;
+            try {
+                actionLog.threadUsed();
+                int[] componentValues = new int[postingLists.length];
+                for (int i = start; i < end; i++) {
+                    int ordinal = ordinals[i];
+                    for (int id : requiredComponentIds) {
+                        componentValues[id] = postingLists[id].get(ordinal);
+                    }
+                    int value = StatAction.calculateStatValue(generation, approvedStat.alias(), actionLog,
+                            bukkitStat -> componentTable.sum(bukkitStat, componentValues));
+                    result.put(namesByOrdinal[ordinal], value);
+                    if (chunkDistribution != null) {
+                        chunkDistribution.add(value);
+                    }
+                }
+            } finally {
+                if (chunkDistribution != null) {
+                    distribution.merge(chunkDistribution);
+                }
+                profiler.endWork(workStart);
+            }
+        });
+        MyLogger.logMediumLevelTask("Calculated indexed stats for " + ordinals.length + " players", time);
+        if (distribution != null) {
+            //everyone that is not live and was not a candidate has a value of 0
+            distribution.addZeros(generation.getIncludedPlayers().size() - livePlayers.size() - ordinals.length);
+        }
+
+        //everyone that is not live and was not a candidate has a value of 0
+        for (String playerName : generation.getIncludedPlayers().keySet()) {
+            result.putIfAbsent(playerName, 0);
+        }
+        if (!livePlayers.isEmpty()) {
+            result.putAll(pool.invoke(
+                    new StatAction(livePlayers.toArray(new OfflinePlayer[0]), requestSettings, generation, actionLog, profiler, distribution)));
+        }
+        return result;
+    }
+}
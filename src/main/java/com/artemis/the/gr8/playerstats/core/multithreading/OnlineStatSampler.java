@@ -0,0 +1,230 @@
+package com.artemis.the.gr8.playerstats.core.multithreading;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.RuntimeGeneration;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.config.ComponentTable;
+import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.statistic.RequestProcessor;
+import com.artemis.the.gr8.playerstats.core.statistic.StatRequestManager;
+import com.artemis.the.gr8.playerstats.core.utils.ActionLog;
+import com.artemis.the.gr8.playerstats.core.utils.Closable;
+import com.artemis.the.gr8.playerstats.core.utils.Reloadable;
+
+/**
+ * Keeps the cached Leaderboards up-to-date for players that are online,
+ * without calculating the whole Leaderboard again. Every tick, the statistics
+ * of a few online players are read on the main thread (taking turns, so
+ * every online player comes by regularly), for as long as the per-tick
+ * budget from the config allows. Only the components that the cached
+ * Leaderboards need are read, and a Leaderboard is only updated
+ * for players whose value has changed since they were last read.
+ * Leaderboards of stats with an aggregate component are not sampled.
+ * The budget shrinks while the {@link BackgroundThrottle} is throttling.
+ */
+public final class OnlineStatSampler implements Reloadable, Closable {
+
+    private static volatile OnlineStatSampler instance;
+
+    private final ArrayDeque<UUID> queue;
+    private final Map<UUID, int[]> lastValues;
+    private BukkitTask task;
+    private volatile long budgetNanos;
+    //the aliases that are being sampled, for other threads
+    private volatile Set<String> activeAliases;
+
+    private RuntimeGeneration generation;
+    private Set<String> sampledAliases;
+    private String[] aliases;
+    private int[] requiredComponentIds;
+    private int[] componentValues;
+    private ActionLog actionLog;
+
+    private OnlineStatSampler() {
+        queue = new ArrayDeque<>();
+        lastValues = new HashMap<>();
+        sampledAliases = Set.of();
+        activeAliases = Set.of();
+        aliases = new String[0];
+        requiredComponentIds = new int[0];
+        componentValues = new int[0];
+
+        reload();
+        Main.registerReloadable(this);
+        Main.registerClosable(this);
+    }
+
+    public static OnlineStatSampler getInstance() {
+        OnlineStatSampler localVar = instance;
+        if (localVar != null) {
+            return localVar;
+        }
+
+        synchronized (OnlineStatSampler.class) {
+            if (instance == null) {
+                instance = new OnlineStatSampler();
+            }
+            return instance;
+        }
+    }
+
+    @Override
+    public void reload() {
+        budgetNanos = ConfigHandler.getInstance().getOnlineSamplingBudgetMicros() * 1000L;
+        if (budgetNanos > 0 && task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(Main.getPluginInstance(), this::sampleOnlinePlayers, 1L, 1L);
+        } else if (budgetNanos <= 0 && task != null) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        finishActionLog();
+        queue.clear();
+        lastValues.clear();
+        activeAliases = Set.of();
+    }
+
+    /**
+     * @param alias the alias of an ApprovedStat
+     * @return true if the cached Leaderboard for this alias is currently kept
+     * up-to-date for online players, in which case it only goes out of date
+     * through changes that do not come from online players
+     */
+    public boolean isSampling(@NotNull String alias) {
+        return BackgroundThrottle.getInstance().getMainThreadBudget(budgetNanos) > 0 && activeAliases.contains(alias);
+    }
+
+    private void sampleOnlinePlayers() {
+        RuntimeGeneration currentGeneration = RuntimeGeneration.currentOrNull();
+        RequestProcessor processor = StatRequestManager.getBukkitProcessor();
+        Set<String> cachedAliases = processor.getCachedLeaderboardAliases();
+        if (currentGeneration == null || cachedAliases.isEmpty()) {
+            return;
+        }
+        if (currentGeneration != generation || !cachedAliases.equals(sampledAliases)) {
+            prepare(currentGeneration, cachedAliases);
+        }
+        if (aliases.length == 0) {
+            return;
+        }
+
+        long tickBudget = BackgroundThrottle.getInstance().getMainThreadBudget(budgetNanos);
+        if (tickBudget <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + tickBudget;
+        if (queue.isEmpty()) {
+            refillQueue();
+        }
+        ComponentTable componentTable = generation.getComponentTable();
+        Map<String, UUID> includedPlayers = generation.getIncludedPlayers();
+
+        //stop when the budget is used up, or when every online player has been read once this tick
+        while (!queue.isEmpty() && System.nanoTime() < deadline) {
+            UUID uuid = queue.poll();
+            Player player = Bukkit.getPlayer(uuid);
+            if (player == null || !uuid.equals(includedPlayers.get(player.getName()))) {
+                lastValues.remove(uuid);
+                continue;
+            }
+            actionLog.threadUsed();
+            for (int id : requiredComponentIds) {
+                componentValues[id] = StatAction.getComponentValue(player, componentTable.get(id), actionLog);
+            }
+
+            int[] previous = lastValues.get(uuid);
+            int[] current = new int[aliases.length];
+            for (int i = 0; i < aliases.length; i++) {
+                current[i] = StatAction.calculateStatValue(generation, aliases[i], actionLog,
+                        bukkitStat -> componentTable.sum(bukkitStat, componentValues));
+                boolean changed = previous != null ? previous[i] != current[i] : current[i] != 0;
+                if (changed) {
+                    processor.updateCachedLeaderboard(aliases[i], player.getName(), current[i]);
+                }
+            }
+            lastValues.put(uuid, current);
+        }
+    }
+
+    /**
+     * Looks up the components that are needed for the Leaderboards of
+     * these aliases, and forgets the values that were read before.
+     */
+    private void prepare(@NotNull RuntimeGeneration newGeneration, @NotNull Set<String> cachedAliases) {
+        finishActionLog();
+        generation = newGeneration;
+        sampledAliases = new HashSet<>(cachedAliases);
+        lastValues.clear();
+
+        ComponentTable componentTable = newGeneration.getComponentTable();
+        List<String> sampleable = new ArrayList<>();
+        BitSet required = new BitSet(componentTable.size());
+        for (String alias : sampledAliases) {
+            ApprovedStat approvedStat = newGeneration.getApprovedStat(alias);
+            int[] ids = approvedStat != null ? componentTable.getRequiredIds(approvedStat, newGeneration::getApprovedStat) : null;
+            if (ids != null && !hasAggregate(componentTable, ids)) {
+                sampleable.add(alias);
+                for (int id : ids) {
+                    required.set(id);
+                }
+            }
+        }
+        aliases = sampleable.toArray(new String[0]);
+        activeAliases = Set.copyOf(sampleable);
+        requiredComponentIds = required.stream().toArray();
+        componentValues = new int[componentTable.size()];
+        actionLog = new ActionLog("Sampling online players", Bukkit.getOnlinePlayers().size());
+    }
+
+    /**
+     * Aggregate components are the total of every Material or EntityType, which
+     * Bukkit can only give by asking for each of them separately. That is too
+     * expensive to do on the main thread, so Leaderboards that need one are
+     * not sampled, and are calculated again in the background instead.
+     */
+    private static boolean hasAggregate(@NotNull ComponentTable componentTable, int @NotNull [] ids) {
+        for (int id : ids) {
+            if (componentTable.get(id).isAggregate()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void refillQueue() {
+        Set<UUID> online = new HashSet<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            online.add(player.getUniqueId());
+            queue.add(player.getUniqueId());
+        }
+        lastValues.keySet().retainAll(online);
+    }
+
+    private void finishActionLog() {
+        if (actionLog != null) {
+            actionLog.finish();
+            actionLog = null;
+        }
+    }
+}
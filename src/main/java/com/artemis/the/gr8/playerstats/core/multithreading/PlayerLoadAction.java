@@ -7,7 +7,7 @@ import java.util.concurrent.RecursiveAction;
 import org.bukkit.OfflinePlayer;
 
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
-import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+import com.artemis.the.gr8.playerstats.core.utils.ActionLog;
 import com.artemis.the.gr8.playerstats.core.utils.OfflinePlayerHandler;
 import com.artemis.the.gr8.playerstats.core.utils.UnixTimeHandler;
 
@@ -24,6 +24,8 @@ final class PlayerLoadAction extends RecursiveAction {
     private final int end;
 
     private final ConcurrentHashMap<String, UUID> offlinePlayerUUIDs;
+    private final ConcurrentHashMap<UUID, Long> lastPlayed;
+    private final ActionLog actionLog;
 
     /**
      * Fills a ConcurrentHashMap with PlayerNames and UUIDs for all
@@ -32,19 +34,24 @@ final class PlayerLoadAction extends RecursiveAction {
      * @param players array of all OfflinePlayers to filter and load
      * @param offlinePlayerUUIDs the ConcurrentHashMap to put playerNames and
      * UUIDs in
+     * @param lastPlayed the ConcurrentHashMap to put the time each included
+     * player was last seen in
+     * @param actionLog the ActionLog to keep track of the used threads in
      * @see OfflinePlayerHandler
      */
-    public PlayerLoadAction(OfflinePlayer[] players, ConcurrentHashMap<String, UUID> offlinePlayerUUIDs) {
-        this(players, 0, players.length, offlinePlayerUUIDs);
+    public PlayerLoadAction(OfflinePlayer[] players, ConcurrentHashMap<String, UUID> offlinePlayerUUIDs,
+                            ConcurrentHashMap<UUID, Long> lastPlayed, ActionLog actionLog) {
+        this(players, 0, players.length, offlinePlayerUUIDs, lastPlayed, actionLog);
     }
 
-    private PlayerLoadAction(OfflinePlayer[] players, int start, int end, ConcurrentHashMap<String, UUID> offlinePlayerUUIDs) {
+    private PlayerLoadAction(OfflinePlayer[] players, int start, int end, ConcurrentHashMap<String, UUID> offlinePlayerUUIDs,
+                             ConcurrentHashMap<UUID, Long> lastPlayed, ActionLog actionLog) {
         this.players = players;
         this.start = start;
         this.end = end;
         this.offlinePlayerUUIDs = offlinePlayerUUIDs;
-
-        MyLogger.subActionCreated(Thread.currentThread().getName());
+        this.lastPlayed = lastPlayed;
+        this.actionLog = actionLog;
     }
 
     @Override
@@ -55,9 +62,9 @@ final class PlayerLoadAction extends RecursiveAction {
         } else {
             final int split = length / 2;
             final PlayerLoadAction subTask1 = new PlayerLoadAction(players, start, (start + split),
-                    offlinePlayerUUIDs);
+                    offlinePlayerUUIDs, lastPlayed, actionLog);
             final PlayerLoadAction subTask2 = new PlayerLoadAction(players, (start + split), end,
-                    offlinePlayerUUIDs);
+                    offlinePlayerUUIDs, lastPlayed, actionLog);
 
             //queue and compute all subtasks in the right order
             invokeAll(subTask1, subTask2);
@@ -67,15 +74,18 @@ final class PlayerLoadAction extends RecursiveAction {
     private void process() {
         OfflinePlayerHandler offlinePlayerHandler = OfflinePlayerHandler.getInstance();
         int lastPlayedLimit = ConfigHandler.getInstance().getLastPlayedLimit();
+        actionLog.threadUsed();
 
         for (int i = start; i < end; i++) {
             OfflinePlayer player = players[i];
             String playerName = player.getName();
-            MyLogger.actionRunning(Thread.currentThread().getName());
-            if (playerName != null
-                    && !offlinePlayerHandler.isExcludedPlayer(player.getUniqueId())
-                    && UnixTimeHandler.hasPlayedSince(lastPlayedLimit, player.getLastPlayed())) {
+            if (playerName == null || offlinePlayerHandler.isExcludedPlayer(player.getUniqueId())) {
+                continue;
+            }
+            long lastPlayedTime = player.getLastPlayed();
+            if (UnixTimeHandler.hasPlayedSince(lastPlayedLimit, lastPlayedTime)) {
                 offlinePlayerUUIDs.put(playerName, player.getUniqueId());
+                lastPlayed.put(player.getUniqueId(), lastPlayedTime);
             }
         }
     }
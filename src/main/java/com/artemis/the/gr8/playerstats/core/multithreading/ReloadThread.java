@@ -18,9 +18,6 @@ final class ReloadThread extends Thread {
 
     private final CommandSender sender;
 
-    // Counter for console waiting message, to prevent spam
-    private int waitingMsgCounter = 0;
-
     public ReloadThread(Main main, OutputManager m, int ID, @Nullable CommandSender se) {
         this.main = main;
         outputManager = m;
@@ -31,30 +28,18 @@ final class ReloadThread extends Thread {
     }
 
     /**
-     * This method will call reload() from Main.
+     * This method will call reload() from Main. Stat calculations that
+     * are still running don't need to be waited for, because they keep
+     * using the {@link com.artemis.the.gr8.playerstats.core.RuntimeGeneration}
+     * they started with.
      */
     @Override
     public void run() {
         MyLogger.logHighLevelMsg(this.getName() + " started!");
 
-        // Wait for ongoing StatActions to finish
-        try {
-            while (ThreadManager.getActiveActionCount() > 0) {
-                if (sender != null && waitingMsgCounter == 0) {
-                    outputManager.sendFeedbackMsg(sender, StandardMessage.WAIT_A_MOMENT);
-                }
-                waitingMsgCounter = (waitingMsgCounter + 1) % 20; // Send message every second (20 * 50ms)
-                MyLogger.logLowLevelMsg("ReloadThread waiting for " + ThreadManager.getActiveActionCount() + " stat actions to finish...");
-                Thread.sleep(50); // Wait 50 milliseconds
-            }
-        } catch (InterruptedException e) {
-            MyLogger.logWarning("ReloadThread interrupted while waiting for stat actions: " + e.getMessage());
-            Thread.currentThread().interrupt(); // Re-interrupt the thread
-            // Optionally send an error message to the sender
-            if (sender != null) {
-                outputManager.sendFeedbackMsg(sender, StandardMessage.INTERNAL_ERROR);
-            }
-            return; // Stop the reload process if interrupted
+        int activeActions = ThreadManager.getActiveActionCount();
+        if (activeActions > 0) {
+            MyLogger.logLowLevelMsg("Reloading while " + activeActions + " stat actions are still running on the previous generation");
         }
 
         MyLogger.logLowLevelMsg("Reloading!");
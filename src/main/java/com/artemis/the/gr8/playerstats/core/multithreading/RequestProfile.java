@@ -0,0 +1,92 @@
+package com.artemis.the.gr8.playerstats.core.multithreading;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.artemis.the.gr8.playerstats.api.enums.Target;
+
+/**
+ * How long a single request took, split into phases, and how much CPU time
+ * and memory it used (on the thread that ran it and on all ForkJoin threads
+ * that calculated a part of it). A RequestProfile never changes after
+ * it is created.
+ */
+public final class RequestProfile {
+
+    /**
+     * The phases a request goes through. For player lookups, looking up
+     * the statistic, formatting and sending all count as CALCULATE.
+     */
+    public enum Phase {
+        QUEUED, CALCULATE, FORMAT_AND_SEND
+    }
+
+    private final String statName;
+    private final Target target;
+    private final long finishedAt;
+    private final long[] phaseNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+
+    RequestProfile(@NotNull String statName, @NotNull Target target, long finishedAt,
+                   long @NotNull [] phaseNanos, long cpuNanos, long allocatedBytes) {
+        this.statName = statName;
+        this.target = target;
+        this.finishedAt = finishedAt;
+        this.phaseNanos = phaseNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * @return the alias of the requested stat (or the name of
+     * the Statistic for a legacy request)
+     */
+    public @NotNull String getStatName() {
+        return statName;
+    }
+
+    public @NotNull Target getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the time this request finished at, in milliseconds since the epoch
+     */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * @return the wall time this request spent in the given phase, in nanoseconds
+     */
+    public long getPhaseNanos(@NotNull Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the wall time of all phases together, in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : phaseNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * @return the CPU time used by all threads that worked on this
+     * request, in nanoseconds, or -1 if the JVM cannot measure this
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * @return the number of bytes allocated by all threads that worked on
+     * this request, or -1 if the JVM cannot measure this
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,40 @@
+package com.artemis.the.gr8.playerstats.core.multithreading;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keeps the last {@link #CAPACITY} {@link RequestProfile}s
+ * in a ring buffer, overwriting the oldest one when it is full.
+ */
+final class RequestProfileHistory {
+
+    static final int CAPACITY = 50;
+
+    private final RequestProfile[] profiles;
+    private int next;
+    private int size;
+
+    RequestProfileHistory() {
+        profiles = new RequestProfile[CAPACITY];
+    }
+
+    synchronized void add(@NotNull RequestProfile profile) {
+        profiles[next] = profile;
+        next = (next + 1) % CAPACITY;
+        size = Math.min(size + 1, CAPACITY);
+    }
+
+    /**
+     * @return the stored profiles, newest first
+     */
+    synchronized @NotNull List<RequestProfile> getProfiles() {
+        List<RequestProfile> result = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            result.add(profiles[(next - i + CAPACITY) % CAPACITY]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package com.artemis.the.gr8.playerstats.core.multithreading;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.api.StatRequest;
+import com.artemis.the.gr8.playerstats.api.enums.Target;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+
+/**
+ * Measures a single request while it runs, to create a {@link RequestProfile}.
+ * The thread that runs the request measures its own CPU time and allocated
+ * bytes from {@link #start()} to {@link #finish()}, and every ForkJoin task
+ * that calculates a part of the request on another thread adds what it used
+ * through {@link #startWork()} and {@link #endWork(long[])}.
+ */
+final class RequestProfiler {
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean allocationBean =
+            threadBean instanceof com.sun.management.ThreadMXBean bean ? bean : null;
+
+    private final String statName;
+    private final Target target;
+    private final long[] phaseNanos;
+    private final LongAdder workerCpuNanos;
+    private final LongAdder workerAllocatedBytes;
+    private final long createdAt;
+    private Thread ownerThread;
+    private long[] ownerStart;
+    private RequestProfile.Phase currentPhase;
+    private long phaseStartedAt;
+
+    /**
+     * Creates a RequestProfiler for a request that has just
+     * been queued (the QUEUED phase starts now).
+     */
+    RequestProfiler(@NotNull StatRequest.Settings settings) {
+        ApprovedStat approvedStat = settings.getApprovedStat();
+        statName = approvedStat != null ? approvedStat.alias() : String.valueOf(settings.getStatistic());
+        target = settings.getTarget();
+        phaseNanos = new long[RequestProfile.Phase.values().length];
+        workerCpuNanos = new LongAdder();
+        workerAllocatedBytes = new LongAdder();
+        createdAt = System.nanoTime();
+        currentPhase = RequestProfile.Phase.QUEUED;
+        phaseStartedAt = createdAt;
+    }
+
+    /**
+     * Called by the thread that runs the request, when it starts
+     * running it. This ends the QUEUED phase.
+     */
+    void start() {
+        ownerThread = Thread.currentThread();
+        ownerStart = sample();
+        startPhase(RequestProfile.Phase.CALCULATE);
+    }
+
+    /**
+     * Ends the current phase and starts the given one.
+     */
+    void startPhase(@NotNull RequestProfile.Phase phase) {
+        long now = System.nanoTime();
+        phaseNanos[currentPhase.ordinal()] += now - phaseStartedAt;
+        currentPhase = phase;
+        phaseStartedAt = now;
+    }
+
+    /**
+     * Called by a ForkJoin task before it calculates its part of the request.
+     *
+     * @return the values to pass to {@link #endWork(long[])}, or null if
+     * this work is already measured by the thread that runs the request
+     */
+    long @Nullable [] startWork() {
+        return Thread.currentThread() == ownerThread ? null : sample();
+    }
+
+    void endWork(long @Nullable [] workStart) {
+        if (workStart == null) {
+            return;
+        }
+        long[] workEnd = sample();
+        if (workStart[0] >= 0 && workEnd[0] >= 0) {
+            workerCpuNanos.add(workEnd[0] - workStart[0]);
+        }
+        if (workStart[1] >= 0 && workEnd[1] >= 0) {
+            workerAllocatedBytes.add(workEnd[1] - workStart[1]);
+        }
+    }
+
+    /**
+     * Ends the current phase, and creates the RequestProfile.
+     * Must be called by the thread that called {@link #start()}.
+     */
+    @NotNull RequestProfile finish() {
+        startPhase(currentPhase);
+        long[] ownerEnd = sample();
+        long cpuNanos = -1;
+        long allocatedBytes = -1;
+        if (ownerStart != null && ownerStart[0] >= 0 && ownerEnd[0] >= 0) {
+            cpuNanos = ownerEnd[0] - ownerStart[0] + workerCpuNanos.sum();
+        }
+        if (ownerStart != null && ownerStart[1] >= 0 && ownerEnd[1] >= 0) {
+            allocatedBytes = ownerEnd[1] - ownerStart[1] + workerAllocatedBytes.sum();
+        }
+        return new RequestProfile(statName, target, System.currentTimeMillis(), phaseNanos.clone(), cpuNanos, allocatedBytes);
+    }
+
+    /**
+     * @return the CPU time and allocated bytes of the current thread so far
+     * (-1 for the ones that cannot be measured)
+     */
+    private static long @NotNull [] sample() {
+        long cpuTime = threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled() ?
+                threadBean.getCurrentThreadCpuTime() : -1;
+        long allocated = -1;
+        if (allocationBean != null && allocationBean.isThreadAllocatedMemorySupported()
+                && allocationBean.isThreadAllocatedMemoryEnabled()) {
+            allocated = allocationBean.getCurrentThreadAllocatedBytes();
+        }
+        return new long[]{cpuTime, allocated};
+    }
+}
@@ -5,18 +5,25 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RecursiveTask;
+import java.util.function.ToIntFunction;
 
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.Statistic;
 import org.bukkit.entity.EntityType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.artemis.the.gr8.playerstats.api.StatRequest;
+import com.artemis.the.gr8.playerstats.core.RuntimeGeneration;
 import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
-import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.config.ComponentTable;
 import com.artemis.the.gr8.playerstats.core.config.DerivedStatComponent;
 import com.artemis.the.gr8.playerstats.core.config.StatType;
+import com.artemis.the.gr8.playerstats.core.jfr.DerivedEvaluationEvent;
+import com.artemis.the.gr8.playerstats.core.statistic.StatDistribution;
+import com.artemis.the.gr8.playerstats.core.statistic.index.SubStatTotals;
+import com.artemis.the.gr8.playerstats.core.utils.ActionLog;
 import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
 
 /**
@@ -30,33 +37,71 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
 
     private final OfflinePlayer[] playerList;
     private final StatRequest.Settings requestSettings;
-    private final ConfigHandler configHandler; // Added: Need access to getApprovedStat
+    private final RuntimeGeneration generation;
+    private final ActionLog actionLog;
+    private final RequestProfiler profiler;
+    private final int @Nullable [] requiredComponentIds;
+    private final @Nullable StatDistribution distribution;
 
     /**
      * @param players an Array of OfflinePlayer objects
      * @param request the StatRequest Settings object with all the relevant
      * settings
+     * @param generation the generation to look up DERIVED components in
+     * @param actionLog the ActionLog to count per-player problems in
+     * @param profiler the RequestProfiler to add the used CPU time and memory to
+     * @param distribution the StatDistribution to merge the values of every
+     *                     task into, or null if it is not needed
      */
-    public StatAction(OfflinePlayer[] players, StatRequest.Settings request) {
-        MyLogger.actionCreated(players.length);
+    StatAction(OfflinePlayer[] players, StatRequest.Settings request, RuntimeGeneration generation,
+               ActionLog actionLog, RequestProfiler profiler, @Nullable StatDistribution distribution) {
+        this(players, request, generation, actionLog, profiler, getRequiredComponentIds(request, generation), distribution);
+    }
+
+    private StatAction(OfflinePlayer[] players, StatRequest.Settings request, RuntimeGeneration generation,
+                       ActionLog actionLog, RequestProfiler profiler, int @Nullable [] requiredComponentIds,
+                       @Nullable StatDistribution distribution) {
         playerList = players;
         requestSettings = request;
-        this.configHandler = ConfigHandler.getInstance(); // Added: Initialize ConfigHandler
+        this.generation = generation;
+        this.actionLog = actionLog;
+        this.profiler = profiler;
+        this.requiredComponentIds = requiredComponentIds;
+        this.distribution = distribution;
+    }
+
+    /**
+     * @return the ids in the {@link ComponentTable} of all components that are
+     * needed for the requested ApprovedStat, or null if they cannot be looked
+     * up in the table (in which case every BUKKIT stat is calculated separately)
+     */
+    private static int @Nullable [] getRequiredComponentIds(@NotNull StatRequest.Settings request, @NotNull RuntimeGeneration generation) {
+        ApprovedStat approvedStat = request.getApprovedStat();
+        if (approvedStat == null) {
+            return null;
+        }
+        return generation.getComponentTable().getRequiredIds(approvedStat, generation::getApprovedStat);
     }
 
     @Override
     protected ConcurrentHashMap<String, Integer> compute() {
-        MyLogger.logLowLevelTask("Computing stats for " + playerList.length + " players...", System.currentTimeMillis());
+        actionLog.threadUsed();
 
         if (playerList.length < THRESHOLD) {
-            // Decide calculation path based on whether ApprovedStat is present
-            ApprovedStat approvedStat = requestSettings.getApprovedStat();
-            if (approvedStat != null) {
-                // Use newer ApprovedStat logic
-                return getStats(playerList, approvedStat);
-            } else {
-                // Use legacy Statistic/Material/EntityType logic
-                return getStatsLegacy(playerList, requestSettings);
+            long[] workStart = profiler.startWork();
+            BackgroundThrottle throttle = BackgroundThrottle.getInstance();
+            boolean throttled = throttle.beginChunk();
+            StatDistribution taskDistribution = distribution != null ? new StatDistribution() : null;
+            try {
+                return computeDirectly(taskDistribution);
+            } finally {
+                if (taskDistribution != null) {
+                    distribution.merge(taskDistribution);
+                }
+                if (throttled) {
+                    throttle.endChunk();
+                }
+                profiler.endWork(workStart);
             }
         } else {
             int mid = playerList.length / 2;
@@ -65,8 +110,8 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
             System.arraycopy(playerList, 0, leftList, 0, mid);
             System.arraycopy(playerList, mid, rightList, 0, playerList.length - mid);
 
-            StatAction left = new StatAction(leftList, requestSettings);
-            StatAction right = new StatAction(rightList, requestSettings);
+            StatAction left = new StatAction(leftList, requestSettings, generation, actionLog, profiler, requiredComponentIds, distribution);
+            StatAction right = new StatAction(rightList, requestSettings, generation, actionLog, profiler, requiredComponentIds, distribution);
             right.fork();
 
             Map<String, Integer> leftResult = left.compute();
@@ -74,41 +119,102 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
 
             ConcurrentHashMap<String, Integer> totalResult = new ConcurrentHashMap<>(leftResult);
             totalResult.putAll(rightResult);
-            MyLogger.logLowLevelTask("Finished calculating stats for " + playerList.length + " players!", System.currentTimeMillis());
             return totalResult;
         }
     }
 
+    /**
+     * @param taskDistribution the StatDistribution of this task to add
+     *                         every value to, or null if it is not needed
+     */
+    private @NotNull ConcurrentHashMap<String, Integer> computeDirectly(@Nullable StatDistribution taskDistribution) {
+        // Decide calculation path based on whether ApprovedStat is present
+        ApprovedStat approvedStat = requestSettings.getApprovedStat();
+        if (approvedStat != null && approvedStat.getStatType() == StatType.DERIVED) {
+            DerivedEvaluationEvent event = new DerivedEvaluationEvent();
+            event.begin();
+            ConcurrentHashMap<String, Integer> result = getStats(playerList, approvedStat, taskDistribution);
+            event.end();
+            if (event.shouldCommit()) {
+                event.setRequest(requestSettings);
+                event.playerCount = playerList.length;
+                event.commit();
+            }
+            return result;
+        } else if (approvedStat != null) {
+            // Use newer ApprovedStat logic
+            return getStats(playerList, approvedStat, taskDistribution);
+        } else {
+            // Use legacy Statistic/Material/EntityType logic
+            return getStatsLegacy(playerList, requestSettings, taskDistribution);
+        }
+    }
+
     /**
      * Gets the statistic data for all players in the provided playerList for
-     * the given ApprovedStat.
+     * the given ApprovedStat. If the required components are known, each of
+     * them is fetched once per player into a vector (even if several BUKKIT
+     * stats share it), and the BUKKIT stats are added up from that vector.
      */
     private @NotNull
-    ConcurrentHashMap<String, Integer> getStats(@NotNull OfflinePlayer[] players, @NotNull ApprovedStat statToCalculate) {
+    ConcurrentHashMap<String, Integer> getStats(@NotNull OfflinePlayer[] players, @NotNull ApprovedStat statToCalculate,
+                                                @Nullable StatDistribution taskDistribution) {
         ConcurrentHashMap<String, Integer> playerStats = new ConcurrentHashMap<>();
+        ComponentTable componentTable = generation.getComponentTable();
+        int[] componentValues = requiredComponentIds != null ? new int[componentTable.size()] : null;
+
         for (OfflinePlayer player : players) {
             if (player != null) {
-                // Calculate value using the recursive helper, starting with depth 0 and empty cache
-                int statValue = calculatePlayerStatValueRecursive(player, statToCalculate.alias(), new HashMap<>(), 0);
+                int statValue;
+                if (componentValues != null) {
+                    for (int id : requiredComponentIds) {
+                        componentValues[id] = getComponentValue(player, componentTable.get(id), actionLog);
+                    }
+                    statValue = calculateStatValue(generation, statToCalculate.alias(), actionLog,
+                            bukkitStat -> componentTable.sum(bukkitStat, componentValues));
+                } else {
+                    // Calculate value using the recursive helper, starting with depth 0 and empty cache
+                    statValue = calculateStatValue(generation, statToCalculate.alias(), actionLog,
+                            bukkitStat -> calculateBukkitStatValue(player, bukkitStat));
+                }
                 playerStats.put(player.getName(), statValue);
+                if (taskDistribution != null) {
+                    taskDistribution.add(statValue);
+                }
             }
         }
         return playerStats;
     }
 
+    /**
+     * Calculates the value of an ApprovedStat (either BUKKIT or DERIVED)
+     * for a single player.
+     *
+     * @param generation The generation to look up the ApprovedStat (and its components) in.
+     * @param alias The alias of the ApprovedStat to calculate.
+     * @param actionLog The ActionLog to count problems with the definition in.
+     * @param bukkitStatValue Gets the value of a BUKKIT ApprovedStat for this player.
+     * @return The calculated statistic value.
+     */
+    static int calculateStatValue(@NotNull RuntimeGeneration generation, @NotNull String alias, @NotNull ActionLog actionLog, @NotNull ToIntFunction<ApprovedStat> bukkitStatValue) {
+        return calculatePlayerStatValueRecursive(generation, alias, actionLog, bukkitStatValue, new HashMap<>(), 0);
+    }
+
     /**
      * Recursively calculates the value of an ApprovedStat (either BUKKIT or
      * DERIVED) for a specific player. Handles caching and recursion depth
      * limits.
      *
-     * @param player The player to calculate the stat for.
+     * @param generation The generation to look up the ApprovedStat (and its components) in.
      * @param alias The alias of the ApprovedStat to calculate.
+     * @param actionLog The ActionLog to count problems with the definition in.
+     * @param bukkitStatValue Gets the value of a BUKKIT ApprovedStat for this player.
      * @param resultCache Cache for intermediate results within this player's
      * calculation.
      * @param currentDepth Current recursion depth (to prevent cycles).
      * @return The calculated statistic value.
      */
-    private int calculatePlayerStatValueRecursive(@NotNull OfflinePlayer player, @NotNull String alias, @NotNull Map<String, Integer> resultCache, int currentDepth) {
+    private static int calculatePlayerStatValueRecursive(@NotNull RuntimeGeneration generation, @NotNull String alias, @NotNull ActionLog actionLog, @NotNull ToIntFunction<ApprovedStat> bukkitStatValue, @NotNull Map<String, Integer> resultCache, int currentDepth) {
         // 1. Check cache
         if (resultCache.containsKey(alias)) {
             return resultCache.get(alias);
@@ -116,14 +222,14 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
 
         // 2. Check recursion depth
         if (currentDepth > MAX_RECURSION_DEPTH) {
-            MyLogger.logWarning("Max recursion depth reached while calculating derived stat for alias '" + alias + "' for player " + player.getName() + ". Check for circular dependencies in config! Returning 0.");
+            actionLog.countWarning("reached the max recursion depth (check for circular dependencies in your config) for alias", alias);
             return 0;
         }
 
         // 3. Get the ApprovedStat definition
-        ApprovedStat approvedStat = configHandler.getApprovedStat(alias);
+        ApprovedStat approvedStat = generation.getApprovedStat(alias);
         if (approvedStat == null) {
-            MyLogger.logWarning("Could not find ApprovedStat definition for alias '" + alias + "' needed for derived calculation (player: " + player.getName() + "). Returning 0.");
+            actionLog.countWarning("got 0 for an unknown alias needed for a derived stat:", alias);
             return 0;
         }
 
@@ -131,7 +237,7 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
         // 4. Calculate based on type
         if (approvedStat.getStatType() == StatType.BUKKIT) {
             // --- Calculate BUKKIT type (sum components) ---
-            calculatedValue = calculateBukkitStatValue(player, approvedStat);
+            calculatedValue = bukkitStatValue.applyAsInt(approvedStat);
 
         } else if (approvedStat.getStatType() == StatType.DERIVED) {
             // --- Calculate DERIVED type (process components) ---
@@ -144,12 +250,12 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
             if (!components.isEmpty()) {
                 DerivedStatComponent firstComponent = components.get(0);
                 // Initial value is the result of the first component's alias
-                calculatedValue = calculatePlayerStatValueRecursive(player, firstComponent.alias(), resultCache, currentDepth + 1);
+                calculatedValue = calculatePlayerStatValueRecursive(generation, firstComponent.alias(), actionLog, bukkitStatValue, resultCache, currentDepth + 1);
 
                 // Apply subsequent operations
                 for (int i = 1; i < components.size(); i++) {
                     DerivedStatComponent currentComponent = components.get(i);
-                    int componentValue = calculatePlayerStatValueRecursive(player, currentComponent.alias(), resultCache, currentDepth + 1);
+                    int componentValue = calculatePlayerStatValueRecursive(generation, currentComponent.alias(), actionLog, bukkitStatValue, resultCache, currentDepth + 1);
                     char operation = currentComponent.operation();
 
                     switch (operation) {
@@ -163,12 +269,12 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
                             calculatedValue *= componentValue;
                             break;
                         default: // Should not happen due to config validation
-                            MyLogger.logWarning("Invalid operation '" + operation + "' encountered during derived stat calculation for alias '" + alias + "'. Skipping operation.");
+                            actionLog.countWarning("skipped an invalid operation '" + operation + "' in derived stat", alias);
                             break;
                     }
                 }
             } else {
-                MyLogger.logWarning("Derived stat '" + alias + "' has no components defined! Returning 0.");
+                actionLog.countWarning("got 0 for a derived stat without components:", alias);
                 calculatedValue = 0; // Should have been caught by ConfigHandler, but safety check
             }
         }
@@ -191,68 +297,37 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
 
         int totalValue = 0;
         for (ApprovedStat.StatComponent component : bukkitStat.getBukkitComponents()) {
-            try {
-                switch (component.type()) {
-                    case UNTYPED:
-                        totalValue += player.getStatistic(component.statistic());
-                        break;
-                    case BLOCK:
-                        if (component.material() != null) { // Check if sub-stat is specified
-                            totalValue += player.getStatistic(component.statistic(), component.material());
-                        } else { // Material is null, assume total for this block statistic is intended (Bukkit might return 0 or error)
-                            // Bukkit API for total block stats (like all blocks mined) is usually just the stat enum itself.
-                            // Example: MINE_BLOCK (total), not MINE_BLOCK with null Material.
-                            // Let's try calling the UNTYPED version if material is null.
-                            if (component.statistic().getType() == Statistic.Type.BLOCK) {
-                                // totalValue += player.getStatistic(component.statistic()); // This might work for MINE_BLOCK total
-                                // Let's log a warning for now, as summing totals requires careful thought.
-                                MyLogger.logLowLevelMsg("Calculating total for BLOCK stat '" + component.statistic() + "' in ApprovedStat '" + bukkitStat.alias() + "'. This might not yield expected results for compound sums.");
-                                totalValue += player.getStatistic(component.statistic()); // Attempting UNTYPED call
-                            } else {
-                                MyLogger.logWarning("Unexpected: BLOCK type component has null material but stat isn't Type.BLOCK? Skipping component: " + component + " in " + bukkitStat.alias());
-                            }
-                        }
-                        break;
-                    case ITEM:
-                        if (component.material() != null) {
-                            totalValue += player.getStatistic(component.statistic(), component.material());
-                        } else {
-                            // Similar logic for ITEM totals
-                            if (component.statistic().getType() == Statistic.Type.ITEM) {
-                                MyLogger.logLowLevelMsg("Calculating total for ITEM stat '" + component.statistic() + "' in ApprovedStat '" + bukkitStat.alias() + "'. This might not yield expected results for compound sums.");
-                                totalValue += player.getStatistic(component.statistic()); // Attempting UNTYPED call
-                            } else {
-                                MyLogger.logWarning("Unexpected: ITEM type component has null material but stat isn't Type.ITEM? Skipping component: " + component + " in " + bukkitStat.alias());
-                            }
-                        }
-                        break;
-                    case ENTITY:
-                        if (component.entityType() != null) {
-                            totalValue += player.getStatistic(component.statistic(), component.entityType());
-                        } else {
-                            // Similar logic for ENTITY totals (like MOB_KILLS)
-                            if (component.statistic().getType() == Statistic.Type.ENTITY) {
-                                MyLogger.logLowLevelMsg("Calculating total for ENTITY stat '" + component.statistic() + "' in ApprovedStat '" + bukkitStat.alias() + "'. This might not yield expected results for compound sums.");
-                                totalValue += player.getStatistic(component.statistic()); // Attempting UNTYPED call
-                            } else {
-                                MyLogger.logWarning("Unexpected: ENTITY type component has null entityType but stat isn't Type.ENTITY? Skipping component: " + component + " in " + bukkitStat.alias());
-                            }
-                        }
-                        break;
-                }
-            } catch (NullPointerException npe) {
-                // Catch potential NPE if Bukkit returns null for a player/stat combo (e.g., stat doesn't exist for player)
-                MyLogger.logLowLevelMsg("NPE caught getting stat component '" + component + "' for player " + player.getName() + " in ApprovedStat '" + bukkitStat.alias() + "'. Assuming 0 for this component.");
-                // totalValue remains unchanged (effectively adding 0)
-            } catch (Exception e) {
-                // Catch other potential exceptions during Bukkit call
-                MyLogger.logWarning("Exception caught getting stat component '" + component + "' for player " + player.getName() + " in ApprovedStat '" + bukkitStat.alias() + "': " + e.getMessage());
-                // totalValue remains unchanged
-            }
+            totalValue += getComponentValue(player, component, actionLog);
         }
         return totalValue;
     }
 
+    /**
+     * Gets the value of a single StatComponent for a single player.
+     *
+     * @return the value, or 0 if Bukkit could not provide it
+     */
+    static int getComponentValue(@NotNull OfflinePlayer player, @NotNull ApprovedStat.StatComponent component, @NotNull ActionLog actionLog) {
+        try {
+            if (component.isAggregate()) {
+                // Total of all (or a filtered set of) blocks, items or entities
+                return SubStatTotals.getValue(player, component);
+            }
+            return switch (component.type()) {
+                case UNTYPED -> player.getStatistic(component.statistic());
+                case BLOCK, ITEM -> player.getStatistic(component.statistic(), component.material());
+                case ENTITY -> player.getStatistic(component.statistic(), component.entityType());
+            };
+        } catch (NullPointerException npe) {
+            // Catch potential NPE if Bukkit returns null for a player/stat combo (e.g., stat doesn't exist for player)
+            actionLog.count("had no value (assumed 0) for stat component", component);
+        } catch (Exception e) {
+            // Catch other potential exceptions during Bukkit call
+            actionLog.countWarning("caused " + e.getClass().getSimpleName() + " (assumed 0) for stat component", component);
+        }
+        return 0;
+    }
+
     /**
      * Gets the combined value for a potentially compound ApprovedStat for a
      * single player.
@@ -317,10 +392,10 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
                     settings.getItem() == null ? player.getStatistic(settings.getStatistic()) : player.getStatistic(settings.getStatistic(), settings.getItem());
             };
         } catch (NullPointerException npe) {
-            MyLogger.logLowLevelMsg("NPE caught in legacy stat calculation for player " + player.getName() + ". Assuming 0.");
+            actionLog.count("had no value (assumed 0) for legacy stat", String.valueOf(settings.getStatistic()));
             return 0;
         } catch (Exception e) {
-            MyLogger.logWarning("Exception caught in legacy stat calculation for player " + player.getName() + ": " + e.getMessage());
+            actionLog.countWarning("caused " + e.getClass().getSimpleName() + " (assumed 0) for legacy stat", String.valueOf(settings.getStatistic()));
             return 0;
         }
     }
@@ -334,7 +409,8 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
      * @return A map of player names to their calculated statistic values.
      */
     private @NotNull
-    ConcurrentHashMap<String, Integer> getStatsLegacy(@NotNull OfflinePlayer[] players, @NotNull StatRequest.Settings settings) {
+    ConcurrentHashMap<String, Integer> getStatsLegacy(@NotNull OfflinePlayer[] players, @NotNull StatRequest.Settings settings,
+                                                      @Nullable StatDistribution taskDistribution) {
         ConcurrentHashMap<String, Integer> playerStats = new ConcurrentHashMap<>();
         Statistic statistic = settings.getStatistic();
         Material block = settings.getBlock();
@@ -362,17 +438,20 @@ final class StatAction extends RecursiveTask<ConcurrentHashMap<String, Integer>>
                     };
                 } catch (NullPointerException npe) {
                     // Stat doesn't exist for player yet, default to 0
-                    MyLogger.logLowLevelMsg("NPE caught getting legacy stat '" + statistic.name() + "' for player " + player.getName() + ". Assuming 0.");
+                    actionLog.count("had no value (assumed 0) for legacy stat", statistic);
                     statValue = 0;
                 } catch (IllegalArgumentException iae) {
                     // Should not happen if StatCommand validation is correct, but log just in case
-                    MyLogger.logWarning("IllegalArgumentException caught getting legacy stat '" + statistic.name() + "' for player " + player.getName() + ": " + iae.getMessage());
+                    actionLog.countWarning("caused IllegalArgumentException (assumed 0) for legacy stat", statistic);
                     statValue = 0; // Treat as 0 if invalid combo occurs
                 } catch (Exception e) {
-                    MyLogger.logWarning("Unexpected Exception caught getting legacy stat '" + statistic.name() + "' for player " + player.getName() + ": " + e.getMessage());
+                    actionLog.countWarning("caused " + e.getClass().getSimpleName() + " (assumed 0) for legacy stat", statistic);
                     statValue = 0; // Treat as 0 on other errors
                 }
                 playerStats.put(player.getName(), statValue);
+                if (taskDistribution != null) {
+                    taskDistribution.add(statValue);
+                }
             }
         }
         return playerStats;
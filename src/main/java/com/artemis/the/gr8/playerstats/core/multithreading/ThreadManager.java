@@ -2,32 +2,41 @@ package com.artemis.the.gr8.playerstats.core.multithreading;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.artemis.the.gr8.playerstats.api.StatRequest;
 import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.RuntimeGeneration;
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
 import com.artemis.the.gr8.playerstats.core.enums.StandardMessage;
+import com.artemis.the.gr8.playerstats.core.jfr.RequestQueuedEvent;
+import com.artemis.the.gr8.playerstats.core.jfr.StatScanEvent;
 import com.artemis.the.gr8.playerstats.core.msg.OutputManager;
+import com.artemis.the.gr8.playerstats.core.statistic.StatDistribution;
+import com.artemis.the.gr8.playerstats.core.utils.ActionLog;
 import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
-import com.artemis.the.gr8.playerstats.core.utils.OfflinePlayerHandler;
 
 /**
  * The ThreadManager is in charge of the Threads that PlayerStats can utilize.
  * It keeps track of past and currently active Threads, to ensure a Player
  * cannot start multiple Threads at the same time (thereby limiting them to one
  * stat-lookup at a time). It also passes appropriate references along to the
- * {@link ReloadThread}, which handles plugin reloading.
+ * {@link ReloadThread}, which handles plugin reloading. Reloading does not
+ * wait for running calculations, since those keep using the
+ * {@link RuntimeGeneration} they started with.
  */
 public final class ThreadManager {
 
@@ -42,16 +51,16 @@ public final class ThreadManager {
     private static long lastRecordedCalcTime;
 
     private static Plugin plugin;
-    private static OfflinePlayerHandler offlinePlayerHandler;
 
     private static ForkJoinPool commonPool;
     private static ConcurrentHashMap<UUID, StatRequest<?>> activeRequests;
     private static ConcurrentHashMap<String, Long> taskTime;
 
     private static AtomicInteger activeStatActionCount;
+    private static RequestProfileHistory profileHistory;
 
-    public ThreadManager(JavaPlugin plugin) {
-        this.main = null;
+    public ThreadManager(Main plugin) {
+        this.main = plugin;
         this.config = ConfigHandler.getInstance();
         outputManager = OutputManager.getInstance();
 
@@ -59,100 +68,276 @@ public final class ThreadManager {
         lastRecordedCalcTime = 0;
 
         ThreadManager.plugin = plugin;
-        offlinePlayerHandler = OfflinePlayerHandler.getInstance();
 
         commonPool = ForkJoinPool.commonPool();
         activeRequests = new ConcurrentHashMap<>();
         taskTime = new ConcurrentHashMap<>();
 
         activeStatActionCount = new AtomicInteger(0);
+        profileHistory = new RequestProfileHistory();
     }
 
     /**
      * Factory method to create a PlayerLoadAction. This is needed by
      * OfflinePlayerHandler.
      */
-    public static PlayerLoadAction getPlayerLoadAction(OfflinePlayer[] players, ConcurrentHashMap<String, UUID> mapToFill) {
-        MyLogger.actionCreated(players != null ? players.length : 0); // Log action creation
-        return new PlayerLoadAction(players, mapToFill);
+    public static PlayerLoadAction getPlayerLoadAction(OfflinePlayer[] players, ConcurrentHashMap<String, UUID> mapToFill,
+                                                      ConcurrentHashMap<UUID, Long> lastPlayed, ActionLog actionLog) {
+        return new PlayerLoadAction(players, mapToFill, lastPlayed, actionLog);
     }
 
     /**
-     * Prepares the StatAction for execution.
+     * Prepares the StatAction for execution, for all players
+     * that are included in this generation.
      */
     private static @NotNull
-    StatAction prepareAction(StatRequest.Settings requestSettings) {
+    StatAction prepareAction(StatRequest.Settings requestSettings, RuntimeGeneration generation,
+                             ActionLog actionLog, RequestProfiler profiler, @Nullable StatDistribution distribution) {
         long time = System.currentTimeMillis();
 
-        // Get player names first, then map to OfflinePlayer objects
-        List<String> playerNames = offlinePlayerHandler.getIncludedOfflinePlayerNames();
-        OfflinePlayer[] players = playerNames.parallelStream()
-                .map(offlinePlayerHandler::getIncludedOfflinePlayer)
-                .filter(player -> player != null)
+        OfflinePlayer[] players = generation.getIncludedPlayers().values().parallelStream()
+                .map(Bukkit::getOfflinePlayer)
                 .toArray(OfflinePlayer[]::new);
 
-        activeStatActionCount.getAndIncrement();
-
-        MyLogger.logLowLevelTask("Prepared calculation task", time);
-        MyLogger.logMediumLevelMsg("Prepared stat calculation task for " + players.length + " players!");
+        MyLogger.logMediumLevelTask("Prepared stat calculation task for " + players.length + " players", time);
 
-        return new StatAction(players, requestSettings);
+        return new StatAction(players, requestSettings, generation, actionLog, profiler, distribution);
     }
 
     /**
      * Executes the stat calculation task asynchronously and calls the provided
-     * callback on the main server thread with the raw result.
+     * callback on the same worker thread with the raw result. The callback should
+     * not touch any Bukkit state that requires the main thread - sending the
+     * resulting message through the {@link OutputManager} is safe.
      *
      * @param request The StatRequest containing settings and sender info.
      * @param onComplete A BiConsumer callback that accepts the original request
      * and the resulting map.
+     * @return false if the calculation was not started, because
+     * the sender already has a request running
      */
-    public void startStatCalculation(@NotNull StatRequest<?> request, @NotNull BiConsumer<StatRequest<?>, ConcurrentHashMap<String, Integer>> onComplete) {
-        CommandSender sender = request.getSettings().getCommandSender();
-        UUID uniqueId = sender instanceof OfflinePlayer ? ((OfflinePlayer) sender).getUniqueId() : UUID.randomUUID();
+    public boolean startStatCalculation(@NotNull StatRequest<?> request, @NotNull BiConsumer<StatRequest<?>, ConcurrentHashMap<String, Integer>> onComplete) {
+        return startStatCalculation(request, null, (completedRequest, rawResult) ->
+                onComplete.accept(completedRequest, rawResult != null ? rawResult : new ConcurrentHashMap<>()));
+    }
 
-        // Check if this sender already has a request running (if config limits it)
-        if (ConfigHandler.getInstance().limitStatRequests() && activeRequests.containsKey(uniqueId)) {
-            outputManager.sendFeedbackMsg(sender, StandardMessage.REQUEST_ALREADY_RUNNING);
-            return;
+    /**
+     * Executes the stat calculation task asynchronously, like
+     * {@link #startStatCalculation(StatRequest, BiConsumer)}, and adds the
+     * value of every included player to this StatDistribution while doing so.
+     *
+     * @param distribution the StatDistribution to fill, or null if it is not needed
+     * @param onComplete called with the result, or with null if the calculation
+     *                   failed (in which case the distribution is incomplete)
+     * @return false if the calculation was not started, because
+     * the sender already has a request running
+     */
+    public boolean startStatCalculation(@NotNull StatRequest<?> request, @Nullable StatDistribution distribution,
+                                        @NotNull BiConsumer<StatRequest<?>, @Nullable ConcurrentHashMap<String, Integer>> onComplete) {
+        UUID uniqueId = registerActiveRequest(request);
+        if (uniqueId == null) {
+            return false;
         }
-        activeRequests.put(uniqueId, request);
-
-        // Prepare the actual calculation task
-        final StatAction task = prepareAction(request.getSettings());
+        recordQueuedEvent(request.getSettings());
+        RequestProfiler profiler = new RequestProfiler(request.getSettings());
 
-        // Run the calculation task asynchronously
+        // Prepare and run the calculation task asynchronously
         new BukkitRunnable() {
             @Override
             public void run() {
+                profiler.start();
                 ConcurrentHashMap<String, Integer> rawResult = null;
                 try {
-                    rawResult = commonPool.invoke(task); // Execute the StatAction directly
+                    rawResult = calculateStats(request.getSettings(), profiler, distribution);
                 } catch (Exception e) {
                     MyLogger.logWarning("Exception during async stat calculation: " + e.getMessage());
                     // Optionally log stack trace: e.printStackTrace();
                 } finally {
                     activeRequests.remove(uniqueId);
-                    activeStatActionCount.decrementAndGet(); // Decrement counter when task finishes
-
-                    final ConcurrentHashMap<String, Integer> finalRawResult = rawResult != null ? rawResult : new ConcurrentHashMap<>();
-
-                    // Schedule the callback to run on the main thread
-                    new BukkitRunnable() {
-                        @Override
-                        public void run() {
-                            try {
-                                onComplete.accept(request, finalRawResult);
-                            } catch (Exception e) {
-                                MyLogger.logWarning("Exception during stat calculation completion callback: " + e.getMessage());
-                                // Optionally log stack trace: e.printStackTrace();
-                            }
-                        }
-                    }.runTask(plugin);
                 }
+
+                // Formatting, storing and serializing the result happens right here on the
+                // worker thread, only the actual sending is handed over to the main thread
+                // (by the OutputManager)
+                profiler.startPhase(RequestProfile.Phase.FORMAT_AND_SEND);
+                try {
+                    onComplete.accept(request, rawResult);
+                } catch (Exception e) {
+                    MyLogger.logWarning("Exception during stat calculation completion callback: " + e.getMessage());
+                    // Optionally log stack trace: e.printStackTrace();
+                }
+                profileHistory.add(profiler.finish());
                 MyLogger.logMediumLevelMsg("Stat calculation task finished! Average execution time (ms) for all requests: " + getAverageRequestTime());
             }
         }.runTaskAsynchronously(plugin);
+        return true;
+    }
+
+    /**
+     * Calculates the statistic for all included players on the calling thread.
+     * This can take some time, so it should not be called from the main thread.
+     * The whole calculation uses the {@link RuntimeGeneration} that is current
+     * when it starts, even if PlayerStats is reloaded in the meantime.
+     *
+     * @param requestSettings the Settings of the request to calculate
+     * @return the value for each included player
+     */
+    public @NotNull ConcurrentHashMap<String, Integer> calculateStats(@NotNull StatRequest.Settings requestSettings) {
+        RequestProfiler profiler = new RequestProfiler(requestSettings);
+        profiler.start();
+        try {
+            return calculateStats(requestSettings, profiler, null);
+        } finally {
+            profileHistory.add(profiler.finish());
+        }
+    }
+
+    private @NotNull ConcurrentHashMap<String, Integer> calculateStats(@NotNull StatRequest.Settings requestSettings,
+                                                                     @NotNull RequestProfiler profiler,
+                                                                     @Nullable StatDistribution distribution) {
+        RuntimeGeneration generation = RuntimeGeneration.current();
+        ActionLog actionLog = new ActionLog("Stat calculation for " + getRequestName(requestSettings),
+                generation.getIncludedPlayers().size());
+        StatScanEvent scanEvent = new StatScanEvent();
+        scanEvent.begin();
+        boolean indexed = false;
+        activeStatActionCount.getAndIncrement();
+        try {
+            // Use the stat index where possible, so only players with a value need to be looked at
+            IndexedStatAction indexedAction = IndexedStatAction.create(requestSettings, generation);
+            if (indexedAction != null) {
+                indexed = true;
+                return indexedAction.compute(commonPool, actionLog, profiler, distribution);
+            }
+            return commonPool.invoke(prepareAction(requestSettings, generation, actionLog, profiler, distribution));
+        } finally {
+            activeStatActionCount.decrementAndGet();
+            actionLog.finish();
+            scanEvent.end();
+            if (scanEvent.shouldCommit()) {
+                scanEvent.setRequest(requestSettings);
+                scanEvent.playerCount = generation.getIncludedPlayers().size();
+                scanEvent.componentCount = getComponentCount(requestSettings, generation);
+                scanEvent.indexed = indexed;
+                scanEvent.commit();
+            }
+        }
+    }
+
+    private static void recordQueuedEvent(@NotNull StatRequest.Settings requestSettings) {
+        RequestQueuedEvent queuedEvent = new RequestQueuedEvent();
+        if (queuedEvent.shouldCommit()) {
+            queuedEvent.setRequest(requestSettings);
+            queuedEvent.commit();
+        }
+    }
+
+    /**
+     * @return the number of distinct components needed for this request,
+     * or -1 if that cannot be looked up
+     */
+    private static int getComponentCount(@NotNull StatRequest.Settings requestSettings, @NotNull RuntimeGeneration generation) {
+        if (requestSettings.getApprovedStat() == null) {
+            return -1;
+        }
+        int[] ids = generation.getComponentTable().getRequiredIds(requestSettings.getApprovedStat(), generation::getApprovedStat);
+        return ids != null ? ids.length : -1;
+    }
+
+    private static @NotNull String getRequestName(@NotNull StatRequest.Settings requestSettings) {
+        if (requestSettings.getApprovedStat() != null) {
+            return "'" + requestSettings.getApprovedStat().alias() + "'";
+        }
+        return "'" + requestSettings.getStatistic() + "'";
+    }
+
+    /**
+     * Executes a lookup for a single player asynchronously. Looking up the
+     * statistics of an offline player makes Bukkit read their stats file from
+     * disk, so this should not happen on the main thread either.
+     *
+     * @param request The StatRequest containing settings and sender info.
+     * @param lookup A Consumer that performs the lookup and sends the result.
+     */
+    public void startPlayerStatLookup(@NotNull StatRequest<?> request, @NotNull Consumer<StatRequest<?>> lookup) {
+        startAsyncRequest(request, lookup, "player stat lookup");
+    }
+
+    /**
+     * Executes a top list asynchronously that is derived from the values of
+     * all players (such as a top list for a TimeWindow or a Season), instead
+     * of being calculated by a stat calculation task of its own.
+     *
+     * @param request The StatRequest containing settings and sender info.
+     * @param calculation A Consumer that gets the top list and sends the result.
+     */
+    public void startDerivedTopList(@NotNull StatRequest<?> request, @NotNull Consumer<StatRequest<?>> calculation) {
+        startAsyncRequest(request, calculation, "top list calculation");
+    }
+
+    /**
+     * Lets a request wait for a calculation that was started by another
+     * request. While it waits, it counts as a running request of its sender.
+     *
+     * @param calculation the calculation to wait for
+     * @param onComplete called (on the thread that finished the calculation)
+     *                   with the result, or with null if the calculation
+     *                   failed or was cancelled
+     * @return false if the sender already has a request running
+     */
+    public <T> boolean awaitCalculation(@NotNull StatRequest<?> request, @NotNull CompletableFuture<T> calculation,
+                                        @NotNull Consumer<@Nullable T> onComplete) {
+        UUID uniqueId = registerActiveRequest(request);
+        if (uniqueId == null) {
+            return false;
+        }
+        calculation.whenComplete((result, exception) -> {
+            activeRequests.remove(uniqueId);
+            onComplete.accept(result);
+        });
+        return true;
+    }
+
+    private void startAsyncRequest(@NotNull StatRequest<?> request, @NotNull Consumer<StatRequest<?>> task,
+                                   @NotNull String description) {
+        UUID uniqueId = registerActiveRequest(request);
+        if (uniqueId == null) {
+            return;
+        }
+        recordQueuedEvent(request.getSettings());
+        RequestProfiler profiler = new RequestProfiler(request.getSettings());
+
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                profiler.start();
+                try {
+                    task.accept(request);
+                } catch (Exception e) {
+                    MyLogger.logWarning("Exception during async " + description + ": " + e.getMessage());
+                } finally {
+                    activeRequests.remove(uniqueId);
+                    profileHistory.add(profiler.finish());
+                }
+            }
+        }.runTaskAsynchronously(plugin);
+    }
+
+    /**
+     * @return the UUID the request is registered under, or null if this sender
+     * already has a request running (and the config limits stat-requests)
+     */
+    private @Nullable UUID registerActiveRequest(@NotNull StatRequest<?> request) {
+        CommandSender sender = request.getSettings().getCommandSender();
+        UUID uniqueId = sender instanceof OfflinePlayer ? ((OfflinePlayer) sender).getUniqueId() : UUID.randomUUID();
+
+        // Check if this sender already has a request running (if config limits it)
+        if (ConfigHandler.getInstance().limitStatRequests() && activeRequests.containsKey(uniqueId)) {
+            outputManager.sendFeedbackMsg(sender, StandardMessage.REQUEST_ALREADY_RUNNING);
+            return null;
+        }
+        activeRequests.put(uniqueId, request);
+        return uniqueId;
     }
 
     public void startReloadThread(CommandSender sender) {
@@ -187,6 +372,13 @@ public final class ThreadManager {
         return lastRecordedCalcTime;
     }
 
+    /**
+     * @return the profiles of the most recent requests, newest first
+     */
+    public static @NotNull List<RequestProfile> getRecentRequestProfiles() {
+        return profileHistory.getProfiles();
+    }
+
     public static int getActiveActionCount() {
         return activeStatActionCount.get();
     }
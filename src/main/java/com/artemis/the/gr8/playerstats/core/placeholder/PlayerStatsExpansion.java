@@ -0,0 +1,225 @@
+package com.artemis.the.gr8.playerstats.core.placeholder;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.multithreading.OnlineStatSampler;
+import com.artemis.the.gr8.playerstats.core.statistic.RankIndex;
+import com.artemis.the.gr8.playerstats.core.statistic.RequestProcessor;
+import com.artemis.the.gr8.playerstats.core.statistic.StatRequestManager;
+import com.artemis.the.gr8.playerstats.core.statistic.season.Season;
+import com.artemis.the.gr8.playerstats.core.statistic.season.SeasonManager;
+import com.artemis.the.gr8.playerstats.core.utils.Closable;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+
+import me.clip.placeholderapi.expansion.PlaceholderExpansion;
+
+/**
+ * The PlaceholderAPI expansion of PlayerStats, with these placeholders:
+ * <ul>
+ *     <li>%playerstats_top_&lt;alias&gt;_&lt;n&gt;_name% and
+ *     %playerstats_top_&lt;alias&gt;_&lt;n&gt;_value%: the player on position n</li>
+ *     <li>%playerstats_rank_&lt;alias&gt;%: the rank of the player</li>
+ *     <li>%playerstats_stat_&lt;alias&gt;%: the value of the player</li>
+ * </ul>
+ * Each of these can be prefixed with "season_" (%playerstats_season_top_&lt;alias&gt;_1_name%,
+ * for example) to use the values since the start of the current {@link Season} instead.
+ * Placeholders are often requested every tick (for scoreboards, for example),
+ * so they never calculate anything themselves. They are always answered from
+ * the cached {@link RankIndex} of the ApprovedStat, which is kept up-to-date
+ * for online players by the OnlineStatSampler. If there is no cached RankIndex,
+ * or if it is older than the top-list-cache-seconds, the last known values are
+ * returned, and a new RankIndex is calculated in the background. While the
+ * OnlineStatSampler keeps a RankIndex up-to-date, it is only calculated again
+ * every {@link #SAMPLED_REFRESH_MILLIS}, since offline players cannot change it.
+ */
+public final class PlayerStatsExpansion extends PlaceholderExpansion implements Closable {
+
+    //don't calculate a Leaderboard for placeholders more often than this, even if top lists are not cached
+    private static final long MIN_REFRESH_MILLIS = 30_000L;
+    //calculate a Leaderboard that the OnlineStatSampler keeps up-to-date only this often
+    private static final long SAMPLED_REFRESH_MILLIS = 30 * 60_000L;
+    private static final String NO_NAME = "-";
+    private static final String NO_VALUE = "0";
+    //answers placeholders until the first RankIndex for an ApprovedStat has been calculated
+    private static final RankIndex EMPTY = RankIndex.of("", Map.of(), 0);
+
+    private final ConcurrentHashMap<String, RankIndex> lastRankIndexes;
+    private final Set<String> refreshing;
+
+    public PlayerStatsExpansion() {
+        lastRankIndexes = new ConcurrentHashMap<>();
+        refreshing = ConcurrentHashMap.newKeySet();
+        Main.registerClosable(this);
+    }
+
+    @Override
+    public @NotNull String getIdentifier() {
+        return "playerstats";
+    }
+
+    @Override
+    public @NotNull String getAuthor() {
+        return "Artemis_the_gr8";
+    }
+
+    @Override
+    public @NotNull String getVersion() {
+        return Main.getPluginInstance().getDescription().getVersion();
+    }
+
+    @Override
+    public boolean persist() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        unregister();
+        lastRankIndexes.clear();
+    }
+
+    @Override
+    public @Nullable String onRequest(@Nullable OfflinePlayer player, @NotNull String params) {
+        boolean seasonal = params.startsWith("season_");
+        if (seasonal) {
+            params = params.substring("season_".length());
+        }
+
+        if (params.startsWith("top_")) {
+            return getTopPlaceholder(params.substring("top_".length()), seasonal);
+        } else if (params.startsWith("rank_")) {
+            RankIndex rankIndex = getRankIndex(params.substring("rank_".length()), seasonal);
+            if (rankIndex == null) {
+                return null;
+            }
+            if (rankIndex.size() == 0) {
+                return NO_NAME;
+            }
+            Integer value = getValue(rankIndex, player);
+            return String.valueOf(rankIndex.getRank(value != null ? value : 0));
+        } else if (params.startsWith("stat_")) {
+            RankIndex rankIndex = getRankIndex(params.substring("stat_".length()), seasonal);
+            if (rankIndex == null) {
+                return null;
+            }
+            Integer value = getValue(rankIndex, player);
+            return value != null ? String.valueOf(value) : NO_VALUE;
+        }
+        return null;
+    }
+
+    private static @Nullable Integer getValue(@NotNull RankIndex rankIndex, @Nullable OfflinePlayer player) {
+        String playerName = player != null ? player.getName() : null;
+        return playerName != null ? rankIndex.getValue(playerName) : null;
+    }
+
+    /**
+     * @param params the part after "top_": &lt;alias&gt;_&lt;n&gt;_name or &lt;alias&gt;_&lt;n&gt;_value
+     *               (the alias itself can contain underscores as well)
+     */
+    private @Nullable String getTopPlaceholder(@NotNull String params, boolean seasonal) {
+        boolean isName;
+        if (params.endsWith("_name")) {
+            isName = true;
+        } else if (params.endsWith("_value")) {
+            isName = false;
+        } else {
+            return null;
+        }
+        String aliasAndPosition = params.substring(0, params.lastIndexOf('_'));
+        int separator = aliasAndPosition.lastIndexOf('_');
+        if (separator <= 0) {
+            return null;
+        }
+        int position;
+        try {
+            position = Integer.parseInt(aliasAndPosition.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        RankIndex rankIndex = getRankIndex(aliasAndPosition.substring(0, separator), seasonal);
+        if (rankIndex == null) {
+            return null;
+        }
+
+        Map<String, Integer> entry = rankIndex.getRange(position, position);
+        if (entry.isEmpty()) {
+            return isName ? NO_NAME : NO_VALUE;
+        }
+        Map.Entry<String, Integer> player = entry.entrySet().iterator().next();
+        return isName ? player.getKey() : String.valueOf(player.getValue());
+    }
+
+    /**
+     * Gets the cached RankIndex for this alias, or the last one that was seen
+     * if there is no cached one anymore. If there is no RankIndex at all, or if
+     * it has expired, a new one is calculated in the background.
+     *
+     * @param seasonal whether to get the RankIndex of the current Season
+     * @return the RankIndex (empty if none has been calculated yet, or if there
+     * is no current Season), or null if this alias is not an ApprovedStat
+     */
+    private @Nullable RankIndex getRankIndex(@NotNull String alias, boolean seasonal) {
+        ApprovedStat approvedStat = ConfigHandler.getInstance().getApprovedStat(alias.toLowerCase());
+        if (approvedStat == null) {
+            return null;
+        }
+        String key = approvedStat.alias();
+        RankIndex rankIndex;
+        RequestProcessor processor = StatRequestManager.getBukkitProcessor();
+        if (seasonal) {
+            Season season = SeasonManager.getInstance().getCurrentSeason();
+            if (season == null) {
+                return EMPTY;
+            }
+            key = key + "@season:" + season.getName();
+            rankIndex = processor.getLastSeasonRankIndex(approvedStat.alias());
+        } else {
+            rankIndex = processor.getLastRankIndex(approvedStat.alias());
+        }
+        if (rankIndex != null) {
+            lastRankIndexes.put(key, rankIndex);
+        } else {
+            rankIndex = lastRankIndexes.get(key);
+        }
+
+        long maxAge = Math.max(ConfigHandler.getInstance().getTopListCacheSeconds() * 1000L, MIN_REFRESH_MILLIS);
+        //Season Leaderboards are not sampled, since they are based on a baseline
+        if (!seasonal && OnlineStatSampler.getInstance().isSampling(approvedStat.alias())) {
+            maxAge = Math.max(maxAge, SAMPLED_REFRESH_MILLIS);
+        }
+        if (rankIndex == null || System.currentTimeMillis() - rankIndex.getCalculatedAt() >= maxAge) {
+            scheduleRefresh(approvedStat, key, seasonal);
+        }
+        return rankIndex != null ? rankIndex : EMPTY;
+    }
+
+    private void scheduleRefresh(@NotNull ApprovedStat approvedStat, @NotNull String key, boolean seasonal) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(Main.getPluginInstance(), () -> {
+            try {
+                if (seasonal) {
+                    StatRequestManager.getBukkitProcessor().refreshSeasonLeaderboard(approvedStat);
+                } else {
+                    StatRequestManager.getBukkitProcessor().refreshLeaderboard(approvedStat);
+                }
+            } catch (RuntimeException e) {
+                MyLogger.logException(e, "PlayerStatsExpansion", "refreshing the leaderboard for " + key);
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+}
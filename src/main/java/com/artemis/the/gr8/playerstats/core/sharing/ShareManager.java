@@ -2,6 +2,7 @@ package com.artemis.the.gr8.playerstats.core.sharing;
 
 import com.artemis.the.gr8.playerstats.core.Main;
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.jfr.ShareStoreEvent;
 import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
 import com.artemis.the.gr8.playerstats.core.utils.Reloadable;
 import net.kyori.adventure.text.TextComponent;
@@ -90,6 +91,8 @@ public final class ShareManager implements Reloadable {
     }
 
     public int saveStatResult(String playerName, TextComponent statResult) {
+        ShareStoreEvent event = new ShareStoreEvent();
+        event.begin();
         removeExcessResults(playerName);
 
         int ID = getNextIDNumber();
@@ -97,6 +100,13 @@ public final class ShareManager implements Reloadable {
         int shareCode = result.hashCode();
         statResultQueue.put(shareCode, result);
         MyLogger.logMediumLevelMsg("Saving statResults with no. " + ID);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.playerName = playerName;
+            event.shareCode = shareCode;
+            event.commit();
+        }
         return shareCode;
     }
 
@@ -1,23 +1,39 @@
 package com.artemis.the.gr8.playerstats.core.statistic;
 
+import java.time.format.DateTimeFormatter;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.bukkit.OfflinePlayer;
 import org.bukkit.Statistic;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import com.artemis.the.gr8.playerstats.api.Leaderboard;
 import com.artemis.the.gr8.playerstats.api.StatRequest;
+import com.artemis.the.gr8.playerstats.api.StatResult;
 import com.artemis.the.gr8.playerstats.api.enums.Target;
 import com.artemis.the.gr8.playerstats.core.Main;
 import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
 import com.artemis.the.gr8.playerstats.core.config.StatType;
 import com.artemis.the.gr8.playerstats.core.enums.StandardMessage;
+import com.artemis.the.gr8.playerstats.core.jfr.FormatEvent;
+import com.artemis.the.gr8.playerstats.core.jfr.RequestEvent;
+import com.artemis.the.gr8.playerstats.core.jfr.SendEvent;
 import com.artemis.the.gr8.playerstats.core.msg.MessageBuilder;
 import com.artemis.the.gr8.playerstats.core.msg.OutputManager;
 import com.artemis.the.gr8.playerstats.core.msg.TopCommandFormatter;
@@ -25,6 +41,13 @@ import com.artemis.the.gr8.playerstats.core.msg.components.ComponentFactory;
 import com.artemis.the.gr8.playerstats.core.msg.msgutils.FormattingFunction;
 import com.artemis.the.gr8.playerstats.core.multithreading.ThreadManager;
 import com.artemis.the.gr8.playerstats.core.sharing.ShareManager;
+import com.artemis.the.gr8.playerstats.core.statistic.filter.PlayerFilter;
+import com.artemis.the.gr8.playerstats.core.statistic.filter.PlayerRegistry;
+import com.artemis.the.gr8.playerstats.core.statistic.history.StatHistory;
+import com.artemis.the.gr8.playerstats.core.statistic.history.TimeWindow;
+import com.artemis.the.gr8.playerstats.core.statistic.index.SubStatTotals;
+import com.artemis.the.gr8.playerstats.core.statistic.season.Season;
+import com.artemis.the.gr8.playerstats.core.statistic.season.SeasonManager;
 import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
 import com.artemis.the.gr8.playerstats.core.utils.OfflinePlayerHandler;
 
@@ -33,10 +56,18 @@ import net.kyori.adventure.text.TextComponent;
 
 final class BukkitProcessor extends RequestProcessor {
 
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("MMM d", Locale.ENGLISH);
+    private static final int MAX_FILTERED_INDEXES = 64;
+
     private final OutputManager outputManager;
     private final ShareManager shareManager;
     private final OfflinePlayerHandler offlinePlayerHandler;
     private final ThreadManager threadManager;
+    private final PlayerStatCache playerStatCache;
+    private final ConcurrentHashMap<String, RankIndex> rankIndexes;
+    private final ConcurrentHashMap<String, CompletableFuture<RankIndex>> rankIndexCalculations;
+    private final ConcurrentHashMap<String, BaselineIndex> baselineIndexes;
+    private final ConcurrentHashMap<String, FilteredIndex> filteredIndexes;
     private final ConfigHandler config;
 
     public BukkitProcessor(OutputManager outputManager) {
@@ -46,137 +77,542 @@ final class BukkitProcessor extends RequestProcessor {
         shareManager = ShareManager.getInstance();
         offlinePlayerHandler = OfflinePlayerHandler.getInstance();
         threadManager = new ThreadManager(Main.getPluginInstance());
+        playerStatCache = new PlayerStatCache();
+        rankIndexes = new ConcurrentHashMap<>();
+        rankIndexCalculations = new ConcurrentHashMap<>();
+        baselineIndexes = new ConcurrentHashMap<>();
+        filteredIndexes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param period the period the values after subtracting this baseline cover, as shown in the title
+     * @param values the baseline value of a player, by their UUID (or null if it is
+     *               not known, in which case the player is left out of the top list)
+     */
+    private record Baseline(String period, Function<UUID, @Nullable Integer> values) {
+    }
+
+    /**
+     * @param period the period the values in this RankIndex cover, as shown in the title
+     */
+    private record BaselineIndex(RankIndex rankIndex, String period) {
+    }
+
+    /**
+     * @param source the RankIndex the players were taken from
+     * @param members the players that match the filter, by their ordinal in the {@link PlayerRegistry}
+     */
+    private record FilteredIndex(RankIndex source, RankIndex rankIndex, BitSet members) {
     }
 
     @Override
     public void processPlayerRequest(StatRequest<?> playerStatRequest) {
-        MyLogger.logLowLevelTask("Processing player stat request...", System.currentTimeMillis());
+        MyLogger.logMediumLevelMsg("Processing player stat request...");
         CommandSender sender = playerStatRequest.getSettings().getCommandSender();
-        int stat = getPlayerStat(playerStatRequest.getSettings());
 
-        if (stat == -1) {
-            MyLogger.logLowLevelMsg("getPlayerStat returned -1, aborting processing for player request.");
-            MyLogger.actionFinished();
-            return;
-        }
+        threadManager.startPlayerStatLookup(playerStatRequest, request -> {
+            int stat = getPlayerStat(request.getSettings());
+            if (stat == -1) {
+                MyLogger.logLowLevelMsg("getPlayerStat returned -1, aborting processing for player request.");
+                return;
+            }
 
-        FormattingFunction formattingFunction = outputManager.formatPlayerStat(playerStatRequest.getSettings(), stat);
+            updateRankIndex(request.getSettings(), stat);
+            FormatEvent formatEvent = new FormatEvent();
+            formatEvent.begin();
+            FormattingFunction formattingFunction = outputManager.formatPlayerStat(request.getSettings(), stat);
+            TextComponent formattedResult = formatAndStoreIfNeeded(sender, formattingFunction);
+            commitEvent(formatEvent, request.getSettings());
+            sendResult(request.getSettings(), formattedResult);
+        });
+    }
 
-        TextComponent formattedResult = formatAndStoreIfNeeded(sender, formattingFunction);
-        outputManager.sendToCommandSender(sender, formattedResult);
-        MyLogger.actionFinished();
+    @Override
+    public StatResult<Integer> getPlayerStatResult(StatRequest<?> playerStatRequest) {
+        int stat = getPlayerStat(playerStatRequest.getSettings());
+        if (stat == -1) {
+            return new StatResult<>(0, null, null);
+        }
+        updateRankIndex(playerStatRequest.getSettings(), stat);
+        TextComponent formattedResult = outputManager.formatPlayerStat(playerStatRequest.getSettings(), stat).getDefaultResult();
+        return new StatResult<>(stat, formattedResult, outputManager.textComponentToString(formattedResult));
     }
 
     @Override
     public void processServerRequest(StatRequest<?> serverStatRequest) {
-        MyLogger.logLowLevelTask("Processing server stat request...", System.currentTimeMillis());
+        MyLogger.logMediumLevelMsg("Processing server stat request...");
         CommandSender sender = serverStatRequest.getSettings().getCommandSender();
 
-        threadManager.startStatCalculation(serverStatRequest, (request, rawResult) -> {
-            long totalServerStat = rawResult.values().parallelStream().mapToLong(Integer::longValue).sum();
+        //the distribution is filled by the same tasks that calculate the values
+        StatDistribution distribution = serverStatRequest instanceof ServerStatRequest serverRequest
+                && serverRequest.includesDistribution() ? new StatDistribution() : null;
 
+        threadManager.startStatCalculation(serverStatRequest, distribution, (request, rawResult) -> {
+            //if the calculation failed, the distribution only holds part of the values
+            StatDistribution completeDistribution = rawResult != null ? distribution : null;
+            long totalServerStat = completeDistribution != null ? completeDistribution.getSum() : rawResult == null ? 0 :
+                    rawResult.values().parallelStream().mapToLong(Integer::longValue).sum();
+
+            FormatEvent formatEvent = new FormatEvent();
+            formatEvent.begin();
             FormattingFunction formattingFunction = outputManager.formatServerStat(request.getSettings(), totalServerStat);
             TextComponent formattedResult = formatAndStoreIfNeeded(sender, formattingFunction);
+            TextComponent formattedDistribution = completeDistribution != null ?
+                    outputManager.formatServerStatDistribution(request.getSettings(), completeDistribution) : null;
+            commitEvent(formatEvent, request.getSettings());
 
-            outputManager.sendToCommandSender(sender, formattedResult);
-            MyLogger.actionFinished();
+            sendResult(request.getSettings(), formattedResult);
+            if (formattedDistribution != null) {
+                sendResult(request.getSettings(), formattedDistribution);
+            }
         });
     }
 
     @Override
     public void processTopRequest(StatRequest<?> topStatRequest) {
-        MyLogger.logLowLevelTask("Processing top stat request...", System.currentTimeMillis());
-        CommandSender sender = topStatRequest.getSettings().getCommandSender();
+        MyLogger.logMediumLevelMsg("Processing top stat request...");
+        ApprovedStat approvedStat = topStatRequest.getSettings().getApprovedStat();
+        if (approvedStat != null) {
+            LeaderboardWarmer.getInstance().recordRequest(approvedStat.alias());
+        }
+        sendOrCalculateTopList(topStatRequest, approvedStat);
+    }
 
-        threadManager.startStatCalculation(topStatRequest, (request, rawResult) -> {
-            StatRequest.Settings settings = request.getSettings();
-            ApprovedStat approvedStat = settings.getApprovedStat();
+    /**
+     * Sends the requested top list from the cache, or calculates it
+     * (or waits for the calculation that is already running).
+     */
+    private void sendOrCalculateTopList(@NotNull StatRequest<?> topStatRequest, @Nullable ApprovedStat approvedStat) {
+        TopStatRequest topRequest = topStatRequest instanceof TopStatRequest request ? request : null;
+        if (approvedStat != null && topRequest != null && topRequest.isSeasonal()) {
+            processSeasonTopRequest(topStatRequest, approvedStat);
+            return;
+        } else if (approvedStat != null && topRequest != null && topRequest.getTimeWindow() != null) {
+            processWindowTopRequest(topStatRequest, approvedStat, topRequest.getTimeWindow());
+            return;
+        }
 
-            if (rawResult == null || rawResult.isEmpty()) {
-                MyLogger.logLowLevelMsg("Stat calculation returned empty or null result map.");
-                rawResult = new ConcurrentHashMap<>();
+        RankIndex cachedIndex = approvedStat != null ? getCachedRankIndex(approvedStat) : null;
+        if (cachedIndex != null) {
+            MyLogger.logMediumLevelMsg(() -> "Using cached top results for " + approvedStat.alias());
+            sendTopResult(topStatRequest, cachedIndex);
+            return;
+        }
+
+        //requests for a top list that is already being calculated wait for that calculation
+        CompletableFuture<RankIndex> calculation = new CompletableFuture<>();
+        CompletableFuture<RankIndex> inFlight = approvedStat != null ?
+                rankIndexCalculations.putIfAbsent(approvedStat.alias(), calculation) : null;
+        if (inFlight != null) {
+            MyLogger.logMediumLevelMsg(() -> "Waiting for the top results for " + approvedStat.alias() + " that are being calculated");
+            threadManager.awaitCalculation(topStatRequest, inFlight, rankIndex -> {
+                if (rankIndex != null) {
+                    sendTopResult(topStatRequest, rankIndex);
+                } else {
+                    sendOrCalculateTopList(topStatRequest, approvedStat);
+                }
+            });
+            return;
+        }
+
+        //a failed calculation is not cached, the requests that were waiting for it try again
+        boolean started = threadManager.startStatCalculation(topStatRequest, null, (request, rawResult) -> {
+            RankIndex rankIndex = null;
+            try {
+                if (rawResult != null) {
+                    rankIndex = RankIndex.of(approvedStat != null ? approvedStat.alias() : "", rawResult, offlinePlayerHandler.getIncludedPlayerCount());
+                }
+            } finally {
+                if (approvedStat != null) {
+                    finishRankIndexCalculation(approvedStat.alias(), calculation, rankIndex);
+                }
+            }
+            if (rankIndex != null) {
+                sendTopResult(request, rankIndex);
+            } else {
+                outputManager.sendFeedbackMsg(request.getSettings().getCommandSender(), StandardMessage.INTERNAL_ERROR);
             }
+        });
+        if (!started && approvedStat != null) {
+            finishRankIndexCalculation(approvedStat.alias(), calculation, null);
+        }
+    }
 
-            String senderName = sender.getName();
-            int senderStatValue = rawResult.getOrDefault(senderName, 0);
+    /**
+     * Sends the top list of this ApprovedStat within this TimeWindow: the
+     * current values minus the values from the {@link StatHistory}
+     * at the start of the window.
+     */
+    private void processWindowTopRequest(@NotNull StatRequest<?> topStatRequest, @NotNull ApprovedStat approvedStat,
+                                         @NotNull TimeWindow window) {
+        processBaselineTopRequest(topStatRequest, approvedStat, approvedStat.alias() + "@" + window.getName(),
+                StandardMessage.NO_STAT_HISTORY, () -> {
+                    StatHistory.Baseline baseline = StatHistory.getInstance().getBaseline(approvedStat.alias(), window);
+                    if (baseline == null) {
+                        return null;
+                    }
+                    return new Baseline("since " + baseline.date().format(PERIOD_FORMAT),
+                            uuid -> baseline.values().getOrDefault(uuid, baseline.coversAllPlayers() ? 0 : null));
+                });
+    }
 
-            LinkedHashMap<String, Integer> sortedStats = rawResult.entrySet().stream()
-                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
+    /**
+     * Sends the top list of this ApprovedStat for the current {@link Season}:
+     * the current values minus the values at the start of the season.
+     */
+    private void processSeasonTopRequest(@NotNull StatRequest<?> topStatRequest, @NotNull ApprovedStat approvedStat) {
+        Season season = SeasonManager.getInstance().getCurrentSeason();
+        if (season == null || season.indexOf(approvedStat.alias()) < 0) {
+            outputManager.sendFeedbackMsg(topStatRequest.getSettings().getCommandSender(), StandardMessage.NO_ACTIVE_SEASON);
+            return;
+        }
+        processBaselineTopRequest(topStatRequest, approvedStat, getSeasonKey(approvedStat.alias(), season),
+                StandardMessage.NO_ACTIVE_SEASON, () -> getSeasonBaseline(approvedStat, season));
+    }
 
-            int senderRank = 0;
-            int currentRank = 0;
-            for (String playerName : sortedStats.keySet()) {
-                currentRank++;
-                if (playerName.equalsIgnoreCase(senderName)) {
-                    senderRank = currentRank;
-                    break;
-                }
+    /**
+     * Sends the top list of the current values of this ApprovedStat minus a
+     * baseline, from the cache if it is recent enough. Otherwise, the baseline
+     * is loaded and subtracted in the background (using the cached RankIndex
+     * for the current values, or calculating one if there is none).
+     *
+     * @param key the key to cache the result under
+     * @param noBaselineMessage the message to send if there is no baseline
+     * @param baselineLoader loads the baseline (off the main thread),
+     *                       or returns null if there is none
+     */
+    private void processBaselineTopRequest(@NotNull StatRequest<?> topStatRequest, @NotNull ApprovedStat approvedStat,
+                                           @NotNull String key, @NotNull StandardMessage noBaselineMessage,
+                                           @NotNull Supplier<@Nullable Baseline> baselineLoader) {
+        BaselineIndex cachedIndex = baselineIndexes.get(key);
+        if (cachedIndex != null && isRecent(cachedIndex.rankIndex())) {
+            MyLogger.logMediumLevelMsg(() -> "Using cached results for " + key);
+            sendTopResult(topStatRequest, cachedIndex.rankIndex(), cachedIndex.period());
+            return;
+        }
+
+        threadManager.startDerivedTopList(topStatRequest, request -> {
+            BaselineIndex baselineIndex = calculateBaselineIndex(approvedStat, key, baselineLoader);
+            if (baselineIndex == null) {
+                outputManager.sendFeedbackMsg(request.getSettings().getCommandSender(), noBaselineMessage);
+                return;
             }
+            sendTopResult(request, baselineIndex.rankIndex(), baselineIndex.period());
+        });
+    }
 
-            LinkedHashMap<String, Integer> topStats = sortedStats.entrySet().stream()
-                    .limit(settings.getTopListSize())
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
+    /**
+     * Subtracts the baseline from the current values of this ApprovedStat on
+     * the calling thread, and stores the result under this key.
+     *
+     * @return the result, or null if there is no baseline
+     */
+    private @Nullable BaselineIndex calculateBaselineIndex(@NotNull ApprovedStat approvedStat, @NotNull String key,
+                                                           @NotNull Supplier<@Nullable Baseline> baselineLoader) {
+        Baseline baseline = baselineLoader.get();
+        if (baseline == null) {
+            return null;
+        }
+        RankIndex current = getCachedRankIndex(approvedStat);
+        if (current == null) {
+            current = calculateRankIndex(approvedStat);
+        }
 
-            ComponentFactory senderFactory = outputManager.getMessageBuilderForSender(sender).getComponentFactory();
-            TextComponent formattedComponent;
+        Map<String, UUID> includedPlayers = offlinePlayerHandler.getIncludedPlayers();
+        Map<String, Integer> values = new HashMap<>();
+        current.getRange(1, current.size()).forEach((playerName, value) -> {
+            UUID uuid = includedPlayers.get(playerName);
+            Integer baselineValue = uuid != null ? baseline.values().apply(uuid) : null;
+            if (baselineValue == null) {
+                return;
+            }
+            int difference = value - baselineValue;
+            if (difference > 0) {
+                values.put(playerName, difference);
+            }
+        });
+        RankIndex rankIndex = RankIndex.of(approvedStat.alias(), values, offlinePlayerHandler.getIncludedPlayerCount());
+        BaselineIndex baselineIndex = new BaselineIndex(rankIndex, baseline.period());
+        baselineIndexes.put(key, baselineIndex);
+        return baselineIndex;
+    }
 
-            if (approvedStat != null) {
-                TopCommandFormatter formatter = new TopCommandFormatter(topStats, senderRank, senderStatValue, approvedStat, settings.getTopListSize(), senderName, senderFactory);
-                formattedComponent = formatter.format();
-            } else {
-                MessageBuilder builder = outputManager.getMessageBuilderForSender(sender);
-                Statistic legacyStat = settings.getStatistic();
-                String legacySubStatName = settings.getSubStatEntryName();
+    private static @Nullable Baseline getSeasonBaseline(@NotNull ApprovedStat approvedStat, @NotNull Season season) {
+        int aliasIndex = season.indexOf(approvedStat.alias());
+        if (aliasIndex < 0) {
+            return null;
+        }
+        return new Baseline("season " + season.getName(), uuid -> season.getBaselineValue(aliasIndex, uuid));
+    }
 
-                if (legacyStat == null) {
-                    MyLogger.logWarning("Cannot format legacy top request: Statistic is null in settings!");
-                    outputManager.sendFeedbackMsg(sender, StandardMessage.INTERNAL_ERROR);
-                    MyLogger.actionFinished();
-                    return;
-                }
+    private static @NotNull String getSeasonKey(@NotNull String alias, @NotNull Season season) {
+        return alias + "@season:" + season.getName();
+    }
 
-                TextComponent title = builder.getTopStatTitle(settings.getTopListSize(), legacyStat, legacySubStatName);
+    @Override
+    public @Nullable RankIndex getLastSeasonRankIndex(@NotNull String alias) {
+        Season season = SeasonManager.getInstance().getCurrentSeason();
+        if (season == null) {
+            return null;
+        }
+        BaselineIndex baselineIndex = baselineIndexes.get(getSeasonKey(alias, season));
+        return baselineIndex != null ? baselineIndex.rankIndex() : null;
+    }
 
-                TextComponent list = formatLegacyTopList(builder, topStats, legacyStat);
+    @Override
+    public void refreshSeasonLeaderboard(@NotNull ApprovedStat approvedStat) {
+        Season season = SeasonManager.getInstance().getCurrentSeason();
+        if (season != null) {
+            calculateBaselineIndex(approvedStat, getSeasonKey(approvedStat.alias(), season),
+                    () -> getSeasonBaseline(approvedStat, season));
+        }
+    }
 
-                TextComponent.Builder totalMsg = Component.text();
-                if (ConfigHandler.getInstance().useEnters(Target.TOP, false) && !list.children().isEmpty()) {
-                    totalMsg.append(Component.newline());
-                }
-                totalMsg.append(title);
+    @Override
+    public @NotNull Leaderboard getLeaderboard(@NotNull ApprovedStat approvedStat) {
+        LeaderboardWarmer.getInstance().recordRequest(approvedStat.alias());
+        RankIndex rankIndex = getCachedRankIndex(approvedStat);
+        if (rankIndex == null) {
+            rankIndex = calculateRankIndex(approvedStat);
+        }
+        return rankIndex.getLeaderboard();
+    }
 
-                if (list.children().isEmpty()) {
-                    totalMsg.append(Component.newline());
-                    totalMsg.append(senderFactory.messageAccent().content("(no results found)"));
-                } else {
-                    totalMsg.append(list);
-                }
-                formattedComponent = totalMsg.build();
+    @Override
+    public long getLeaderboardCalculatedAt(@NotNull String alias) {
+        RankIndex rankIndex = rankIndexes.get(alias);
+        return rankIndex != null ? rankIndex.getCalculatedAt() : -1;
+    }
+
+    @Override
+    public @Nullable RankIndex getLastRankIndex(@NotNull String alias) {
+        return rankIndexes.get(alias);
+    }
+
+    @Override
+    public void refreshLeaderboard(@NotNull ApprovedStat approvedStat) {
+        calculateRankIndex(approvedStat);
+    }
+
+    @Override
+    public @NotNull Set<String> getCachedLeaderboardAliases() {
+        return rankIndexes.keySet();
+    }
+
+    @Override
+    public void updateCachedLeaderboard(@NotNull String alias, @NotNull String playerName, int value) {
+        RankIndex rankIndex = rankIndexes.get(alias);
+        if (rankIndex != null) {
+            rankIndex.update(playerName, value);
+        }
+    }
+
+    /**
+     * @return the RankIndex from the last calculation for this ApprovedStat,
+     * or null if there is none or if it is older than the top-list-cache-seconds
+     */
+    private @Nullable RankIndex getCachedRankIndex(@NotNull ApprovedStat approvedStat) {
+        RankIndex rankIndex = rankIndexes.get(approvedStat.alias());
+        return rankIndex != null && isRecent(rankIndex) ? rankIndex : null;
+    }
+
+    /**
+     * @return true if this RankIndex is younger than the top-list-cache-seconds
+     */
+    private boolean isRecent(@NotNull RankIndex rankIndex) {
+        long maxAge = config.getTopListCacheSeconds() * 1000L;
+        return System.currentTimeMillis() - rankIndex.getCalculatedAt() < maxAge;
+    }
+
+    /**
+     * Calculates a new RankIndex for this ApprovedStat on the calling
+     * thread, and stores it as the cached one. If it is already being
+     * calculated, this waits for that calculation instead.
+     */
+    private @NotNull RankIndex calculateRankIndex(@NotNull ApprovedStat approvedStat) {
+        CompletableFuture<RankIndex> calculation = new CompletableFuture<>();
+        CompletableFuture<RankIndex> inFlight = rankIndexCalculations.putIfAbsent(approvedStat.alias(), calculation);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CancellationException | CompletionException e) {
+                return calculateRankIndex(approvedStat);
             }
+        }
 
-            FormattingFunction formattingFunction = new FormattingFunction((shareCode, sharer) -> {
-                if (shareCode != null) {
-                    return formattedComponent.append(Component.space()).append(senderFactory.shareButton(shareCode));
-                } else if (sharer != null) {
-                    Component sharerNameComponent = senderFactory.sharerName(sharer.getName());
-                    return formattedComponent.append(Component.newline()).append(senderFactory.sharedByMessage(sharerNameComponent));
-                } else {
-                    return formattedComponent;
-                }
-            });
+        RankIndex rankIndex = null;
+        try {
+            int playerCount = offlinePlayerHandler.getIncludedPlayerCount();
+            TopStatRequest request = new TopStatRequest(playerCount).approvedStat(approvedStat);
+            rankIndex = RankIndex.of(approvedStat.alias(), threadManager.calculateStats(request.getSettings()), playerCount);
+            return rankIndex;
+        } finally {
+            finishRankIndexCalculation(approvedStat.alias(), calculation, rankIndex);
+        }
+    }
 
-            TextComponent finalComponentToSend = formatAndStoreIfNeeded(sender, formattingFunction);
-            outputManager.sendToCommandSender(sender, finalComponentToSend);
-            MyLogger.actionFinished();
+    /**
+     * Stores the result of a RankIndex calculation as the cached one, and
+     * hands it to the requests that were waiting for it. If the calculation
+     * failed, the waiting requests try again by themselves.
+     *
+     * @param rankIndex the calculated RankIndex, or null if the calculation failed
+     */
+    private void finishRankIndexCalculation(@NotNull String alias, @NotNull CompletableFuture<RankIndex> calculation,
+                                            @Nullable RankIndex rankIndex) {
+        if (rankIndex != null) {
+            rankIndexes.put(alias, rankIndex);
+        }
+        rankIndexCalculations.remove(alias, calculation);
+        if (rankIndex != null) {
+            calculation.complete(rankIndex);
+        } else {
+            calculation.cancel(false);
+        }
+    }
+
+    /**
+     * Formats the requested page of the results in this RankIndex,
+     * and sends it to the CommandSender of the request.
+     */
+    private void sendTopResult(@NotNull StatRequest<?> request, @NotNull RankIndex rankIndex) {
+        sendTopResult(request, rankIndex, null);
+    }
+
+    /**
+     * @param period the period the values in this RankIndex cover,
+     *               to show in the title (or null for lifetime values)
+     */
+    private void sendTopResult(@NotNull StatRequest<?> request, @NotNull RankIndex rankIndex, @Nullable String period) {
+        PlayerFilter filter = request instanceof TopStatRequest topRequest ? topRequest.getFilter() : null;
+        if (filter == null) {
+            sendTopResult(request, rankIndex, period, null);
+            return;
+        }
+        FilteredIndex filteredIndex = getFilteredIndex(request.getSettings().getApprovedStat(), rankIndex, period, filter);
+        sendTopResult(request, filteredIndex.rankIndex(),
+                period != null ? period + ", " + filter : filter.toString(), filteredIndex.members());
+    }
+
+    /**
+     * Takes the players that match this PlayerFilter out of this RankIndex,
+     * or uses the result from last time if the RankIndex has not been
+     * replaced since, and it is younger than the top-list-cache-seconds.
+     */
+    private @NotNull FilteredIndex getFilteredIndex(@Nullable ApprovedStat approvedStat, @NotNull RankIndex rankIndex,
+                                                    @Nullable String period, @NotNull PlayerFilter filter) {
+        String key = (approvedStat != null ? approvedStat.alias() : "")
+                + (period != null ? "@" + period : "") + "#" + filter.getKey();
+        FilteredIndex cachedIndex = filteredIndexes.get(key);
+        if (cachedIndex != null && cachedIndex.source() == rankIndex && isRecent(cachedIndex.rankIndex())) {
+            MyLogger.logMediumLevelMsg(() -> "Using cached filtered results for " + key);
+            return cachedIndex;
+        }
+
+        BitSet members = PlayerRegistry.getInstance().evaluate(filter);
+        RankIndex filtered = rankIndex.filter(members, members.cardinality());
+
+        if (filteredIndexes.size() >= MAX_FILTERED_INDEXES) {
+            filteredIndexes.clear();
+        }
+        FilteredIndex filteredIndex = new FilteredIndex(rankIndex, filtered, members);
+        filteredIndexes.put(key, filteredIndex);
+        return filteredIndex;
+    }
+
+    /**
+     * @param members the players the RankIndex was filtered to,
+     *                or null if it was not filtered
+     */
+    private void sendTopResult(@NotNull StatRequest<?> request, @NotNull RankIndex rankIndex, @Nullable String period,
+                               @Nullable BitSet members) {
+        FormatEvent formatEvent = new FormatEvent();
+        formatEvent.begin();
+        StatRequest.Settings settings = request.getSettings();
+        ApprovedStat approvedStat = settings.getApprovedStat();
+        CommandSender sender = settings.getCommandSender();
+        String senderName = sender.getName();
+
+        int pageSize = settings.getTopListSize();
+        int page = settings.getPage();
+        long firstPosition = (long) (page - 1) * pageSize + 1;
+        LinkedHashMap<String, Integer> topStats = rankIndex.getRange((int) Math.min(firstPosition, Integer.MAX_VALUE),
+                (int) Math.min(firstPosition + pageSize - 1, Integer.MAX_VALUE));
+
+        ComponentFactory senderFactory = outputManager.getMessageBuilderForSender(sender).getComponentFactory();
+        TextComponent formattedComponent;
+
+        if (approvedStat != null) {
+            boolean senderIsIncluded = offlinePlayerHandler.isIncludedPlayer(senderName) && (members == null
+                    || PlayerRegistry.getInstance().isMember(members, offlinePlayerHandler.getIncludedPlayers().get(senderName)));
+            TopCommandFormatter formatter = new TopCommandFormatter(rankIndex, approvedStat, pageSize, page, senderName, senderIsIncluded, senderFactory, period);
+            formattedComponent = formatter.format();
+        } else {
+            MessageBuilder builder = outputManager.getMessageBuilderForSender(sender);
+            Statistic legacyStat = settings.getStatistic();
+            String legacySubStatName = settings.getSubStatEntryName();
+
+            if (legacyStat == null) {
+                MyLogger.logWarning("Cannot format legacy top request: Statistic is null in settings!");
+                outputManager.sendFeedbackMsg(sender, StandardMessage.INTERNAL_ERROR);
+                return;
+            }
+
+            TextComponent title = builder.getTopStatTitle(settings.getTopListSize(), legacyStat, legacySubStatName);
+
+            TextComponent list = formatLegacyTopList(builder, rankIndex, topStats, legacyStat);
+
+            TextComponent.Builder totalMsg = Component.text();
+            if (ConfigHandler.getInstance().useEnters(Target.TOP, false) && !list.children().isEmpty()) {
+                totalMsg.append(Component.newline());
+            }
+            totalMsg.append(title);
+
+            if (list.children().isEmpty()) {
+                totalMsg.append(Component.newline());
+                totalMsg.append(senderFactory.messageAccent().content("(no results found)"));
+            } else {
+                totalMsg.append(list);
+            }
+            formattedComponent = totalMsg.build();
+        }
+
+        FormattingFunction formattingFunction = new FormattingFunction((shareCode, sharer) -> {
+            if (shareCode != null) {
+                return formattedComponent.append(Component.space()).append(senderFactory.shareButton(shareCode));
+            } else if (sharer != null) {
+                Component sharerNameComponent = senderFactory.sharerName(sharer.getName());
+                return formattedComponent.append(Component.newline()).append(senderFactory.sharedByMessage(sharerNameComponent));
+            } else {
+                return formattedComponent;
+            }
         });
+
+        TextComponent finalComponentToSend = formatAndStoreIfNeeded(sender, formattingFunction);
+        commitEvent(formatEvent, settings);
+        sendResult(settings, finalComponentToSend);
+    }
+
+    /**
+     * Moves the player to their new position in the RankIndex of this
+     * ApprovedStat, if there is one.
+     */
+    private void updateRankIndex(@NotNull StatRequest.Settings settings, int value) {
+        ApprovedStat approvedStat = settings.getApprovedStat();
+        String playerName = settings.getPlayerName();
+        if (approvedStat == null || playerName == null || !offlinePlayerHandler.isIncludedPlayer(playerName)) {
+            return;
+        }
+        RankIndex rankIndex = rankIndexes.get(approvedStat.alias());
+        if (rankIndex != null) {
+            rankIndex.update(playerName, value);
+        }
     }
 
-    private TextComponent formatLegacyTopList(MessageBuilder builder, LinkedHashMap<String, Integer> topStats, Statistic statistic) {
+    private TextComponent formatLegacyTopList(MessageBuilder builder, RankIndex rankIndex, LinkedHashMap<String, Integer> topStats, Statistic statistic) {
         TextComponent.Builder listBuilder = Component.text();
-        int rank = 0;
         for (Map.Entry<String, Integer> entry : topStats.entrySet()) {
-            rank++;
+            int rank = rankIndex.getRank(entry.getValue());
             TextComponent line = builder.formatTopStatLine(rank, entry.getKey(), entry.getValue().longValue(), statistic);
             listBuilder.append(Component.newline()).append(line);
         }
@@ -220,16 +656,15 @@ final class BukkitProcessor extends RequestProcessor {
             int totalValue = 0;
             for (ApprovedStat.StatComponent component : approvedStat.getBukkitComponents()) {
                 try {
-                    totalValue += getStatComponentValue(player, component);
+                    totalValue += playerStatCache.getValue(player, component, c -> getStatComponentValue(player, c));
                 } catch (IllegalArgumentException e) {
                     MyLogger.logWarning("IllegalArgumentException for stat component '" + component + "' for player " + player.getName() + ": " + e.getMessage());
                     outputManager.sendFeedbackMsg(sender, StandardMessage.INTERNAL_ERROR);
                     return -1;
                 } catch (NullPointerException npe) {
-                    MyLogger.logLowLevelMsg("NPE caught getting Bukkit stat component '" + component + "' for player " + player.getName() + " in getPlayerStat. Assuming 0.");
+                    MyLogger.logHighLevelMsg(() -> "NPE caught getting Bukkit stat component '" + component + "' for player " + playerName + " in getPlayerStat. Assuming 0.");
                 } catch (Exception e) {
-                    MyLogger.logWarning("Exception caught getting Bukkit stat component '" + component + "' for player " + player.getName() + " in getPlayerStat. Please check the full stack trace below:");
-                    e.printStackTrace();
+                    MyLogger.logException(e, "BukkitProcessor", "getPlayerStat for component '" + component + "' and player " + player.getName());
                     outputManager.sendFeedbackMsg(sender, StandardMessage.INTERNAL_ERROR);
                     return -1;
                 }
@@ -257,11 +692,10 @@ final class BukkitProcessor extends RequestProcessor {
                 outputManager.sendFeedbackMsg(sender, StandardMessage.INTERNAL_ERROR);
                 return -1;
             } catch (NullPointerException npe) {
-                MyLogger.logLowLevelMsg("NPE caught getting legacy stat for player " + player.getName() + ". Assuming 0.");
+                MyLogger.logHighLevelMsg(() -> "NPE caught getting legacy stat for player " + playerName + ". Assuming 0.");
                 return 0;
             } catch (Exception e) {
-                MyLogger.logWarning("Exception caught getting legacy stat for player " + player.getName() + ". Please check the full stack trace below:");
-                e.printStackTrace();
+                MyLogger.logException(e, "BukkitProcessor", "getPlayerStat for legacy stat and player " + player.getName());
                 outputManager.sendFeedbackMsg(sender, StandardMessage.INTERNAL_ERROR);
                 return -1;
             }
@@ -269,6 +703,9 @@ final class BukkitProcessor extends RequestProcessor {
     }
 
     private int getStatComponentValue(@NotNull OfflinePlayer player, @NotNull ApprovedStat.StatComponent component) throws IllegalArgumentException, NullPointerException {
+        if (component.isAggregate()) {
+            return SubStatTotals.getValue(player, component);
+        }
         return switch (component.type()) {
             case UNTYPED ->
                 player.getStatistic(component.statistic());
@@ -281,6 +718,24 @@ final class BukkitProcessor extends RequestProcessor {
         };
     }
 
+    private void sendResult(@NotNull StatRequest.Settings settings, @NotNull TextComponent result) {
+        SendEvent sendEvent = new SendEvent();
+        sendEvent.begin();
+        outputManager.sendToCommandSender(settings.getCommandSender(), result);
+        commitEvent(sendEvent, settings);
+    }
+
+    /**
+     * Ends this event and commits it, if it is being recorded.
+     */
+    private static void commitEvent(@NotNull RequestEvent event, @NotNull StatRequest.Settings settings) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setRequest(settings);
+            event.commit();
+        }
+    }
+
     private TextComponent formatAndStoreIfNeeded(CommandSender sender, FormattingFunction formattingFunction) {
         if (outputShouldBeStored(sender)) {
             int shareCode = shareManager.saveStatResult(sender.getName(), formattingFunction.getResultWithSharerName(sender));
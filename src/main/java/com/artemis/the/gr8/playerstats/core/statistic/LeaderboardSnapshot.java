@@ -0,0 +1,203 @@
+package com.artemis.the.gr8.playerstats.core.statistic;
+
+import java.util.LinkedHashMap;
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.api.Leaderboard;
+import com.artemis.the.gr8.playerstats.api.LeaderboardCursor;
+
+/**
+ * The {@link Leaderboard} that is handed out by a {@link RankIndex}. It holds
+ * its own copy of the sorted arrays, so it never changes after it is created.
+ * The UUIDs are stored as two longs per player (the nil-UUID meaning unknown),
+ * so a {@link LeaderboardCursor} only creates a UUID object when asked for one.
+ */
+final class LeaderboardSnapshot implements Leaderboard {
+
+    private final String alias;
+    private final long calculatedAt;
+    private final String[] names;
+    private final int[] values;
+    private final long[] uuidBits;
+
+    /**
+     * @param uuidBits the most and least significant bits of the UUID
+     *                 of each player, at index 2i and 2i+1
+     */
+    LeaderboardSnapshot(String alias, long calculatedAt, String[] names, int[] values, long[] uuidBits) {
+        this.alias = alias;
+        this.calculatedAt = calculatedAt;
+        this.names = names;
+        this.values = values;
+        this.uuidBits = uuidBits;
+    }
+
+    @Override
+    public @NotNull String getAlias() {
+        return alias;
+    }
+
+    @Override
+    public long getCalculatedAt() {
+        return calculatedAt;
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public @NotNull String getName(int position) {
+        return names[checkPosition(position)];
+    }
+
+    @Override
+    public @Nullable UUID getUUID(int position) {
+        return uuidAt(checkPosition(position));
+    }
+
+    @Override
+    public int getValue(int position) {
+        return values[checkPosition(position)];
+    }
+
+    @Override
+    public int getRank(int position) {
+        int index = checkPosition(position);
+        int value = values[index];
+
+        //find the first position with this value
+        int low = 0;
+        int high = index;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] > value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low + 1;
+    }
+
+    @Override
+    public int getPageCount(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        return (int) Math.max(1, (names.length + (long) pageSize - 1) / pageSize);
+    }
+
+    @Override
+    public @NotNull LinkedHashMap<String, Integer> getPage(int page, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        if (page < 1) {
+            return new LinkedHashMap<>();
+        }
+        int from = (int) Math.min((long) (page - 1) * pageSize, names.length);
+        int to = Math.min(from + pageSize, names.length);
+        LinkedHashMap<String, Integer> result = new LinkedHashMap<>((to - from) * 4 / 3 + 1);
+        for (int i = from; i < to; i++) {
+            result.put(names[i], values[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public @NotNull LeaderboardCursor cursor() {
+        return new Cursor(null);
+    }
+
+    @Override
+    public @NotNull LeaderboardCursor cursor(@NotNull LeaderboardCursor.Filter filter) {
+        return new Cursor(filter);
+    }
+
+    private @Nullable UUID uuidAt(int index) {
+        long mostSigBits = uuidBits[2 * index];
+        long leastSigBits = uuidBits[2 * index + 1];
+        return mostSigBits == 0 && leastSigBits == 0 ? null : new UUID(mostSigBits, leastSigBits);
+    }
+
+    private int checkPosition(int position) {
+        if (position < 1 || position > names.length) {
+            throw new IndexOutOfBoundsException("Position " + position + " is not in this leaderboard (size " + names.length + ")");
+        }
+        return position - 1;
+    }
+
+    /**
+     * Keeps track of the rank while moving forward, so no
+     * binary search is needed to get the rank of a player.
+     */
+    private final class Cursor implements LeaderboardCursor {
+
+        private final @Nullable Filter filter;
+        private int index = -1;
+        private int rank;
+        private boolean onPlayer;
+
+        private Cursor(@Nullable Filter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean next() {
+            while (index + 1 < names.length) {
+                index++;
+                if (index == 0 || values[index] != values[index - 1]) {
+                    rank = index + 1;
+                }
+                if (filter == null || filter.test(uuidAt(index), names[index], values[index], rank)) {
+                    onPlayer = true;
+                    return true;
+                }
+            }
+            index = names.length;
+            onPlayer = false;
+            return false;
+        }
+
+        @Override
+        public int getPosition() {
+            checkOnPlayer();
+            return index + 1;
+        }
+
+        @Override
+        public @Nullable UUID getUUID() {
+            checkOnPlayer();
+            return uuidAt(index);
+        }
+
+        @Override
+        public @NotNull String getName() {
+            checkOnPlayer();
+            return names[index];
+        }
+
+        @Override
+        public int getValue() {
+            checkOnPlayer();
+            return values[index];
+        }
+
+        @Override
+        public int getRank() {
+            checkOnPlayer();
+            return rank;
+        }
+
+        private void checkOnPlayer() {
+            if (!onPlayer) {
+                throw new IllegalStateException("This cursor is not on a player (call next() first)");
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.artemis.the.gr8.playerstats.core.statistic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.multithreading.BackgroundThrottle;
+import com.artemis.the.gr8.playerstats.core.utils.Closable;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+import com.artemis.the.gr8.playerstats.core.utils.Reloadable;
+
+/**
+ * Calculates the Leaderboards that are requested most often again in the
+ * background, shortly before their cached version expires, so the next
+ * /top for them can be answered from the cache instead of waiting
+ * for a full calculation.
+ *
+ * <p>How popular a Leaderboard is, is tracked with a counter that goes up
+ * by one for every request and halves every {@link #HALF_LIFE_MILLIS},
+ * so Leaderboards that are no longer requested drop out by themselves.
+ * Only one Leaderboard is calculated at a time, the time spent on it is
+ * limited to a budget per minute from the config, and nothing is
+ * calculated while the {@link BackgroundThrottle} is throttling.
+ */
+public final class LeaderboardWarmer implements Reloadable, Closable {
+
+    private static final long CHECK_INTERVAL_TICKS = 100L;
+    private static final long CHECK_INTERVAL_MILLIS = CHECK_INTERVAL_TICKS * 50;
+    private static final long HALF_LIFE_MILLIS = 15 * 60 * 1000L;
+    //a Leaderboard has to be requested a few times before it is worth keeping warm
+    private static final double MIN_POPULARITY = 2.0;
+
+    private static volatile LeaderboardWarmer instance;
+
+    private final ConcurrentHashMap<String, Popularity> popularity;
+    private final AtomicBoolean isWarming;
+    private BukkitTask task;
+    private volatile int maxWarmedLeaderboards;
+    private volatile long budgetMillisPerMinute;
+    private double availableBudgetMillis;
+    private long lastBudgetRefill;
+
+    /**
+     * An exponentially decayed request counter.
+     */
+    private static final class Popularity {
+        private double score;
+        private long updatedAt;
+
+        synchronized void increment(long now) {
+            score = getScore(now) + 1;
+            updatedAt = now;
+        }
+
+        synchronized double getScore(long now) {
+            return score * Math.pow(0.5, (double) (now - updatedAt) / HALF_LIFE_MILLIS);
+        }
+    }
+
+    private LeaderboardWarmer() {
+        popularity = new ConcurrentHashMap<>();
+        isWarming = new AtomicBoolean(false);
+        reload();
+        Main.registerReloadable(this);
+        Main.registerClosable(this);
+    }
+
+    public static LeaderboardWarmer getInstance() {
+        LeaderboardWarmer localVar = instance;
+        if (localVar != null) {
+            return localVar;
+        }
+
+        synchronized (LeaderboardWarmer.class) {
+            if (instance == null) {
+                instance = new LeaderboardWarmer();
+            }
+            return instance;
+        }
+    }
+
+    @Override
+    public void reload() {
+        ConfigHandler config = ConfigHandler.getInstance();
+        maxWarmedLeaderboards = config.getWarmedLeaderboardCount();
+        budgetMillisPerMinute = config.getLeaderboardWarmingBudgetMillis();
+        boolean enabled = maxWarmedLeaderboards > 0 && budgetMillisPerMinute > 0 && config.getTopListCacheSeconds() > 0;
+
+        if (enabled && task == null) {
+            synchronized (this) {
+                availableBudgetMillis = budgetMillisPerMinute;
+                lastBudgetRefill = System.currentTimeMillis();
+            }
+            task = Bukkit.getScheduler().runTaskTimerAsynchronously(Main.getPluginInstance(), this::warmPopularLeaderboards,
+                    CHECK_INTERVAL_TICKS, CHECK_INTERVAL_TICKS);
+        } else if (!enabled && task != null) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Counts one request for the Leaderboard of this ApprovedStat.
+     */
+    public void recordRequest(@NotNull String alias) {
+        popularity.computeIfAbsent(alias, key -> new Popularity())
+                .increment(System.currentTimeMillis());
+    }
+
+    private void warmPopularLeaderboards() {
+        if (BackgroundThrottle.getInstance().getLevel() > 0 || !isWarming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (!hasBudgetLeft(now)) {
+                return;
+            }
+            long maxAge = ConfigHandler.getInstance().getTopListCacheSeconds() * 1000L;
+            long refreshAge = maxAge - Math.min(2 * CHECK_INTERVAL_MILLIS, maxAge / 2);
+            RequestProcessor processor = StatRequestManager.getBukkitProcessor();
+
+            //warm the most popular Leaderboard that is about to expire (one per check, to spread out the work)
+            for (String alias : getPopularAliases(now)) {
+                long calculatedAt = processor.getLeaderboardCalculatedAt(alias);
+                if (calculatedAt >= 0 && now - calculatedAt < refreshAge) {
+                    continue;
+                }
+                ApprovedStat approvedStat = ConfigHandler.getInstance().getApprovedStat(alias);
+                if (approvedStat == null) {
+                    popularity.remove(alias);
+                    continue;
+                }
+                long startTime = System.currentTimeMillis();
+                processor.refreshLeaderboard(approvedStat);
+                long duration = System.currentTimeMillis() - startTime;
+                useBudget(duration);
+                MyLogger.logMediumLevelMsg(() -> "Warmed the leaderboard for " + alias + " in " + duration + "ms");
+                return;
+            }
+        } catch (RuntimeException e) {
+            MyLogger.logException(e, "LeaderboardWarmer", "warmPopularLeaderboards");
+        } finally {
+            isWarming.set(false);
+        }
+    }
+
+    /**
+     * @return the aliases of the most popular Leaderboards, most popular first
+     * (and forgets the ones that have not been requested for a long time)
+     */
+    private @NotNull List<String> getPopularAliases(long now) {
+        List<Map.Entry<String, Double>> scores = new ArrayList<>();
+        popularity.forEach((alias, counter) -> {
+            double score = counter.getScore(now);
+            if (score >= MIN_POPULARITY) {
+                scores.add(Map.entry(alias, score));
+            } else if (score < 0.01) {
+                popularity.remove(alias, counter);
+            }
+        });
+        return scores.stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+                .limit(maxWarmedLeaderboards)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private synchronized boolean hasBudgetLeft(long now) {
+        long budget = budgetMillisPerMinute;
+        availableBudgetMillis = Math.min(budget, availableBudgetMillis + (now - lastBudgetRefill) * budget / 60_000.0);
+        lastBudgetRefill = now;
+        return availableBudgetMillis > 0;
+    }
+
+    private synchronized void useBudget(long millis) {
+        availableBudgetMillis -= millis;
+    }
+}
@@ -0,0 +1,105 @@
+package com.artemis.the.gr8.playerstats.core.statistic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+
+/**
+ * Remembers the statistic values that were looked up for offline players,
+ * so that repeated lookups don't make Bukkit read and parse the player's
+ * stats file again. The values of a player are thrown away as soon as the
+ * last-modified-time of their stats file changes. Online players are never
+ * cached, since their statistics change all the time. Only the most recently
+ * used {@link #MAX_PLAYERS} players are kept.
+ */
+final class PlayerStatCache {
+
+    private static final int MAX_PLAYERS = 500;
+
+    private final @Nullable Path statsFolder;
+    private final LinkedHashMap<UUID, CachedStats> cache;
+
+    PlayerStatCache() {
+        statsFolder = getStatsFolder();
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CachedStats> eldest) {
+                return size() > MAX_PLAYERS;
+            }
+        };
+    }
+
+    /**
+     * @param lastModified the last-modified-time of the stats file
+     *                     these values were read from
+     * @param values the values per StatComponent
+     */
+    private record CachedStats(long lastModified, ConcurrentHashMap<ApprovedStat.StatComponent, Integer> values) {
+    }
+
+    /**
+     * Gets the value for this component from the cache,
+     * or uses the lookup to get it and stores the result.
+     *
+     * @param player the player to get the value for
+     * @param component the component to get the value of
+     * @param lookup the function that gets the actual value from Bukkit
+     * @return the value
+     */
+    int getValue(@NotNull OfflinePlayer player, @NotNull ApprovedStat.StatComponent component,
+                 @NotNull ToIntFunction<ApprovedStat.StatComponent> lookup) {
+        if (statsFolder == null || player.isOnline()) {
+            return lookup.applyAsInt(component);
+        }
+
+        UUID uuid = player.getUniqueId();
+        long lastModified = getLastModified(uuid);
+        CachedStats stats;
+        synchronized (cache) {
+            stats = cache.get(uuid);
+            if (stats == null || stats.lastModified() != lastModified) {
+                stats = new CachedStats(lastModified, new ConcurrentHashMap<>());
+                cache.put(uuid, stats);
+            }
+        }
+
+        Integer value = stats.values().get(component);
+        if (value == null) {
+            value = lookup.applyAsInt(component);
+            stats.values().put(component, value);
+        }
+        return value;
+    }
+
+    private long getLastModified(@NotNull UUID uuid) {
+        try {
+            return Files.getLastModifiedTime(statsFolder.resolve(uuid + ".json")).toMillis();
+        } catch (IOException e) {
+            //no stats file (yet), so all values are 0
+            return -1;
+        }
+    }
+
+    private static @Nullable Path getStatsFolder() {
+        List<World> worlds = Bukkit.getWorlds();
+        if (worlds.isEmpty()) {
+            return null;
+        }
+        return new File(worlds.get(0).getWorldFolder(), "stats").toPath();
+    }
+}
@@ -0,0 +1,357 @@
+package com.artemis.the.gr8.playerstats.core.statistic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.api.Leaderboard;
+import com.artemis.the.gr8.playerstats.core.statistic.filter.PlayerRegistry;
+import com.artemis.the.gr8.playerstats.core.utils.OfflinePlayerHandler;
+
+/**
+ * Keeps the values of one ApprovedStat sorted from high to low (with ties
+ * sorted by name), so the rank of a player or value, and the players between
+ * two ranks, can be found with a binary search instead of walking through a
+ * sorted map. When the value of a single player changes, only that player is
+ * moved to their new position.
+ *
+ * <p>Ranks are shared between players with the same value (1, 2, 2, 4).
+ * Players that are included in statistic calculations, but are not in this
+ * index, are counted as having a value of 0. Values are looked up by player
+ * name regardless of case.
+ *
+ * <p>Every player is stored with their ordinal in the {@link PlayerRegistry},
+ * and their value is also kept by this ordinal, so the index can be filtered
+ * to the members of a player set with a single BitSet lookup per player.
+ *
+ * <p>An immutable {@link Leaderboard} can be taken from this index. It is
+ * only copied again after a player's value has changed, and it is never
+ * sorted again.
+ */
+public final class RankIndex {
+
+    private static final Comparator<Map.Entry<String, Integer>> ORDER =
+            Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private final String alias;
+    private final long calculatedAt;
+    private String[] names;
+    private int[] values;
+    private int[] ordinals;
+    private int size;
+    private final ConcurrentHashMap<String, Integer> ordinalsByName; //by lower-case name, shared with filtered indexes
+    private int[] valuesByOrdinal;
+    private final BitSet ranked; //the ordinals of the players in this index
+    private final int playerCount;
+    private @Nullable Leaderboard leaderboard;
+
+    private RankIndex(String alias, String[] names, int[] values, int[] ordinals, ConcurrentHashMap<String, Integer> ordinalsByName,
+                      int[] valuesByOrdinal, BitSet ranked, int playerCount) {
+        this.alias = alias;
+        this.calculatedAt = System.currentTimeMillis();
+        this.names = names;
+        this.values = values;
+        this.ordinals = ordinals;
+        this.size = names.length;
+        this.ordinalsByName = ordinalsByName;
+        this.valuesByOrdinal = valuesByOrdinal;
+        this.ranked = ranked;
+        this.playerCount = playerCount;
+    }
+
+    /**
+     * @param alias the alias of the ApprovedStat these values are for
+     * @param values the value for each player
+     * @param playerCount the total number of players that are included
+     *                    in statistic calculations
+     * @return a new RankIndex for these values (without the players
+     * that are no longer included)
+     */
+    public static @NotNull RankIndex of(@NotNull String alias, @NotNull Map<String, Integer> values, int playerCount) {
+        @SuppressWarnings("unchecked")
+        Map.Entry<String, Integer>[] entries = values.entrySet().toArray(new Map.Entry[0]);
+        Arrays.sort(entries, ORDER);
+
+        String[] names = new String[entries.length];
+        int[] sortedValues = new int[entries.length];
+        int[] ordinals = new int[entries.length];
+        ConcurrentHashMap<String, Integer> ordinalsByName = new ConcurrentHashMap<>(entries.length * 4 / 3 + 1);
+        int[] valuesByOrdinal = new int[entries.length];
+        BitSet ranked = new BitSet();
+        int count = 0;
+        for (Map.Entry<String, Integer> entry : entries) {
+            int ordinal = findOrdinal(entry.getKey());
+            if (ordinal < 0) {
+                continue;
+            }
+            valuesByOrdinal = withRoomFor(valuesByOrdinal, ordinal);
+            names[count] = entry.getKey();
+            sortedValues[count] = entry.getValue();
+            ordinals[count] = ordinal;
+            ordinalsByName.put(toKey(entry.getKey()), ordinal);
+            valuesByOrdinal[ordinal] = entry.getValue();
+            ranked.set(ordinal);
+            count++;
+        }
+        return new RankIndex(alias, Arrays.copyOf(names, count), Arrays.copyOf(sortedValues, count), Arrays.copyOf(ordinals, count),
+                ordinalsByName, valuesByOrdinal, ranked, playerCount);
+    }
+
+    /**
+     * Takes the players that are members of a player set out of this index,
+     * in one pass over the already sorted values, without sorting anything
+     * again or looking up any names.
+     *
+     * @param members the ordinals of the players to keep, in the {@link PlayerRegistry}
+     * @param playerCount the total number of players that match the filter
+     * @return a new RankIndex with only these players
+     */
+    public synchronized @NotNull RankIndex filter(@NotNull BitSet members, int playerCount) {
+        String[] filteredNames = new String[size];
+        int[] filteredValues = new int[size];
+        int[] filteredOrdinals = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (members.get(ordinals[i])) {
+                filteredNames[count] = names[i];
+                filteredValues[count] = values[i];
+                filteredOrdinals[count] = ordinals[i];
+                count++;
+            }
+        }
+        BitSet filteredRanked = (BitSet) ranked.clone();
+        filteredRanked.and(members);
+        return new RankIndex(alias, Arrays.copyOf(filteredNames, count), Arrays.copyOf(filteredValues, count),
+                Arrays.copyOf(filteredOrdinals, count), ordinalsByName, valuesByOrdinal.clone(), filteredRanked, playerCount);
+    }
+
+    /**
+     * @return the time (in unix-millis) at which the values
+     * in this index were calculated
+     */
+    public long getCalculatedAt() {
+        return calculatedAt;
+    }
+
+    /**
+     * @return an immutable snapshot of the current values in this index
+     */
+    public synchronized @NotNull Leaderboard getLeaderboard() {
+        if (leaderboard == null) {
+            leaderboard = new LeaderboardSnapshot(alias, calculatedAt,
+                    Arrays.copyOf(names, size), Arrays.copyOf(values, size), getUUIDBits());
+        }
+        return leaderboard;
+    }
+
+    /**
+     * @return the most and least significant bits of the UUID of every
+     * player in this index (or 0 for players that are no longer included)
+     */
+    private long @NotNull [] getUUIDBits() {
+        Map<String, UUID> includedPlayers = OfflinePlayerHandler.getInstance().getIncludedPlayers();
+        long[] uuidBits = new long[size * 2];
+        for (int i = 0; i < size; i++) {
+            UUID uuid = includedPlayers.get(names[i]);
+            if (uuid != null) {
+                uuidBits[2 * i] = uuid.getMostSignificantBits();
+                uuidBits[2 * i + 1] = uuid.getLeastSignificantBits();
+            }
+        }
+        return uuidBits;
+    }
+
+    /**
+     * @return the number of players in this index
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of players this index is ranked against,
+     * including the players with a value of 0 that are not in this index
+     */
+    public synchronized int getPlayerCount() {
+        return Math.max(playerCount, size);
+    }
+
+    /**
+     * @param playerName the name of the player
+     * @return the value of this player, or null if they are not in this index
+     */
+    public synchronized @Nullable Integer getValue(@NotNull String playerName) {
+        Integer ordinal = ordinalsByName.get(toKey(playerName));
+        return ordinal != null && ranked.get(ordinal) ? valuesByOrdinal[ordinal] : null;
+    }
+
+    /**
+     * @param value a statistic value
+     * @return the rank a player with this value would have
+     */
+    public synchronized int getRank(int value) {
+        //the number of values that are higher than this value
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] > value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low + 1;
+    }
+
+    /**
+     * @param playerName the name of the player
+     * @return the rank of this player, or 0 if they are not in this index
+     */
+    public synchronized int getRank(@NotNull String playerName) {
+        Integer value = getValue(playerName);
+        return value != null ? getRank(value) : 0;
+    }
+
+    /**
+     * @param rank a rank
+     * @return the percentage of players that have this rank or better
+     * (so 1.0 means the top 1%)
+     */
+    public synchronized double getTopPercentage(int rank) {
+        int count = getPlayerCount();
+        if (rank <= 0 || count == 0) {
+            return 100;
+        }
+        return Math.min(100, rank * 100.0 / count);
+    }
+
+    /**
+     * Gets the players on the positions from fromRank up to and including
+     * toRank, in order. Players with the same value are ordered by name.
+     *
+     * @param fromRank the first position (starting at 1)
+     * @param toRank the last position
+     * @return the names and values of these players
+     */
+    public synchronized @NotNull LinkedHashMap<String, Integer> getRange(int fromRank, int toRank) {
+        int from = Math.max(fromRank, 1) - 1;
+        int to = Math.min(toRank, size);
+        LinkedHashMap<String, Integer> range = new LinkedHashMap<>(Math.max(to - from, 0) * 4 / 3 + 1);
+        for (int i = from; i < to; i++) {
+            range.put(names[i], values[i]);
+        }
+        return range;
+    }
+
+    /**
+     * Moves a player to the position for their new value, or adds them if
+     * they were not in this index yet. Only the players between the old and
+     * the new position are shifted. Players that are not included in
+     * statistic calculations are not added.
+     *
+     * @param playerName the name of the player, as it is in this index
+     * @param value the new value of this player
+     */
+    public synchronized void update(@NotNull String playerName, int value) {
+        String key = toKey(playerName);
+        Integer knownOrdinal = ordinalsByName.get(key);
+        int ordinal = knownOrdinal != null ? knownOrdinal : findOrdinal(playerName);
+        if (ordinal < 0) {
+            return;
+        }
+        Integer oldValue = ranked.get(ordinal) ? valuesByOrdinal[ordinal] : null;
+        if (oldValue != null && oldValue == value) {
+            return;
+        }
+        leaderboard = null;
+        if (knownOrdinal == null) {
+            ordinalsByName.put(key, ordinal);
+        }
+        valuesByOrdinal = withRoomFor(valuesByOrdinal, ordinal);
+        valuesByOrdinal[ordinal] = value;
+        ranked.set(ordinal);
+
+        int oldIndex;
+        if (oldValue != null) {
+            oldIndex = indexOf(playerName, oldValue);
+        } else {
+            if (size == names.length) {
+                int newLength = size + (size >> 1) + 1;
+                names = Arrays.copyOf(names, newLength);
+                values = Arrays.copyOf(values, newLength);
+                ordinals = Arrays.copyOf(ordinals, newLength);
+            }
+            //a new player takes the free slot at the end
+            oldIndex = size;
+        }
+
+        int insertAt = -indexOf(playerName, value) - 1;
+        if (insertAt > oldIndex) {
+            insertAt--;
+            System.arraycopy(names, oldIndex + 1, names, oldIndex, insertAt - oldIndex);
+            System.arraycopy(values, oldIndex + 1, values, oldIndex, insertAt - oldIndex);
+            System.arraycopy(ordinals, oldIndex + 1, ordinals, oldIndex, insertAt - oldIndex);
+        } else {
+            System.arraycopy(names, insertAt, names, insertAt + 1, oldIndex - insertAt);
+            System.arraycopy(values, insertAt, values, insertAt + 1, oldIndex - insertAt);
+            System.arraycopy(ordinals, insertAt, ordinals, insertAt + 1, oldIndex - insertAt);
+        }
+        names[insertAt] = playerName;
+        values[insertAt] = value;
+        ordinals[insertAt] = ordinal;
+        if (oldValue == null) {
+            size++;
+        }
+    }
+
+    /**
+     * @return the position of this player, or (-(insertion point) - 1) if
+     * they are not at the position for this value
+     */
+    private int indexOf(@NotNull String playerName, int value) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = values[mid] != value ?
+                    Integer.compare(value, values[mid]) : names[mid].compareTo(playerName);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return the ordinal of this player in the PlayerRegistry,
+     * or -1 if they are not included in statistic calculations
+     */
+    private static int findOrdinal(@NotNull String playerName) {
+        UUID uuid = OfflinePlayerHandler.getInstance().getIncludedPlayers().get(playerName);
+        return uuid != null ? PlayerRegistry.getInstance().getOrdinal(uuid) : -1;
+    }
+
+    private static int @NotNull [] withRoomFor(int @NotNull [] valuesByOrdinal, int ordinal) {
+        if (ordinal < valuesByOrdinal.length) {
+            return valuesByOrdinal;
+        }
+        return Arrays.copyOf(valuesByOrdinal, Math.max(ordinal + 1, valuesByOrdinal.length + (valuesByOrdinal.length >> 1)));
+    }
+
+    private static @NotNull String toKey(@NotNull String playerName) {
+        return playerName.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,12 +1,74 @@
 package com.artemis.the.gr8.playerstats.core.statistic;
 
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.api.Leaderboard;
 import com.artemis.the.gr8.playerstats.api.StatRequest;
+import com.artemis.the.gr8.playerstats.api.StatResult;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
 
 public abstract class RequestProcessor {
 
     public abstract void processPlayerRequest(StatRequest<?> playerStatRequest);
 
+    /**
+     * Performs the lookup on the calling thread,
+     * and returns the result instead of sending it.
+     */
+    public abstract StatResult<Integer> getPlayerStatResult(StatRequest<?> playerStatRequest);
+
     public abstract void processServerRequest(StatRequest<?> serverStatRequest);
 
     public abstract void processTopRequest(StatRequest<?> topStatRequest);
+
+    /**
+     * Gets the cached Leaderboard for this ApprovedStat, or calculates
+     * it on the calling thread if there is no recent one.
+     */
+    public abstract @NotNull Leaderboard getLeaderboard(@NotNull ApprovedStat approvedStat);
+
+    /**
+     * @return the aliases of the ApprovedStats that currently have
+     * a cached Leaderboard
+     */
+    public abstract @NotNull Set<String> getCachedLeaderboardAliases();
+
+    /**
+     * Moves the player to their new value in the cached
+     * Leaderboard of this ApprovedStat, if there is one.
+     */
+    public abstract void updateCachedLeaderboard(@NotNull String alias, @NotNull String playerName, int value);
+
+    /**
+     * @return when the cached Leaderboard of this ApprovedStat was calculated
+     * (in milliseconds since the epoch), or -1 if there is none
+     */
+    public abstract long getLeaderboardCalculatedAt(@NotNull String alias);
+
+    /**
+     * @return the last RankIndex that was calculated for this ApprovedStat
+     * (even if it is older than the top-list-cache-seconds), or null if there is none
+     */
+    public abstract @Nullable RankIndex getLastRankIndex(@NotNull String alias);
+
+    /**
+     * Calculates the Leaderboard for this ApprovedStat again on the
+     * calling thread, and replaces the cached one with it.
+     */
+    public abstract void refreshLeaderboard(@NotNull ApprovedStat approvedStat);
+
+    /**
+     * @return the last RankIndex that was calculated for this ApprovedStat
+     * in the current Season, or null if there is none
+     */
+    public abstract @Nullable RankIndex getLastSeasonRankIndex(@NotNull String alias);
+
+    /**
+     * Calculates the Leaderboard for this ApprovedStat in the current Season
+     * again on the calling thread, and replaces the cached one with it.
+     */
+    public abstract void refreshSeasonLeaderboard(@NotNull ApprovedStat approvedStat);
 }
@@ -11,6 +11,7 @@ import org.jetbrains.annotations.NotNull;
 
 public final class ServerStatRequest extends StatRequest<Long> implements RequestGenerator<Long> {
 
+    private boolean includeDistribution;
 
     public ServerStatRequest() {
         this(Bukkit.getConsoleSender());
@@ -43,4 +44,20 @@ public final class ServerStatRequest extends StatRequest<Long> implements Reques
         super.configureEntityType(statistic, entityType);
         return this;
     }
-}
\ No newline at end of file
+
+    /**
+     * Also shows how the values are spread over the players: the average,
+     * median and percentiles, and a small histogram.
+     *
+     * @param includeDistribution whether to show the distribution
+     * @return this StatRequest
+     */
+    public ServerStatRequest distribution(boolean includeDistribution) {
+        this.includeDistribution = includeDistribution;
+        return this;
+    }
+
+    public boolean includesDistribution() {
+        return includeDistribution;
+    }
+}
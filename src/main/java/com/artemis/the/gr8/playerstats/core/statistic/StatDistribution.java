@@ -0,0 +1,261 @@
+package com.artemis.the.gr8.playerstats.core.statistic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Describes how the values of a statistic are spread over the players,
+ * without storing or sorting the values themselves. Every task of a stat
+ * calculation adds its values to its own StatDistribution, and these are
+ * merged into one when the task is done.
+ *
+ * <p>Quantiles come from a histogram with logarithmic buckets: the values 1 to
+ * 15 each have their own bucket, and every power of two above that is split
+ * into 16 buckets, so an estimated quantile is never more than about 6% off.
+ * Negative values (which derived stats can have) go into a mirrored set of
+ * buckets, so they are estimated just as closely. Only 0 has a bucket of its own.
+ */
+public final class StatDistribution {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = SUB_COUNT + (Integer.SIZE - 1 - SUB_BITS) * SUB_COUNT;
+
+    private final long[] buckets;
+    //the same buckets for the size of negative values (the first one is never used)
+    private final long[] negativeBuckets;
+    private long count;
+    private long sum;
+    private int min;
+    private int max;
+
+    /**
+     * @param from the lowest value in this row of the histogram
+     * @param to the highest value in this row of the histogram
+     * @param count the number of players with a value in this row
+     */
+    public record HistogramRow(long from, long to, long count) {
+    }
+
+    public StatDistribution() {
+        buckets = new long[BUCKET_COUNT];
+        negativeBuckets = new long[BUCKET_COUNT];
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Adds a single value. This is not synchronized, so every task
+     * should add to its own StatDistribution, and then {@link #merge} it.
+     */
+    public void add(int value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (value < 0) {
+            negativeBuckets[getBucket(getMagnitude(value))]++;
+        } else {
+            buckets[getBucket(value)]++;
+        }
+    }
+
+    /**
+     * Adds this number of players with a value of 0 at once, for the
+     * players that were skipped because they have no value at all.
+     */
+    public synchronized void addZeros(long zeroCount) {
+        if (zeroCount <= 0) {
+            return;
+        }
+        count += zeroCount;
+        min = Math.min(min, 0);
+        max = Math.max(max, 0);
+        buckets[0] += zeroCount;
+    }
+
+    /**
+     * Adds all values of another StatDistribution to this one. This is
+     * synchronized, so tasks can merge into the same StatDistribution.
+     */
+    public synchronized void merge(@NotNull StatDistribution other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] += other.buckets[i];
+            negativeBuckets[i] += other.negativeBuckets[i];
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getSum() {
+        return sum;
+    }
+
+    public synchronized double getMean() {
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    /**
+     * @param quantile the quantile between 0 and 1 (0.5 for the median)
+     * @return an estimate of the value at this quantile
+     */
+    public synchronized long getQuantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(Math.max(0, Math.min(quantile, 1)) * count), 1);
+        long seen = 0;
+        //the negative values go from the largest size down
+        for (int i = BUCKET_COUNT - 1; i > 0; i--) {
+            seen += negativeBuckets[i];
+            if (seen >= rank) {
+                return clamp(-getEstimate(i));
+            }
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return clamp(getEstimate(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Combines the buckets into at most this many rows, each covering one or
+     * more powers of two (with a separate row for values of 0). If there are
+     * both negative and positive values, the rows are split between them.
+     *
+     * @return the rows from low to high values, including empty rows in between
+     */
+    public synchronized @NotNull List<HistogramRow> getHistogram(int maxRows) {
+        List<HistogramRow> rows = new ArrayList<>();
+        if (count == 0 || maxRows < 1) {
+            return rows;
+        }
+        boolean hasNegative = getHighestBucket(negativeBuckets) > 0;
+        boolean hasPositive = getHighestBucket(buckets) > 0;
+        int availableRows = Math.max(maxRows - (buckets[0] > 0 ? 1 : 0), 1);
+        int negativeRows = hasNegative && hasPositive ? Math.max(availableRows / 2, 1) : availableRows;
+        int positiveRows = hasNegative && hasPositive ? Math.max(availableRows - negativeRows, 1) : availableRows;
+
+        if (hasNegative) {
+            List<HistogramRow> negativeRowList = getRows(negativeBuckets, negativeRows, -(long) max, -(long) min);
+            for (int i = negativeRowList.size() - 1; i >= 0; i--) {
+                HistogramRow row = negativeRowList.get(i);
+                rows.add(new HistogramRow(-row.to(), -row.from(), row.count()));
+            }
+        }
+        if (buckets[0] > 0) {
+            rows.add(new HistogramRow(0, 0, buckets[0]));
+        }
+        if (hasPositive) {
+            rows.addAll(getRows(buckets, positiveRows, min, max));
+        }
+        return rows;
+    }
+
+    /**
+     * @param lowestValue the lowest value (or size of a negative value) that was added
+     * @param highestValue the highest value (or size of a negative value) that was added
+     * @return the rows for the buckets above 0, from low to high
+     */
+    private static @NotNull List<HistogramRow> getRows(long @NotNull [] buckets, int availableRows,
+                                                       long lowestValue, long highestValue) {
+        List<HistogramRow> rows = new ArrayList<>();
+        int lowest = -1;
+        int highest = getHighestBucket(buckets);
+        for (int i = 1; i <= highest; i++) {
+            if (buckets[i] > 0) {
+                lowest = i;
+                break;
+            }
+        }
+        int lowestPower = getPowerOfTwo(lowest);
+        int highestPower = getPowerOfTwo(highest);
+        int powersPerRow = (highestPower - lowestPower + availableRows) / availableRows;
+
+        int bucket = lowest;
+        for (int power = lowestPower; power <= highestPower; power += powersPerRow) {
+            int lastPower = Math.min(power + powersPerRow - 1, highestPower);
+            long rowCount = 0;
+            while (bucket <= highest && getPowerOfTwo(bucket) <= lastPower) {
+                rowCount += buckets[bucket++];
+            }
+            long from = Math.max(1L << power, lowestValue);
+            long to = Math.min((1L << (lastPower + 1)) - 1, highestValue);
+            rows.add(new HistogramRow(from, to, rowCount));
+        }
+        return rows;
+    }
+
+    /**
+     * @return the highest bucket above 0 that has any values, or -1 if there is none
+     */
+    private static int getHighestBucket(long @NotNull [] buckets) {
+        for (int i = BUCKET_COUNT - 1; i > 0; i--) {
+            if (buckets[i] > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private long clamp(long estimate) {
+        return Math.max(min, Math.min(estimate, max));
+    }
+
+    /**
+     * @return the size of a negative value (Integer.MIN_VALUE counts as -Integer.MAX_VALUE)
+     */
+    private static int getMagnitude(int negativeValue) {
+        return negativeValue == Integer.MIN_VALUE ? Integer.MAX_VALUE : -negativeValue;
+    }
+
+    private static long getEstimate(int bucket) {
+        return getLowerBound(bucket) + (getWidth(bucket) - 1) / 2;
+    }
+
+    /**
+     * @param value a value of 0 or higher
+     */
+    private static int getBucket(int value) {
+        if (value < SUB_COUNT) {
+            return value;
+        }
+        int power = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(value);
+        int subBucket = (value >>> (power - SUB_BITS)) & (SUB_COUNT - 1);
+        return SUB_COUNT + (power - SUB_BITS) * SUB_COUNT + subBucket;
+    }
+
+    private static long getLowerBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int power = (bucket - SUB_COUNT) / SUB_COUNT + SUB_BITS;
+        long subBucket = (bucket - SUB_COUNT) % SUB_COUNT;
+        return (1L << power) + (subBucket << (power - SUB_BITS));
+    }
+
+    private static long getWidth(int bucket) {
+        return bucket < SUB_COUNT ? 1 : 1L << ((bucket - SUB_COUNT) / SUB_COUNT);
+    }
+
+    /**
+     * @return the power of two that the values in this bucket (above 0) start at
+     */
+    private static int getPowerOfTwo(int bucket) {
+        return 63 - Long.numberOfLeadingZeros(getLowerBound(bucket));
+    }
+}
@@ -5,11 +5,15 @@ import java.util.LinkedHashMap;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import com.artemis.the.gr8.playerstats.api.Leaderboard;
+import com.artemis.the.gr8.playerstats.api.LeaderboardCursor;
 import com.artemis.the.gr8.playerstats.api.RequestGenerator;
 import com.artemis.the.gr8.playerstats.api.StatManager;
 import com.artemis.the.gr8.playerstats.api.StatRequest;
 import com.artemis.the.gr8.playerstats.api.StatResult;
 import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
 import com.artemis.the.gr8.playerstats.core.msg.OutputManager;
 import com.artemis.the.gr8.playerstats.core.utils.OfflinePlayerHandler;
 import com.artemis.the.gr8.playerstats.core.utils.Reloadable;
@@ -82,12 +86,7 @@ public final class StatRequestManager implements StatManager, Reloadable {
     @Override
     public @NotNull
     StatResult<Integer> executePlayerStatRequest(@NotNull StatRequest<Integer> request) {
-        // This method still expects StatResult, but the processor returns void.
-        // The StatManager API needs rethinking or BukkitProcessor needs adapting.
-        // Temporary Fix: Process and return a dummy/empty result.
-        processor.processPlayerRequest(request);
-        // TODO: Adapt API or processor - how should results be retrieved synchronously now?
-        return new StatResult<>(0, null, null); // Dummy result
+        return processor.getPlayerStatResult(request);
     }
 
     @Contract(" -> new")
@@ -131,4 +130,23 @@ public final class StatRequestManager implements StatManager, Reloadable {
         // Ensure correct instantiation of LinkedHashMap for the dummy result
         return new StatResult<>(new LinkedHashMap<String, Integer>(), null, null);
     }
+
+    @Override
+    public @NotNull Leaderboard getLeaderboard(@NotNull String alias) throws IllegalArgumentException {
+        ApprovedStat approvedStat = ConfigHandler.getInstance().getApprovedStat(alias.toLowerCase());
+        if (approvedStat == null) {
+            throw new IllegalArgumentException("There is no approved stat with alias: " + alias);
+        }
+        return getBukkitProcessor().getLeaderboard(approvedStat);
+    }
+
+    @Override
+    public @NotNull LeaderboardCursor getLeaderboardCursor(@NotNull String alias) throws IllegalArgumentException {
+        return getLeaderboard(alias).cursor();
+    }
+
+    @Override
+    public @NotNull LeaderboardCursor getLeaderboardCursor(@NotNull String alias, @NotNull LeaderboardCursor.Filter filter) throws IllegalArgumentException {
+        return getLeaderboard(alias).cursor(filter);
+    }
 }
@@ -8,13 +8,20 @@ import org.bukkit.Statistic;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.EntityType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.artemis.the.gr8.playerstats.api.RequestGenerator;
 import com.artemis.the.gr8.playerstats.api.StatRequest;
 import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.statistic.filter.PlayerFilter;
+import com.artemis.the.gr8.playerstats.core.statistic.history.TimeWindow;
 
 public final class TopStatRequest extends StatRequest<LinkedHashMap<String, Integer>> implements RequestGenerator<LinkedHashMap<String, Integer>> {
 
+    private @Nullable TimeWindow timeWindow;
+    private boolean seasonal;
+    private @Nullable PlayerFilter filter;
+
     public TopStatRequest(int topListSize) {
         this(Bukkit.getConsoleSender(), topListSize);
     }
@@ -78,4 +85,65 @@ public final class TopStatRequest extends StatRequest<LinkedHashMap<String, Inte
         super.getSettings().setApprovedStat(approvedStat);
         return this;
     }
+
+    /**
+     * Sets the page of the top-list to show. Every page
+     * contains as many players as the topListSize.
+     *
+     * @param page the page (starting at 1)
+     * @return this StatRequest
+     * @throws IllegalArgumentException if the page is lower than 1
+     */
+    public TopStatRequest page(int page) throws IllegalArgumentException {
+        super.configurePage(page);
+        return this;
+    }
+
+    /**
+     * Limits the top-list to the values that were gained within this
+     * TimeWindow, instead of the values since players first joined.
+     *
+     * @param timeWindow the TimeWindow, or null for all values
+     * @return this StatRequest
+     */
+    public TopStatRequest timeWindow(@Nullable TimeWindow timeWindow) {
+        this.timeWindow = timeWindow;
+        return this;
+    }
+
+    public @Nullable TimeWindow getTimeWindow() {
+        return timeWindow;
+    }
+
+    /**
+     * Limits the top-list to the values that were gained since the start
+     * of the current Season, instead of the values since players first joined.
+     *
+     * @param seasonal whether to show the values of the current Season
+     * @return this StatRequest
+     */
+    public TopStatRequest season(boolean seasonal) {
+        this.seasonal = seasonal;
+        return this;
+    }
+
+    public boolean isSeasonal() {
+        return seasonal;
+    }
+
+    /**
+     * Limits the top-list to the players that match this PlayerFilter,
+     * such as the players that are online right now.
+     *
+     * @param filter the PlayerFilter, or null for all included players
+     * @return this StatRequest
+     */
+    public TopStatRequest filter(@Nullable PlayerFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    public @Nullable PlayerFilter getFilter() {
+        return filter;
+    }
 }
@@ -0,0 +1,83 @@
+package com.artemis.the.gr8.playerstats.core.statistic.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Limits a top list to the players in a combination of the named sets
+ * that the {@link PlayerRegistry} keeps. A filter is written as set names
+ * joined with "+" (players in both sets) and "," (players in either set),
+ * where "+" goes before ",". A name that starts with "!" means players that
+ * are not in that set. For example: "online", "active7d+!staff" or
+ * "staff,vip+active30d".
+ */
+public final class PlayerFilter {
+
+    private static final int MAX_SETS = 8;
+
+    private final String key;
+    private final List<List<Factor>> terms;
+
+    /**
+     * @param setName the name of a set in the {@link PlayerRegistry}
+     * @param negated whether this means the players that are not in this set
+     */
+    record Factor(String setName, boolean negated) {
+    }
+
+    private PlayerFilter(String key, List<List<Factor>> terms) {
+        this.key = key;
+        this.terms = terms;
+    }
+
+    /**
+     * @param expression the filter, such as "online" or "active7d+!staff"
+     * @return the PlayerFilter, or null if this expression is not valid
+     * or contains a set that the {@link PlayerRegistry} does not know
+     */
+    public static @Nullable PlayerFilter parse(@NotNull String expression) {
+        String key = expression.toLowerCase(Locale.ENGLISH);
+        PlayerRegistry registry = PlayerRegistry.getInstance();
+        List<List<Factor>> terms = new ArrayList<>();
+        int setCount = 0;
+
+        for (String term : key.split(",", -1)) {
+            List<Factor> factors = new ArrayList<>();
+            for (String factor : term.split("\\+", -1)) {
+                boolean negated = factor.startsWith("!");
+                String setName = negated ? factor.substring(1) : factor;
+                if (!registry.isKnownSet(setName) || ++setCount > MAX_SETS) {
+                    return null;
+                }
+                factors.add(new Factor(setName, negated));
+            }
+            terms.add(factors);
+        }
+        return new PlayerFilter(key, terms);
+    }
+
+    /**
+     * @return the filter as it was written (in lower case), which is the same
+     * for all filters that select the same players in the same way
+     */
+    public @NotNull String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the groups of sets that a player needs to be in (or not in) all
+     * of, where a player only needs to match one group
+     */
+    @NotNull List<List<Factor>> getTerms() {
+        return terms;
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,447 @@
+package com.artemis.the.gr8.playerstats.core.statistic.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+import com.artemis.the.gr8.playerstats.core.utils.YamlFileHandler;
+
+/**
+ * Gives every player that PlayerStats knows a fixed number (their ordinal),
+ * and keeps named sets of players as BitSets over these numbers: the included
+ * and excluded players, the players that are online, the whitelisted players,
+ * the players that have been online in the last few days, and the player-sets
+ * from the config. The sets are kept up-to-date when players join or quit,
+ * are excluded, or are added to or removed from the whitelist, so a
+ * {@link PlayerFilter} only has to combine a few BitSets to know which
+ * players to show.
+ *
+ * <p>Players only become part of a player-set from the config when they
+ * join with its permission. The members of these sets are stored in the
+ * player_sets-file, so they are still known while the players are offline.
+ * Changes to the members are queued and written in batches on the I/O thread.
+ *
+ * <p>The active sets count in whole (UTC) days: activeNd holds the players that
+ * were online today or on one of the N days before. Every player is kept in a
+ * bucket for the day they were last seen, so when a day drops out of an active
+ * set, only the players of that day have to be looked at.
+ */
+public final class PlayerRegistry extends YamlFileHandler {
+
+    public static final String INCLUDED = "included";
+    public static final String EXCLUDED = "excluded";
+    public static final String ONLINE = "online";
+    public static final String WHITELISTED = "whitelisted";
+
+    private static final Set<String> BUILT_IN_SETS = Set.of(INCLUDED, EXCLUDED, ONLINE, WHITELISTED);
+    private static final String MEMBERS_KEY = "members";
+    private static final Pattern ACTIVE_SET = Pattern.compile("active(\\d{1,4})d");
+    private static final List<String> SUGGESTED_ACTIVE_SETS = List.of("active7d", "active30d");
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int MAX_ACTIVE_SETS = 8;
+
+    private static volatile PlayerRegistry instance;
+
+    private final Object setLock;
+    private final ConcurrentHashMap<UUID, Integer> ordinals;
+    private final HashMap<String, BitSet> sets;
+    private final HashMap<String, BitSet> permissionSetMembers;
+    private final HashMap<Integer, ActiveSet> activeSets;
+    private final TreeMap<Long, DayBucket> lastSeenDays;
+    private long[] lastSeen;
+    private volatile Map<String, String> permissionSets;
+
+    /**
+     * @param members the players that have been online within the number of days
+     * @param sinceDay the first day (counted from the unix epoch) that is part of this set
+     */
+    private record ActiveSet(BitSet members, long sinceDay) {
+    }
+
+    private PlayerRegistry() {
+        super("player_sets.yml");
+        setLock = new Object();
+        ordinals = new ConcurrentHashMap<>();
+        sets = new HashMap<>();
+        permissionSetMembers = new HashMap<>();
+        activeSets = new HashMap<>();
+        lastSeenDays = new TreeMap<>();
+        lastSeen = new long[64];
+
+        BUILT_IN_SETS.forEach(setName -> sets.put(setName, new BitSet()));
+        loadPermissionSets();
+        refreshFromServer();
+        Main.registerReloadable(this);
+    }
+
+    public static PlayerRegistry getInstance() {
+        PlayerRegistry localVar = instance;
+        if (localVar != null) {
+            return localVar;
+        }
+
+        synchronized (PlayerRegistry.class) {
+            if (instance == null) {
+                instance = new PlayerRegistry();
+            }
+            return instance;
+        }
+    }
+
+    @Override
+    public void reload() {
+        super.reload();
+        loadPermissionSets();
+        Bukkit.getScheduler().runTask(Main.getPluginInstance(), this::refreshFromServer);
+    }
+
+    /**
+     * @return true if a {@link PlayerFilter} can use a set with this name
+     */
+    public boolean isKnownSet(@NotNull String setName) {
+        return isBuiltInSet(setName) || permissionSets.containsKey(setName);
+    }
+
+    /**
+     * @return the names of the sets to suggest to players
+     */
+    public @NotNull List<String> getSuggestedSetNames() {
+        List<String> setNames = new ArrayList<>();
+        setNames.add(ONLINE);
+        setNames.add(WHITELISTED);
+        setNames.addAll(SUGGESTED_ACTIVE_SETS);
+        setNames.addAll(permissionSets.keySet());
+        return setNames;
+    }
+
+    /**
+     * @return the ordinal of this player, or -1 if they are not known yet
+     */
+    public int getOrdinal(@Nullable UUID uuid) {
+        Integer ordinal = uuid != null ? ordinals.get(uuid) : null;
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * @param members the result of {@link #evaluate(PlayerFilter)}
+     * @return true if this player is one of these members
+     */
+    public boolean isMember(@NotNull BitSet members, @Nullable UUID uuid) {
+        int ordinal = getOrdinal(uuid);
+        return ordinal >= 0 && members.get(ordinal);
+    }
+
+    /**
+     * Combines the sets in this filter into the included players that it selects.
+     *
+     * @return a new BitSet with the ordinals of these players
+     */
+    public @NotNull BitSet evaluate(@NotNull PlayerFilter filter) {
+        long now = System.currentTimeMillis();
+        BitSet result = new BitSet();
+        synchronized (setLock) {
+            BitSet included = sets.get(INCLUDED);
+            for (List<PlayerFilter.Factor> term : filter.getTerms()) {
+                BitSet termMembers = (BitSet) included.clone();
+                for (PlayerFilter.Factor factor : term) {
+                    BitSet set = getSet(factor.setName(), now);
+                    if (factor.negated()) {
+                        termMembers.andNot(set);
+                    } else {
+                        termMembers.and(set);
+                    }
+                }
+                result.or(termMembers);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the included and excluded players with the players that were
+     * just loaded, and stores when the included players were last seen.
+     *
+     * @param lastPlayed the time (in unix-millis) each player was last seen,
+     *                   for the players for which this is known
+     */
+    public void setLoadedPlayers(@NotNull Collection<UUID> includedPlayers, @NotNull Collection<UUID> excludedPlayers,
+                                 @NotNull Map<UUID, Long> lastPlayed) {
+        synchronized (setLock) {
+            BitSet included = new BitSet(ordinals.size());
+            includedPlayers.forEach(uuid -> included.set(getOrCreateOrdinal(uuid)));
+            BitSet excluded = new BitSet();
+            excludedPlayers.forEach(uuid -> excluded.set(getOrCreateOrdinal(uuid)));
+            sets.put(INCLUDED, included);
+            sets.put(EXCLUDED, excluded);
+
+            lastPlayed.forEach((uuid, time) -> {
+                int ordinal = getOrCreateOrdinal(uuid);
+                if (time > lastSeen[ordinal]) {
+                    setLastSeen(ordinal, time);
+                }
+            });
+            activeSets.clear();
+        }
+    }
+
+    /**
+     * Moves a player between the included and excluded players.
+     */
+    public void setExcluded(@NotNull UUID uuid, boolean isExcluded) {
+        synchronized (setLock) {
+            int ordinal = getOrCreateOrdinal(uuid);
+            sets.get(INCLUDED).set(ordinal, !isExcluded);
+            sets.get(EXCLUDED).set(ordinal, isExcluded);
+        }
+    }
+
+    /**
+     * Adds a player that just joined to the online players and all active
+     * sets, and checks which player-sets from the config they are part of.
+     */
+    public void playerJoined(@NotNull Player player) {
+        List<String> addedEntries = new ArrayList<>();
+        List<String> removedEntries = new ArrayList<>();
+        synchronized (setLock) {
+            int ordinal = getOrCreateOrdinal(player.getUniqueId());
+            updateOnlinePlayer(player, ordinal, addedEntries, removedEntries);
+        }
+        super.queueListChanges(MEMBERS_KEY, addedEntries, removedEntries);
+    }
+
+    /**
+     * Rebuilds the whitelisted players on the next tick,
+     * after the whitelist-command that changes them has run.
+     */
+    public void whitelistChanged() {
+        Bukkit.getScheduler().runTask(Main.getPluginInstance(), () -> {
+            synchronized (setLock) {
+                sets.put(WHITELISTED, readWhitelist());
+            }
+        });
+    }
+
+    public void playerQuit(@NotNull Player player) {
+        synchronized (setLock) {
+            int ordinal = getOrCreateOrdinal(player.getUniqueId());
+            sets.get(ONLINE).clear(ordinal);
+            setLastSeen(ordinal, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Reads the player-sets from the config, and their members from the file.
+     */
+    private void loadPermissionSets() {
+        Map<String, String> configuredSets = new HashMap<>(ConfigHandler.getInstance().getPlayerSetPermissions());
+        configuredSets.keySet().removeIf(setName -> isBuiltInSet(setName) || !setName.matches("[a-z0-9_-]+"));
+
+        synchronized (setLock) {
+            permissionSetMembers.clear();
+            configuredSets.keySet().forEach(setName -> permissionSetMembers.put(setName, new BitSet()));
+
+            for (String entry : super.getFileConfiguration().getStringList(MEMBERS_KEY)) {
+                int separator = entry != null ? entry.lastIndexOf(':') : -1;
+                BitSet set = separator > 0 ? permissionSetMembers.get(entry.substring(0, separator)) : null;
+                if (set != null) {
+                    try {
+                        set.set(getOrCreateOrdinal(UUID.fromString(entry.substring(separator + 1))));
+                    } catch (IllegalArgumentException e) {
+                        MyLogger.logWarning("Skipping invalid entry in player_sets.yml: " + entry);
+                    }
+                }
+            }
+            permissionSets = configuredSets;
+        }
+    }
+
+    /**
+     * Rebuilds the online and whitelisted players from the server, and checks
+     * the player-sets of everyone that is online (on the main thread).
+     */
+    private void refreshFromServer() {
+        List<String> addedEntries = new ArrayList<>();
+        List<String> removedEntries = new ArrayList<>();
+        synchronized (setLock) {
+            sets.put(WHITELISTED, readWhitelist());
+            sets.put(ONLINE, new BitSet());
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                updateOnlinePlayer(player, getOrCreateOrdinal(player.getUniqueId()), addedEntries, removedEntries);
+            }
+            activeSets.clear();
+        }
+        super.queueListChanges(MEMBERS_KEY, addedEntries, removedEntries);
+    }
+
+    /**
+     * Reads the whitelisted players from the server (while holding the setLock).
+     */
+    private @NotNull BitSet readWhitelist() {
+        BitSet whitelisted = new BitSet();
+        for (OfflinePlayer player : Bukkit.getWhitelistedPlayers()) {
+            whitelisted.set(getOrCreateOrdinal(player.getUniqueId()));
+        }
+        return whitelisted;
+    }
+
+    /**
+     * Sets the bits of an online player, and collects the changes
+     * to their player-set membership that need to be written to the file.
+     */
+    private void updateOnlinePlayer(@NotNull Player player, int ordinal,
+                                    @NotNull List<String> addedEntries, @NotNull List<String> removedEntries) {
+        sets.get(ONLINE).set(ordinal);
+        sets.get(WHITELISTED).set(ordinal, player.isWhitelisted());
+        setLastSeen(ordinal, System.currentTimeMillis());
+        activeSets.values().forEach(activeSet -> activeSet.members().set(ordinal));
+
+        String entry = ":" + player.getUniqueId();
+        permissionSets.forEach((setName, permission) -> {
+            BitSet set = permissionSetMembers.get(setName);
+            boolean isMember = player.hasPermission(permission);
+            if (set != null && set.get(ordinal) != isMember) {
+                set.set(ordinal, isMember);
+                (isMember ? addedEntries : removedEntries).add(setName + entry);
+            }
+        });
+    }
+
+    /**
+     * Gets a set by its name, building the active set for this number of
+     * days if it is not there, or removing the days that it no longer covers.
+     */
+    private @NotNull BitSet getSet(@NotNull String setName, long now) {
+        int activeDays = getActiveDays(setName);
+        if (activeDays > 0) {
+            long sinceDay = Math.floorDiv(now, DAY_MILLIS) - activeDays;
+            ActiveSet activeSet = activeSets.get(activeDays);
+            if (activeSet == null) {
+                activeSet = buildActiveSet(activeDays, sinceDay);
+            } else if (activeSet.sinceDay() < sinceDay) {
+                activeSet = expireActiveSet(activeDays, activeSet, sinceDay);
+            }
+            return activeSet.members();
+        }
+        BitSet set = isBuiltInSet(setName) ? sets.get(setName) : permissionSetMembers.get(setName);
+        return set != null ? set : new BitSet();
+    }
+
+    private @NotNull ActiveSet buildActiveSet(int days, long sinceDay) {
+        //players that were seen again later are also in a later bucket, so they can be set twice
+        BitSet members = new BitSet(ordinals.size());
+        lastSeenDays.tailMap(sinceDay, true).values().forEach(bucket -> bucket.forEach(members::set));
+        members.or(sets.get(ONLINE));
+
+        if (activeSets.size() >= MAX_ACTIVE_SETS) {
+            activeSets.clear();
+        }
+        ActiveSet activeSet = new ActiveSet(members, sinceDay);
+        activeSets.put(days, activeSet);
+        return activeSet;
+    }
+
+    /**
+     * Removes the players that were last seen on the days
+     * before sinceDay from this active set.
+     */
+    private @NotNull ActiveSet expireActiveSet(int days, @NotNull ActiveSet activeSet, long sinceDay) {
+        BitSet members = activeSet.members();
+        BitSet online = sets.get(ONLINE);
+        lastSeenDays.subMap(activeSet.sinceDay(), true, sinceDay, false).values().forEach(bucket -> bucket.forEach(ordinal -> {
+            if (Math.floorDiv(lastSeen[ordinal], DAY_MILLIS) < sinceDay && !online.get(ordinal)) {
+                members.clear(ordinal);
+            }
+        }));
+        ActiveSet expiredSet = new ActiveSet(members, sinceDay);
+        activeSets.put(days, expiredSet);
+        return expiredSet;
+    }
+
+    /**
+     * Stores when this player was last seen, and adds them to the bucket
+     * of that day if they were not in it yet (while holding the setLock).
+     */
+    private void setLastSeen(int ordinal, long time) {
+        long previousDay = lastSeen[ordinal] > 0 ? Math.floorDiv(lastSeen[ordinal], DAY_MILLIS) : Long.MIN_VALUE;
+        lastSeen[ordinal] = time;
+        long day = Math.floorDiv(time, DAY_MILLIS);
+        if (time > 0 && day != previousDay) {
+            lastSeenDays.computeIfAbsent(day, key -> new DayBucket()).add(ordinal);
+        }
+    }
+
+    /**
+     * Gets the ordinal of this player, or gives them the next one
+     * if they don't have one yet (while holding the setLock).
+     */
+    private int getOrCreateOrdinal(@NotNull UUID uuid) {
+        Integer ordinal = ordinals.get(uuid);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        int newOrdinal = ordinals.size();
+        if (newOrdinal == lastSeen.length) {
+            long[] grown = new long[newOrdinal + (newOrdinal >> 1) + 1];
+            System.arraycopy(lastSeen, 0, grown, 0, newOrdinal);
+            lastSeen = grown;
+        }
+        ordinals.put(uuid, newOrdinal);
+        return newOrdinal;
+    }
+
+    /**
+     * @return the number of days of this active set, or 0 if it is not one
+     */
+    private static int getActiveDays(@NotNull String setName) {
+        Matcher matcher = ACTIVE_SET.matcher(setName);
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    private static boolean isBuiltInSet(@NotNull String setName) {
+        return BUILT_IN_SETS.contains(setName) || getActiveDays(setName) > 0;
+    }
+
+    /**
+     * The ordinals of the players that were last seen on one day. Players
+     * that are seen again on a later day are not removed from it, so
+     * readers have to check the last time they were seen.
+     */
+    private static final class DayBucket {
+
+        private int[] ordinals = new int[16];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size + (size >> 1) + 1);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        private void forEach(@NotNull IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(ordinals[i]);
+            }
+        }
+    }
+}
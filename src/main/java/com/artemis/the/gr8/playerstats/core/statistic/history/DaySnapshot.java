@@ -0,0 +1,249 @@
+package com.artemis.the.gr8.playerstats.core.statistic.history;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.core.multithreading.BaselineScan;
+
+/**
+ * Values of the approved stats for a number of players, as stored in one
+ * file. The file starts with a version number, the day the values belong to
+ * and the aliases of the approved stats, after which records are appended
+ * one player at a time: the UUID, followed by the number of non-zero values
+ * and a (distance to the previous alias-id, value) pair for each of them, all
+ * encoded as {@link VarInts}. A record that was cut off halfway (because the
+ * server stopped while it was being appended) is ignored.
+ *
+ * <p>The {@link StatHistory} uses this both for the changes of one day and
+ * for the full values at the latest snapshot. Since version 3, a snapshot has
+ * values for every player with a stats-file (see {@link BaselineScan}), so a
+ * player without a record had no stats yet. Snapshots of version 2 only have
+ * values for the players that were included when they were taken. The file is kept in memory as
+ * it is stored, and only the values of one alias at a time are decoded from it.
+ */
+final class DaySnapshot {
+
+    private static final int VERSION = 3;
+    private static final int INCLUDED_ONLY_VERSION = 2;
+
+    private final ByteBuffer buffer;
+    private final boolean coversAllPlayers;
+    private final LocalDate date;
+    private final String[] aliases;
+    private final int recordsStart;
+
+    private DaySnapshot(ByteBuffer buffer, boolean coversAllPlayers, LocalDate date, String[] aliases, int recordsStart) {
+        this.buffer = buffer;
+        this.coversAllPlayers = coversAllPlayers;
+        this.date = date;
+        this.aliases = aliases;
+        this.recordsStart = recordsStart;
+    }
+
+    /**
+     * @return the snapshot stored in this file
+     * @throws IOException if the file cannot be read, or is not a snapshot
+     */
+    static @NotNull DaySnapshot read(@NotNull Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            int version = buffer.getInt();
+            if (version != VERSION && version != INCLUDED_ONLY_VERSION) {
+                throw new IOException("Unknown snapshot version in " + file.getFileName());
+            }
+            LocalDate date = LocalDate.ofEpochDay(buffer.getLong());
+            String[] aliases = new String[VarInts.read(buffer)];
+            for (int i = 0; i < aliases.length; i++) {
+                byte[] alias = new byte[VarInts.read(buffer)];
+                buffer.get(alias);
+                aliases[i] = new String(alias, StandardCharsets.UTF_8);
+            }
+            return new DaySnapshot(buffer.asReadOnlyBuffer(), version == VERSION, date, aliases, buffer.position());
+        } catch (BufferUnderflowException | IllegalStateException e) {
+            throw new IOException("Incomplete snapshot header in " + file.getFileName());
+        }
+    }
+
+    /**
+     * Creates a new file with the header of a snapshot,
+     * to which the records can then be appended.
+     *
+     * @param date the day the values belong to
+     * @param aliases the aliases, in the order of the values
+     * @throws IOException if the file already exists, or cannot be written
+     */
+    static @NotNull Writer create(@NotNull Path file, @NotNull LocalDate date, @NotNull List<String> aliases) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+        try {
+            output.writeInt(VERSION);
+            output.writeLong(date.toEpochDay());
+            VarInts.write(output, aliases.size());
+            for (String alias : aliases) {
+                byte[] bytes = alias.getBytes(StandardCharsets.UTF_8);
+                VarInts.write(output, bytes.length);
+                output.write(bytes);
+            }
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+        return new Writer(output);
+    }
+
+    /**
+     * Appends records to a snapshot file, until it is closed.
+     */
+    static final class Writer implements Closeable {
+
+        private final DataOutputStream output;
+
+        private Writer(DataOutputStream output) {
+            this.output = output;
+        }
+
+        /**
+         * Appends the values of this player, or nothing if all of them are 0.
+         *
+         * @param values the value of each alias, in the order of the header
+         */
+        void append(@NotNull UUID uuid, int @NotNull [] values) throws IOException {
+            int nonZero = 0;
+            for (int value : values) {
+                if (value != 0) {
+                    nonZero++;
+                }
+            }
+            if (nonZero == 0) {
+                return;
+            }
+            output.writeLong(uuid.getMostSignificantBits());
+            output.writeLong(uuid.getLeastSignificantBits());
+            VarInts.write(output, nonZero);
+            int previousId = 0;
+            for (int id = 0; id < values.length; id++) {
+                if (values[id] != 0) {
+                    VarInts.write(output, id - previousId);
+                    VarInts.writeSigned(output, values[id]);
+                    previousId = id;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+
+    /**
+     * @return the day the values in this snapshot belong to
+     */
+    @NotNull LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * @return true if this snapshot was taken of every player with a stats-file,
+     * false if it only has values for the players that were included back then
+     */
+    boolean coversAllPlayers() {
+        return coversAllPlayers;
+    }
+
+    /**
+     * @return true if this snapshot has values for this alias
+     */
+    boolean contains(@NotNull String alias) {
+        return indexOf(alias) >= 0;
+    }
+
+    /**
+     * @return the value of every player with a non-zero value for this alias,
+     * or null if this snapshot has no values for this alias
+     */
+    @Nullable Map<UUID, Integer> getValues(@NotNull String alias) {
+        int aliasId = indexOf(alias);
+        if (aliasId < 0) {
+            return null;
+        }
+        Map<UUID, Integer> result = new HashMap<>();
+        forEachRecord((uuid, id, value) -> {
+            if (id == aliasId) {
+                result.put(uuid, value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @param aliases the aliases to get the values for
+     * @return the values of every player that has a non-zero value, by the
+     * index of the alias in the given list (0 for aliases this snapshot
+     * has no values for)
+     */
+    @NotNull Map<UUID, int[]> getValues(@NotNull List<String> aliases) {
+        int[] positions = new int[this.aliases.length];
+        for (int id = 0; id < this.aliases.length; id++) {
+            positions[id] = aliases.indexOf(this.aliases[id]);
+        }
+        Map<UUID, int[]> result = new HashMap<>();
+        forEachRecord((uuid, id, value) -> {
+            if (positions[id] >= 0) {
+                result.computeIfAbsent(uuid, key -> new int[aliases.size()])[positions[id]] = value;
+            }
+        });
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface ValueConsumer {
+        void accept(UUID uuid, int aliasId, int value);
+    }
+
+    private void forEachRecord(@NotNull ValueConsumer consumer) {
+        ByteBuffer records = buffer.duplicate();
+        records.position(recordsStart);
+        try {
+            while (records.hasRemaining()) {
+                UUID uuid = new UUID(records.getLong(), records.getLong());
+                int count = VarInts.read(records);
+                int id = 0;
+                for (int i = 0; i < count; i++) {
+                    id += VarInts.read(records);
+                    int value = VarInts.readSigned(records);
+                    if (id < aliases.length) {
+                        consumer.accept(uuid, id, value);
+                    }
+                }
+            }
+        } catch (BufferUnderflowException | IllegalStateException e) {
+            //the last record was cut off, everything before it is still usable
+        }
+    }
+
+    private int indexOf(@NotNull String alias) {
+        for (int i = 0; i < aliases.length; i++) {
+            if (aliases[i].equals(alias)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,342 @@
+package com.artemis.the.gr8.playerstats.core.statistic.history;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.RuntimeGeneration;
+import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
+import com.artemis.the.gr8.playerstats.core.multithreading.BackgroundThrottle;
+import com.artemis.the.gr8.playerstats.core.multithreading.BaselineScan;
+import com.artemis.the.gr8.playerstats.core.utils.Closable;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+import com.artemis.the.gr8.playerstats.core.utils.Reloadable;
+
+/**
+ * Keeps a history of the values of all approved stats, so Leaderboards can be
+ * limited to a {@link TimeWindow}: the value of a player within the window is
+ * their current value minus their value on the oldest day inside the window.
+ *
+ * <p>Once per day, the values of all approved stats are calculated in a single
+ * {@link BaselineScan}. Only the changes since the previous day are appended to
+ * a {@link DaySnapshot} file for that day, and the full values are kept in one
+ * state file. The value of a player on an earlier day is their value in the
+ * state file minus all changes after that day. Day files that are older than
+ * the stat-history-retention-days are deleted.
+ */
+public final class StatHistory implements Reloadable, Closable {
+
+    private static final String FOLDER_NAME = "history";
+    private static final String FILE_EXTENSION = ".snapshot";
+    private static final String STATE_FILE_NAME = "latest.state";
+    private static final long CHECK_INTERVAL_TICKS = 20L * 60 * 10;
+    private static final long FIRST_CHECK_TICKS = 20L * 60;
+
+    private static volatile StatHistory instance;
+
+    private final Path folder;
+    private final Path stateFile;
+    private final ConcurrentHashMap<LocalDate, DaySnapshot> snapshots;
+    private final ConcurrentHashMap<String, Baseline> baselines;
+    private final AtomicBoolean isTakingSnapshot;
+    private BukkitTask task;
+    private volatile @Nullable DaySnapshot state;
+    private volatile int retentionDays;
+
+    /**
+     * @param date the day these values come from
+     * @param values the value of every player with a non-zero value on that day
+     * @param coversAllPlayers true if players without a value had a value of 0
+     *                         on that day, false if their value is not known
+     *                         (because the history was taken of the included
+     *                         players only)
+     */
+    public record Baseline(LocalDate date, Map<UUID, Integer> values, boolean coversAllPlayers) {
+    }
+
+    private StatHistory() {
+        folder = Main.getPluginInstance().getDataFolder().toPath().resolve(FOLDER_NAME);
+        stateFile = folder.resolve(STATE_FILE_NAME);
+        snapshots = new ConcurrentHashMap<>();
+        baselines = new ConcurrentHashMap<>();
+        isTakingSnapshot = new AtomicBoolean(false);
+        reload();
+        Main.registerReloadable(this);
+        Main.registerClosable(this);
+    }
+
+    public static StatHistory getInstance() {
+        StatHistory localVar = instance;
+        if (localVar != null) {
+            return localVar;
+        }
+
+        synchronized (StatHistory.class) {
+            if (instance == null) {
+                instance = new StatHistory();
+            }
+            return instance;
+        }
+    }
+
+    @Override
+    public void reload() {
+        clearCaches();
+        retentionDays = ConfigHandler.getInstance().getStatHistoryRetentionDays();
+        if (retentionDays > 0 && task == null) {
+            task = Bukkit.getScheduler().runTaskTimerAsynchronously(Main.getPluginInstance(), this::takeSnapshotIfNeeded,
+                    FIRST_CHECK_TICKS, CHECK_INTERVAL_TICKS);
+        } else if (retentionDays <= 0 && task != null) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        clearCaches();
+    }
+
+    private void clearCaches() {
+        snapshots.clear();
+        baselines.clear();
+        state = null;
+    }
+
+    /**
+     * @return true if snapshots are being taken (stat-history-retention-days is above 0)
+     */
+    public boolean isEnabled() {
+        return retentionDays > 0;
+    }
+
+    /**
+     * Gets the values of this alias on the oldest day that is within this
+     * window. This reads files, so it should not be called from the main thread.
+     *
+     * @return the values, or null if there is no day
+     * within this window that has values for this alias
+     */
+    public @Nullable Baseline getBaseline(@NotNull String alias, @NotNull TimeWindow window) {
+        LocalDate today = LocalDate.now();
+        String key = alias + "@" + window.getName() + "@" + today;
+        Baseline cached = baselines.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        DaySnapshot currentState = getState();
+        if (currentState == null || !currentState.contains(alias)) {
+            return null;
+        }
+        LocalDate baselineDate = null;
+        List<DaySnapshot> laterDays = new ArrayList<>();
+        LocalDate from = today.minusDays(window.getDays());
+        if (from.isAfter(currentState.getDate())) {
+            return null;
+        }
+        for (Map.Entry<LocalDate, Path> entry : listSnapshotFiles().subMap(from, true, currentState.getDate(), true).entrySet()) {
+            DaySnapshot day = getSnapshot(entry.getKey(), entry.getValue());
+            if (day == null) {
+                continue;
+            }
+            if (baselineDate != null) {
+                laterDays.add(day);
+            } else if (day.contains(alias)) {
+                baselineDate = entry.getKey();
+            }
+        }
+        if (baselineDate == null) {
+            return null;
+        }
+
+        //the value on the baseline day is the latest value minus everything that changed after it
+        Map<UUID, Integer> values = currentState.getValues(alias);
+        for (DaySnapshot day : laterDays) {
+            Map<UUID, Integer> changes = day.getValues(alias);
+            if (changes != null) {
+                changes.forEach((uuid, change) -> values.merge(uuid, -change, Integer::sum));
+            }
+        }
+        if (currentState.coversAllPlayers()) {
+            //a missing player has a value of 0, so they don't need to be kept
+            values.values().removeIf(value -> value == 0);
+        }
+        Baseline baseline = new Baseline(baselineDate, values, currentState.coversAllPlayers());
+        baselines.put(key, baseline);
+        return baseline;
+    }
+
+    private @Nullable DaySnapshot getState() {
+        DaySnapshot currentState = state;
+        if (currentState == null && Files.exists(stateFile)) {
+            try {
+                currentState = DaySnapshot.read(stateFile);
+                state = currentState;
+            } catch (IOException e) {
+                MyLogger.logWarning("Could not read the statistic history: " + e.getMessage());
+            }
+        }
+        return currentState;
+    }
+
+    private @Nullable DaySnapshot getSnapshot(@NotNull LocalDate date, @NotNull Path file) {
+        DaySnapshot snapshot = snapshots.get(date);
+        if (snapshot == null) {
+            try {
+                snapshot = DaySnapshot.read(file);
+            } catch (IOException e) {
+                MyLogger.logWarning("Could not read the statistic history of " + date + ": " + e.getMessage());
+                return null;
+            }
+            snapshots.put(date, snapshot);
+        }
+        return snapshot;
+    }
+
+    private void takeSnapshotIfNeeded() {
+        if (!isTakingSnapshot.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDate today = LocalDate.now();
+            RuntimeGeneration generation = RuntimeGeneration.currentOrNull();
+            DaySnapshot currentState = getState();
+            //wait for a quieter moment if the server is struggling
+            if ((currentState == null || currentState.getDate().isBefore(today)) && generation != null &&
+                    BackgroundThrottle.getInstance().getLevel() == 0) {
+                takeSnapshot(generation, today, currentState);
+            }
+            deleteOldSnapshots(today);
+        } catch (IOException | RuntimeException e) {
+            MyLogger.logException(e, "StatHistory", "takeSnapshotIfNeeded");
+        } finally {
+            isTakingSnapshot.set(false);
+        }
+    }
+
+    /**
+     * Appends the changes since the previous snapshot to the file for today,
+     * and then replaces the state file with the current values. A file for
+     * today that is already there was cut off before its state was saved,
+     * so it is taken again.
+     */
+    private void takeSnapshot(@NotNull RuntimeGeneration generation, @NotNull LocalDate today,
+                              @Nullable DaySnapshot previousState) throws IOException {
+        long time = System.currentTimeMillis();
+        BaselineScan.Result result = BaselineScan.scan(generation);
+        List<String> aliases = List.of(result.aliases());
+        UUID[] players = result.players();
+        int[][] columns = result.columns();
+
+        Files.createDirectories(folder);
+        if (previousState == null) {
+            //without a state, the changes in the existing files cannot be used anymore
+            for (Path file : listSnapshotFiles().values()) {
+                Files.deleteIfExists(file);
+            }
+            snapshots.clear();
+        }
+
+        //stats that were not in the previous state start counting from today, and so do the
+        //players that were not in it, unless it was taken of every player with a stats-file
+        //(in which case they had no stats yet)
+        boolean newPlayersStartAtZero = previousState != null && previousState.coversAllPlayers();
+        Map<UUID, int[]> previousValues = previousState != null ? previousState.getValues(aliases) : Map.of();
+        boolean[] hasPreviousValues = new boolean[aliases.size()];
+        for (int a = 0; a < aliases.size(); a++) {
+            hasPreviousValues[a] = previousState != null && previousState.contains(aliases.get(a));
+        }
+
+        Path dayFile = folder.resolve(today + FILE_EXTENSION);
+        Files.deleteIfExists(dayFile);
+        snapshots.remove(today);
+        int[] values = new int[aliases.size()];
+        try (DaySnapshot.Writer writer = DaySnapshot.create(dayFile, today, aliases)) {
+            for (int p = 0; p < players.length; p++) {
+                int[] previous = previousValues.get(players[p]);
+                boolean startsToday = previous == null && !newPlayersStartAtZero;
+                for (int a = 0; a < aliases.size(); a++) {
+                    values[a] = hasPreviousValues[a] && !startsToday ? columns[a][p] - (previous != null ? previous[a] : 0) : 0;
+                }
+                writer.append(players[p], values);
+            }
+        }
+
+        Path tempFile = folder.resolve(STATE_FILE_NAME + ".tmp");
+        Files.deleteIfExists(tempFile);
+        try (DaySnapshot.Writer writer = DaySnapshot.create(tempFile, today, aliases)) {
+            for (int p = 0; p < players.length; p++) {
+                for (int a = 0; a < aliases.size(); a++) {
+                    values[a] = columns[a][p];
+                }
+                writer.append(players[p], values);
+            }
+        }
+        try {
+            Files.move(tempFile, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        state = null;
+        baselines.clear();
+        MyLogger.logLowLevelTask("Saved the statistic history of " + aliases.size() + " stats for " +
+                players.length + " players", time);
+    }
+
+    private void deleteOldSnapshots(@NotNull LocalDate today) throws IOException {
+        LocalDate oldestToKeep = today.minusDays(retentionDays);
+        for (Map.Entry<LocalDate, Path> entry : listSnapshotFiles().headMap(oldestToKeep, false).entrySet()) {
+            Files.deleteIfExists(entry.getValue());
+            snapshots.remove(entry.getKey());
+            baselines.clear();
+            MyLogger.logMediumLevelMsg(() -> "Deleted the statistic history of " + entry.getKey());
+        }
+    }
+
+    /**
+     * @return the snapshot files in the history folder, by date
+     */
+    private @NotNull TreeMap<LocalDate, Path> listSnapshotFiles() {
+        TreeMap<LocalDate, Path> files = new TreeMap<>();
+        if (!Files.isDirectory(folder)) {
+            return files;
+        }
+        try (Stream<Path> stream = Files.list(folder)) {
+            stream.forEach(file -> {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(FILE_EXTENSION)) {
+                    try {
+                        files.put(LocalDate.parse(fileName.substring(0, fileName.length() - FILE_EXTENSION.length())), file);
+                    } catch (DateTimeParseException ignored) {
+                        //not a snapshot
+                    }
+                }
+            });
+        } catch (IOException e) {
+            MyLogger.logWarning("Could not list the statistic history folder: " + e.getMessage());
+        }
+        return files;
+    }
+}
@@ -0,0 +1,46 @@
+package com.artemis.the.gr8.playerstats.core.statistic.history;
+
+import java.util.Locale;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A period that a Leaderboard can be limited to, counting back from today.
+ */
+public enum TimeWindow {
+    WEEK(7),
+    MONTH(30);
+
+    private final int days;
+
+    TimeWindow(int days) {
+        this.days = days;
+    }
+
+    /**
+     * @return the number of days this window goes back
+     */
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * @return the name to use for this window in commands
+     */
+    public @NotNull String getName() {
+        return name().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return the TimeWindow with this name, or null if there is none
+     */
+    public static @Nullable TimeWindow fromName(@NotNull String name) {
+        for (TimeWindow window : values()) {
+            if (window.getName().equalsIgnoreCase(name)) {
+                return window;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.artemis.the.gr8.playerstats.core.statistic.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes and reads ints with a variable length: 7 bits per byte, with the
+ * highest bit set on every byte except the last. Small numbers (such as the
+ * distance between two ids, or most statistic values) take up only one or
+ * two bytes instead of four. Values that can be negative are zigzag-encoded
+ * first, so small negative numbers stay small as well.
+ */
+final class VarInts {
+
+    private VarInts() {
+    }
+
+    static void write(@NotNull DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    static void writeSigned(@NotNull DataOutput output, int value) throws IOException {
+        write(output, (value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * @throws java.nio.BufferUnderflowException if the buffer ends in the middle of this value
+     * @throws IllegalStateException if the value is longer than 5 bytes
+     */
+    static int read(@NotNull ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    static int readSigned(@NotNull ByteBuffer buffer) {
+        int value = read(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,185 @@
+package com.artemis.the.gr8.playerstats.core.statistic.index;
+
+import java.util.Arrays;
+
+/**
+ * Stores the values of a single statistic for all players that have a value
+ * other than 0. The players are identified by their ordinal in the
+ * {@link StatIndex}, and are kept sorted, so a single value can be found
+ * with a binary search. The memory this list takes up only depends on the
+ * number of players with a non-zero value.
+ *
+ * <p>Readers never take a lock: they work on the arrays that were last
+ * published, which are never resized or reordered afterwards. Adding or
+ * removing a player publishes new arrays, while changing the value of a
+ * player that is already in the list writes that single value into the
+ * current array.
+ */
+public final class PostingList {
+
+    private static final Entries NO_ENTRIES = new Entries(new int[0], new int[0]);
+
+    private volatile Entries entries;
+
+    //only used while appending, until the values are published
+    private int[] appendedOrdinals;
+    private int[] appendedValues;
+    private int appendedSize;
+
+    PostingList() {
+        entries = NO_ENTRIES;
+    }
+
+    private record Entries(int[] ordinals, int[] values) {
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int ordinal, int value);
+    }
+
+    /**
+     * @return the number of players with a non-zero value
+     */
+    public int size() {
+        return entries.ordinals().length;
+    }
+
+    /**
+     * @param ordinal the ordinal of the player
+     * @return the value for this player, or 0 if there is none
+     */
+    public int get(int ordinal) {
+        Entries current = entries;
+        int index = Arrays.binarySearch(current.ordinals(), ordinal);
+        return index >= 0 ? current.values()[index] : 0;
+    }
+
+    /**
+     * Passes all non-zero values to the consumer, in order of ordinal.
+     */
+    public void forEach(EntryConsumer consumer) {
+        Entries current = entries;
+        int[] ordinals = current.ordinals();
+        int[] values = current.values();
+        for (int i = 0; i < ordinals.length; i++) {
+            consumer.accept(ordinals[i], values[i]);
+        }
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int value : entries.values()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * Adds a value for a player with a higher ordinal than all players that
+     * have been appended so far. Appended values are not visible to readers
+     * until {@link #publish()} is called.
+     */
+    synchronized void append(int ordinal, int value) {
+        if (appendedOrdinals == null) {
+            appendedOrdinals = new int[8];
+            appendedValues = new int[8];
+        } else if (appendedSize == appendedOrdinals.length) {
+            int newLength = appendedSize + (appendedSize >> 1) + 1;
+            appendedOrdinals = Arrays.copyOf(appendedOrdinals, newLength);
+            appendedValues = Arrays.copyOf(appendedValues, newLength);
+        }
+        appendedOrdinals[appendedSize] = ordinal;
+        appendedValues[appendedSize] = value;
+        appendedSize++;
+    }
+
+    /**
+     * Makes the appended values visible to readers, replacing
+     * everything this list contained before.
+     */
+    synchronized void publish() {
+        if (appendedOrdinals != null) {
+            entries = new Entries(Arrays.copyOf(appendedOrdinals, appendedSize), Arrays.copyOf(appendedValues, appendedSize));
+            appendedOrdinals = null;
+            appendedValues = null;
+            appendedSize = 0;
+        }
+    }
+
+    /**
+     * Sets the value for a player, adding or removing
+     * the player from this list where needed.
+     */
+    synchronized void set(int ordinal, int value) {
+        Entries current = entries;
+        int[] ordinals = current.ordinals();
+        int[] values = current.values();
+        int index = Arrays.binarySearch(ordinals, ordinal);
+        if (index >= 0) {
+            if (value != 0) {
+                values[index] = value;
+                entries = current;
+            } else {
+                int[] newOrdinals = new int[ordinals.length - 1];
+                int[] newValues = new int[values.length - 1];
+                System.arraycopy(ordinals, 0, newOrdinals, 0, index);
+                System.arraycopy(values, 0, newValues, 0, index);
+                System.arraycopy(ordinals, index + 1, newOrdinals, index, ordinals.length - index - 1);
+                System.arraycopy(values, index + 1, newValues, index, values.length - index - 1);
+                entries = new Entries(newOrdinals, newValues);
+            }
+        } else if (value != 0) {
+            int insertAt = -index - 1;
+            int[] newOrdinals = new int[ordinals.length + 1];
+            int[] newValues = new int[values.length + 1];
+            System.arraycopy(ordinals, 0, newOrdinals, 0, insertAt);
+            System.arraycopy(values, 0, newValues, 0, insertAt);
+            newOrdinals[insertAt] = ordinal;
+            newValues[insertAt] = value;
+            System.arraycopy(ordinals, insertAt, newOrdinals, insertAt + 1, ordinals.length - insertAt);
+            System.arraycopy(values, insertAt, newValues, insertAt + 1, values.length - insertAt);
+            entries = new Entries(newOrdinals, newValues);
+        }
+    }
+
+    /**
+     * @return a new list with, for every player, the sum of
+     * their value in this list and in the other list
+     */
+    PostingList plus(PostingList other) {
+        Entries left = entries;
+        Entries right = other.entries;
+        int[] leftOrdinals = left.ordinals();
+        int[] leftValues = left.values();
+        int[] rightOrdinals = right.ordinals();
+        int[] rightValues = right.values();
+
+        int[] ordinals = new int[leftOrdinals.length + rightOrdinals.length];
+        int[] values = new int[ordinals.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < leftOrdinals.length || j < rightOrdinals.length) {
+            if (j == rightOrdinals.length || (i < leftOrdinals.length && leftOrdinals[i] < rightOrdinals[j])) {
+                ordinals[size] = leftOrdinals[i];
+                values[size++] = leftValues[i++];
+            } else if (i == leftOrdinals.length || rightOrdinals[j] < leftOrdinals[i]) {
+                ordinals[size] = rightOrdinals[j];
+                values[size++] = rightValues[j++];
+            } else {
+                int sum = leftValues[i] + rightValues[j];
+                if (sum != 0) {
+                    ordinals[size] = leftOrdinals[i];
+                    values[size++] = sum;
+                }
+                i++;
+                j++;
+            }
+        }
+
+        PostingList result = new PostingList();
+        result.entries = new Entries(Arrays.copyOf(ordinals, size), Arrays.copyOf(values, size));
+        return result;
+    }
+}
@@ -0,0 +1,411 @@
+package com.artemis.the.gr8.playerstats.core.statistic.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Statistic;
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.multithreading.BackgroundThrottle;
+import com.artemis.the.gr8.playerstats.core.msg.msgutils.LanguageKeyHandler;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+
+/**
+ * An in-memory index of the statistics of all players, built by reading
+ * every stats-file once when PlayerStats starts up. For every statistic
+ * that at least one player has, the index keeps a {@link PostingList} with
+ * only the players that have a non-zero value for it. Stat calculations
+ * can then skip all the players that have never done something, instead
+ * of asking Bukkit for their value.
+ *
+ * <p>Players that are online (or that have been online since their file was
+ * last read) are marked as live: their values in the index can be outdated,
+ * so they should be looked up through Bukkit instead. When a live player
+ * quits, their stats-file is read again and they stop being live. Players
+ * that quit while the index is still being built are read again once it is done.
+ *
+ * <p>The totals of aggregate components with a material filter are merged
+ * from the lists of their Materials once, and are then kept up-to-date
+ * whenever the stats-file of a player is read again.
+ */
+public final class StatIndex {
+
+    private static final int ROUND_SIZE = 8192; //Number of stats-files read before their values are added
+    private static final int CHUNK_SIZE = 256; //Number of stats-files read by one task
+
+    private static volatile StatIndex instance;
+    private static final PostingList EMPTY_LIST = new PostingList();
+
+    private final @Nullable Path statsFolder;
+    private final ConcurrentHashMap<UUID, Integer> ordinals;
+    private final List<UUID> players;
+    private final ConcurrentHashMap<String, PostingList> postingLists;
+    private final ConcurrentHashMap<ApprovedStat.StatComponent, PostingList> aggregateLists;
+    private final ConcurrentHashMap<UUID, Player> livePlayers;
+    private final ConcurrentHashMap<ApprovedStat.StatComponent, List<String>> componentKeys;
+    //players whose stats-file should be read again when the index is ready (guarded by itself)
+    private final Set<UUID> pendingRefreshes;
+    private volatile boolean isReady;
+
+    private StatIndex() {
+        statsFolder = getStatsFolder();
+        ordinals = new ConcurrentHashMap<>();
+        players = new ArrayList<>();
+        postingLists = new ConcurrentHashMap<>();
+        aggregateLists = new ConcurrentHashMap<>();
+        livePlayers = new ConcurrentHashMap<>();
+        componentKeys = new ConcurrentHashMap<>();
+        pendingRefreshes = new HashSet<>();
+        isReady = false;
+
+        Bukkit.getOnlinePlayers().forEach(player -> livePlayers.put(player.getUniqueId(), player));
+        Bukkit.getScheduler().runTaskAsynchronously(Main.getPluginInstance(), this::build);
+    }
+
+    public static StatIndex getInstance() {
+        StatIndex localVar = instance;
+        if (localVar != null) {
+            return localVar;
+        }
+
+        synchronized (StatIndex.class) {
+            if (instance == null) {
+                instance = new StatIndex();
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * @return true if all stats-files have been read
+     */
+    public boolean isReady() {
+        return isReady;
+    }
+
+    /**
+     * @return the number of ordinals that have been handed out so far
+     * (all ordinals are smaller than this number)
+     */
+    public int size() {
+        synchronized (players) {
+            return players.size();
+        }
+    }
+
+    /**
+     * @param uuid the UUID of the player
+     * @return the ordinal of this player in the index,
+     * or -1 if this player has no stats-file
+     */
+    public int getOrdinal(@NotNull UUID uuid) {
+        Integer ordinal = ordinals.get(uuid);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * @param uuid the UUID of the player
+     * @return true if the values of this player in the index might be outdated
+     */
+    public boolean isLive(@NotNull UUID uuid) {
+        return livePlayers.containsKey(uuid);
+    }
+
+    /**
+     * @param uuid the UUID of the player
+     * @return the Player object this player was marked as live with,
+     * or null if this player is not live
+     */
+    public @Nullable Player getLivePlayer(@NotNull UUID uuid) {
+        return livePlayers.get(uuid);
+    }
+
+    public void markLive(@NotNull Player player) {
+        livePlayers.put(player.getUniqueId(), player);
+    }
+
+    /**
+     * @param component the StatComponent to get the values for
+     * @return the PostingList with all non-zero values for this component
+     * (which is empty if no player has a value for it), or null if this
+     * component cannot be looked up in the index. For an aggregate component
+     * with a material filter, this is the maintained list with the totals.
+     */
+    public @Nullable PostingList getPostingList(@NotNull ApprovedStat.StatComponent component) {
+        List<String> keys = getKeys(component);
+        if (keys == null) {
+            return null;
+        }
+        if (keys.size() == 1) {
+            return postingLists.getOrDefault(keys.get(0), EMPTY_LIST);
+        }
+
+        PostingList aggregateList = aggregateLists.get(component);
+        if (aggregateList == null) {
+            //refreshPlayer updates the aggregate lists under the same lock,
+            //so no update can get lost while a new list is being merged
+            synchronized (aggregateLists) {
+                aggregateList = aggregateLists.computeIfAbsent(component, key -> merge(keys));
+            }
+        }
+        return aggregateList;
+    }
+
+    /**
+     * @param uuid the UUID of the player
+     * @param component the StatComponent to get the value of
+     * @return the value of this component for this player if it can be
+     * looked up in the index, or null if the index is not ready, the player
+     * is live, or this component cannot be looked up in the index
+     */
+    public @Nullable Integer getIndexedValue(@NotNull UUID uuid, @NotNull ApprovedStat.StatComponent component) {
+        if (!isReady || isLive(uuid)) {
+            return null;
+        }
+        PostingList list = getPostingList(component);
+        if (list == null) {
+            return null;
+        }
+        int ordinal = getOrdinal(uuid);
+        return ordinal >= 0 ? list.get(ordinal) : 0;
+    }
+
+    /**
+     * Reads the current contents of the stats-file of this player, without
+     * storing anything in the index. This should not be called from the main thread.
+     *
+     * @param uuid the UUID of the player
+     * @return the values from the stats-file, to use with {@link #getValue(Map, ApprovedStat.StatComponent)}
+     */
+    public @NotNull Map<String, Integer> readStats(@NotNull UUID uuid) {
+        if (statsFolder == null) {
+            return Collections.emptyMap();
+        }
+        return StatsFileReader.read(statsFolder.resolve(uuid + ".json"));
+    }
+
+    /**
+     * @param stats the values from {@link #readStats(UUID)}
+     * @param component the StatComponent to get the value of
+     * @return the value of this component, or 0 if it cannot be found
+     */
+    public int getValue(@NotNull Map<String, Integer> stats, @NotNull ApprovedStat.StatComponent component) {
+        List<String> keys = getKeys(component);
+        if (keys == null) {
+            return 0;
+        }
+        int value = 0;
+        for (String key : keys) {
+            value += stats.getOrDefault(key, 0);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the stats-file for this player again, and updates their values
+     * in the index. If the player is not online anymore, they stop being live.
+     * If the index is not ready yet, this happens as soon as it is.
+     * This should not be called from the main thread.
+     *
+     * @param uuid the UUID of the player
+     */
+    public void refreshPlayer(@NotNull UUID uuid) {
+        if (statsFolder == null) {
+            return;
+        }
+        if (!isReady) {
+            synchronized (pendingRefreshes) {
+                if (!isReady) {
+                    pendingRefreshes.add(uuid);
+                    return;
+                }
+            }
+        }
+        Map<String, Integer> stats = StatsFileReader.read(statsFolder.resolve(uuid + ".json"));
+        int ordinal = getOrAddOrdinal(uuid);
+
+        postingLists.forEach((key, list) -> {
+            if (!stats.containsKey(key)) {
+                list.set(ordinal, 0);
+            }
+        });
+        stats.forEach((key, value) -> postingLists.computeIfAbsent(key, k -> new PostingList()).set(ordinal, value));
+        synchronized (aggregateLists) {
+            aggregateLists.forEach((component, list) -> list.set(ordinal, getValue(stats, component)));
+        }
+
+        Player player = livePlayers.get(uuid);
+        if (player != null && !player.isOnline()) {
+            livePlayers.remove(uuid, player);
+        }
+        MyLogger.logHighLevelMsg("Updated indexed statistics for player " + uuid);
+    }
+
+    /**
+     * Lists the players that have a stats-file, which are all players that
+     * have ever joined (including the ones that are not included in statistic
+     * calculations). This reads the stats-folder, so it should not be called
+     * from the main thread.
+     */
+    public @NotNull List<UUID> listPlayersWithStats() {
+        if (statsFolder == null || !Files.isDirectory(statsFolder)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(statsFolder)) {
+            return stream.filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .map(StatIndex::getUUIDFromFileName)
+                    .filter(Objects::nonNull)
+                    .toList();
+        } catch (IOException e) {
+            MyLogger.logWarning("Could not list the stats-folder: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void build() {
+        if (statsFolder == null || !Files.isDirectory(statsFolder)) {
+            MyLogger.logWarning("Could not find the stats-folder, statistics will not be indexed");
+            return;
+        }
+        long time = System.currentTimeMillis();
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(statsFolder)) {
+            files = stream.filter(file -> file.getFileName().toString().endsWith(".json")).toList();
+        } catch (IOException e) {
+            MyLogger.logWarning("Could not list the stats-folder, statistics will not be indexed");
+            return;
+        }
+
+        //the files are read in parallel (through the BackgroundThrottle), one round at a time,
+        //and appended in order, so the values of only one round are kept in memory at once
+        BackgroundThrottle throttle = BackgroundThrottle.getInstance();
+        for (int roundStart = 0; roundStart < files.size(); roundStart += ROUND_SIZE) {
+            List<Path> round = files.subList(roundStart, Math.min(roundStart + ROUND_SIZE, files.size()));
+            PlayerStats[] roundStats = new PlayerStats[round.size()];
+            throttle.forEachChunk(round.size(), CHUNK_SIZE, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    UUID uuid = getUUIDFromFileName(round.get(i));
+                    roundStats[i] = uuid == null ? null : new PlayerStats(uuid, StatsFileReader.read(round.get(i)));
+                }
+            });
+            for (PlayerStats playerStats : roundStats) {
+                if (playerStats != null) {
+                    int ordinal = getOrAddOrdinal(playerStats.uuid());
+                    playerStats.values().forEach((key, value) ->
+                            postingLists.computeIfAbsent(key, k -> new PostingList()).append(ordinal, value));
+                }
+            }
+        }
+        postingLists.values().forEach(PostingList::publish);
+        List<UUID> pending;
+        synchronized (pendingRefreshes) {
+            isReady = true;
+            pending = new ArrayList<>(pendingRefreshes);
+            pendingRefreshes.clear();
+        }
+        //players that quit during the build can have been read before they quit
+        pending.forEach(this::refreshPlayer);
+
+        long valueCount = postingLists.values().stream().mapToLong(PostingList::size).sum();
+        MyLogger.logLowLevelTask("Indexed " + valueCount + " non-zero statistics for " + size() +
+                " players in " + postingLists.size() + " lists", time);
+    }
+
+    private record PlayerStats(UUID uuid, Map<String, Integer> values) {
+    }
+
+    private @NotNull PostingList merge(@NotNull List<String> keys) {
+        PostingList merged = new PostingList();
+        for (String key : keys) {
+            PostingList list = postingLists.get(key);
+            if (list != null) {
+                merged = merged.plus(list);
+            }
+        }
+        return merged;
+    }
+
+    private int getOrAddOrdinal(@NotNull UUID uuid) {
+        return ordinals.computeIfAbsent(uuid, key -> {
+            synchronized (players) {
+                players.add(key);
+                return players.size() - 1;
+            }
+        });
+    }
+
+    /**
+     * @return the keys of all values that add up to the value of this component,
+     * or null if it cannot be found in a stats-file
+     */
+    private @Nullable List<String> getKeys(@NotNull ApprovedStat.StatComponent component) {
+        List<String> keys = componentKeys.get(component);
+        if (keys == null) {
+            keys = createKeys(component);
+            if (keys == null) {
+                return null;
+            }
+            componentKeys.put(component, keys);
+        }
+        return keys;
+    }
+
+    private @Nullable List<String> createKeys(@NotNull ApprovedStat.StatComponent component) {
+        String statisticId = LanguageKeyHandler.getInstance().getStatisticId(component.statistic());
+        if (component.type() == Statistic.Type.UNTYPED) {
+            return List.of(StatsFileReader.getKey(StatsFileReader.CUSTOM_CATEGORY, statisticId));
+        }
+        else if (component.isAggregate()) {
+            if (component.materialFilter() == null) {
+                return List.of(StatsFileReader.getTotalKey(statisticId));
+            }
+            return component.materialFilter().stream()
+                    .map(material -> StatsFileReader.getKey(statisticId, material.getKey().toString()))
+                    .toList();
+        }
+        else if (component.material() != null) {
+            return List.of(StatsFileReader.getKey(statisticId, component.material().getKey().toString()));
+        }
+        else if (component.entityType() != EntityType.UNKNOWN) {
+            return List.of(StatsFileReader.getKey(statisticId, component.entityType().getKey().toString()));
+        }
+        return null;
+    }
+
+    private static @Nullable UUID getUUIDFromFileName(@NotNull Path file) {
+        String fileName = file.getFileName().toString();
+        try {
+            return UUID.fromString(fileName.substring(0, fileName.length() - ".json".length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable Path getStatsFolder() {
+        List<World> worlds = Bukkit.getWorlds();
+        if (worlds.isEmpty()) {
+            return null;
+        }
+        return new File(worlds.get(0).getWorldFolder(), "stats").toPath();
+    }
+}
@@ -0,0 +1,85 @@
+package com.artemis.the.gr8.playerstats.core.statistic.index;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Reads the stats-files Minecraft stores for every player
+ * (world/stats/[uuid].json) without going through Bukkit.
+ */
+final class StatsFileReader {
+
+    /** The category that holds all untyped statistics, which are never added up */
+    static final String CUSTOM_CATEGORY = "minecraft:custom";
+
+    private StatsFileReader() {
+    }
+
+    /**
+     * @param file the stats-file to read
+     * @return all non-zero values in this file, stored under the key
+     * from {@link #getKey(String, String)}, and the total of every
+     * typed category under the key from {@link #getTotalKey(String)}.
+     * If the file doesn't exist or cannot be read, the map is empty.
+     */
+    static @NotNull Map<String, Integer> read(@NotNull Path file) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObject stats = JsonParser.parseReader(reader).getAsJsonObject().getAsJsonObject("stats");
+            if (stats == null) {
+                return Collections.emptyMap();
+            }
+
+            Map<String, Integer> values = new HashMap<>();
+            for (Map.Entry<String, JsonElement> category : stats.entrySet()) {
+                int total = 0;
+                for (Map.Entry<String, JsonElement> entry : category.getValue().getAsJsonObject().entrySet()) {
+                    int value = entry.getValue().getAsInt();
+                    if (value != 0) {
+                        values.put(getKey(category.getKey(), entry.getKey()), value);
+                        total += value;
+                    }
+                }
+                if (total != 0 && !category.getKey().equals(CUSTOM_CATEGORY)) {
+                    values.put(getTotalKey(category.getKey()), total);
+                }
+            }
+            return values;
+        } catch (NoSuchFileException e) {
+            return Collections.emptyMap();
+        } catch (IOException | RuntimeException e) {
+            MyLogger.logMediumLevelMsg("Could not read stats-file " + file.getFileName() + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * @param category the category of the statistic (such as "minecraft:mined")
+     * @param entry the entry within that category (such as "minecraft:stone")
+     * @return the key under which the value of this statistic is stored
+     */
+    static @NotNull String getKey(@NotNull String category, @NotNull String entry) {
+        return category + "/" + entry;
+    }
+
+    /**
+     * @param category the category of the statistic (such as "minecraft:mined")
+     * @return the key under which the total of all entries in this category is stored
+     */
+    static @NotNull String getTotalKey(@NotNull String category) {
+        return category + "/*";
+    }
+}
@@ -0,0 +1,81 @@
+package com.artemis.the.gr8.playerstats.core.statistic.index;
+
+import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+import org.jetbrains.annotations.NotNull;
+
+import com.artemis.the.gr8.playerstats.core.config.ApprovedStat;
+import com.artemis.the.gr8.playerstats.core.utils.EnumHandler;
+
+/**
+ * Gets the value of aggregate StatComponents (the total of all, or a filtered
+ * set of, sub-statistics of a BLOCK, ITEM or ENTITY statistic). Bukkit has no
+ * way to get such a total, so for players that are offline, the total is taken
+ * from the {@link StatIndex}, which keeps these totals up-to-date. Only if the
+ * index cannot be used yet is their stats-file read, and only for online players
+ * (whose stats-file is not up-to-date) is Bukkit asked for every sub-statistic
+ * separately. Because that takes a call for every Material or EntityType, the
+ * OnlineStatSampler does not sample stats with an aggregate component on the
+ * main thread.
+ */
+public final class SubStatTotals {
+
+    private SubStatTotals() {
+    }
+
+    /**
+     * This should not be called from the main thread.
+     *
+     * @param player the player to get the value for
+     * @param component an aggregate StatComponent
+     * @return the total value for this player
+     */
+    public static int getValue(@NotNull OfflinePlayer player, @NotNull ApprovedStat.StatComponent component) {
+        if (!component.isAggregate()) {
+            throw new IllegalArgumentException("StatComponent " + component + " is not an aggregate");
+        }
+        if (!player.isOnline()) {
+            StatIndex statIndex = StatIndex.getInstance();
+            Integer indexedValue = statIndex.getIndexedValue(player.getUniqueId(), component);
+            if (indexedValue != null) {
+                return indexedValue;
+            }
+            return statIndex.getValue(statIndex.readStats(player.getUniqueId()), component);
+        }
+
+        Statistic statistic = component.statistic();
+        EnumHandler enumHandler = EnumHandler.getInstance();
+        int total = 0;
+        if (component.type() == Statistic.Type.ENTITY) {
+            for (EntityType entityType : enumHandler.getAllLivingEntities()) {
+                total += getStatistic(player, statistic, entityType);
+            }
+        } else {
+            Iterable<Material> materials = component.materialFilter() != null ? component.materialFilter() :
+                    component.type() == Statistic.Type.BLOCK ? enumHandler.getAllBlocks() : enumHandler.getAllItems();
+            for (Material material : materials) {
+                total += getStatistic(player, statistic, material);
+            }
+        }
+        return total;
+    }
+
+    private static int getStatistic(@NotNull OfflinePlayer player, @NotNull Statistic statistic, @NotNull Material material) {
+        try {
+            return player.getStatistic(statistic, material);
+        } catch (IllegalArgumentException e) {
+            //not every block or item has every statistic
+            return 0;
+        }
+    }
+
+    private static int getStatistic(@NotNull OfflinePlayer player, @NotNull Statistic statistic, @NotNull EntityType entityType) {
+        try {
+            return player.getStatistic(statistic, entityType);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+}
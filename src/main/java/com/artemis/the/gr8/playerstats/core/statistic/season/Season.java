@@ -0,0 +1,240 @@
+package com.artemis.the.gr8.playerstats.core.statistic.season;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.core.multithreading.BaselineScan;
+
+/**
+ * A competitive season: the value of every approved stat for every player
+ * at the moment the season started. Season top lists rank players by their
+ * current value minus this baseline.
+ *
+ * <p>The baseline is stored in a file with fixed-size fields, so it can be
+ * memory-mapped and read without loading it onto the heap: a header with the
+ * name, start time and aliases, then the UUIDs of all players (sorted, so a
+ * player can be found with a binary search), and then one column of values
+ * per alias, with one int for every player.
+ *
+ * <p>Since version 2, a season has a baseline for every player that had a
+ * stats-file when it started (including the players that were not included
+ * in statistic calculations back then), so a player without a baseline has
+ * earned everything since the season started. Seasons of version 1 only have
+ * a baseline for the players that were included, so players without one are
+ * left out of their top lists.
+ */
+public final class Season {
+
+    private static final int VERSION = 2;
+    private static final int INCLUDED_ONLY_VERSION = 1;
+    private static final int UUID_BYTES = 16;
+
+    private final String name;
+    private final boolean coversAllPlayers;
+    private final long startedAt;
+    private final String[] aliases;
+    private final int playerCount;
+    private final ByteBuffer buffer;
+    private final int playersStart;
+    private final int valuesStart;
+
+    private Season(String name, boolean coversAllPlayers, long startedAt, String[] aliases, int playerCount,
+                   ByteBuffer buffer, int playersStart) {
+        this.name = name;
+        this.coversAllPlayers = coversAllPlayers;
+        this.startedAt = startedAt;
+        this.aliases = aliases;
+        this.playerCount = playerCount;
+        this.buffer = buffer;
+        this.playersStart = playersStart;
+        this.valuesStart = playersStart + playerCount * UUID_BYTES;
+    }
+
+    /**
+     * Reads only the start time from the header of this season file,
+     * without mapping the rest of it.
+     *
+     * @throws IOException if the file cannot be read, or is not a season
+     */
+    static long readStartedAt(@NotNull Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("Incomplete season file " + file.getFileName());
+                }
+            }
+        }
+        header.flip();
+        int version = header.getInt();
+        if (version != VERSION && version != INCLUDED_ONLY_VERSION) {
+            throw new IOException("Unknown season version in " + file.getFileName());
+        }
+        return header.getLong();
+    }
+
+    /**
+     * Maps this season file into memory. The mapping is released once
+     * the returned season is no longer referenced.
+     *
+     * @throws IOException if the file cannot be read, or is not a season
+     */
+    static @NotNull Season open(@NotNull Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            int version = buffer.getInt();
+            if (version != VERSION && version != INCLUDED_ONLY_VERSION) {
+                throw new IOException("Unknown season version in " + file.getFileName());
+            }
+            long startedAt = buffer.getLong();
+            String name = readString(buffer);
+            String[] aliases = new String[buffer.getInt()];
+            for (int i = 0; i < aliases.length; i++) {
+                aliases[i] = readString(buffer);
+            }
+            int playerCount = buffer.getInt();
+            Season season = new Season(name, version == VERSION, startedAt, aliases, playerCount, buffer, buffer.position());
+            if ((long) season.valuesStart + (long) aliases.length * playerCount * Integer.BYTES > buffer.limit()) {
+                throw new IOException("Incomplete season file " + file.getFileName());
+            }
+            return season;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Incomplete season file " + file.getFileName());
+        }
+    }
+
+    /**
+     * Writes the result of a BaselineScan to a temporary file first,
+     * and then moves it to this file.
+     */
+    static void write(@NotNull Path file, @NotNull String name, long startedAt, @NotNull BaselineScan.Result result) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                output.writeInt(VERSION);
+                output.writeLong(startedAt);
+                writeString(output, name);
+                output.writeInt(result.aliases().length);
+                for (String alias : result.aliases()) {
+                    writeString(output, alias);
+                }
+                output.writeInt(result.players().length);
+                for (UUID uuid : result.players()) {
+                    output.writeLong(uuid.getMostSignificantBits());
+                    output.writeLong(uuid.getLeastSignificantBits());
+                }
+                for (int[] column : result.columns()) {
+                    for (int value : column) {
+                        output.writeInt(value);
+                    }
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * @return the time (in unix-millis) at which this season started
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @return the number of players that have a baseline in this season
+     */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * @return the index of the baseline column for this alias, or -1 if this
+     * alias was not an approved stat when this season started
+     */
+    public int indexOf(@NotNull String alias) {
+        for (int i = 0; i < aliases.length; i++) {
+            if (aliases[i].equals(alias)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param aliasIndex the index of the column from {@link #indexOf(String)}
+     * @param uuid the UUID of the player
+     * @return the value of this player at the start of this season, 0 if they
+     * did not exist yet, or null if their value at the start is not known
+     * (because this season only has baselines for the included players)
+     */
+    public @Nullable Integer getBaselineValue(int aliasIndex, @NotNull UUID uuid) {
+        int playerIndex = findPlayer(uuid);
+        if (playerIndex < 0) {
+            return coversAllPlayers ? 0 : null;
+        }
+        return buffer.getInt(valuesStart + (aliasIndex * playerCount + playerIndex) * Integer.BYTES);
+    }
+
+    private int findPlayer(@NotNull UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        int low = 0;
+        int high = playerCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = playersStart + mid * UUID_BYTES;
+            //the same order the BaselineScan sorted the players in
+            int comparison = Long.compare(buffer.getLong(offset), most);
+            if (comparison == 0) {
+                comparison = Long.compare(buffer.getLong(offset + Long.BYTES), least);
+            }
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static void writeString(@NotNull DataOutputStream output, @NotNull String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    private static @NotNull String readString(@NotNull ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
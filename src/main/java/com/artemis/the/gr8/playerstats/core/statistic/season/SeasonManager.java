@@ -0,0 +1,167 @@
+package com.artemis.the.gr8.playerstats.core.statistic.season;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.artemis.the.gr8.playerstats.core.Main;
+import com.artemis.the.gr8.playerstats.core.RuntimeGeneration;
+import com.artemis.the.gr8.playerstats.core.multithreading.BaselineScan;
+import com.artemis.the.gr8.playerstats.core.utils.Closable;
+import com.artemis.the.gr8.playerstats.core.utils.MyLogger;
+import com.artemis.the.gr8.playerstats.core.utils.Reloadable;
+
+/**
+ * Keeps track of the current {@link Season}. Every season is stored in its
+ * own file in the seasons-folder, and the one that started last is the
+ * current season. Starting a new season never changes the vanilla statistics,
+ * it only stores a new baseline to count from.
+ */
+public final class SeasonManager implements Reloadable, Closable {
+
+    private static final String FOLDER_NAME = "seasons";
+    private static final String FILE_EXTENSION = ".season";
+    private static final Pattern VALID_NAME = Pattern.compile("[a-zA-Z0-9_-]{1,32}");
+
+    private static volatile SeasonManager instance;
+
+    private final Path folder;
+    private final AtomicBoolean isStarting;
+    private volatile @Nullable Season currentSeason;
+
+    private SeasonManager() {
+        folder = Main.getPluginInstance().getDataFolder().toPath().resolve(FOLDER_NAME);
+        isStarting = new AtomicBoolean(false);
+        currentSeason = loadLatestSeason();
+
+        Main.registerReloadable(this);
+        Main.registerClosable(this);
+    }
+
+    public static SeasonManager getInstance() {
+        SeasonManager localVar = instance;
+        if (localVar != null) {
+            return localVar;
+        }
+
+        synchronized (SeasonManager.class) {
+            if (instance == null) {
+                instance = new SeasonManager();
+            }
+            return instance;
+        }
+    }
+
+    @Override
+    public void reload() {
+        currentSeason = loadLatestSeason();
+    }
+
+    /**
+     * Drops the current season, so its file is no longer mapped
+     * once the last request that was using it has finished.
+     */
+    @Override
+    public void close() {
+        currentSeason = null;
+    }
+
+    /**
+     * @return the season that started last, or null if no season has been started
+     */
+    public @Nullable Season getCurrentSeason() {
+        return currentSeason;
+    }
+
+    /**
+     * @return true if this can be used as the name of a season
+     */
+    public static boolean isValidName(@NotNull String name) {
+        return VALID_NAME.matcher(name).matches();
+    }
+
+    /**
+     * @return true if a season with this name has been started before
+     */
+    public boolean exists(@NotNull String name) {
+        return Files.exists(folder.resolve(name + FILE_EXTENSION));
+    }
+
+    /**
+     * Starts a new season in the background: the value of every approved stat
+     * for every included player is calculated in one scan and stored as the
+     * baseline of the new season, which then becomes the current season.
+     *
+     * @param name a valid name that has not been used before
+     * @param onComplete called (on the main thread) with the new season,
+     *                   or with null if it could not be started
+     * @return false if another season is still being started
+     */
+    public boolean startSeason(@NotNull String name, @NotNull Consumer<@Nullable Season> onComplete) {
+        if (!isStarting.compareAndSet(false, true)) {
+            return false;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(Main.getPluginInstance(), () -> {
+            Season season = null;
+            try {
+                long time = System.currentTimeMillis();
+                BaselineScan.Result result = BaselineScan.scan(RuntimeGeneration.current());
+                Path file = folder.resolve(name + FILE_EXTENSION);
+                Files.createDirectories(folder);
+                Season.write(file, name, time, result);
+                season = Season.open(file);
+                currentSeason = season;
+                MyLogger.logLowLevelTask("Started season " + name + " with baselines for " +
+                        result.aliases().length + " stats and " + result.players().length + " players", time);
+            } catch (IOException | RuntimeException e) {
+                MyLogger.logException(e, "SeasonManager", "startSeason");
+            } finally {
+                isStarting.set(false);
+            }
+            Season startedSeason = season;
+            Bukkit.getScheduler().runTask(Main.getPluginInstance(), () -> onComplete.accept(startedSeason));
+        });
+        return true;
+    }
+
+    private @Nullable Season loadLatestSeason() {
+        if (!Files.isDirectory(folder)) {
+            return null;
+        }
+        //only read the start times, so just the latest season gets mapped
+        Path latestFile = null;
+        long latestStart = Long.MIN_VALUE;
+        try (Stream<Path> stream = Files.list(folder)) {
+            for (Path file : stream.filter(file -> file.getFileName().toString().endsWith(FILE_EXTENSION)).toList()) {
+                try {
+                    long startedAt = Season.readStartedAt(file);
+                    if (latestFile == null || startedAt > latestStart) {
+                        latestFile = file;
+                        latestStart = startedAt;
+                    }
+                } catch (IOException e) {
+                    MyLogger.logWarning("Could not read season file " + file.getFileName() + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            MyLogger.logWarning("Could not list the seasons folder: " + e.getMessage());
+        }
+        if (latestFile == null) {
+            return null;
+        }
+        try {
+            return Season.open(latestFile);
+        } catch (IOException e) {
+            MyLogger.logWarning("Could not read season file " + latestFile.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.artemis.the.gr8.playerstats.core.utils;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.artemis.the.gr8.playerstats.core.enums.DebugLevel;
+
+/**
+ * Collects what happens during one action that processes many players
+ * (a stat calculation or loading the offline players), so it can be logged
+ * as a summary when the action is finished, instead of once per player.
+ * Every ActionLog has its own set of thread names and counters, so actions
+ * that run at the same time do not interfere with each other.
+ */
+public final class ActionLog {
+
+    private final String actionName;
+    private final long startTime;
+    private final Set<String> threadNames;
+    private final ConcurrentHashMap<Occurrence, LongAdder> occurrences;
+
+    /**
+     * @param description what happened to the players, for example "had no value for"
+     * @param subject what it happened with, for example the StatComponent
+     * @param isWarning whether the summary should be logged as a warning
+     */
+    private record Occurrence(String description, Object subject, boolean isWarning) {
+    }
+
+    /**
+     * @param actionName the name to use for this action in the log
+     * @param taskLength the number of players this action processes
+     */
+    public ActionLog(@NotNull String actionName, int taskLength) {
+        this.actionName = actionName;
+        startTime = System.currentTimeMillis();
+        threadNames = ConcurrentHashMap.newKeySet();
+        occurrences = new ConcurrentHashMap<>();
+        MyLogger.logMediumLevelMsg(() -> actionName + " started for " + taskLength + " players. Processing...");
+    }
+
+    /**
+     * Remembers the name of the calling thread (if DebugLevel is
+     * MEDIUM or higher), to log how many threads were used.
+     */
+    public void threadUsed() {
+        if (MyLogger.isLoggable(DebugLevel.MEDIUM)) {
+            threadNames.add(Thread.currentThread().getName());
+        }
+    }
+
+    /**
+     * Counts one player for whom something expected happened, such as a
+     * statistic that Bukkit has no value for. The total is logged when
+     * this action is finished, if DebugLevel is MEDIUM or higher.
+     *
+     * @param description what happened, for example "had no value for component"
+     * @param subject what it happened with (only turned into a String
+     *                when the summary is logged)
+     */
+    public void count(@NotNull String description, @NotNull Object subject) {
+        add(new Occurrence(description, subject, false));
+    }
+
+    /**
+     * Counts one player for whom something unexpected happened. The total
+     * is logged as a warning when this action is finished.
+     *
+     * @param description what happened, for example "caused an exception for"
+     * @param subject what it happened with (only turned into a String
+     *                when the summary is logged)
+     */
+    public void countWarning(@NotNull String description, @NotNull Object subject) {
+        add(new Occurrence(description, subject, true));
+    }
+
+    /**
+     * Logs the summary of everything that was counted,
+     * and how long this action took.
+     */
+    public void finish() {
+        NumberFormat numberFormat = NumberFormat.getIntegerInstance(Locale.ENGLISH);
+        occurrences.forEach((occurrence, counter) -> {
+            long count = counter.sum();
+            String summary = numberFormat.format(count) + (count == 1 ? " player " : " players ") +
+                    occurrence.description() + " " + occurrence.subject() + " (" + actionName + ")";
+            if (occurrence.isWarning()) {
+                MyLogger.logWarning(summary);
+            } else {
+                MyLogger.logMediumLevelMsg(summary);
+            }
+        });
+        MyLogger.logMediumLevelTask(actionName + " finished! In total " + threadNames.size() + " threads were used", startTime);
+        MyLogger.logHighLevelMsg(threadNames::toString);
+    }
+
+    private void add(@NotNull Occurrence occurrence) {
+        occurrences.computeIfAbsent(occurrence, key -> new LongAdder()).increment();
+    }
+}
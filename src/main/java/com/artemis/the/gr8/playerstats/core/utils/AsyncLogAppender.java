@@ -0,0 +1,111 @@
+package com.artemis.the.gr8.playerstats.core.utils;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Hands log records over to a single background thread, so the thread that
+ * logs something (often the main thread, or a thread in the middle of a
+ * stat calculation) never has to wait for the console. The records are
+ * kept in a fixed-size ring buffer. If that buffer is full, new records
+ * are dropped (and counted), instead of making the caller wait.
+ */
+final class AsyncLogAppender {
+
+    private static final int CAPACITY = 1024;
+
+    private final Logger logger;
+    private final LogRecord[] buffer;
+    private final Thread writerThread;
+    private int head;
+    private int size;
+    private long droppedCount;
+    private boolean closed;
+
+    AsyncLogAppender(@NotNull Logger logger) {
+        this.logger = logger;
+        buffer = new LogRecord[CAPACITY];
+        writerThread = new Thread(this::writeRecords, "PlayerStats-Logger");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues this record to be logged on the logger thread, or logs it
+     * right away if this appender has been closed already.
+     */
+    void append(@NotNull LogRecord record) {
+        synchronized (this) {
+            if (!closed) {
+                if (size == CAPACITY) {
+                    droppedCount++;
+                } else {
+                    buffer[(head + size) % CAPACITY] = record;
+                    size++;
+                    notifyAll();
+                }
+                return;
+            }
+        }
+        log(record);
+    }
+
+    /**
+     * Stops the logger thread, after it has logged
+     * everything that was still in the buffer.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writerThread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeRecords() {
+        while (true) {
+            LogRecord record;
+            long dropped;
+            synchronized (this) {
+                while (size == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (size == 0) {
+                    return;
+                }
+                record = buffer[head];
+                buffer[head] = null;
+                head = (head + 1) % CAPACITY;
+                size--;
+                dropped = droppedCount;
+                droppedCount = 0;
+            }
+            if (dropped > 0) {
+                logger.warning(dropped + " log messages were dropped, because they were logged faster than the console could keep up with");
+            }
+            log(record);
+        }
+    }
+
+    private void log(@NotNull LogRecord record) {
+        try {
+            logger.log(record);
+        } catch (RuntimeException e) {
+            //never let a broken handler take the logger thread down
+            if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                System.err.println(record.getMessage());
+            }
+        }
+    }
+}
@@ -2,12 +2,19 @@ package com.artemis.the.gr8.playerstats.core.utils;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
 import org.bukkit.Statistic;
 import org.bukkit.entity.EntityType;
 import org.jetbrains.annotations.NotNull;
@@ -31,6 +38,9 @@ public final class EnumHandler {
     private static List<String> entitiesThatCanDie;
     private static List<String> statNames;
     private static List<String> subStatNames;
+    private static Set<Material> blocks;
+    private static Set<Material> items;
+    private static Set<EntityType> livingEntities;
 
     private EnumHandler() {
         prepareLists();
@@ -105,6 +115,71 @@ public final class EnumHandler {
         return entityNames;
     }
 
+    /**
+     * @return all blocks that can have a statistic
+     */
+    public @NotNull Set<Material> getAllBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return all items that can have a statistic
+     */
+    public @NotNull Set<Material> getAllItems() {
+        return items;
+    }
+
+    /**
+     * @return all EntityTypes that can be killed (or kill)
+     */
+    public @NotNull Set<EntityType> getAllLivingEntities() {
+        return livingEntities;
+    }
+
+    /**
+     * Finds all blocks or items that match a filter. The filter can be the
+     * name of a single Material, a pattern with * as wildcard (such as
+     * "*_ore"), or a block- or item-tag starting with # (such as
+     * "#minecraft:logs").
+     *
+     * @param filter the filter (case-insensitive)
+     * @param type BLOCK or ITEM
+     * @return the matching Materials, or an empty set if nothing matched
+     */
+    public @NotNull EnumSet<Material> getMaterialsMatching(@NotNull String filter, @NotNull Statistic.Type type) {
+        Set<Material> candidates = type == Statistic.Type.BLOCK ? blocks : items;
+        EnumSet<Material> result = EnumSet.noneOf(Material.class);
+
+        if (filter.startsWith("#")) {
+            NamespacedKey key = NamespacedKey.fromString(filter.substring(1).toLowerCase(Locale.ENGLISH));
+            Tag<Material> tag = key == null ? null :
+                    Bukkit.getTag(type == Statistic.Type.BLOCK ? Tag.REGISTRY_BLOCKS : Tag.REGISTRY_ITEMS, key, Material.class);
+            if (tag != null) {
+                tag.getValues().stream()
+                        .filter(candidates::contains)
+                        .forEach(result::add);
+            }
+        }
+        else if (filter.contains("*")) {
+            String[] parts = filter.toUpperCase(Locale.ENGLISH).split("\\*", -1);
+            StringBuilder regex = new StringBuilder(Pattern.quote(parts[0]));
+            for (int i = 1; i < parts.length; i++) {
+                regex.append(".*").append(Pattern.quote(parts[i]));
+            }
+            Pattern pattern = Pattern.compile(regex.toString());
+            candidates.stream()
+                    .filter(material -> pattern.matcher(material.name()).matches())
+                    .forEach(result::add);
+        }
+        else {
+            Material material = type == Statistic.Type.BLOCK ? getBlockEnum(filter) : getItemEnum(filter);
+            if (material != null) {
+                result.add(material);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the corresponding Material enum constant for an itemName.
      *
@@ -153,10 +228,10 @@ public final class EnumHandler {
         }
         try {
             Material block = Material.valueOf(materialName.toUpperCase(Locale.ENGLISH));
-            MyLogger.logLowLevelMsg("[Debug EnumHandler] Checking getBlockEnum for: '" + materialName.toUpperCase() + "'. Material found: " + (block != null) + ". IsBlock: " + (block != null ? block.isBlock() : "N/A"));
+            MyLogger.logHighLevelMsg(() -> "[Debug EnumHandler] Checking getBlockEnum for: '" + materialName.toUpperCase() + "'. Material found: " + (block != null) + ". IsBlock: " + (block != null ? block.isBlock() : "N/A"));
             return block.isBlock() ? block : null;
         } catch (IllegalArgumentException e) {
-            MyLogger.logLowLevelMsg("[Debug EnumHandler] Checking getBlockEnum for: '" + materialName.toUpperCase() + "'. Material.valueOf failed!");
+            MyLogger.logHighLevelMsg(() -> "[Debug EnumHandler] Checking getBlockEnum for: '" + materialName.toUpperCase() + "'. Material.valueOf failed!");
             return null;
         }
     }
@@ -272,6 +347,18 @@ public final class EnumHandler {
                 .distinct()
                 .collect(Collectors.toList());
 
+        blocks = Collections.unmodifiableSet(Arrays.stream(Material.values())
+                .filter(material -> !material.isLegacy() && material.isBlock() && !material.isAir())
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(Material.class))));
+
+        items = Collections.unmodifiableSet(Arrays.stream(Material.values())
+                .filter(material -> !material.isLegacy() && material.isItem() && !material.isAir())
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(Material.class))));
+
+        livingEntities = Collections.unmodifiableSet(Arrays.stream(EntityType.values())
+                .filter(entityType -> entityType != EntityType.UNKNOWN && entityType.isAlive())
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(EntityType.class))));
+
         statNames = Arrays.stream(Statistic.values())
                 .map(Statistic::toString)
                 .map(string -> string.toLowerCase(Locale.ENGLISH))
@@ -6,25 +6,31 @@ import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 /**
- * The PlayerStats Logger
+ * The PlayerStats Logger. Messages are only put together if the current
+ * DebugLevel will actually show them (use the methods that take a Supplier
+ * for messages that are expensive to build), and they are written to the
+ * console by a separate thread, so logging never blocks the thread that
+ * logs. Messages about single players during a calculation should not be
+ * logged here directly, but be counted in the {@link ActionLog} of that
+ * calculation instead.
  */
 public final class MyLogger {
 
     private static final Logger logger;
-    private static DebugLevel debugLevel;
-
-    private static ConcurrentHashMap<String, Integer> threadNames;
+    private static final AsyncLogAppender appender;
+    private static volatile DebugLevel debugLevel;
 
     static {
         Plugin plugin = Bukkit.getPluginManager().getPlugin("PlayerStats");
         logger = (plugin != null) ? plugin.getLogger() : Bukkit.getLogger();
+        appender = new AsyncLogAppender(logger);
         debugLevel = DebugLevel.LOW;
-        threadNames = new ConcurrentHashMap<>();
     }
 
     private MyLogger() {
@@ -49,8 +55,17 @@ public final class MyLogger {
         }
     }
 
+    /**
+     * @param level the DebugLevel a message belongs to
+     * @return true if messages of this level are shown
+     * with the current DebugLevel
+     */
+    public static boolean isLoggable(@NotNull DebugLevel level) {
+        return level.ordinal() <= debugLevel.ordinal();
+    }
+
     public static void logLowLevelMsg(String content) {
-        logger.info(content);
+        log(Level.INFO, content, null);
     }
 
     public static void logLowLevelTask(String taskName, long startTime) {
@@ -58,31 +73,43 @@ public final class MyLogger {
     }
 
     public static void logMediumLevelMsg(String content) {
-        if (debugLevel != DebugLevel.LOW) {
-            logger.info(content);
+        if (isLoggable(DebugLevel.MEDIUM)) {
+            log(Level.INFO, content, null);
+        }
+    }
+
+    public static void logMediumLevelMsg(@NotNull Supplier<String> content) {
+        if (isLoggable(DebugLevel.MEDIUM)) {
+            log(Level.INFO, content.get(), null);
         }
     }
 
     public static void logMediumLevelTask(String taskName, long startTime) {
-        if (debugLevel != DebugLevel.LOW) {
+        if (isLoggable(DebugLevel.MEDIUM)) {
             printTime(taskName, startTime);
         }
     }
 
     public static void logHighLevelMsg(String content) {
-        if (debugLevel == DebugLevel.HIGH) {
-            logger.info(content);
+        if (isLoggable(DebugLevel.HIGH)) {
+            log(Level.INFO, content, null);
+        }
+    }
+
+    public static void logHighLevelMsg(@NotNull Supplier<String> content) {
+        if (isLoggable(DebugLevel.HIGH)) {
+            log(Level.INFO, content.get(), null);
         }
     }
 
     public static void logWarning(String content) {
-        logger.warning(content);
+        log(Level.WARNING, content, null);
     }
 
     /**
      * Log the encountered exception as a warning to console,
      * with some information about which class/method caught it
-     * and with a printStackTrace if DebugLevel is HIGH.
+     * and with the stack trace if DebugLevel is HIGH.
      *
      * @param exception The encountered exception
      * @param caughtBy The name of the class that caught the exception
@@ -93,67 +120,15 @@ public final class MyLogger {
         String extraInfo = (additionalInfo != null) ? " [" + additionalInfo + "]" : "";
         String info =  " (" + caughtBy + extraInfo + ")";
 
-        logger.warning(exception + info);
-        if (debugLevel == DebugLevel.HIGH) {
-            exception.printStackTrace();
-        }
-    }
-
-    /**
-     * If DebugLevel is MEDIUM or HIGH, output to console that an
-     * action has started.
-     *
-     * @param taskLength Length of the action (in terms of
-     *                   units-to-process)
-     */
-    public static void actionCreated(int taskLength) {
-        if (debugLevel != DebugLevel.LOW) {
-            threadNames = new ConcurrentHashMap<>();
-            logger.info("Initial Action created for " + taskLength + " Players. Processing...");
-        }
-    }
-
-    /**
-     * Internally save the name of the executing thread for later
-     * logging of this action. The list of names is reset upon the
-     * start of every new action.
-     *
-     * @param threadName Name of the executing thread
-     */
-    public static void subActionCreated(String threadName) {
-        if (debugLevel == DebugLevel.HIGH) {
-            if (!threadNames.containsKey(threadName)) {
-                threadNames.put(threadName, threadNames.size());
-            }
-        }
+        log(Level.WARNING, exception + info, isLoggable(DebugLevel.HIGH) ? exception : null);
     }
 
     /**
-     * Internally save the name of the executing thread for logging.
-     *
-     * @param threadName Name of the executing thread
+     * Writes everything that is still waiting to be logged to the console,
+     * and logs directly from then on. Called when PlayerStats is disabled.
      */
-    public static void actionRunning(String threadName) {
-        if (debugLevel != DebugLevel.LOW) {
-            if (!threadNames.containsKey(threadName)) {
-                threadNames.put(threadName, threadNames.size());
-            }
-        }
-    }
-
-    /**
-     * Output to console that an action has finished if DebugLevel is
-     * MEDIUM or higher. If DebugLevel is HIGH, also output the names
-     * of the threads that were used.
-     */
-    public static void actionFinished() {
-        if (debugLevel != DebugLevel.LOW) {
-            logger.info("Finished Recursive Action! In total " +
-                    threadNames.size() + " Threads were used");
-        }
-        if (debugLevel == DebugLevel.HIGH) {
-            logger.info(Collections.list(threadNames.keys()).toString());
-        }
+    public static void flush() {
+        appender.close();
     }
 
     /**
@@ -163,6 +138,13 @@ public final class MyLogger {
      * @param startTime Timestamp marking the beginning of the task
      */
     private static void printTime(String taskName, long startTime) {
-        logger.info(taskName + " (" + (System.currentTimeMillis() - startTime) + "ms)");
+        log(Level.INFO, taskName + " (" + (System.currentTimeMillis() - startTime) + "ms)", null);
+    }
+
+    private static void log(@NotNull Level level, String content, @Nullable Throwable thrown) {
+        LogRecord record = new LogRecord(level, content);
+        record.setLoggerName(logger.getName());
+        record.setThrown(thrown);
+        appender.append(record);
     }
-}
\ No newline at end of file
+}
@@ -3,11 +3,15 @@ package com.artemis.the.gr8.playerstats.core.utils;
 import com.artemis.the.gr8.playerstats.core.Main;
 import com.artemis.the.gr8.playerstats.core.config.ConfigHandler;
 import com.artemis.the.gr8.playerstats.core.multithreading.ThreadManager;
+import com.artemis.the.gr8.playerstats.core.statistic.filter.PlayerRegistry;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.Predicate;
@@ -22,12 +26,14 @@ public final class OfflinePlayerHandler extends YamlFileHandler {
 
     private static volatile OfflinePlayerHandler instance;
     private final ConfigHandler config;
+    private final PlayerFileIndex playerFileIndex;
     private static ConcurrentHashMap<String, UUID> includedPlayerUUIDs;
     private static ConcurrentHashMap<String, UUID> excludedPlayerUUIDs;
 
     private OfflinePlayerHandler() {
         super("excluded_players.yml");
         config = ConfigHandler.getInstance();
+        playerFileIndex = createPlayerFileIndex();
 
         loadOfflinePlayers();
         Main.registerReloadable(this);
@@ -53,6 +59,26 @@ public final class OfflinePlayerHandler extends YamlFileHandler {
         loadOfflinePlayers();
     }
 
+    @Override
+    public void close() {
+        super.close();
+        if (playerFileIndex != null) {
+            Bukkit.getOnlinePlayers().forEach(this::markSeen);
+            playerFileIndex.save();
+        }
+    }
+
+    /**
+     * Remembers that this player was online just now, so their player files
+     * don't have to be read again the next time the players are loaded.
+     */
+    public void markSeen(@NotNull OfflinePlayer player) {
+        String playerName = player.getName();
+        if (playerFileIndex != null && playerName != null) {
+            playerFileIndex.markSeen(player.getUniqueId(), playerName, System.currentTimeMillis());
+        }
+    }
+
     /**
      * Checks if a given player is currently
      * included for /statistic lookups.
@@ -73,27 +99,65 @@ public final class OfflinePlayerHandler extends YamlFileHandler {
     }
 
     public boolean addPlayerToExcludeList(String playerName) {
-        if (isIncludedPlayer(playerName)) {
-            UUID uuid = includedPlayerUUIDs.get(playerName);
-
-            super.writeEntryToList("excluded", uuid.toString());
-            includedPlayerUUIDs.remove(playerName);
-            excludedPlayerUUIDs.put(playerName, uuid);
-            return true;
-        }
-        return false;
+        return !addPlayersToExcludeList(List.of(playerName)).isEmpty();
     }
 
     public boolean removePlayerFromExcludeList(String playerName) {
-        if (isExcludedPlayer(playerName)) {
-            UUID uuid = excludedPlayerUUIDs.get(playerName);
+        return !removePlayersFromExcludeList(List.of(playerName)).isEmpty();
+    }
+
+    /**
+     * Excludes all given players in one go. The exclude-list file
+     * is only written once, no matter how many players are added.
+     *
+     * @param playerNames the names of the players to exclude (case-sensitive)
+     * @return the names of the players that were actually added
+     * (players that were already excluded or that are unknown are skipped)
+     */
+    public @NotNull List<String> addPlayersToExcludeList(@NotNull Collection<String> playerNames) {
+        List<String> added = new ArrayList<>();
+        List<String> uuids = new ArrayList<>();
+        for (String playerName : playerNames) {
+            UUID uuid = includedPlayerUUIDs.remove(playerName);
+            if (uuid != null) {
+                excludedPlayerUUIDs.put(playerName, uuid);
+                PlayerRegistry.getInstance().setExcluded(uuid, true);
+                uuids.add(uuid.toString());
+                added.add(playerName);
+            }
+        }
+        super.writeEntriesToList("excluded", uuids);
+        if (!added.isEmpty()) {
+            //requests that are already running keep using the previous player list
+            Main.refreshGeneration();
+        }
+        return added;
+    }
 
-            super.removeEntryFromList("excluded", uuid.toString());
-            excludedPlayerUUIDs.remove(playerName);
-            includedPlayerUUIDs.put(playerName, uuid);
-            return true;
+    /**
+     * Includes all given players again in one go. The exclude-list
+     * file is only written once, no matter how many players are removed.
+     *
+     * @param playerNames the names of the players to include again (case-sensitive)
+     * @return the names of the players that were actually removed from the exclude-list
+     */
+    public @NotNull List<String> removePlayersFromExcludeList(@NotNull Collection<String> playerNames) {
+        List<String> removed = new ArrayList<>();
+        List<String> uuids = new ArrayList<>();
+        for (String playerName : playerNames) {
+            UUID uuid = excludedPlayerUUIDs.remove(playerName);
+            if (uuid != null) {
+                includedPlayerUUIDs.put(playerName, uuid);
+                PlayerRegistry.getInstance().setExcluded(uuid, false);
+                uuids.add(uuid.toString());
+                removed.add(playerName);
+            }
+        }
+        super.removeEntriesFromList("excluded", uuids);
+        if (!removed.isEmpty()) {
+            Main.refreshGeneration();
         }
-        return false;
+        return removed;
     }
 
     @Contract(" -> new")
@@ -112,6 +176,16 @@ public final class OfflinePlayerHandler extends YamlFileHandler {
         return Collections.list(includedPlayerUUIDs.keys());
     }
 
+    /**
+     * Gets the names and UUIDs of all OfflinePlayers that are
+     * currently included in statistic calculations.
+     *
+     * @return an unmodifiable view of the included players
+     */
+    public @NotNull Map<String, UUID> getIncludedPlayers() {
+        return Collections.unmodifiableMap(includedPlayerUUIDs);
+    }
+
     /**
      * Gets the number of OfflinePlayers that are
      * currently included in statistic calculations.
@@ -151,39 +225,135 @@ public final class OfflinePlayerHandler extends YamlFileHandler {
     }
 
     private void loadOfflinePlayers() {
+        Future<Set<UUID>> bannedUUIDs = getBannedUUIDs();
         ExecutorService executor = Executors.newSingleThreadExecutor();
         executor.execute(() -> {
+            ConcurrentHashMap<UUID, Long> lastPlayed = new ConcurrentHashMap<>();
             loadExcludedPlayerNames();
-            loadIncludedOfflinePlayers();
+            loadIncludedOfflinePlayers(lastPlayed, bannedUUIDs);
+            PlayerRegistry.getInstance().setLoadedPlayers(includedPlayerUUIDs.values(), excludedPlayerUUIDs.values(), lastPlayed);
+            //requests that are already running keep using the previous player list
+            Main.refreshGeneration();
         });
         executor.shutdown();
     }
 
-    private void loadIncludedOfflinePlayers() {
+    /**
+     * The ban-list is read on the main thread, since Bukkit does
+     * not guarantee that it can safely be read from other threads.
+     *
+     * @return the UUIDs of the banned players, or an empty set if banned
+     * players are not excluded (or are checked through LiteBans instead)
+     */
+    private @NotNull Future<Set<UUID>> getBannedUUIDs() {
+        if (!config.excludeBanned() || Bukkit.getPluginManager().isPluginEnabled("LiteBans")) {
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+        Callable<Set<UUID>> readBanList = () -> {
+            Set<UUID> uuids = new HashSet<>();
+            Bukkit.getBannedPlayers().forEach(player -> uuids.add(player.getUniqueId()));
+            return uuids;
+        };
+        if (Bukkit.isPrimaryThread()) {
+            try {
+                return CompletableFuture.completedFuture(readBanList.call());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return Bukkit.getScheduler().callSyncMethod(Main.getPluginInstance(), readBanList);
+    }
+
+    private static @NotNull Set<UUID> awaitBannedUUIDs(@NotNull Future<Set<UUID>> bannedUUIDs) {
+        try {
+            return bannedUUIDs.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            MyLogger.logException(e, "OfflinePlayerHandler", "reading the ban-list");
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * @param lastPlayed the map to put the time each included player was last seen in
+     * @param bannedUUIDs the players on the ban-list, taken on the main thread
+     */
+    private void loadIncludedOfflinePlayers(ConcurrentHashMap<UUID, Long> lastPlayed, Future<Set<UUID>> bannedUUIDs) {
         long startTime = System.currentTimeMillis();
 
+        if (canUsePlayerFileIndex()) {
+            try {
+                loadIncludedOfflinePlayersFromFiles(lastPlayed, awaitBannedUUIDs(bannedUUIDs));
+                MyLogger.logLowLevelTask(("Loaded " + includedPlayerUUIDs.size() + " offline players from player files"), startTime);
+                return;
+            } catch (IOException e) {
+                MyLogger.logWarning("Could not read the player files, loading offline players through Bukkit instead...");
+            }
+        }
+
         OfflinePlayer[] offlinePlayers;
         if (config.whitelistOnly()) {
             offlinePlayers = getWhitelistedPlayers();
         } else if (config.excludeBanned()) {
-            offlinePlayers = getNonBannedPlayers();
+            offlinePlayers = getNonBannedPlayers(awaitBannedUUIDs(bannedUUIDs));
         } else {
             offlinePlayers = Bukkit.getOfflinePlayers();
         }
 
         int size = includedPlayerUUIDs != null ? includedPlayerUUIDs.size() : 16;
-        includedPlayerUUIDs = new ConcurrentHashMap<>(size);
+        ConcurrentHashMap<String, UUID> players = new ConcurrentHashMap<>(size);
 
-        ForkJoinPool.commonPool().invoke(ThreadManager.getPlayerLoadAction(offlinePlayers, includedPlayerUUIDs));
+        ActionLog actionLog = new ActionLog("Loading offline players", offlinePlayers.length);
+        ForkJoinPool.commonPool().invoke(ThreadManager.getPlayerLoadAction(offlinePlayers, players, lastPlayed, actionLog));
+        includedPlayerUUIDs = players;
 
-        MyLogger.actionFinished();
+        actionLog.finish();
         MyLogger.logLowLevelTask(("Loaded " + includedPlayerUUIDs.size() + " offline players"), startTime);
     }
 
+    /**
+     * The whitelist is small enough to load through Bukkit, and other ban-plugins
+     * (like LiteBans) can only be checked through {@link OfflinePlayer#isBanned()}.
+     * For all other cases, the players can be read from the files directly.
+     */
+    private boolean canUsePlayerFileIndex() {
+        return playerFileIndex != null
+                && !config.whitelistOnly()
+                && !(config.excludeBanned() && Bukkit.getPluginManager().isPluginEnabled("LiteBans"));
+    }
+
+    private void loadIncludedOfflinePlayersFromFiles(ConcurrentHashMap<UUID, Long> lastPlayed, Set<UUID> bannedUUIDs) throws IOException {
+        List<PlayerFileIndex.Entry> entries = playerFileIndex.scan();
+
+        Set<UUID> skippedUUIDs = new HashSet<>(excludedPlayerUUIDs.values());
+        skippedUUIDs.addAll(bannedUUIDs);
+        int lastPlayedLimit = config.getLastPlayedLimit();
+
+        ConcurrentHashMap<String, UUID> players = new ConcurrentHashMap<>(entries.size());
+        entries.parallelStream()
+                .filter(entry -> !skippedUUIDs.contains(entry.uuid()))
+                .filter(entry -> UnixTimeHandler.hasPlayedSince(lastPlayedLimit, entry.lastModified()))
+                .forEach(entry -> {
+                    players.put(entry.name(), entry.uuid());
+                    lastPlayed.put(entry.uuid(), entry.lastModified());
+                });
+        includedPlayerUUIDs = players;
+    }
+
+    private @Nullable PlayerFileIndex createPlayerFileIndex() {
+        List<World> worlds = Bukkit.getWorlds();
+        if (worlds.isEmpty()) {
+            return null;
+        }
+        return new PlayerFileIndex(Main.getPluginInstance().getDataFolder(),
+                worlds.get(0).getWorldFolder(), Bukkit.getWorldContainer());
+    }
+
     private void loadExcludedPlayerNames() {
         long time = System.currentTimeMillis();
 
-        excludedPlayerUUIDs = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, UUID> players = new ConcurrentHashMap<>();
         List<String> excluded = super.getFileConfiguration().getStringList("excluded");
         excluded.stream()
                 .filter(Objects::nonNull)
@@ -192,9 +362,10 @@ public final class OfflinePlayerHandler extends YamlFileHandler {
                             OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
                             String playerName = player.getName();
                             if (playerName != null) {
-                                excludedPlayerUUIDs.put(playerName, uuid);
+                                players.put(playerName, uuid);
                             }
                         });
+        excludedPlayerUUIDs = players;
 
         MyLogger.logLowLevelTask("Loaded " + excludedPlayerUUIDs.size() + " excluded players from file", time);
     }
@@ -203,7 +374,7 @@ public final class OfflinePlayerHandler extends YamlFileHandler {
         return Bukkit.getWhitelistedPlayers().toArray(OfflinePlayer[]::new);
     }
 
-    private @NotNull OfflinePlayer[] getNonBannedPlayers() {
+    private @NotNull OfflinePlayer[] getNonBannedPlayers(@NotNull Set<UUID> bannedUUIDs) {
         if (Bukkit.getPluginManager().isPluginEnabled("LiteBans")) {
             return Arrays.stream(Bukkit.getOfflinePlayers())
                     .parallel()
@@ -211,10 +382,9 @@ public final class OfflinePlayerHandler extends YamlFileHandler {
                     .toArray(OfflinePlayer[]::new);
         }
 
-        Set<OfflinePlayer> banList = Bukkit.getBannedPlayers();
         return Arrays.stream(Bukkit.getOfflinePlayers())
                 .parallel()
-                .filter(Predicate.not(banList::contains))
+                .filter(player -> !bannedUUIDs.contains(player.getUniqueId()))
                 .toArray(OfflinePlayer[]::new);
     }
-}
\ No newline at end of file
+}
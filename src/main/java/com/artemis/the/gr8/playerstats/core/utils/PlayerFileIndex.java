@@ -0,0 +1,359 @@
+package com.artemis.the.gr8.playerstats.core.utils;
+
+import com.artemis.the.gr8.playerstats.core.multithreading.BackgroundThrottle;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Builds the list of all players that have ever joined straight from the
+ * server files, without loading an OfflinePlayer for each of them. The
+ * directory listings of the playerdata- and stats-folder provide the UUIDs.
+ *
+ * <p>The result is stored in an index file in PlayerStats' data folder, with
+ * the name of each player and the last-modified-time of their files (which is
+ * used as the moment they were last online). On the next scan, only the files
+ * of players that are not in the index yet are looked at: their last-modified-
+ * time is read, and their name is taken from the usercache.json or from the
+ * playerdata-file itself. Players that quit while PlayerStats is running are
+ * updated in the index right away (see {@link #markSeen}), so the index stays
+ * correct without reading the attributes of every file on every boot.
+ */
+final class PlayerFileIndex {
+
+    private static final String INDEX_FILE_NAME = "player_index.dat";
+    private static final int INDEX_VERSION = 1;
+    private static final int CHUNK_SIZE = 256; //Number of new players read by one task
+
+    private static final byte TAG_END = 0;
+    private static final byte TAG_STRING = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_COMPOUND = 10;
+
+    private final Path indexFile;
+    private final Path playerDataFolder;
+    private final Path statsFolder;
+    private final Path userCacheFile;
+    private final Object entriesLock;
+    private volatile ConcurrentHashMap<UUID, Entry> entries;
+    //the players that were marked as seen while a scan was running (guarded by entriesLock)
+    private @Nullable Map<UUID, Entry> seenDuringScan;
+    private volatile boolean hasScanned;
+
+    /**
+     * @param dataFolder PlayerStats' data folder, to store the index in
+     * @param worldFolder the folder of the main world, which contains
+     *                    the playerdata- and stats-folder
+     * @param serverFolder the folder that contains the usercache.json
+     */
+    PlayerFileIndex(@NotNull File dataFolder, @NotNull File worldFolder, @NotNull File serverFolder) {
+        indexFile = dataFolder.toPath().resolve(INDEX_FILE_NAME);
+        playerDataFolder = worldFolder.toPath().resolve("playerdata");
+        statsFolder = worldFolder.toPath().resolve("stats");
+        userCacheFile = serverFolder.toPath().resolve("usercache.json");
+        entriesLock = new Object();
+        entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param uuid the UUID of this player
+     * @param name the last known name of this player
+     * @param lastModified the time (in unix-millis) that the player's
+     *                     data-files were last written to
+     */
+    record Entry(UUID uuid, String name, long lastModified) {
+    }
+
+    /**
+     * Lists the player files, reads the files of players that are new since
+     * the last scan, and stores the result as the index for the next scan.
+     * The entries are replaced all at once when the scan is done, and players
+     * that were marked as seen in the meantime keep their newer entry.
+     *
+     * @return an Entry for every player whose name could be found
+     * @throws IOException if the playerdata- or stats-folder cannot be read
+     */
+    @NotNull List<Entry> scan() throws IOException {
+        long time = System.currentTimeMillis();
+        synchronized (entriesLock) {
+            seenDuringScan = new HashMap<>();
+        }
+        try {
+            Set<UUID> uuids = new HashSet<>();
+            listFolder(playerDataFolder, ".dat", uuids);
+            listFolder(statsFolder, ".json", uuids);
+
+            //the entries in memory can be newer than the file, if players have been seen since it was saved
+            Map<UUID, Entry> previousEntries = new HashMap<>(readIndex());
+            previousEntries.putAll(entries);
+            List<UUID> newUUIDs = uuids.stream()
+                    .filter(uuid -> !previousEntries.containsKey(uuid))
+                    .toList();
+            Map<UUID, String> cachedNames = newUUIDs.isEmpty() ? Collections.emptyMap() : readUserCache();
+
+            //only new players are read, which is every player on the first scan,
+            //so this goes through the BackgroundThrottle like other background work
+            Entry[] readEntries = new Entry[newUUIDs.size()];
+            BackgroundThrottle.getInstance().forEachChunk(newUUIDs.size(), CHUNK_SIZE, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    UUID uuid = newUUIDs.get(i);
+                    String name = cachedNames.get(uuid);
+                    if (name == null) {
+                        name = readLastKnownName(playerDataFolder.resolve(uuid + ".dat"));
+                    }
+                    readEntries[i] = name == null ? null : new Entry(uuid, name, getLastModified(uuid));
+                }
+            });
+            List<Entry> newEntries = Arrays.stream(readEntries).filter(Objects::nonNull).toList();
+
+            ConcurrentHashMap<UUID, Entry> scannedEntries = new ConcurrentHashMap<>(uuids.size() * 4 / 3 + 1);
+            previousEntries.forEach((uuid, entry) -> {
+                if (uuids.contains(uuid)) {
+                    scannedEntries.put(uuid, entry);
+                }
+            });
+            newEntries.forEach(entry -> scannedEntries.put(entry.uuid(), entry));
+            synchronized (entriesLock) {
+                scannedEntries.putAll(seenDuringScan);
+                entries = scannedEntries;
+            }
+            hasScanned = true;
+
+            MyLogger.logLowLevelTask("Scanned player files for " + scannedEntries.size() + " players (" +
+                    newEntries.size() + " new)", time);
+            save();
+            return new ArrayList<>(scannedEntries.values());
+        } finally {
+            synchronized (entriesLock) {
+                seenDuringScan = null;
+            }
+        }
+    }
+
+    /**
+     * Updates the entry of a player that was just online,
+     * so their files don't have to be read on the next scan.
+     */
+    void markSeen(@NotNull UUID uuid, @NotNull String name, long lastSeen) {
+        Entry entry = new Entry(uuid, name, lastSeen);
+        synchronized (entriesLock) {
+            entries.put(uuid, entry);
+            if (seenDuringScan != null) {
+                seenDuringScan.put(uuid, entry);
+            }
+        }
+    }
+
+    /**
+     * Writes the current entries to the index file,
+     * if the player files have been scanned at all.
+     */
+    void save() {
+        if (!hasScanned) {
+            return;
+        }
+        try {
+            Path temp = Files.createTempFile(indexFile.getParent(), INDEX_FILE_NAME, ".tmp");
+            try {
+                List<Entry> currentEntries = new ArrayList<>(entries.values());
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    output.writeInt(INDEX_VERSION);
+                    output.writeInt(currentEntries.size());
+                    for (Entry entry : currentEntries) {
+                        output.writeLong(entry.uuid().getMostSignificantBits());
+                        output.writeLong(entry.uuid().getLeastSignificantBits());
+                        output.writeLong(entry.lastModified());
+                        output.writeUTF(entry.name());
+                    }
+                }
+                try {
+                    Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            MyLogger.logException(e, "PlayerFileIndex", "saving " + INDEX_FILE_NAME);
+        }
+    }
+
+    /**
+     * Adds the UUID of every file in this folder to the set, using only the
+     * names in the directory listing (without reading any file attributes).
+     */
+    private void listFolder(@NotNull Path folder, @NotNull String extension, @NotNull Set<UUID> uuids) throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + extension)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                try {
+                    uuids.add(UUID.fromString(fileName.substring(0, fileName.length() - extension.length())));
+                } catch (IllegalArgumentException ignored) {
+                    //not a player file
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the time (in unix-millis) at which the most recent
+     * of this player's files was written, or 0 if there are none
+     */
+    private long getLastModified(@NotNull UUID uuid) {
+        long lastModified = 0;
+        for (Path file : List.of(playerDataFolder.resolve(uuid + ".dat"), statsFolder.resolve(uuid + ".json"))) {
+            try {
+                lastModified = Math.max(lastModified, Files.getLastModifiedTime(file).toMillis());
+            } catch (NoSuchFileException ignored) {
+                //this player only has one of the two files
+            } catch (IOException e) {
+                MyLogger.logException(e, "PlayerFileIndex", "reading " + file.getFileName());
+            }
+        }
+        return lastModified;
+    }
+
+    private @NotNull Map<UUID, String> readUserCache() {
+        if (!Files.isRegularFile(userCacheFile)) {
+            return Collections.emptyMap();
+        }
+        Map<UUID, String> names = new HashMap<>();
+        try (Reader reader = Files.newBufferedReader(userCacheFile, StandardCharsets.UTF_8)) {
+            for (JsonElement element : JsonParser.parseReader(reader).getAsJsonArray()) {
+                JsonObject entry = element.getAsJsonObject();
+                names.put(UUID.fromString(entry.get("uuid").getAsString()), entry.get("name").getAsString());
+            }
+        } catch (IOException | RuntimeException e) {
+            MyLogger.logWarning("Could not read usercache.json, reading player names from the playerdata files instead");
+        }
+        return names;
+    }
+
+    /**
+     * Reads the name that the server stored in the bukkit-section of this
+     * playerdata-file, skipping over all other data without parsing it.
+     *
+     * @return the name, or null if the file or the name is not there
+     */
+    private static @Nullable String readLastKnownName(@NotNull Path playerDataFile) {
+        if (!Files.isRegularFile(playerDataFile)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(playerDataFile))))) {
+            if (input.readByte() != TAG_COMPOUND) {
+                return null;
+            }
+            input.readUTF();
+            return findString(input, "bukkit", "lastKnownName");
+        } catch (IOException e) {
+            MyLogger.logException(e, "PlayerFileIndex", "reading " + playerDataFile.getFileName());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the tags of the compound the input is in, until it finds the
+     * string at this path of tag-names (going into compounds along the way).
+     */
+    private static @Nullable String findString(@NotNull DataInputStream input, @NotNull String... path) throws IOException {
+        byte type;
+        while ((type = input.readByte()) != TAG_END) {
+            String name = input.readUTF();
+            if (name.equals(path[0])) {
+                if (path.length == 1 && type == TAG_STRING) {
+                    return input.readUTF();
+                } else if (path.length > 1 && type == TAG_COMPOUND) {
+                    String[] remainingPath = new String[path.length - 1];
+                    System.arraycopy(path, 1, remainingPath, 0, remainingPath.length);
+                    return findString(input, remainingPath);
+                }
+            }
+            skipPayload(input, type);
+        }
+        return null;
+    }
+
+    private static void skipPayload(@NotNull DataInputStream input, byte type) throws IOException {
+        switch (type) {
+            case 1 -> input.skipNBytes(1);
+            case 2 -> input.skipNBytes(2);
+            case 3, 5 -> input.skipNBytes(4);
+            case 4, 6 -> input.skipNBytes(8);
+            case 7 -> input.skipNBytes(input.readInt());
+            case TAG_STRING -> input.skipNBytes(input.readUnsignedShort());
+            case TAG_LIST -> {
+                byte elementType = input.readByte();
+                int length = input.readInt();
+                for (int i = 0; i < length; i++) {
+                    skipPayload(input, elementType);
+                }
+            }
+            case TAG_COMPOUND -> {
+                byte childType;
+                while ((childType = input.readByte()) != TAG_END) {
+                    input.skipNBytes(input.readUnsignedShort());
+                    skipPayload(input, childType);
+                }
+            }
+            case 11 -> input.skipNBytes(input.readInt() * 4L);
+            case 12 -> input.skipNBytes(input.readInt() * 8L);
+            default -> throw new IOException("Unknown tag type " + type);
+        }
+    }
+
+    private @NotNull Map<UUID, Entry> readIndex() {
+        if (!Files.isRegularFile(indexFile)) {
+            return Collections.emptyMap();
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (input.readInt() != INDEX_VERSION) {
+                return Collections.emptyMap();
+            }
+            int size = input.readInt();
+            Map<UUID, Entry> indexedEntries = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                UUID uuid = new UUID(input.readLong(), input.readLong());
+                long lastModified = input.readLong();
+                indexedEntries.put(uuid, new Entry(uuid, input.readUTF(), lastModified));
+            }
+            return indexedEntries;
+        } catch (IOException e) {
+            MyLogger.logWarning("Could not read " + INDEX_FILE_NAME + ", it will be rebuilt");
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -9,20 +9,83 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
-public abstract class YamlFileHandler implements Reloadable {
+/**
+ * Base class for all PlayerStats' yaml-files. Changes are made in memory
+ * right away, but are written to disk with a short delay on a separate
+ * I/O thread, so that many changes in quick succession result in a single
+ * write. Files are written to a temporary file first and then moved into
+ * place, so a crash halfway through can never leave a broken file behind.
+ * Pending changes are written when the file is reloaded or closed.
+ *
+ * <p>Changes are made to a copy of the FileConfiguration, which then replaces
+ * the current one, so a FileConfiguration that was handed out by
+ * {@link #getFileConfiguration()} is never changed while it is being read.
+ * Frequent changes to a List can be queued with {@link #queueListChanges}
+ * instead, so the copy is only made once per write, on the I/O thread.
+ */
+public abstract class YamlFileHandler implements Reloadable, Closable {
+
+    private static final long WRITE_DELAY_MILLIS = 500;
+    private static ScheduledExecutorService ioExecutor;
 
     private final String fileName;
+    private final Object writeLock;
+    private final AtomicBoolean writeScheduled;
+    private final ConcurrentLinkedQueue<ListChange> queuedListChanges;
+    private boolean hasPendingChanges;
     private File file;
-    private FileConfiguration fileConfiguration;
+    private volatile FileConfiguration fileConfiguration;
 
     public YamlFileHandler(String fileName) {
         this.fileName = fileName;
+        writeLock = new Object();
+        writeScheduled = new AtomicBoolean(false);
+        queuedListChanges = new ConcurrentLinkedQueue<>();
         loadFile();
+        Main.registerClosable(this);
+    }
+
+    /**
+     * Stops the I/O thread. This should only be called after all
+     * YamlFileHandlers have been closed (and have written their changes).
+     */
+    public static synchronized void shutdownIO() {
+        if (ioExecutor != null) {
+            ioExecutor.shutdown();
+            ioExecutor = null;
+        }
+    }
+
+    private static synchronized @NotNull ScheduledExecutorService getIOExecutor() {
+        if (ioExecutor == null) {
+            ioExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "PlayerStats-IO");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return ioExecutor;
     }
 
     private void loadFile() {
@@ -32,26 +95,49 @@ public abstract class YamlFileHandler implements Reloadable {
         if (!file.exists()) {
             plugin.saveResource(fileName, false);
         }
-        fileConfiguration = YamlConfiguration.loadConfiguration(file);
+        FileConfiguration loadedConfiguration = YamlConfiguration.loadConfiguration(file);
+        synchronized (this) {
+            fileConfiguration = loadedConfiguration;
+        }
     }
 
     public void reload() {
+        flush();
         if (!file.exists()) {
             loadFile();
         } else {
-            fileConfiguration = YamlConfiguration.loadConfiguration(file);
+            FileConfiguration loadedConfiguration = YamlConfiguration.loadConfiguration(file);
+            synchronized (this) {
+                fileConfiguration = loadedConfiguration;
+            }
             MyLogger.logLowLevelMsg(fileName + " reloaded!");
         }
     }
 
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * @return the current contents of the file, which are not changed
+     * afterwards (changes replace them with a new FileConfiguration)
+     */
     public FileConfiguration getFileConfiguration() {
         return fileConfiguration;
     }
 
+    /**
+     * @param keyValuePairs the values to set. A value of null
+     *                      removes the key from the file.
+     */
     public void addValues(@NotNull Map<String, Object> keyValuePairs) {
-        keyValuePairs.forEach(this::setValue);
-        save();
-        updateFile();
+        synchronized (this) {
+            FileConfiguration updated = copyFileConfiguration();
+            keyValuePairs.forEach(updated::set);
+            replaceFileConfiguration(updated);
+        }
+        scheduleWrite();
     }
 
     /**
@@ -60,50 +146,185 @@ public abstract class YamlFileHandler implements Reloadable {
      * @param value the value(s) to expand the List with
      */
     public void writeEntryToList(@NotNull String key, @NotNull String value) {
-        List<String> existingList = fileConfiguration.getStringList(key);
-
-        List<String> updatedList = existingList.stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-        updatedList.add(value);
+        writeEntriesToList(key, List.of(value));
+    }
 
-        setValue(key, updatedList);
-        save();
-        updateFile();
+    /**
+     * @param key the Key under which the List will be stored
+     *            (or expanded if it already exists)
+     * @param values the values to expand the List with
+     */
+    public void writeEntriesToList(@NotNull String key, @NotNull Collection<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            List<String> updatedList = fileConfiguration.getStringList(key).stream()
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            updatedList.addAll(values);
+            FileConfiguration updated = copyFileConfiguration();
+            updated.set(key, updatedList);
+            replaceFileConfiguration(updated);
+        }
+        scheduleWrite();
     }
 
     public void removeEntryFromList(@NotNull String key, @NotNull String value) {
-        List<String> currentValues = fileConfiguration.getStringList(key);
+        removeEntriesFromList(key, List.of(value));
+    }
 
-        if (currentValues.remove(value)) {
-            setValue(key, currentValues);
-            save();
-            updateFile();
+    public void removeEntriesFromList(@NotNull String key, @NotNull Collection<String> values) {
+        boolean changed;
+        synchronized (this) {
+            List<String> currentValues = fileConfiguration.getStringList(key);
+            changed = currentValues.removeAll(values);
+            if (changed) {
+                FileConfiguration updated = copyFileConfiguration();
+                updated.set(key, currentValues);
+                replaceFileConfiguration(updated);
+            }
+        }
+        if (changed) {
+            scheduleWrite();
         }
     }
 
-    private void setValue(String key, Object value) {
-        fileConfiguration.set(key, value);
+    /**
+     * Queues entries to add to and remove from a List. The queued changes are
+     * applied together on the I/O thread, right before the file is written,
+     * so the calling thread never has to copy the FileConfiguration. Until
+     * then, they do not show up in {@link #getFileConfiguration()}.
+     *
+     * @param key the Key of the List
+     * @param addedValues the values to add to the List
+     * @param removedValues the values to remove from the List
+     */
+    public void queueListChanges(@NotNull String key, @NotNull Collection<String> addedValues,
+                                 @NotNull Collection<String> removedValues) {
+        if (addedValues.isEmpty() && removedValues.isEmpty()) {
+            return;
+        }
+        queuedListChanges.add(new ListChange(key, List.copyOf(addedValues), List.copyOf(removedValues)));
+        scheduleWrite();
     }
 
-    private void save() {
-        try {
-            fileConfiguration.save(file);
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Writes all pending changes to disk right away, on the calling thread.
+     */
+    public void flush() {
+        writePendingChanges();
+    }
+
+    /**
+     * Copies the sections and comments of the current FileConfiguration,
+     * without writing it to a String and parsing it again. The values
+     * themselves are shared, since changes always set new values.
+     *
+     * @return a copy of the current FileConfiguration to make changes to
+     * (while holding the lock on this)
+     */
+    private @NotNull FileConfiguration copyFileConfiguration() {
+        FileConfiguration current = fileConfiguration;
+        YamlConfiguration copy = new YamlConfiguration();
+        copy.options().setHeader(current.options().getHeader());
+        copy.options().setFooter(current.options().getFooter());
+        for (String path : current.getKeys(true)) {
+            if (current.isConfigurationSection(path)) {
+                copy.createSection(path);
+            } else {
+                copy.set(path, current.get(path));
+            }
+            copy.setComments(path, current.getComments(path));
+            copy.setInlineComments(path, current.getInlineComments(path));
         }
+        return copy;
     }
 
     /**
-     * Add new key-value pairs to the config without losing comments,
-     * using <a href="https://github.com/tchristofferson/Config-Updater">tchristofferson's Config-Updater</a>
+     * Applies all queued List changes to a single copy of the
+     * current FileConfiguration (while holding the lock on this).
      */
-    private void updateFile() {
-        JavaPlugin plugin = Main.getPluginInstance();
+    private void applyQueuedListChanges() {
+        if (queuedListChanges.isEmpty()) {
+            return;
+        }
+        Map<String, Set<String>> updatedLists = new LinkedHashMap<>();
+        ListChange change;
+        while ((change = queuedListChanges.poll()) != null) {
+            Set<String> values = updatedLists.computeIfAbsent(change.key(),
+                    key -> fileConfiguration.getStringList(key).stream()
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toCollection(LinkedHashSet::new)));
+            change.removedValues().forEach(values::remove);
+            values.addAll(change.addedValues());
+        }
+        FileConfiguration updated = copyFileConfiguration();
+        updatedLists.forEach((key, values) -> updated.set(key, new ArrayList<>(values)));
+        replaceFileConfiguration(updated);
+    }
+
+    private void replaceFileConfiguration(@NotNull FileConfiguration updated) {
+        fileConfiguration = updated;
+        hasPendingChanges = true;
+    }
+
+    private void scheduleWrite() {
+        if (writeScheduled.compareAndSet(false, true)) {
+            try {
+                getIOExecutor().schedule(this::writePendingChanges, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                writePendingChanges();
+            }
+        }
+    }
+
+    private void writePendingChanges() {
+        writeScheduled.set(false);
+        synchronized (writeLock) {
+            String contents;
+            synchronized (this) {
+                applyQueuedListChanges();
+                if (!hasPendingChanges) {
+                    return;
+                }
+                contents = fileConfiguration.saveToString();
+                hasPendingChanges = false;
+            }
+
+            try {
+                writeAtomically(contents);
+                MyLogger.logMediumLevelMsg("Saved changes to " + fileName);
+            } catch (IOException e) {
+                synchronized (this) {
+                    hasPendingChanges = true;
+                }
+                MyLogger.logException(e, "YamlFileHandler", "saving changes to " + fileName);
+            }
+        }
+    }
+
+    /**
+     * Writes the contents to a temporary file, adds new key-value pairs from the default file without
+     * losing comments (using <a href="https://github.com/tchristofferson/Config-Updater">tchristofferson's Config-Updater</a>),
+     * and then replaces the actual file with the temporary one.
+     */
+    private void writeAtomically(String contents) throws IOException {
+        Path target = file.toPath();
+        Path temp = Files.createTempFile(target.getParent(), fileName, ".tmp");
         try {
-            ConfigUpdater.update(plugin, fileName, file);
-        } catch (IOException e) {
-            e.printStackTrace();
+            Files.writeString(temp, contents, StandardCharsets.UTF_8);
+            ConfigUpdater.update(Main.getPluginInstance(), fileName, temp.toFile());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
         }
     }
-}
\ No newline at end of file
+
+    private record ListChange(String key, List<String> addedValues, List<String> removedValues) {
+    }
+}